@@ -16,7 +16,6 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Random;
 
-import paladinus.Global;
 
 /**
  * <p>
@@ -2727,7 +2726,7 @@ public class JFactory extends BDDFactory {
 		return res;
 	}
 
-	static int supportSize = 0;
+	int supportSize = 0;
 
 	int bdd_support(int r) {
 		int n;
@@ -3073,7 +3072,7 @@ public class JFactory extends BDDFactory {
 
 				double probLow = satCountLow / (satCountHigh + satCountLow);
 				System.out.println(probLow);
-				if (probLow <= Global.generator.nextDouble()) {
+				if (probLow <= rng.nextDouble()) {
 					int res = satoneset_rec_random(LOW(r), var);
 					int m = bdd_makenode(LEVEL(r), res, BDDZERO);
 					PUSHREF(m);
@@ -3098,7 +3097,7 @@ public class JFactory extends BDDFactory {
 		} else if (LEVEL(var) < LEVEL(r)) {
 			int res = satoneset_rec_random(r, HIGH(var));
 			int m;
-			if (Global.generator.nextInt(2) == BDDONE) {
+			if (rng.nextInt(2) == BDDONE) {
 				m = bdd_makenode(LEVEL(var), BDDZERO, res);
 			} else {
 				m = bdd_makenode(LEVEL(var), res, BDDZERO);
@@ -3116,7 +3115,7 @@ public class JFactory extends BDDFactory {
 
 				// System.out.println(probLow);
 				// double probLow = 0.5;
-				if (probLow <= Global.generator.nextDouble()) {
+				if (probLow <= rng.nextDouble()) {
 					int res = satoneset_rec_random(LOW(r), HIGH(var));
 					int m = bdd_makenode(LEVEL(r), res, BDDZERO);
 					PUSHREF(m);
@@ -7291,6 +7290,16 @@ public class JFactory extends BDDFactory {
 		return rng.nextInt(i) + 1;
 	}
 
+	/**
+	 * Set the random number generator, which is also used to find random
+	 * satisfying assignments.
+	 *
+	 * @param rng random number generator
+	 */
+	public void setRandom(Random rng) {
+		this.rng = rng;
+	}
+
 	static boolean isEven(int src) {
 		return (src & 0x1) == 0;
 	}
@@ -1,11 +1,5 @@
 package paladinus;
 
-import java.util.Random;
-
-import paladinus.heuristic.pdb.PDB;
-import paladinus.heuristic.pdb.RandomWalk;
-import paladinus.search.AbstractNode;
-
 /**
  * Class used to hold static global settings.
  *
@@ -15,71 +9,55 @@ import paladinus.search.AbstractNode;
 public class Global {
 
 	public enum ExitCode {
-		EXIT_PROVEN { // task solved, plan found
-			@Override
-			public void exit() {
-				System.exit(0);
-			}
-		},
-		EXIT_CRITICAL_ERROR {
-			@Override
-			public void exit() {
-				System.exit(1);
-			}
-		},
-		EXIT_INPUT_ERROR {
-			@Override
-			public void exit() {
-				System.exit(2);
-			}
-		},
-		EXIT_UNSUPPORTED {
-			@Override
-			public void exit() {
-				System.exit(3);
-			}
-		},
-		EXIT_DISPROVEN { // task provably unsolvable
-			@Override
-			public void exit() {
-				System.exit(4);
-			}
-		},
-		EXIT_UNPROVEN { // timeout, task not solved
-			@Override
-			public void exit() {
-				System.exit(5);
-			}
-		},
-		EXIT_OUT_OF_MEMORY {
-			@Override
-			public void exit() {
-				System.exit(6);
+		EXIT_PROVEN(0), // task solved, plan found
+		EXIT_CRITICAL_ERROR(1),
+		EXIT_INPUT_ERROR(2),
+		EXIT_UNSUPPORTED(3),
+		EXIT_DISPROVEN(4), // task provably unsolvable
+		EXIT_UNPROVEN(5), // timeout, task not solved
+		EXIT_OUT_OF_MEMORY(6);
+
+		private final int code;
+
+		private ExitCode(int code) {
+			this.code = code;
+		}
+
+		public int getCode() {
+			return code;
+		}
+
+		/**
+		 * Exit the planner with this exit code. In server mode only the current job
+		 * is finished by throwing an ExitException.
+		 */
+		public void exit() {
+			if (exitByException) {
+				throw new ExitException(this);
 			}
-		};
-
-		public abstract void exit();
+			System.exit(code);
+		}
 	};
 
 	/**
-	 * Options given by the user (or defaults).
+	 * Thrown instead of exiting the JVM when a planner job of the server finishes
+	 * early.
 	 */
-	public static Options options;
+	public static class ExitException extends RuntimeException {
 
-	/**
-	 * To use everywhere in the code, where a random number is needed.
-	 */
-	public static Random generator;
+		private static final long serialVersionUID = 1L;
+
+		public final ExitCode exitCode;
+
+		public ExitException(ExitCode exitCode) {
+			super(exitCode.toString());
+			this.exitCode = exitCode;
+		}
+	}
 
 	/**
-	 * Initialize and reset static members.
+	 * If true, exit codes are thrown as ExitException instead of exiting the JVM.
 	 */
-	void initialize() {
-		options = new Options();
-		generator = new Random();
-		PDB.buildExplicitPDBs = false;
-		AbstractNode.resetIndex();
-		RandomWalk.reset();
-	}
+	static volatile boolean exitByException = false;
 
 }
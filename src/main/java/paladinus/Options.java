@@ -5,6 +5,7 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.List;
 
 import org.kohsuke.args4j.Argument;
 import org.kohsuke.args4j.CmdLineException;
@@ -12,11 +13,11 @@ import org.kohsuke.args4j.CmdLineParser;
 import org.kohsuke.args4j.Option;
 
 import paladinus.heuristic.HeuristicEstimator;
-import paladinus.heuristic.pdb.PDB;
 import paladinus.heuristic.pdb.PatternCollectionSearch.PatternSearch;
 import paladinus.parser.SasParser;
 import paladinus.search.AbstractSearch;
 import paladinus.search.SearchAlgorithm;
+import paladinus.search.portfolio.PortfolioConfiguration;
 
 /**
  *
@@ -167,6 +168,32 @@ public class Options {
 		}
 	}
 
+	/**
+	 * Handled by PaladinusPlanner.main before the options are parsed, if it is the
+	 * first argument. The other options are the defaults of the jobs of the server.
+	 */
+	@Option(name = "-server", usage = "run as server which reads planning jobs as JSON lines from stdin (must be the first option)")
+	boolean server = false;
+
+	private void checkServer() throws CmdLineException {
+		if (server) {
+			throw new CmdLineException(parser, new Exception("-server must be the first option"));
+		}
+	}
+
+	/**
+	 * Number of jobs the server solves at the same time. Read by the server from
+	 * its own options, ignored by the jobs.
+	 */
+	@Option(name = "-serverThreads", usage = "set number of jobs the server solves at the same time")
+	int serverThreads = 1;
+
+	private void checkServerThreads() throws CmdLineException {
+		if (serverThreads < 1) {
+			throw new CmdLineException(parser, new Exception("the server needs at least one thread"));
+		}
+	}
+
 	@Option(name = "-debug", usage = "use debug option")
 	Bool debug = Bool.OFF;
 
@@ -218,6 +245,13 @@ public class Options {
 		return sas;
 	}
 
+	/**
+	 * Set the SAS+ file to be parsed, i.e. the file written by the translator.
+	 */
+	void setSASFilename(String sas) {
+		this.sas = sas;
+	}
+
 
 	// //////////////// Planner options //////////////////
 
@@ -268,6 +302,17 @@ public class Options {
 	public String getTranslatorPath() {
 		return translatorPath;
 	}
+
+	/**
+	 * Directory where translated SAS+ files are saved and reused on later runs for
+	 * the same domain and problem files and translator.
+	 */
+	@Option(name = "-translatorCacheDir", usage = "save and reuse translated SAS+ files in directory", metaVar = "DIRNAME")
+	String translatorCacheDirectory = null;
+
+	public String getTranslatorCacheDirectory() {
+		return translatorCacheDirectory;
+	}
 	@SuppressWarnings("unused")
 	private void checkTranslatorPath() throws CmdLineException {
 		if (translatorPath != null) {
@@ -325,6 +370,71 @@ public class Options {
 		return this.pruning;
 	}
 
+	/**
+	 * Number of threads used by the iterative depth-first search pruning to
+	 * explore the connectors of the initial state in parallel.
+	 */
+	@Option(name = "-threads", usage = "set number of threads used by ITERATIVE_DFS_PRUNING")
+	int threads = 1;
+
+	private void checkThreads() throws CmdLineException {
+		if (threads < 1) {
+			throw new CmdLineException(parser, new Exception("at least one thread has to be specified"));
+		}
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * Configurations which are run concurrently on the same problem. The first
+	 * configuration which finds a policy wins.
+	 */
+	@Option(name = "-portfolio", usage = "run the comma-separated configurations SEARCH:HEURISTIC[:ACTION_SELECTION[:SECONDS]] concurrently")
+	String portfolio = null;
+
+	List<PortfolioConfiguration> portfolioConfigurations = null;
+
+	private void checkPortfolio() throws CmdLineException {
+		if (portfolio == null)
+			return;
+		try {
+			portfolioConfigurations = PortfolioConfiguration.parse(portfolio, actionSelectionCriterion);
+		} catch (IllegalArgumentException e) {
+			throw new CmdLineException(parser, new Exception("invalid portfolio: " + e.getMessage()));
+		}
+	}
+
+	/**
+	 * Get the configurations of the portfolio.
+	 *
+	 * @return configurations, or null if no portfolio is used
+	 */
+	public List<PortfolioConfiguration> getPortfolio() {
+		return portfolioConfigurations;
+	}
+
+	/**
+	 * Number of threads which evaluate the children of a node in parallel, each
+	 * with its own instance of the heuristic.
+	 */
+	@Option(name = "-heuristicThreads", usage = "set number of threads evaluating the children of a node (FF, HADD, HMAX and LMCUT)")
+	int heuristicThreads = 1;
+
+	private void checkHeuristicThreads() throws CmdLineException {
+		if (heuristicThreads < 1) {
+			throw new CmdLineException(parser, new Exception("at least one heuristic thread has to be specified"));
+		}
+		if (heuristicThreads > 1 && heuristic != HeuristicEstimator.FF && heuristic != HeuristicEstimator.HADD && heuristic != HeuristicEstimator.HMAX && heuristic != HeuristicEstimator.LMCUT) {
+			throw new CmdLineException(parser, new Exception("parallel evaluation is only supported by FF, HADD, HMAX and LMCUT"));
+		}
+	}
+
+	public int getHeuristicThreads() {
+		return heuristicThreads;
+	}
+
 	@Option(name = "-hs", aliases = "-heuristics", usage = "set heuristics")
 	String heuristics = null;
 	
@@ -383,6 +493,20 @@ public class Options {
 		this.useMaxChildNodes = (value ? Bool.ON : Bool.OFF);
 	}
 	
+	@Option(name = "-incrementalHeuristic", usage = "evaluate the successors of a node by repairing the heuristic computation of the node instead of starting from scratch (HMAX and LMCUT). LMCUT then uses the exact h^max costs of all propositions in its first round.")
+	Bool incrementalHeuristic = Bool.OFF;
+	
+	public boolean incrementalHeuristic() {
+		return incrementalHeuristic == Bool.ON;
+	}
+	
+	@Option(name = "-incrementalLMCut", usage = "compute the h^max costs after each cut of LMCUT by repairing the costs of the previous round instead of starting from scratch. The cuts are then chosen with the exact h^max costs of all propositions, which may change the heuristic values.")
+	Bool incrementalLMCut = Bool.OFF;
+	
+	public boolean incrementalLMCut() {
+		return incrementalLMCut == Bool.ON;
+	}
+	
 	@Option(name = "-useMaxHeuristicAndAvgConnectors2SelectBestActions", hidden = true, usage = "use the max value between H and the average of the connectors to select the best actions.")
 	Bool useMaxHeuristicAndAvgConnectors2SelectBestActions = Bool.OFF;
 	
@@ -415,13 +539,13 @@ public class Options {
 			}
 			hillClimbingSteps = 0;
 			if (planningTask == Type.FOND) {
-				PDB.buildExplicitPDBs = true;
+				buildExplicitPDBs = true;
 			} else {
-				PDB.buildExplicitPDBs = false;
+				buildExplicitPDBs = false;
 			}
 			break;
 		case FO:
-			PDB.buildExplicitPDBs = true;
+			buildExplicitPDBs = true;
 			break;
 		default:
 			assert false;
@@ -432,6 +556,18 @@ public class Options {
 		return patternSearch;
 	}
 
+	/**
+	 * For POND: use explicit PDBs under assumption of full observability instead of
+	 * belief state PDBs (under partial observability). Follows from the pattern
+	 * search and -assumeFO, the pattern search of a run may change it in the
+	 * planning context.
+	 */
+	private boolean buildExplicitPDBs = false;
+
+	public boolean buildExplicitPDBs() {
+		return buildExplicitPDBs;
+	}
+
 	@Option(name = "-steps", usage = "set maximal number of hill climbing iterations in pattern search")
 	int hillClimbingSteps = Integer.MAX_VALUE;
 
@@ -514,6 +650,64 @@ public class Options {
 		return pdbsOverallMaxSize;
 	}
 
+	@Option(name = "-pdbThreads", usage = "set number of threads of the pattern search (PDBs, candidates, random walks)")
+	int pdbThreads = 1;
+
+	private void checkPDBThreads() throws CmdLineException {
+		if (pdbThreads < 1) {
+			throw new CmdLineException(parser, new Exception("pdbThreads of " + pdbThreads + " does not make sense"));
+		}
+	}
+
+	public int getPDBThreads() {
+		return pdbThreads;
+	}
+
+	@Option(name = "-pdbEntryBits", usage = "set bits per entry of explicit-state PDBs: 64 (exact), 16 or 8 (quantized)")
+	int pdbEntryBits = 64;
+
+	private void checkPDBEntryBits() throws CmdLineException {
+		if (pdbEntryBits != 64 && pdbEntryBits != 16 && pdbEntryBits != 8) {
+			throw new CmdLineException(parser, new Exception("pdbEntryBits of " + pdbEntryBits + " is not supported"));
+		}
+	}
+
+	public int getPDBEntryBits() {
+		return pdbEntryBits;
+	}
+
+	/**
+	 * Directory where explicit-state PDBs are saved and loaded from on later runs
+	 * for the same SAS file.
+	 */
+	@Option(name = "-pdbCacheDir", usage = "save and load explicit-state PDBs in directory", metaVar = "DIRNAME")
+	String pdbCacheDirectory = null;
+
+	public String getPDBCacheDirectory() {
+		return pdbCacheDirectory;
+	}
+
+	/**
+	 * Directory where parsed SAS+ tasks are saved in binary form and loaded from
+	 * on later runs for the same SAS file.
+	 */
+	@Option(name = "-sasCacheDir", usage = "save and load parsed SAS+ tasks in binary form in directory", metaVar = "DIRNAME")
+	String sasCacheDirectory = null;
+
+	public String getSASCacheDirectory() {
+		return sasCacheDirectory;
+	}
+
+	private void checkCacheDirectory(String name, String directoryName) throws CmdLineException {
+		if (directoryName != null) {
+			File directory = new File(directoryName);
+			if (!directory.isDirectory() && !directory.mkdirs()) {
+				throw new CmdLineException(parser,
+						new Exception(name + " cache directory " + directoryName + " cannot be created"));
+			}
+		}
+	}
+
 	@Option(name = "-minImprovement", usage = "set fraction of required improvers to continue pattern search", metaVar = "X")
 	double minImprovement = 0.1;
 
@@ -563,6 +757,17 @@ public class Options {
 		return randomWalkSamples;
 	}
 
+	/**
+	 * Seed of the random number generator, e.g. for the random walks of the
+	 * pattern search. Without a seed, every run is seeded differently.
+	 */
+	@Option(name = "-seed", usage = "set seed of the random number generator")
+	Long seed = null;
+
+	public Long getSeed() {
+		return seed;
+	}
+
 	/**
 	 * When assuming full observability, explicit states are used instead of belief
 	 * states even for problem solving. Only for PDB heuristic, because in FF we
@@ -573,7 +778,7 @@ public class Options {
 
 	private void checkAssumeFOForPDBs() throws CmdLineException {
 		if (assumeFOforPDBs) {
-			PDB.buildExplicitPDBs = true;
+			buildExplicitPDBs = true;
 		}
 	}
 
@@ -608,8 +813,7 @@ public class Options {
 	 */
 	void printHelp(CmdLineParser parser) {
 
-		parser.printUsage(java.lang.System.out);  
-		System.exit(-1);
+		parser.printUsage(java.lang.System.out);
 
 		// System.err.println();
 		// System.err.println("Usage:");
@@ -672,15 +876,24 @@ public class Options {
 		// checkGroups();
 		checkHiddenOptions();
 		if (!help) {
+			checkServer();
+			checkServerThreads();
 			checkExportPlanFilename();
 			checkExportDot();
 			checkSASFile();
 			// checkDependencies();
 			checkPlannerTimeout();
+			checkThreads();
+			checkPortfolio();
+			checkHeuristicThreads();
 			checkMinImprovementAndGreedyImprovement();
 			checkPDBTimeout();
 			checkPDBMaxSize();
 			checkPDBsMaxSize();
+			checkPDBThreads();
+			checkPDBEntryBits();
+			checkCacheDirectory("PDB", pdbCacheDirectory);
+			checkCacheDirectory("SAS", sasCacheDirectory);
 			checkRandomWalkSamples();
 			checkPatternSearch();
 			checkSteps();
@@ -692,12 +905,12 @@ public class Options {
 	private void checkSASFile() throws CmdLineException, FileNotFoundException, IOException {
 		if (args == null) {
 			throw new CmdLineException(parser, new Exception("No SAS+ file or " + "PDDL files given."));
-		} else if (Global.options.args.length > 2) {
+		} else if (args.length > 2) {
 			throw new CmdLineException(parser, new Exception("Too many arguments: " + Arrays.asList(args)));
 		}
 		// String sasFilename = args[0];
 		// Check if given file is a partial observable or a full observable problem.
-		boolean fond = new SasParser().isFond(new FileInputStream(this.sas));
+		boolean fond = new SasParser(null).isFond(new FileInputStream(this.sas));
 		if (fond)
 			planningTask = Type.FOND;
 		
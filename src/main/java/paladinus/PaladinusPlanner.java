@@ -1,14 +1,18 @@
 package paladinus;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.lang.management.GarbageCollectorMXBean;
 import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Locale;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
@@ -16,6 +20,8 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.kohsuke.args4j.CmdLineException;
 import org.kohsuke.args4j.CmdLineParser;
@@ -24,15 +30,19 @@ import org.kohsuke.args4j.ParserProperties;
 import paladinus.Global.ExitCode;
 import paladinus.heuristic.Heuristic;
 import paladinus.heuristic.HeuristicGenerator;
+import paladinus.heuristic.ParallelHeuristic;
 import paladinus.parser.SasParser;
 import paladinus.problem.Problem;
 import paladinus.search.AbstractSearch;
 import paladinus.search.AbstractSearch.Result;
+import paladinus.search.SearchAlgorithm;
 import paladinus.search.dfs.DepthFirstSearch;
 import paladinus.search.dfs.iterative.IterativeDepthFirstSearch;
 import paladinus.search.dfs.iterative.IterativeDepthFirstSearchLearning;
 import paladinus.search.dfs.iterative.IterativeDepthFirstSearchPruning;
+import paladinus.search.portfolio.PortfolioSearch;
 import paladinus.simulator.PlanSimulator;
+import paladinus.util.FileDigest;
 import paladinus.util.OsUtils;
 
 /**
@@ -53,26 +63,37 @@ public class PaladinusPlanner {
 	 */
 	protected Problem problem;
 
+	/**
+	 * Options of this planner.
+	 */
+	private final Options options = new Options();
+
 	/**
 	 * Search algorithm which is used for solving the problem.
 	 */
 	private AbstractSearch search = null;
 
+	/**
+	 * Temporary directory of a translation which is not cached, or null. It is
+	 * deleted when the problem has been run.
+	 */
+	private Path translationDirectory = null;
+
 	/**
 	 * Start time of the planner. Parsing and initialization of the planning problem
 	 * is not measured.
 	 */
-	private static long startTime;
+	private long startTime;
 
 	/**
 	 * Time used for preprocessing of the used heuristic.
 	 */
-	private static long timeUsedForPreprocessing;
+	private long timeUsedForPreprocessing;
 
 	/**
 	 * Time used in overall by runSearchDo()
 	 */
-	private static long timeUsedOverall;
+	private long timeUsedOverall;
 
 	/**
 	 * For unit tests.
@@ -92,7 +113,6 @@ public class PaladinusPlanner {
 	 * @throws IOException
 	 */
 	public PaladinusPlanner(String[] args) throws FileNotFoundException, IOException {
-		new Global().initialize();
 		initialize(args);
 	}
 
@@ -110,19 +130,30 @@ public class PaladinusPlanner {
 			System.err.println("Error: Invalid or empty arguments!");
 			System.err.println(
 					  "Check help: java -jar target/paladinus-1.1-jar-with-dependencies.jar --help");
+		} else if (args[0].equals("-server")) {
+			PlannerServer.main(Arrays.copyOfRange(args, 1, args.length));
 		} else {
 			Locale.setDefault(Locale.US);
 			Result result = new PaladinusPlanner(args).runProblem();
 			assert (result != null);
+			getExitCode(result).exit();
+		}
+	}
 
-			switch (result) {
-			case PROVEN:
-				ExitCode.EXIT_PROVEN.exit();
-			case DISPROVEN:
-				ExitCode.EXIT_DISPROVEN.exit();
-			default:
-				ExitCode.EXIT_UNPROVEN.exit();
-			}
+	/**
+	 * Get the exit code of the planner for the result of the search.
+	 *
+	 * @param result result of the search
+	 * @return exit code
+	 */
+	static ExitCode getExitCode(Result result) {
+		switch (result) {
+		case PROVEN:
+			return ExitCode.EXIT_PROVEN;
+		case DISPROVEN:
+			return ExitCode.EXIT_DISPROVEN;
+		default:
+			return ExitCode.EXIT_UNPROVEN;
 		}
 	}
 
@@ -146,44 +177,132 @@ public class PaladinusPlanner {
 		System.out.println("Total Garbage Collection Time: " + garbageCollectionTime / 1000 + " seconds.");
 	}
 
+	/**
+	 * Translate the given domain and problem files into a SAS+ file. The
+	 * translator runs in a temporary directory of its own and the planner parses
+	 * the translation there, so that concurrent planners in the same directory do
+	 * not read each other's output.sas. Nothing is written to the working
+	 * directory. The output of the translator is collected in a log file and
+	 * printed when the translator is finished, so that waiting for it can be
+	 * interrupted, which stops the translator.
+	 *
+	 * If a translator cache directory is given, translations are kept there,
+	 * keyed by the digests of the domain and problem files and of the translator
+	 * sources, and cached translations are used without running the translator.
+	 */
 	private void executeTranslator() {
-		String domain = new File(Global.options.getDomainFilename()).getAbsolutePath();
-		String instance = new File(Global.options.getInstanceFilename()).getAbsolutePath();
+		String domain = new File(options.getDomainFilename()).getAbsolutePath();
+		String instance = new File(options.getInstanceFilename()).getAbsolutePath();
 		String translator;
-		if (Global.options.type == Options.Type.FOND) {
-			translator = new File(Global.options.getTranslatorPath()).getAbsolutePath();
+		if (options.type == Options.Type.FOND) {
+			translator = new File(options.getTranslatorPath()).getAbsolutePath();
 		} else {
 			System.err.println("Translate type not specified");
 			return;
 		}
+		Process translate_p = null;
 		try {
-			Process translate_p;
 			System.out.println(String.format("Set FOND Translator Path: %s", translator));
 			System.out.println(String.format("Domain to translate: %s", domain));
 			System.out.println(String.format("Problem to translate: %s", instance));
 
-			// Before generating new output.sas, delete any previous version if any
-			File output_sas = new File("output.sas");
-			if (output_sas.delete()) {
-			  System.out.println("Deleted existing file: " + output_sas.getName());
+			String cacheDirectory = options.getTranslatorCacheDirectory();
+			Path cached = null;
+			if (cacheDirectory != null) {
+				String key = FileDigest.sha256(FileDigest.sha256(Paths.get(domain)) + " "
+						+ FileDigest.sha256(Paths.get(instance)) + " " + getTranslatorVersion(Paths.get(translator)));
+				cached = Paths.get(cacheDirectory, key, "output.sas");
+				if (Files.isRegularFile(cached)) {
+					System.out.println("Loaded translated task from " + cached);
+					options.setSASFilename(cached.toString());
+					return;
+				}
+				Files.createDirectories(cached.getParent());
 			}
 
+			// The work directory is next to the cached file, so that it can be moved there atomically.
+			Path workDirectory = cached != null ? Files.createTempDirectory(cached.getParent(), "translate")
+					: Files.createTempDirectory("paladinus-translate");
+			translationDirectory = workDirectory;
+			ProcessBuilder builder;
 			if(OsUtils.isWindows())
-				translate_p = new ProcessBuilder("cmd.exe", "/c", "python", translator, domain, instance).start();
+				builder = new ProcessBuilder("cmd.exe", "/c", "python", translator, domain, instance);
 			else
-				translate_p = new ProcessBuilder(translator, domain, instance).start();
+				builder = new ProcessBuilder(translator, domain, instance);
+			Path log = workDirectory.resolve("translate.log");
+			translate_p = builder.directory(workDirectory.toFile()).redirectErrorStream(true).redirectOutput(log.toFile()).start();
+			translate_p.waitFor();
 
-			InputStream is = translate_p.getInputStream();
-			InputStreamReader isr = new InputStreamReader(is);
-			BufferedReader br = new BufferedReader(isr);
-			String line;
 			System.out.printf("Output of running %s is:\n", translator);
-			while ((line = br.readLine()) != null) {
-				System.out.println(line);
+			Files.copy(log, System.out);
+			System.out.flush();
+			Files.delete(log);
+
+			Path output = workDirectory.resolve("output.sas");
+			if (!Files.isRegularFile(output)) {
+				System.err.println("Translator did not write a SAS+ file.");
+				deleteTranslation();
+				Global.ExitCode.EXIT_INPUT_ERROR.exit();
+			}
+			if (cached != null) {
+				Files.move(output, cached, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				Files.delete(workDirectory);
+				translationDirectory = null;
+				output = cached;
 			}
+			options.setSASFilename(output.toString());
 		} catch (IOException e) {
 			e.printStackTrace();
+			deleteTranslation();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			translate_p.destroyForcibly();
+			deleteTranslation();
+			// Only a job of a server is interrupted, which must not stop the JVM
+			// even if the server has finished meanwhile.
+			System.err.println("Translation interrupted.");
+			throw new Global.ExitException(Global.ExitCode.EXIT_UNPROVEN);
+		}
+	}
+
+	/**
+	 * Delete the temporary directory of a translation which is not cached. The
+	 * SAS+ file in it is read until the heuristic is built, e.g. for the keys of
+	 * cached PDBs, so it is deleted when the problem has been run.
+	 */
+	private void deleteTranslation() {
+		if (translationDirectory == null) {
+			return;
 		}
+		try (Stream<Path> files = Files.walk(translationDirectory)) {
+			for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+				Files.deleteIfExists(file);
+			}
+		} catch (IOException e) {
+			System.err.println("WARNING: Translation could not be deleted from " + translationDirectory + ": " + e.getMessage());
+		}
+		translationDirectory = null;
+	}
+
+	/**
+	 * Get the version of the translator as the digest of the Python sources in
+	 * the directory of the translator script.
+	 *
+	 * @param translator translator script
+	 * @return digest of the translator sources
+	 * @throws IOException
+	 */
+	private static String getTranslatorVersion(Path translator) throws IOException {
+		Path directory = translator.getParent();
+		List<Path> sources;
+		try (Stream<Path> files = Files.walk(directory)) {
+			sources = files.filter(file -> file.toString().endsWith(".py")).sorted().collect(Collectors.toList());
+		}
+		StringBuilder version = new StringBuilder();
+		for (Path source : sources) {
+			version.append(directory.relativize(source)).append(' ').append(FileDigest.sha256(source)).append('\n');
+		}
+		return FileDigest.sha256(version.toString());
 	}
 
 	/**
@@ -198,26 +317,27 @@ public class PaladinusPlanner {
 		assert problem == null;
 		System.out.println("Paladinus: An Iterative Depth-First Search FOND Planner\n");
 
-		CmdLineParser parser = new CmdLineParser(Global.options, ParserProperties.defaults().withOptionSorter(null));
-		Global.options.setParser(parser);
+		CmdLineParser parser = new CmdLineParser(options, ParserProperties.defaults().withOptionSorter(null));
+		options.setParser(parser);
 		try {
 			parser.parseArgument(args);
 
-			if (Global.options.help) {
-				Global.options.printHelp(parser);
+			if (options.help) {
+				// Help exits with the same code as invalid options (2, formerly -1).
+				options.printHelp(parser);
 				Global.ExitCode.EXIT_INPUT_ERROR.exit();
 			}
-			Global.options.setDefaults();
-			Global.options.parseArgs();	// SS: added args as otherwise it will be null!
-			if (Global.options.getDomainFilename() != null && Global.options.getInstanceFilename() != null) {
+			options.setDefaults();
+			options.parseArgs();	// SS: added args as otherwise it will be null!
+			if (options.getDomainFilename() != null && options.getInstanceFilename() != null) {
 				
 				executeTranslator();
 			}
-			Global.options.checkOptions();
+			options.checkOptions();
 		} catch (CmdLineException e) {
 			/* Handling of wrong arguments. */
 			System.err.println(e.getMessage() + "\n");
-			Global.options.printHelp(parser);
+			options.printHelp(parser);
 			Global.ExitCode.EXIT_INPUT_ERROR.exit();
 	}
 
@@ -225,7 +345,7 @@ public class PaladinusPlanner {
 		/* Create either a partially observable or a fully observable problem. */
 		if (DEBUG)
 			System.err.println("Start parsing given planning task.");
-		problem = new SasParser().parse(new FileInputStream(Global.options.getSASFilename()));
+		problem = new SasParser(new PlanningContext(options)).parse(options.getSASFilename());
 		assert problem != null;
 
 		/* Do operator preprocessing respectively initialization of BDDs. */
@@ -240,12 +360,17 @@ public class PaladinusPlanner {
 	 * @return true iff a solution is found.
 	 */
 	public Result runProblem() {
-		Result planFound = runProblemWithoutStats();
+		Result planFound;
+		try {
+			planFound = runProblemWithoutStats();
+		} finally {
+			deleteTranslation();
+		}
 		assert problem != null;
 
 		if (planFound == Result.PROVEN) {
 			System.out.println("INITIAL IS PROVEN!");
-			if(Global.options.validatePolicyPRP() || Global.options.validatePolicy()) {
+			if(options.validatePolicyPRP() || options.validatePolicy()) {
 				search.validatePolicy();
 				if(search.getPolicy().isValid())
 					System.out.println("Result: Policy successfully found.");
@@ -275,19 +400,19 @@ public class PaladinusPlanner {
 		System.out.println("Time needed:                                        " + timeUsedOverall / 1000.0 + " seconds.");
 		printGCStats();
 		System.out.println();
-		search.printStats(Global.options.computeCosts);
+		search.printStats(options.computeCosts);
 		if (planFound == Result.PROVEN) {
 			System.out.println("# Total Time                = " + (timeUsedOverall / 1000.0) + " seconds.");
 			System.out.println();
-			if (Global.options.exportPolicyFilename != null)
-				search.printPolicy(Global.options.exportPolicyFilename);
+			if (options.exportPolicyFilename != null)
+				search.printPolicy(options.exportPolicyFilename);
 
-			if (Global.options.exportDotFilename != null) {
-				System.out.println("@> Dot file: " + Global.options.exportDotFilename);
-				PlanSimulator.savePlanAsDot(problem, search.getPolicy(), Global.options.exportDotFilename);
+			if (options.exportDotFilename != null) {
+				System.out.println("@> Dot file: " + options.exportDotFilename);
+				PlanSimulator.savePlanAsDot(problem, search.getPolicy(), options.exportDotFilename);
 			}
 			/* Extract and dump policy. */
-			if (Global.options.dumpPolicy) {
+			if (options.dumpPolicy) {
 				System.out.println("\n# Policy: \n");
 				search.dumpPolicy();
 			}
@@ -307,7 +432,8 @@ public class PaladinusPlanner {
 
 		Heuristic heuristic = null;
 		boolean heuristicConstructed = false;
-		heuristic = HeuristicGenerator.getHeuristic(problem, Global.options.heuristic.toString());
+		if (options.getPortfolio() == null)
+			heuristic = createHeuristic(problem, options.heuristic.toString());
 		heuristicConstructed = true;
 
 		if (!heuristicConstructed) {
@@ -321,66 +447,48 @@ public class PaladinusPlanner {
 			if (DEBUG)
 				System.out.println(String.format("Done, took %.2f s.", (System.currentTimeMillis() - gc_start) / 1000.0) + "\n");
 
-			switch (Global.options.searchAlgorithm) {
-				case DFS:
-					System.out.println("Algorithm: Depth-First Search for FOND Planning");
-					if(heuristic != null)
-						search = new DepthFirstSearch(problem, heuristic, Global.options.actionSelectionCriterion, Global.options.evaluationFunctionCriterion);
-					break;
-
-				case ITERATIVE_DFS:
-					System.out.println("Algorithm: Iterative Depth-First Search for FOND Planning");
-					if(heuristic != null)
-						search = new IterativeDepthFirstSearch(problem, heuristic, Global.options.actionSelectionCriterion, Global.options.evaluationFunctionCriterion);
-					break;
-
-				case ITERATIVE_DFS_PRUNING:
-					System.out.println("Algorithm: Iterative Depth-First Search Pruning for FOND Planning");
-					if(heuristic != null)
-						search = new IterativeDepthFirstSearchPruning(problem, heuristic, Global.options.actionSelectionCriterion, Global.options.evaluationFunctionCriterion, Global.options.checkSolvedStates);
-					break;
-					
-				case ITERATIVE_DFS_LEARNING:
-					System.out.println("Algorithm: Iterative Depth-First Search Learning for FOND Planning");
-					if(heuristic != null)
-						search = new IterativeDepthFirstSearchLearning(problem, heuristic, Global.options.actionSelectionCriterion, Global.options.evaluationFunctionCriterion);
-					break;					
-
-				default:
-					new Exception("Unknown Search Algorithm.").printStackTrace();
-					Global.ExitCode.EXIT_CRITICAL_ERROR.exit();
-			}
+			if (options.getPortfolio() != null) {
+				System.out.println("Algorithm: Portfolio of " + options.getPortfolio().size() + " configurations");
+				search = new PortfolioSearch(problem, options.getPortfolio());
+			} else search = createSearch(problem, heuristic, options.searchAlgorithm, options.actionSelectionCriterion);
 
 			/* Finish measuring of preprocessing time. */
 			timeUsedForPreprocessing = System.currentTimeMillis() - startTime;
 
 			/* Set timeout for search. */
-			long t = Global.options.timeout - timeUsedForPreprocessing;
+			long t = options.timeout - timeUsedForPreprocessing;
 			if (t <= 0) {
 				new Exception("Results: Timeout occurs during preprocessing.").printStackTrace();
 				Global.ExitCode.EXIT_UNPROVEN.exit();
 			}
-			search.setTimeout(Global.options.timeout - timeUsedForPreprocessing);
+			search.setTimeout(options.timeout - timeUsedForPreprocessing);
 
 			ExecutorService service = Executors.newFixedThreadPool(1);
 		    Future<Result> futureResult = service.submit(search);
 		    try{
-		        planFound = futureResult.get(Global.options.timeout, TimeUnit.MILLISECONDS);
+		        planFound = futureResult.get(options.timeout, TimeUnit.MILLISECONDS);
 		    }catch(TimeoutException e){
 		    	planFound = Result.TIMEOUT;
 		        futureResult.cancel(true);
 		    } catch (InterruptedException e) {
 		    	planFound = Result.TIMEOUT;
-				e.printStackTrace();
+		    	futureResult.cancel(true);
+		    	Thread.currentThread().interrupt();
 			} catch (ExecutionException e) {
+				if (e.getCause() instanceof Global.ExitException)
+					throw (Global.ExitException) e.getCause();
 				planFound = Result.OUT_OF_MEMORY;
 				if(e.getCause() instanceof NullPointerException)
 					planFound = Result.TIMEOUT;
 				e.printStackTrace();
 			}catch (OutOfMemoryError e) {
 				e.printStackTrace();
+			} finally {
+				service.shutdown();
+				/* Stop the threads of the heuristic, e.g. in the server. */
+				if (heuristic != null)
+					heuristic.close();
 			}
-		    service.shutdown();
 		}
 		/* Stop measuring search time. */
 		timeUsedOverall = System.currentTimeMillis() - startTime;
@@ -389,12 +497,79 @@ public class PaladinusPlanner {
 		return planFound;
 	}
 
+	/**
+	 * Create the heuristic with the given name, evaluated by as many threads as
+	 * set in the options of the problem. The heuristic is built once, the
+	 * instances of the other threads are copies sharing its read-only data.
+	 *
+	 * @param problem problem to solve
+	 * @param heuristicName name of the heuristic
+	 * @return heuristic
+	 */
+	public static Heuristic createHeuristic(Problem problem, String heuristicName) {
+		Options options = problem.getContext().getOptions();
+		Heuristic heuristic;
+		if (options.getHeuristicThreads() > 1) {
+			Heuristic instance = HeuristicGenerator.getHeuristic(problem, heuristicName);
+			List<Heuristic> instances = new ArrayList<Heuristic>();
+			instances.add(instance);
+			for (int i = 1; i < options.getHeuristicThreads(); i++)
+				instances.add(instance.copy());
+			heuristic = new ParallelHeuristic(instances);
+		} else heuristic = HeuristicGenerator.getHeuristic(problem, heuristicName);
+		return heuristic;
+	}
+
+	/**
+	 * Create a search algorithm for the given problem.
+	 *
+	 * @param problem problem to solve
+	 * @param heuristic heuristic guiding the search
+	 * @param algorithm search algorithm
+	 * @param actionSelectionCriterion action selection criterion of the search
+	 * @return search
+	 */
+	public static AbstractSearch createSearch(Problem problem, Heuristic heuristic, SearchAlgorithm algorithm, String actionSelectionCriterion) {
+		Options options = problem.getContext().getOptions();
+		AbstractSearch search = null;
+		switch (algorithm) {
+			case DFS:
+				System.out.println("Algorithm: Depth-First Search for FOND Planning");
+				if(heuristic != null)
+					search = new DepthFirstSearch(problem, heuristic, actionSelectionCriterion, options.evaluationFunctionCriterion);
+				break;
+
+			case ITERATIVE_DFS:
+				System.out.println("Algorithm: Iterative Depth-First Search for FOND Planning");
+				if(heuristic != null)
+					search = new IterativeDepthFirstSearch(problem, heuristic, actionSelectionCriterion, options.evaluationFunctionCriterion);
+				break;
+
+			case ITERATIVE_DFS_PRUNING:
+				System.out.println("Algorithm: Iterative Depth-First Search Pruning for FOND Planning");
+				if(heuristic != null)
+					search = new IterativeDepthFirstSearchPruning(problem, heuristic, actionSelectionCriterion, options.evaluationFunctionCriterion, options.checkSolvedStates);
+				break;
+				
+			case ITERATIVE_DFS_LEARNING:
+				System.out.println("Algorithm: Iterative Depth-First Search Learning for FOND Planning");
+				if(heuristic != null)
+					search = new IterativeDepthFirstSearchLearning(problem, heuristic, actionSelectionCriterion, options.evaluationFunctionCriterion);
+				break;					
+
+			default:
+				new Exception("Unknown Search Algorithm.").printStackTrace();
+				Global.ExitCode.EXIT_CRITICAL_ERROR.exit();
+		}
+		return search;
+	}
+
 	/**
 	 * Get start time of the planner.
 	 *
 	 * @return start time
 	 */
-	public static long getStartTime() {
+	public long getStartTime() {
 		return startTime;
 	}
 
@@ -403,7 +578,7 @@ public class PaladinusPlanner {
 	 *
 	 * @return preprocessing time
 	 */
-	public static long getTimeUsedForPreprocessing() {
+	public long getTimeUsedForPreprocessing() {
 		return timeUsedForPreprocessing;
 	}
 
@@ -430,10 +605,11 @@ public class PaladinusPlanner {
 	/**
 	 * Get name of problem instance.
 	 *
+	 * @param options options of the planner run
 	 * @return name of problem instance
 	 */
-	public static String getNameOfProblemInstance() {
-		String[] str = Global.options.getSASFilename().split("/");
+	public static String getNameOfProblemInstance(Options options) {
+		String[] str = options.getSASFilename().split("/");
 		return str[str.length - 1].replace(".sas", "");
 	}
 }
@@ -0,0 +1,323 @@
+package paladinus;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import paladinus.Global.ExitCode;
+import paladinus.search.AbstractSearch.Result;
+import paladinus.util.Json;
+
+/**
+ *
+ * Server mode of the planner, which solves planning jobs in one long-running
+ * JVM, so that the jobs do not pay for JVM start, class loading and JIT
+ * warm-up. Jobs are read as JSON lines from stdin, e.g.
+ *
+ * <pre>
+ * {"id": 1, "sas": "task.sas", "args": ["-search", "ITERATIVE_DFS", "-heuristic", "FF"], "timeout": 60}
+ * {"id": 2, "domain": "domain.pddl", "problem": "p01.pddl", "args": ["-printPolicy"]}
+ * </pre>
+ *
+ * The options given to the server are the defaults of all jobs, the args and
+ * the timeout (in seconds) of a job are added to them. For each job one JSON
+ * line is written to stdout when the job is finished, with the id, the exit
+ * code and result of the planner, the time in milliseconds and the output of
+ * the planner, which contains the policy if it is printed:
+ *
+ * <pre>
+ * {"id": 1, "exitCode": 0, "result": "PROVEN", "millis": 153, "output": "..."}
+ * </pre>
+ *
+ * Jobs are queued and solved by -serverThreads worker threads (one by default).
+ * Every job has its own planner and planning context, the standard output is
+ * captured per job. Stdout carries only the JSON lines of the responses;
+ * output of threads belonging to no job goes to stderr. A job with a timeout
+ * is cancelled if it is not finished shortly after its timeout, e.g. when it
+ * is stuck in the translation, and answered with the result TIMEOUT.
+ */
+public class PlannerServer {
+
+	/**
+	 * Options which are given to every job.
+	 */
+	private final String[] defaultArgs;
+
+	/**
+	 * Stream the responses are written to.
+	 */
+	private final PrintStream responses;
+
+	/**
+	 * Number of jobs solved at the same time.
+	 */
+	private final int threads;
+
+	/**
+	 * Standard output of the job of a thread. Threads started by a job, e.g. for
+	 * the search or the pattern search, inherit the output of the job.
+	 */
+	private static final InheritableThreadLocal<PrintStream> jobOutput = new InheritableThreadLocal<PrintStream>();
+
+	/**
+	 * Time in milliseconds a job is given after its timeout to finish by itself,
+	 * e.g. to print its statistics, before it is cancelled.
+	 */
+	static final long TIMEOUT_GRACE = 2000;
+
+	/**
+	 * Create a server.
+	 *
+	 * @param defaultArgs options which are given to every job
+	 * @param responses   stream the responses are written to
+	 * @param threads     number of jobs solved at the same time
+	 */
+	public PlannerServer(String[] defaultArgs, PrintStream responses, int threads) {
+		this.defaultArgs = defaultArgs;
+		this.responses = responses;
+		this.threads = threads;
+	}
+
+	/**
+	 * Run the server on stdin and stdout until stdin is closed.
+	 *
+	 * @param args options which are given to every job
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		Locale.setDefault(Locale.US);
+		List<String> defaultArgs = new ArrayList<String>(Arrays.asList(args));
+		int threads = 1;
+		int index = defaultArgs.indexOf("-serverThreads");
+		if (index >= 0) {
+			try {
+				threads = Integer.parseInt(defaultArgs.get(index + 1));
+			} catch (IndexOutOfBoundsException | NumberFormatException e) {
+				threads = 0;
+			}
+			if (threads < 1) {
+				System.err.println("Error: -serverThreads needs a positive number of threads.");
+				ExitCode.EXIT_INPUT_ERROR.exit();
+			}
+			defaultArgs.subList(index, index + 2).clear();
+		}
+		System.err.println("Paladinus server: reading planning jobs as JSON lines from stdin.");
+		PrintStream protocol = new PrintStream(new FileOutputStream(FileDescriptor.out), true, "UTF-8");
+		new PlannerServer(defaultArgs.toArray(new String[defaultArgs.size()]), protocol, threads)
+				.serve(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)));
+	}
+
+	/**
+	 * Read jobs until the end of the requests and solve them. Returns when all
+	 * jobs are solved.
+	 *
+	 * @param requests JSON lines of the jobs
+	 * @throws IOException
+	 */
+	public void serve(BufferedReader requests) throws IOException {
+		ExecutorService worker = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "planner-worker");
+			thread.setDaemon(true);
+			return thread;
+		});
+		PrintStream stdout = System.out;
+		System.setOut(new PrintStream(new JobOutputStream(System.err), true));
+		Global.exitByException = true;
+		try {
+			String line;
+			while ((line = requests.readLine()) != null) {
+				if (line.trim().isEmpty())
+					continue;
+				final String request = line;
+				worker.submit(() -> respond(solve(request)));
+			}
+		} finally {
+			worker.shutdown();
+			try {
+				worker.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			Global.exitByException = false;
+			System.setOut(stdout);
+		}
+	}
+
+	private synchronized void respond(String response) {
+		responses.println(response);
+		responses.flush();
+	}
+
+	/**
+	 * Solve a job.
+	 *
+	 * @param request JSON line of the job
+	 * @return JSON line of the response
+	 */
+	String solve(String request) {
+		long start = System.currentTimeMillis();
+		Map<String, Object> job;
+		try {
+			job = Json.parseObject(request);
+		} catch (IllegalArgumentException e) {
+			return response(null, ExitCode.EXIT_INPUT_ERROR, null, start, e.getMessage());
+		}
+		Object id = job.get("id");
+		List<String> args = new ArrayList<String>(Arrays.asList(defaultArgs));
+		if (job.get("args") instanceof List<?>) {
+			for (Object arg : (List<?>) job.get("args")) {
+				args.add(arg instanceof Double ? formatNumber((Double) arg) : String.valueOf(arg));
+			}
+		}
+		if (job.get("timeout") instanceof Double) {
+			args.add("-timeout");
+			args.add(formatNumber((Double) job.get("timeout")));
+		}
+		if (job.get("sas") != null) {
+			args.add(String.valueOf(job.get("sas")));
+		} else if (job.get("domain") != null && job.get("problem") != null) {
+			args.add(String.valueOf(job.get("domain")));
+			args.add(String.valueOf(job.get("problem")));
+		} else {
+			return response(id, ExitCode.EXIT_INPUT_ERROR, null, start, "Job has neither sas nor domain and problem.");
+		}
+		if (args.contains("-server")) {
+			return response(id, ExitCode.EXIT_INPUT_ERROR, null, start, "Jobs cannot start servers.");
+		}
+
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		PrintStream outputStream = new PrintStream(output, true);
+		Long timeout = getTimeout(args);
+		FutureTask<Result> planner = new FutureTask<Result>(() -> {
+			jobOutput.set(outputStream);
+			return new PaladinusPlanner(args.toArray(new String[args.size()])).runProblem();
+		});
+		Thread jobThread = new Thread(planner, "planner-job");
+		jobThread.setDaemon(true);
+		jobThread.start();
+		ExitCode exitCode;
+		Result result = null;
+		try {
+			if (timeout == null) {
+				result = planner.get();
+			} else {
+				result = planner.get(timeout * 1000 + TIMEOUT_GRACE, TimeUnit.MILLISECONDS);
+			}
+			exitCode = PaladinusPlanner.getExitCode(result);
+		} catch (TimeoutException e) {
+			planner.cancel(true);
+			outputStream.println("Job cancelled after its timeout of " + timeout + " seconds.");
+			result = Result.TIMEOUT;
+			exitCode = ExitCode.EXIT_UNPROVEN;
+		} catch (InterruptedException e) {
+			planner.cancel(true);
+			Thread.currentThread().interrupt();
+			exitCode = ExitCode.EXIT_CRITICAL_ERROR;
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof Global.ExitException) {
+				exitCode = ((Global.ExitException) cause).exitCode;
+			} else if (cause instanceof OutOfMemoryError) {
+				exitCode = ExitCode.EXIT_OUT_OF_MEMORY;
+			} else {
+				cause.printStackTrace(outputStream);
+				exitCode = ExitCode.EXIT_CRITICAL_ERROR;
+			}
+		}
+		outputStream.flush();
+		return response(id, exitCode, result, start, output.toString());
+	}
+
+	/**
+	 * Get the timeout of a job, which is the last -timeout in its args.
+	 *
+	 * @param args args of the job
+	 * @return timeout in seconds, or null if the job has no valid timeout
+	 */
+	private static Long getTimeout(List<String> args) {
+		int index = args.lastIndexOf("-timeout");
+		if (index < 0 || index + 1 >= args.size()) {
+			return null;
+		}
+		try {
+			return Long.parseLong(args.get(index + 1));
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	private static String response(Object id, ExitCode exitCode, Result result, long start, String output) {
+		StringBuilder response = new StringBuilder();
+		response.append("{\"id\": ");
+		if (id instanceof Double) {
+			response.append(formatNumber((Double) id));
+		} else if (id instanceof Boolean) {
+			response.append(id);
+		} else {
+			response.append(id == null ? "null" : Json.quote(String.valueOf(id)));
+		}
+		response.append(", \"exitCode\": ").append(exitCode.getCode());
+		response.append(", \"result\": ").append(result == null ? "null" : Json.quote(result.toString()));
+		response.append(", \"millis\": ").append(System.currentTimeMillis() - start);
+		response.append(", \"output\": ").append(Json.quote(output)).append('}');
+		return response.toString();
+	}
+
+	private static String formatNumber(Double number) {
+		if (number == Math.rint(number) && !Double.isInfinite(number)) {
+			return Long.toString(number.longValue());
+		}
+		return number.toString();
+	}
+
+	/**
+	 * Standard output of the server, which writes to the output of the job of the
+	 * current thread, or to stderr for threads belonging to no job, e.g. threads
+	 * of shared pools, so that stdout carries only the responses.
+	 */
+	private static class JobOutputStream extends OutputStream {
+
+		private final PrintStream unowned;
+
+		JobOutputStream(PrintStream unowned) {
+			this.unowned = unowned;
+		}
+
+		private PrintStream target() {
+			PrintStream output = jobOutput.get();
+			return output != null ? output : unowned;
+		}
+
+		@Override
+		public void write(int b) {
+			target().write(b);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			target().write(b, off, len);
+		}
+
+		@Override
+		public void flush() {
+			target().flush();
+		}
+	}
+}
@@ -0,0 +1,141 @@
+package paladinus;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import paladinus.problem.Problem;
+import paladinus.util.FactPartitioner;
+import paladinus.util.FileDigest;
+
+/**
+ *
+ * State of one run of the planner: the options, the random number generator
+ * and the settings and data which are shared by all problems derived from the
+ * parsed problem. Each problem knows its context, so several planners can run
+ * in one JVM without sharing state.
+ */
+public class PlanningContext {
+
+	/**
+	 * Options of the run.
+	 */
+	private final Options options;
+
+	/**
+	 * Random number generator of the run, e.g. for the random walks of the pattern
+	 * search.
+	 */
+	private final Random generator;
+
+	/**
+	 * Build PDBs for explicit states instead of belief states. Set from the
+	 * options and changed by the pattern search of a partially observable
+	 * problem.
+	 */
+	private volatile boolean buildExplicitPDBs;
+
+	/**
+	 * Partitioning of the facts of the first problem asking for it.
+	 */
+	private FactPartitioner factPartitioner;
+
+	/**
+	 * Do not print outputs of the PDB construction, except DEBUG is true.
+	 */
+	private volatile boolean noPDBOutputs;
+
+	/**
+	 * Number of abstract cost computations started so far, for debugging.
+	 */
+	private final AtomicInteger costComputations = new AtomicInteger();
+
+	/**
+	 * Last digest computed by getDigest, and the file and modification time it
+	 * was computed for.
+	 */
+	private String cachedDigest;
+
+	private Path cachedFile;
+
+	private long cachedModified;
+
+	/**
+	 * Create the context of a run with the given (checked) options.
+	 *
+	 * @param options options of the run
+	 */
+	public PlanningContext(Options options) {
+		this.options = options;
+		this.generator = options.getSeed() != null ? new Random(options.getSeed()) : new Random();
+		this.buildExplicitPDBs = options.buildExplicitPDBs();
+	}
+
+	public Options getOptions() {
+		return options;
+	}
+
+	public Random getGenerator() {
+		return generator;
+	}
+
+	public boolean buildExplicitPDBs() {
+		return buildExplicitPDBs;
+	}
+
+	public void setBuildExplicitPDBs(boolean buildExplicitPDBs) {
+		this.buildExplicitPDBs = buildExplicitPDBs;
+	}
+
+	public boolean noPDBOutputs() {
+		return noPDBOutputs;
+	}
+
+	public void setNoPDBOutputs(boolean noPDBOutputs) {
+		this.noPDBOutputs = noPDBOutputs;
+	}
+
+	/**
+	 * Count an abstract cost computation.
+	 *
+	 * @return number of the computations started before
+	 */
+	public int nextCostComputation() {
+		return costComputations.getAndIncrement();
+	}
+
+	/**
+	 * Get the SHA-256 digest of the contents of a file, e.g. of the SAS+ file for
+	 * the keys of cached files, which is only computed again if another file is
+	 * given or the file was modified in the meantime.
+	 *
+	 * @param file file
+	 * @return digest as lowercase hexadecimal string
+	 * @throws IOException if the file cannot be read
+	 */
+	public synchronized String getDigest(Path file) throws IOException {
+		long modified = Files.getLastModifiedTime(file).toMillis();
+		if (cachedDigest == null || !file.equals(cachedFile) || modified != cachedModified) {
+			cachedDigest = FileDigest.sha256(file);
+			cachedFile = file;
+			cachedModified = modified;
+		}
+		return cachedDigest;
+	}
+
+	/**
+	 * Get the fact partitioning, computed for the given problem if it is the
+	 * first one asking for it.
+	 *
+	 * @param problem problem
+	 * @return fact partitioning
+	 */
+	public synchronized FactPartitioner getFactPartitioner(Problem problem) {
+		if (factPartitioner == null) {
+			factPartitioner = new FactPartitioner(problem);
+		}
+		return factPartitioner;
+	}
+}
@@ -1,13 +1,13 @@
 package paladinus.explicit;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
 
 import paladinus.explicit.ExplicitOperator.OperatorRule;
+import paladinus.heuristic.pdb.Abstraction;
 import paladinus.problem.Problem;
 import paladinus.util.Pair;
 
@@ -72,7 +72,7 @@ public class ExplicitAxiomEvaluator {
 			int effVar = axiom.head.first;
 			int effVal = axiom.head.second;
 			AxiomLiteral effLiteral = axiomLiterals[effVar][effVal];
-			rules[i] = new AxiomRule(conditions.size(), effVar, effVal, effLiteral);
+			rules[i] = new AxiomRule(i, conditions.size(), effVar, effVal, effLiteral);
 
 			// Cross-reference rules and literals.
 			for (Pair<Integer, Integer> condition : conditions) {
@@ -101,40 +101,50 @@ public class ExplicitAxiomEvaluator {
 		}
 	}
 
-	public Map<Integer, Integer> evaluate(Map<Integer, Integer> variableValueAssignment) {
+	/**
+	 * Evaluate the axioms on a packed state and store the values of the derived
+	 * variables in place.
+	 *
+	 * @param packedValues packed variable values of the state
+	 * @param abstraction  abstraction of the state, or null for a concrete state
+	 */
+	public void evaluate(long[] packedValues, Abstraction abstraction) {
 		if (numberOfAxioms == 0) {
-			return variableValueAssignment;
+			return;
 		}
+		StatePacker packer = problem.getStatePacker();
+		int[] variables = abstraction == null ? problem.getVariables() : abstraction.getPatternVariables();
 
 		if (DEBUG) {
 			System.out.println("Evaluate axioms...");
-			System.out.println("on state " + variableValueAssignment);
 		}
-		Queue<AxiomLiteral> queue = new LinkedList<AxiomLiteral>();
-		for (int var : variableValueAssignment.keySet()) {
+		Queue<AxiomLiteral> queue = new ArrayDeque<AxiomLiteral>();
+		for (int var : variables) {
 			if (problem.axiomLayer.get(var) != -1) {
-				variableValueAssignment.put(var, problem.defaultAxiomValues.get(var));
+				packer.set(packedValues, var, problem.defaultAxiomValues.get(var));
 				if (DEBUG) {
 					System.out.println(
 							"Set var " + var + " to default axiom value " + problem.defaultAxiomValues.get(var));
 				}
 			} else {
 				if (DEBUG) {
-					System.out.println("Enqueueing " + axiomLiterals[var][variableValueAssignment.get(var)]);
+					System.out.println("Enqueueing " + axiomLiterals[var][packer.get(packedValues, var)]);
 				}
-				queue.add(axiomLiterals[var][variableValueAssignment.get(var)]);
+				queue.add(axiomLiterals[var][packer.get(packedValues, var)]);
 			}
 		}
 
+		// Counters are kept per evaluation, so that one evaluator can be shared.
+		int[] unsatisfiedConditions = new int[rules.length];
 		for (int i = 0; i < rules.length; i++) {
-			rules[i].unsatisfiedCondition = rules[i].numberOfConditions;
+			unsatisfiedConditions[i] = rules[i].numberOfConditions;
 			// Note: In a perfect world, trivial axioms would have been
 			// compiled away, and we could have the following assertion
 			// instead of the following block.
 			// assert(rules[i].numberOfConditions != 0);
 
 			if (rules[i].numberOfConditions == 0) {
-				deduceAndEnqueue(rules[i], queue, variableValueAssignment);
+				deduceAndEnqueue(rules[i], queue, packedValues, packer);
 			}
 		}
 
@@ -144,8 +154,8 @@ public class ExplicitAxiomEvaluator {
 				AxiomLiteral currentLiteral = queue.poll();
 				for (int i = 0; i < currentLiteral.conditionOf.size(); i++) {
 					AxiomRule rule = currentLiteral.conditionOf.get(i);
-					if (--rule.unsatisfiedCondition == 0) {
-						deduceAndEnqueue(rule, queue, variableValueAssignment);
+					if (--unsatisfiedConditions[rule.index] == 0) {
+						deduceAndEnqueue(rule, queue, packedValues, packer);
 					}
 				}
 			}
@@ -154,28 +164,26 @@ public class ExplicitAxiomEvaluator {
 			List<NegationAsFailureInfo> nafInfo = nafInfoByLayer.get(layer);
 			for (int i = 0; i < nafInfo.size(); i++) {
 				int var = nafInfo.get(i).variableNumber;
-				if (variableValueAssignment.get(var) == problem.defaultAxiomValues.get(var)) {
+				if (abstraction != null && !abstraction.containsVariable(var)) {
+					continue;
+				}
+				if (packer.get(packedValues, var) == problem.defaultAxiomValues.get(var)) {
 					queue.add(nafInfo.get(i).literal);
 				}
 			}
 		}
-		if (DEBUG) {
-			System.out.println("Resulting state " + variableValueAssignment);
-		}
-		return variableValueAssignment;
 	}
 
-	private void deduceAndEnqueue(AxiomRule rule, Queue<AxiomLiteral> queue,
-			Map<Integer, Integer> variableValueAssignment) {
+	private void deduceAndEnqueue(AxiomRule rule, Queue<AxiomLiteral> queue, long[] packedValues,
+			StatePacker packer) {
 		int var = rule.effectVariable;
 		int val = rule.effectValue;
-		assert variableValueAssignment != null;
-		assert variableValueAssignment.containsKey(var);
-		if (variableValueAssignment.get(var) != val) {
+		assert packedValues != null;
+		if (packer.get(packedValues, var) != val) {
 			if (DEBUG) {
 				System.out.println(" -> deduced " + var + " = " + val);
 			}
-			variableValueAssignment.put(var, val);
+			packer.set(packedValues, var, val);
 			queue.add(rule.effectLiteral);
 		}
 	}
@@ -194,6 +202,11 @@ class NegationAsFailureInfo {
 
 class AxiomRule {
 
+	/**
+	 * Position of this rule in the rule array of its evaluator.
+	 */
+	int index;
+
 	int effectVariable;
 	int effectValue;
 	AxiomLiteral effectLiteral;
@@ -203,15 +216,12 @@ class AxiomRule {
 	 */
 	int numberOfConditions;
 
-	/**
-	 * Number of conditions of this rule which are still unsatisfied.
-	 */
-	int unsatisfiedCondition = -1;
-
 	/**
 	 * Creates a new axiom rule.
 	 */
-	public AxiomRule(int numberOfConditions, int effectVariable, int effectValue, AxiomLiteral effectLiteral) {
+	public AxiomRule(int index, int numberOfConditions, int effectVariable, int effectValue,
+			AxiomLiteral effectLiteral) {
+		this.index = index;
 		this.numberOfConditions = numberOfConditions;
 		this.effectVariable = effectVariable;
 		this.effectValue = effectValue;
@@ -220,7 +230,7 @@ class AxiomRule {
 
 	@Override
 	public String toString() {
-		return "(" + effectVariable + "," + effectValue + ")\nunsatisfiedCondition: " + unsatisfiedCondition
+		return "(" + effectVariable + "," + effectValue + ")\nnumberOfConditions: " + numberOfConditions
 				+ "\nConditionOf: " + effectLiteral.conditionOf;
 	}
 }
@@ -29,6 +29,16 @@ public class ExplicitCondition implements Condition {
 	 */
 	public final int size;
 
+	/**
+	 * Variables of this condition, aligned with {@link #values}.
+	 */
+	private final int[] variables;
+
+	/**
+	 * Required values of the variables of this condition.
+	 */
+	private final int[] values;
+
 	/**
 	 * Set true to get more information as output.
 	 */
@@ -42,6 +52,14 @@ public class ExplicitCondition implements Condition {
 	public ExplicitCondition(Map<Integer, Integer> variableValueMap) {
 		this.variableValueMap = Collections.unmodifiableMap(variableValueMap);
 		size = variableValueMap.size();
+		variables = new int[size];
+		values = new int[size];
+		int i = 0;
+		for (Map.Entry<Integer, Integer> entry : variableValueMap.entrySet()) {
+			variables[i] = entry.getKey();
+			values[i] = entry.getValue();
+			i++;
+		}
 	}
 
 	/**
@@ -74,7 +92,25 @@ public class ExplicitCondition implements Condition {
 	 */
 	@Override
 	public boolean isSatisfiedIn(State state) {
-		return isSatisfiedIn(((ExplicitState) state).variableValueAssignment);
+		return isSatisfiedIn((ExplicitState) state);
+	}
+
+	/**
+	 * Tests if this condition is satisfied by the given explicit state.
+	 *
+	 * @param state explicit state
+	 * @return true iff this condition is satisfied in the given state
+	 */
+	public boolean isSatisfiedIn(ExplicitState state) {
+		if (DEBUG) {
+			System.out.println("is condition " + this + " satisfied in " + state);
+		}
+		for (int i = 0; i < variables.length; i++) {
+			if (!state.hasVariable(variables[i]) || state.getValue(variables[i]) != values[i]) {
+				return false;
+			}
+		}
+		return true;
 	}
 
 	/**
@@ -63,6 +63,17 @@ public class ExplicitEffect {
 		return condition.isSatisfiedIn(variableValueAssignment);
 	}
 
+	/**
+	 * Checks whether this effect is enabled in a given explicit state, i.e., if
+	 * its condition is satisfied.
+	 *
+	 * @param state explicit state
+	 * @return true iff this effect is enabled in given state
+	 */
+	public boolean isEnabledIn(ExplicitState state) {
+		return condition.isSatisfiedIn(state);
+	}
+
 	/**
 	 * Test equality of this effect and given object.
 	 *
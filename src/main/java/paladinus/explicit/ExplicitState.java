@@ -1,8 +1,8 @@
 package paladinus.explicit;
 
-import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -26,16 +26,28 @@ import paladinus.util.Pair;
 public class ExplicitState extends State {
 
 	/**
-	 * Variable value mapping describing this state.
+	 * Packed variable values describing this state. The bit layout is given by
+	 * the state packer of the problem.
 	 */
-	public final Map<Integer, Integer> variableValueAssignment;
+	private final long[] packedValues;
+
+	/**
+	 * Variables describing this state in ascending order. These are all variables
+	 * of the problem for a concrete state and the pattern variables for an
+	 * abstracted state.
+	 */
+	private final int[] variables;
 
 	/**
 	 * Number of variables describing this state.
 	 */
 	public final int size;
 
-	private Set<Pair<Integer, Integer>> varsPropositions = new HashSet<>();
+	/**
+	 * Key of this state if it fits into a single word. For abstracted states this
+	 * is the index of the abstract state.
+	 */
+	private final long key;
 
 	/**
 	 * Axiom evaluator.
@@ -56,7 +68,7 @@ public class ExplicitState extends State {
 	 * @param values  variable assignment
 	 */
 	public ExplicitState(Problem problem, int[] values, ExplicitAxiomEvaluator axiomEvaluator) {
-		this(problem, axiomEvaluator.evaluate(valuesToVariableValueMap(values)), false, null, axiomEvaluator);
+		this(problem, evaluate(valuesToPackedValues(problem, values), null, axiomEvaluator), null, axiomEvaluator);
 	}
 
 	/**
@@ -67,7 +79,8 @@ public class ExplicitState extends State {
 	 */
 	public ExplicitState(Problem problem, Map<Integer, Integer> variableValueAssignment,
 			ExplicitAxiomEvaluator axiomEvaluator) {
-		this(problem, axiomEvaluator.evaluate(variableValueAssignment), false, null, axiomEvaluator);
+		this(problem, evaluate(mapToPackedValues(problem, variableValueAssignment), null, axiomEvaluator), null,
+				axiomEvaluator);
 		assert variableValueAssignment.size() == problem.numStateVars;
 	}
 
@@ -82,21 +95,36 @@ public class ExplicitState extends State {
 	 */
 	public ExplicitState(Problem problem, Map<Integer, Integer> variableValueAssignment, Abstraction abstraction,
 			ExplicitAxiomEvaluator axiomEvaluator) {
-		this(problem, axiomEvaluator.evaluate(variableValueAssignment), true, abstraction, axiomEvaluator);
+		this(problem, evaluate(mapToPackedValues(problem, variableValueAssignment), abstraction, axiomEvaluator),
+				abstraction, axiomEvaluator);
+		assert variableValueAssignment.keySet().equals(abstraction.pattern);
 	}
 
-	private ExplicitState(Problem problem, Map<Integer, Integer> variableValueAssignment, boolean isAbstractedState,
-			Abstraction abstraction, ExplicitAxiomEvaluator axiomEvaluator) {
-		super(problem, computeUniqueID(problem, variableValueAssignment), isAbstractedState, abstraction);
-		assert assertVariableOrder(variableValueAssignment);
-		this.variableValueAssignment = variableValueAssignment;
-
-		for (Integer i : variableValueAssignment.keySet()) {
-			int j = variableValueAssignment.get(i);
-			this.varsPropositions.add(new Pair<Integer, Integer>(i, j));
+	/**
+	 * Creates a new state from packed values on which the axioms have already
+	 * been evaluated. The given array is owned by the new state afterwards.
+	 *
+	 * @param problem        the problem this state originates from
+	 * @param packedValues   packed variable values
+	 * @param abstraction    abstraction of this state or null for a concrete state
+	 * @param axiomEvaluator axiom evaluator
+	 */
+	private ExplicitState(Problem problem, long[] packedValues, Abstraction abstraction,
+			ExplicitAxiomEvaluator axiomEvaluator) {
+		super(problem, problem.getStatePacker().mixedRadixHashCode(packedValues, variablesOf(problem, abstraction)),
+				abstraction != null, abstraction);
+		this.packedValues = packedValues;
+		this.variables = variablesOf(problem, abstraction);
+		StatePacker packer = problem.getStatePacker();
+		if (isAbstractedState) {
+			key = packer.mixedRadixIndex(packedValues, variables);
+		} else if (packer.getKeyWidth() == 1) {
+			key = packer.singleWordKey(packedValues);
+		} else {
+			key = 0;
 		}
 
-		size = variableValueAssignment.size();
+		size = variables.length;
 		if (isAbstractedState) {
 			assert (size <= problem.numStateVars);
 		} else {
@@ -105,7 +133,110 @@ public class ExplicitState extends State {
 		this.axiomEvaluator = axiomEvaluator;
 
 		// It is important to assert that there is no overflow for abstract states.
-		assert (!isAbstractedState || (uniqueID.intValue() == hashCode));
+		assert (!isAbstractedState || (key == hashCode));
+	}
+
+	private static int[] variablesOf(Problem problem, Abstraction abstraction) {
+		return abstraction == null ? problem.getVariables() : abstraction.getPatternVariables();
+	}
+
+	private static long[] evaluate(long[] packedValues, Abstraction abstraction,
+			ExplicitAxiomEvaluator axiomEvaluator) {
+		axiomEvaluator.evaluate(packedValues, abstraction);
+		return packedValues;
+	}
+
+	/**
+	 * Get the key width of this state. Abstracted states always have single word
+	 * keys.
+	 *
+	 * @return number of longs of the key
+	 */
+	@Override
+	public int getKeyWidth() {
+		return isAbstractedState ? 1 : problem.getStatePacker().getKeyWidth();
+	}
+
+	/**
+	 * Get a word of the key of this state. Keys wider than one word are the packed
+	 * values themselves.
+	 *
+	 * @param i index of the word
+	 * @return i-th key word
+	 */
+	@Override
+	public long getKeyWord(int i) {
+		return getKeyWidth() == 1 ? key : packedValues[i];
+	}
+
+	/**
+	 * Get the value of a variable of this state.
+	 *
+	 * @param var variable which has to be contained in this state
+	 * @return value of var
+	 */
+	public int getValue(int var) {
+		assert hasVariable(var);
+		return problem.getStatePacker().get(packedValues, var);
+	}
+
+	/**
+	 * Test if the given variable describes this state. This is true for all
+	 * variables of a concrete state and for the pattern variables of an abstracted
+	 * state.
+	 *
+	 * @param var variable
+	 * @return true iff var is a variable of this state
+	 */
+	public boolean hasVariable(int var) {
+		return isAbstractedState ? abstraction.containsVariable(var) : var < size;
+	}
+
+	/**
+	 * Test if the fact var = value holds in this state.
+	 *
+	 * @param var   variable
+	 * @param value value
+	 * @return true iff var is a variable of this state with the given value
+	 */
+	public boolean holds(int var, int value) {
+		return hasVariable(var) && getValue(var) == value;
+	}
+
+	/**
+	 * Get the variables of this state in ascending order. The returned array must
+	 * not be modified.
+	 *
+	 * @return variables of this state
+	 */
+	public int[] getVariables() {
+		return variables;
+	}
+
+	/**
+	 * Get the packed values of this state. The returned array must not be
+	 * modified.
+	 *
+	 * @return packed values
+	 */
+	public long[] getPackedValues() {
+		return packedValues;
+	}
+
+	/**
+	 * Get the variable value mapping describing this state. The mapping is
+	 * created on each call, so index based access via {@link #getValue(int)} is
+	 * preferable.
+	 *
+	 * @return mapping from the variables of this state to their values
+	 */
+	public Map<Integer, Integer> getVariableValueAssignment() {
+		Map<Integer, Integer> variableValueAssignment = new LinkedHashMap<Integer, Integer>(
+				(int) Math.ceil(size / 0.75));
+		for (int var : variables) {
+			variableValueAssignment.put(var, getValue(var));
+		}
+		return variableValueAssignment;
 	}
 
 	/**
@@ -122,6 +253,26 @@ public class ExplicitState extends State {
 		return operator.isCausative && operator.isEnabledIn(this);
 	}
 
+	/**
+	 * Compute the applicable operators with the successor generator if the given
+	 * operators are the operators of the problem or of the abstraction of this
+	 * state, and by testing each operator otherwise.
+	 *
+	 * @param ops operators to test
+	 * @return applicable operators in the iteration order of ops
+	 */
+	@Override
+	protected List<Operator> computeApplicableOps(Collection<Operator> ops) {
+		if (isAbstractedState) {
+			if (ops == abstraction.operators) {
+				return abstraction.getSuccessorGenerator().getApplicableOps(this);
+			}
+		} else if (ops == problem.getOperators()) {
+			return problem.getSuccessorGenerator().getApplicableOps(this);
+		}
+		return super.computeApplicableOps(ops);
+	}
+
 	/**
 	 * Apply given operator to this state.
 	 *
@@ -151,58 +302,52 @@ public class ExplicitState extends State {
 			System.out.println("Current state: " + toString());
 		}
 		// make a copy
-		Map<Integer, Integer> succVariableValuePairs = new LinkedHashMap<Integer, Integer>(
-				(int) Math.ceil(size / 0.75));
-		succVariableValuePairs.putAll(variableValueAssignment);
+		StatePacker packer = problem.getStatePacker();
+		long[] succPackedValues = packedValues.clone();
 
 		// apply effects
 		for (ExplicitEffect eff : effect) {
-			if (eff.isEnabledIn(variableValueAssignment)) {
-				assert (succVariableValuePairs.containsKey(eff.variable));
-				succVariableValuePairs.put(eff.variable, eff.value);
+			if (eff.isEnabledIn(this)) {
+				assert (hasVariable(eff.variable));
+				packer.set(succPackedValues, eff.variable, eff.value);
 			} else {
 				assert false; // effect conditions are not supported.
 			}
 		}
-		if (isAbstractedState) {
-			assert (axiomEvaluator != null);
-			return new ExplicitState(problem, succVariableValuePairs, abstraction, axiomEvaluator);
-		} else {
-			assert (axiomEvaluator != null);
-			return new ExplicitState(problem, succVariableValuePairs, axiomEvaluator);
-		}
-
+		assert (axiomEvaluator != null);
+		return new ExplicitState(problem, evaluate(succPackedValues, abstraction, axiomEvaluator), abstraction,
+				axiomEvaluator);
 	}
 
 	/**
-	 * Create a variable value assignment from given values.
+	 * Pack given values of all variables.
 	 *
 	 * @param values
-	 * @return variable value assignment
+	 * @return packed values
 	 */
-	private static Map<Integer, Integer> valuesToVariableValueMap(int[] values) {
-		// Note: LinkedHashMap has a fix iteration order which is important for unique
-		// hash values.
-		Map<Integer, Integer> variableValuePairs = new LinkedHashMap<Integer, Integer>(
-				(int) Math.ceil(values.length / 0.75));
+	private static long[] valuesToPackedValues(Problem problem, int[] values) {
+		StatePacker packer = problem.getStatePacker();
+		long[] packedValues = packer.newBuffer();
 		for (int var = 0; var < values.length; var++) {
-			variableValuePairs.put(var, values[var]);
+			packer.set(packedValues, var, values[var]);
 		}
-		return variableValuePairs;
+		return packedValues;
 	}
 
 	/**
-	 * Compute unique BigInteger value for this state.
+	 * Pack given variable value assignment.
+	 *
+	 * @param variableValueAssignment
+	 * @return packed values
 	 */
-	private static BigInteger computeUniqueID(Problem problem, Map<Integer, Integer> variableValueMap) {
-		BigInteger uniqueID = BigInteger.ZERO;
-		for (int var = 0; var < problem.numStateVars; var++) {
-			if (variableValueMap.containsKey(var)) {
-				uniqueID = uniqueID.multiply(BigInteger.valueOf(problem.domainSizes.get(var)));
-				uniqueID = uniqueID.add(BigInteger.valueOf(variableValueMap.get(var)));
-			}
+	private static long[] mapToPackedValues(Problem problem, Map<Integer, Integer> variableValueAssignment) {
+		assert assertVariableOrder(variableValueAssignment);
+		StatePacker packer = problem.getStatePacker();
+		long[] packedValues = packer.newBuffer();
+		for (Map.Entry<Integer, Integer> entry : variableValueAssignment.entrySet()) {
+			packer.set(packedValues, entry.getKey(), entry.getValue());
 		}
-		return uniqueID;
+		return packedValues;
 	}
 
 	/**
@@ -211,9 +356,14 @@ public class ExplicitState extends State {
 	 * @param abstraction
 	 */
 	public State abstractToPattern(Abstraction abstraction) {
-		return new ExplicitState(problem,
-				Abstraction.abstractVariableValueMap(variableValueAssignment, abstraction.pattern), abstraction,
-				abstraction.getExplicitAxiomEvaluator());
+		StatePacker packer = problem.getStatePacker();
+		long[] abstractedPackedValues = packer.newBuffer();
+		for (int var : abstraction.getPatternVariables()) {
+			packer.set(abstractedPackedValues, var, getValue(var));
+		}
+		ExplicitAxiomEvaluator evaluator = abstraction.getExplicitAxiomEvaluator();
+		return new ExplicitState(problem, evaluate(abstractedPackedValues, abstraction, evaluator), abstraction,
+				evaluator);
 	}
 
 	/**
@@ -264,9 +414,9 @@ public class ExplicitState extends State {
 		StringBuffer buffer = new StringBuffer();
 		buffer.append("{ ");
 		int i = 0;
-		for (int var : variableValueAssignment.keySet()) {
-			buffer.append(problem.propositionNames.get(var).get(variableValueAssignment.get(var)));
-			if (i < variableValueAssignment.size() - 1) {
+		for (int var : variables) {
+			buffer.append(problem.propositionNames.get(var).get(getValue(var)));
+			if (i < size - 1) {
 				buffer.append(", ");
 			}
 			i++;
@@ -284,9 +434,9 @@ public class ExplicitState extends State {
 	public String toStringPropositionNames() {
 		StringBuffer buffer = new StringBuffer();
 		int i = 0;
-		for (int var : variableValueAssignment.keySet()) {
-			buffer.append(problem.propositionNames.get(var).get(variableValueAssignment.get(var)));
-			if (i < variableValueAssignment.size() - 1) {
+		for (int var : variables) {
+			buffer.append(problem.propositionNames.get(var).get(getValue(var)));
+			if (i < size - 1) {
 				buffer.append(", ");
 			}
 			i++;
@@ -303,8 +453,8 @@ public class ExplicitState extends State {
 	public String toString() {
 		StringBuffer buffer = new StringBuffer();
 		int count = 0;
-		for (int var : variableValueAssignment.keySet()) {
-			buffer.append("var" + var + ":" + variableValueAssignment.get(var) + (count >= variableValueAssignment.keySet().size()-1 ? "" : " "));
+		for (int var : variables) {
+			buffer.append("var" + var + ":" + getValue(var) + (count >= size - 1 ? "" : " "));
 			count++;
 		}
 		return buffer.toString();
@@ -325,10 +475,20 @@ public class ExplicitState extends State {
 	 */
 	@Override
 	public Condition toCondition() {
-		return new ExplicitCondition(variableValueAssignment);
+		return new ExplicitCondition(getVariableValueAssignment());
 	}
 
+	/**
+	 * Get the facts which hold in this state. The set is created on each call, so
+	 * {@link #holds(int, int)} is preferable for membership tests.
+	 *
+	 * @return set of variable value pairs of this state
+	 */
 	public Set<Pair<Integer, Integer>> getVarsPropositions() {
+		Set<Pair<Integer, Integer>> varsPropositions = new HashSet<>();
+		for (int var : variables) {
+			varsPropositions.add(new Pair<Integer, Integer>(var, getValue(var)));
+		}
 		return varsPropositions;
 	}
 	
@@ -0,0 +1,194 @@
+package paladinus.explicit;
+
+import java.util.List;
+
+/**
+ * Packs the values of all state variables of a problem into a long array. Each
+ * variable occupies as many bits as its domain size requires and never spans
+ * two words, so reading or writing a value is a shift and a mask on a single
+ * word.
+ */
+public final class StatePacker {
+
+	/**
+	 * Index of the word which holds the value of each variable.
+	 */
+	private final int[] wordIndex;
+
+	/**
+	 * Bit offset of each variable inside its word.
+	 */
+	private final int[] shift;
+
+	/**
+	 * Unshifted bit mask of each variable.
+	 */
+	private final long[] mask;
+
+	/**
+	 * Number of words of a packed state.
+	 */
+	private final int numWords;
+
+	/**
+	 * Domain size of each variable.
+	 */
+	private final int[] domainSizes;
+
+	/**
+	 * Number of words of a state key. This is one if either the packed state fits
+	 * into a single word or the product of all domain sizes fits into a long, and
+	 * the number of packed words otherwise.
+	 */
+	private final int keyWidth;
+
+	/**
+	 * True iff single word keys are computed as mixed radix number, because the
+	 * packed state needs more than one word.
+	 */
+	private final boolean mixedRadixKey;
+
+	/**
+	 * Create a packer for variables with the given domain sizes.
+	 *
+	 * @param domainSizes domain size of each variable
+	 */
+	public StatePacker(List<Integer> domainSizes) {
+		int numVars = domainSizes.size();
+		wordIndex = new int[numVars];
+		shift = new int[numVars];
+		mask = new long[numVars];
+		this.domainSizes = new int[numVars];
+		int word = 0;
+		int usedBits = 0;
+		long product = 1;
+		for (int var = 0; var < numVars; var++) {
+			this.domainSizes[var] = domainSizes.get(var);
+			if (product <= Long.MAX_VALUE / Math.max(1, this.domainSizes[var])) {
+				product *= Math.max(1, this.domainSizes[var]);
+			} else {
+				product = Long.MAX_VALUE;
+			}
+			int bits = bitsFor(domainSizes.get(var));
+			if (usedBits + bits > Long.SIZE) {
+				word++;
+				usedBits = 0;
+			}
+			wordIndex[var] = word;
+			shift[var] = usedBits;
+			mask[var] = (1L << bits) - 1;
+			usedBits += bits;
+		}
+		numWords = numVars == 0 ? 0 : word + 1;
+		mixedRadixKey = numWords > 1 && product < Long.MAX_VALUE;
+		keyWidth = numWords > 1 && !mixedRadixKey ? numWords : 1;
+	}
+
+	/**
+	 * Number of bits needed to store the values 0 to domainSize - 1.
+	 */
+	private static int bitsFor(int domainSize) {
+		return Math.max(1, Integer.SIZE - Integer.numberOfLeadingZeros(domainSize - 1));
+	}
+
+	/**
+	 * Create a new zeroed buffer for one packed state.
+	 *
+	 * @return empty packed state
+	 */
+	public long[] newBuffer() {
+		return new long[numWords];
+	}
+
+	/**
+	 * Get the value of a variable from a packed state.
+	 *
+	 * @param buffer packed state
+	 * @param var    variable
+	 * @return value of the variable
+	 */
+	public int get(long[] buffer, int var) {
+		return (int) ((buffer[wordIndex[var]] >>> shift[var]) & mask[var]);
+	}
+
+	/**
+	 * Set the value of a variable in a packed state.
+	 *
+	 * @param buffer packed state
+	 * @param var    variable
+	 * @param value  new value of the variable
+	 */
+	public void set(long[] buffer, int var, int value) {
+		int word = wordIndex[var];
+		buffer[word] = (buffer[word] & ~(mask[var] << shift[var])) | (((long) value & mask[var]) << shift[var]);
+	}
+
+	/**
+	 * Get the number of words of a state key.
+	 *
+	 * @return 1 if a key fits into a single long, otherwise the number of packed
+	 *         words
+	 */
+	public int getKeyWidth() {
+		return keyWidth;
+	}
+
+	/**
+	 * Compute the single word key of a packed concrete state. Only meaningful if
+	 * the key width is one.
+	 *
+	 * @param buffer packed state
+	 * @return perfect hash of the state
+	 */
+	public long singleWordKey(long[] buffer) {
+		assert keyWidth == 1;
+		if (!mixedRadixKey) {
+			return numWords == 0 ? 0 : buffer[0];
+		}
+		long key = 0;
+		for (int var = 0; var < domainSizes.length; var++) {
+			key = key * domainSizes[var] + get(buffer, var);
+		}
+		return key;
+	}
+
+	/**
+	 * Compute the mixed radix number of the values of the given variables modulo
+	 * 2^32. For abstract states this is the exact index of the abstract state.
+	 *
+	 * @param buffer    packed state
+	 * @param variables variables in ascending order
+	 * @return mixed radix hash code
+	 */
+	public int mixedRadixHashCode(long[] buffer, int[] variables) {
+		int hashCode = 0;
+		for (int var : variables) {
+			hashCode = hashCode * domainSizes[var] + get(buffer, var);
+		}
+		return hashCode;
+	}
+
+	/**
+	 * Compute the exact mixed radix number of the values of the given variables.
+	 *
+	 * @param buffer    packed state
+	 * @param variables variables in ascending order
+	 * @return mixed radix number, which must not overflow
+	 */
+	public long mixedRadixIndex(long[] buffer, int[] variables) {
+		long index = 0;
+		for (int var : variables) {
+			index = index * domainSizes[var] + get(buffer, var);
+		}
+		return index;
+	}
+
+	/**
+	 * Get the number of words of a packed state.
+	 *
+	 * @return number of longs used per state
+	 */
+	public int getNumWords() {
+		return numWords;
+	}
+}
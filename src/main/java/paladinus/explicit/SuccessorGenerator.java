@@ -0,0 +1,220 @@
+package paladinus.explicit;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import paladinus.state.Operator;
+
+/**
+ * Decision tree over the operator preconditions which returns the applicable
+ * operators of an explicit state without testing every operator (similar to the
+ * successor generator of Fast Downward). Each inner node switches on one
+ * variable: operators whose next precondition is on that variable are
+ * distributed among the children by the required value, all other operators go
+ * to the don't-care child. Operators stored at a node have no precondition left
+ * and match every state reaching that node.
+ *
+ * The applicable operators are returned in the iteration order of the operator
+ * collection the generator was built from, i.e. in the same order as a linear
+ * scan would return them.
+ */
+public class SuccessorGenerator {
+
+	/**
+	 * Operators in the iteration order of the collection the generator was built
+	 * from. Operator ids are indices into this array.
+	 */
+	private final Operator[] operators;
+
+	private final GeneratorNode root;
+
+	/**
+	 * Build a successor generator for the causative operators of the given
+	 * collection. Non-causative operators are never applicable in explicit states
+	 * and are left out.
+	 *
+	 * @param ops explicit operators
+	 */
+	public SuccessorGenerator(Collection<Operator> ops) {
+		operators = ops.toArray(new Operator[0]);
+		List<int[][]> conditions = new ArrayList<int[][]>(operators.length);
+		List<Integer> ids = new ArrayList<Integer>(operators.length);
+		for (int id = 0; id < operators.length; id++) {
+			Operator op = operators[id];
+			if (!op.isCausative) {
+				continue;
+			}
+			ids.add(id);
+			conditions.add(sortedCondition(((ExplicitOperator) op).precondition));
+		}
+		int[] depth = new int[operators.length];
+		root = build(ids, conditions, depth);
+	}
+
+	/**
+	 * Get the precondition as pairs (variable, value) sorted by variable.
+	 */
+	private static int[][] sortedCondition(ExplicitCondition condition) {
+		int[][] pairs = new int[condition.size][];
+		int i = 0;
+		for (Map.Entry<Integer, Integer> entry : condition.variableValueMap.entrySet()) {
+			pairs[i++] = new int[] { entry.getKey(), entry.getValue() };
+		}
+		Arrays.sort(pairs, (a, b) -> Integer.compare(a[0], b[0]));
+		return pairs;
+	}
+
+	/**
+	 * Build the subtree for the given operators. depth[id] is the number of
+	 * preconditions of operator id which are already tested on the path to the
+	 * new node.
+	 */
+	private GeneratorNode build(List<Integer> ids, List<int[][]> conditions, int[] depth) {
+		GeneratorNode node = new GeneratorNode();
+		List<Integer> immediate = new ArrayList<Integer>();
+		int switchVar = Integer.MAX_VALUE;
+		for (int i = 0; i < ids.size(); i++) {
+			int[][] condition = conditions.get(i);
+			int id = ids.get(i);
+			if (depth[id] == condition.length) {
+				immediate.add(id);
+			} else {
+				switchVar = Math.min(switchVar, condition[depth[id]][0]);
+			}
+		}
+		node.immediate = toArray(immediate);
+		if (switchVar == Integer.MAX_VALUE) {
+			return node;
+		}
+
+		node.variable = switchVar;
+		List<List<Integer>> valueIds = new ArrayList<List<Integer>>();
+		List<List<int[][]>> valueConditions = new ArrayList<List<int[][]>>();
+		List<Integer> dontCareIds = new ArrayList<Integer>();
+		List<int[][]> dontCareConditions = new ArrayList<int[][]>();
+		for (int i = 0; i < ids.size(); i++) {
+			int[][] condition = conditions.get(i);
+			int id = ids.get(i);
+			if (depth[id] == condition.length) {
+				continue;
+			}
+			int[] next = condition[depth[id]];
+			if (next[0] == switchVar) {
+				while (valueIds.size() <= next[1]) {
+					valueIds.add(null);
+					valueConditions.add(null);
+				}
+				if (valueIds.get(next[1]) == null) {
+					valueIds.set(next[1], new ArrayList<Integer>());
+					valueConditions.set(next[1], new ArrayList<int[][]>());
+				}
+				valueIds.get(next[1]).add(id);
+				valueConditions.get(next[1]).add(condition);
+				depth[id]++;
+			} else {
+				dontCareIds.add(id);
+				dontCareConditions.add(condition);
+			}
+		}
+		node.valueChildren = new GeneratorNode[valueIds.size()];
+		for (int value = 0; value < valueIds.size(); value++) {
+			if (valueIds.get(value) != null) {
+				node.valueChildren[value] = build(valueIds.get(value), valueConditions.get(value), depth);
+			}
+		}
+		if (!dontCareIds.isEmpty()) {
+			node.dontCare = build(dontCareIds, dontCareConditions, depth);
+		}
+		return node;
+	}
+
+	private static int[] toArray(List<Integer> list) {
+		int[] result = new int[list.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = list.get(i);
+		}
+		return result;
+	}
+
+	/**
+	 * Get all causative operators whose preconditions are satisfied in the given
+	 * state.
+	 *
+	 * @param state explicit state
+	 * @return list of applicable operators
+	 */
+	public List<Operator> getApplicableOps(ExplicitState state) {
+		OperatorIds ids = new OperatorIds();
+		collect(root, state, ids);
+		if (ids.size == 0) {
+			return Collections.emptyList();
+		}
+		Arrays.sort(ids.ids, 0, ids.size);
+		List<Operator> applicableOps = new ArrayList<Operator>(ids.size);
+		for (int i = 0; i < ids.size; i++) {
+			applicableOps.add(operators[ids.ids[i]]);
+		}
+		return applicableOps;
+	}
+
+	private void collect(GeneratorNode node, ExplicitState state, OperatorIds ids) {
+		while (node != null) {
+			ids.addAll(node.immediate);
+			if (node.variable == -1) {
+				return;
+			}
+			if (state.hasVariable(node.variable)) {
+				int value = state.getValue(node.variable);
+				if (value < node.valueChildren.length && node.valueChildren[value] != null) {
+					collect(node.valueChildren[value], state, ids);
+				}
+			}
+			node = node.dontCare;
+		}
+	}
+
+	private static final class GeneratorNode {
+
+		/**
+		 * Operators without remaining preconditions.
+		 */
+		int[] immediate;
+
+		/**
+		 * Variable tested by this node, or -1 for a leaf.
+		 */
+		int variable = -1;
+
+		/**
+		 * Subtrees of the operators which require the indexed value of variable.
+		 */
+		GeneratorNode[] valueChildren;
+
+		/**
+		 * Subtree of the operators without precondition on variable.
+		 */
+		GeneratorNode dontCare;
+	}
+
+	/**
+	 * Growable buffer of operator ids.
+	 */
+	private static final class OperatorIds {
+
+		int[] ids = new int[16];
+
+		int size;
+
+		void addAll(int[] newIds) {
+			if (size + newIds.length > ids.length) {
+				ids = Arrays.copyOf(ids, Math.max(ids.length * 2, size + newIds.length));
+			}
+			System.arraycopy(newIds, 0, ids, size, newIds.length);
+			size += newIds.length;
+		}
+	}
+}
@@ -13,6 +13,16 @@ public class AdditiveHeuristic extends Heuristic {
 		heuristic = new FFHeuristic(problem, RPGStrategy.ADD);
 	}
 
+	private AdditiveHeuristic(FFHeuristic heuristic) {
+		super(heuristic.problem, true);
+		this.heuristic = heuristic;
+	}
+
+	@Override
+	public Heuristic copy() {
+		return new AdditiveHeuristic(heuristic.copy());
+	}
+
 	@Override
 	public double getHeuristic(State state) {
 		return heuristic.getHeuristic(state);
@@ -1,14 +1,15 @@
 package paladinus.heuristic;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.PriorityQueue;
 import java.util.Set;
 
 import paladinus.Global;
@@ -41,9 +42,144 @@ public class FFHeuristic extends Heuristic {
 	private List<List<FFProposition>> variableValueToProposition;
 
 	/**
-	 * Queue containing all reachable FF propositions.
+	 * All propositions indexed by their ids. The goal proposition has the largest
+	 * id.
 	 */
-	private PriorityQueue<FFProposition> reachableQueue;
+	private FFProposition[] propositions;
+
+	/**
+	 * Head proposition of each rule, indexed by the position of the rule in
+	 * <tt>rules</tt>.
+	 */
+	private int[] ruleHead;
+
+	/**
+	 * Body propositions of rule r are ruleBody[ruleBodyStart[r]] to
+	 * ruleBody[ruleBodyStart[r + 1] - 1].
+	 */
+	private int[] ruleBodyStart;
+
+	private int[] ruleBody;
+
+	/**
+	 * Operator of each rule. Its cost is read at each evaluation, unless the
+	 * operator costs are local to this heuristic.
+	 */
+	private ExplicitOperator[] ruleOperator;
+
+	/**
+	 * Index of the operator of each rule in operatorCosts, or null if the costs of
+	 * the operators themselves are used.
+	 */
+	private int[] ruleOperatorIndex = null;
+
+	/**
+	 * Costs of the distinct operators of the rules, which LM-cut may change
+	 * without changing the shared operators.
+	 */
+	private double[] operatorCosts;
+
+	private double[] originalOperatorCosts;
+
+	/**
+	 * Rules of the operator with local index o are
+	 * operatorRules[operatorRuleStart[o]] to
+	 * operatorRules[operatorRuleStart[o + 1] - 1].
+	 */
+	private int[] operatorRuleStart;
+
+	private int[] operatorRules;
+
+	/**
+	 * Rules in whose body proposition p occurs are
+	 * preconditionOf[preconditionOfStart[p]] to
+	 * preconditionOf[preconditionOfStart[p + 1] - 1].
+	 */
+	private int[] preconditionOfStart;
+
+	private int[] preconditionOf;
+
+	/**
+	 * Cost to reach each proposition in the current evaluation.
+	 */
+	private double[] reachCost;
+
+	/**
+	 * Rule by which each proposition was reached in the current evaluation, or -1.
+	 */
+	private int[] reachedBy;
+
+	/**
+	 * Number of preconditions of each rule which are still unsatisfied.
+	 */
+	private int[] unsatisfiedPreconditions;
+
+	/**
+	 * Propositions which have been expanded and rules which have been collected
+	 * for the relaxed plan in the current evaluation are stamped with the
+	 * current evaluation number, so that the marks need no reset.
+	 */
+	private int[] expandedStamp;
+
+	private int[] collectedStamp;
+
+	private int evaluation = 0;
+
+	/**
+	 * Binary heap of reachable propositions ordered by their reach cost. It
+	 * behaves exactly like the java.util.PriorityQueue it replaces, including
+	 * the order of propositions with equal costs, which determines the relaxed
+	 * plan.
+	 */
+	private int[] queue;
+
+	private int queueSize = 0;
+
+	/**
+	 * Stack of rules and positions in their bodies for the relaxed plan
+	 * extraction.
+	 */
+	private int[] extractionRules;
+
+	private int[] extractionPositions;
+
+	/**
+	 * Rules whose head is proposition p are achievers[achieverStart[p]] to
+	 * achievers[achieverStart[p + 1] - 1].
+	 */
+	private int[] achieverStart;
+
+	private int[] achievers;
+
+	/**
+	 * State whose complete h^max cost table is stored in tableReachCost and
+	 * tableReachedBy, or null. Successors of this state are evaluated by
+	 * repairing the table.
+	 */
+	private ExplicitState tableState = null;
+
+	private double[] tableReachCost;
+
+	private int[] tableReachedBy;
+
+	/**
+	 * Propositions whose cost may rise in the successor being evaluated.
+	 */
+	private int[] affected;
+
+	private int[] affectedStamp;
+
+	/**
+	 * Repairs which affect more propositions than this fall back to a full
+	 * evaluation.
+	 */
+	private int maxAffected;
+
+	/**
+	 * Whether the last evaluation computed the costs of all propositions, and not
+	 * only of those up to the goal.
+	 */
+	private boolean completeCosts = false;
 
 	/**
 	 * FFProposition corresponding to goal. This is either the auxiliary variable
@@ -84,12 +220,12 @@ public class FFHeuristic extends Heuristic {
 	public FFHeuristic(Problem problem, RPGStrategy strategy, ExplicitCondition goal) {
 		super(problem, true); // FF heuristic supports axioms.
 		this.strategy = strategy;
-		reachableQueue = new PriorityQueue<FFProposition>();
 		buildPropositions();
 		goalProp = buildGoalPropositions();
 		buildRules();
 		buildGoalRules(goal);
 		rules = Collections.unmodifiableList(rules);
+		buildArrays();
 		if (DEBUG) {
 			System.out.println("Initialized rules...");
 			for (FFRule r : rules) {
@@ -98,6 +234,46 @@ public class FFHeuristic extends Heuristic {
 		}
 	}
 
+	/**
+	 * Create an FF heuristic evaluator which shares the rule base of another one
+	 * and has scratch data of its own. Local operator costs are copied.
+	 *
+	 * @param heuristic FF heuristic whose rule base is shared
+	 */
+	private FFHeuristic(FFHeuristic heuristic) {
+		super(heuristic.problem, true);
+		strategy = heuristic.strategy;
+		rules = heuristic.rules;
+		variableValueToProposition = heuristic.variableValueToProposition;
+		propositions = heuristic.propositions;
+		goalProp = heuristic.goalProp;
+		ruleHead = heuristic.ruleHead;
+		ruleBodyStart = heuristic.ruleBodyStart;
+		ruleBody = heuristic.ruleBody;
+		ruleOperator = heuristic.ruleOperator;
+		preconditionOfStart = heuristic.preconditionOfStart;
+		preconditionOf = heuristic.preconditionOf;
+		achieverStart = heuristic.achieverStart;
+		achievers = heuristic.achievers;
+		if (heuristic.ruleOperatorIndex != null) {
+			ruleOperatorIndex = heuristic.ruleOperatorIndex;
+			originalOperatorCosts = heuristic.originalOperatorCosts;
+			operatorCosts = heuristic.operatorCosts.clone();
+			operatorRuleStart = heuristic.operatorRuleStart;
+			operatorRules = heuristic.operatorRules;
+		}
+		buildScratchArrays();
+	}
+
+	/**
+	 * Get an FF heuristic evaluator for another thread, which shares the rule
+	 * base of this one.
+	 */
+	@Override
+	public FFHeuristic copy() {
+		return new FFHeuristic(this);
+	}
+
 	/**
 	 * Add a rule with given head, body, and base cost to the rule base.
 	 *
@@ -239,24 +415,137 @@ public class FFHeuristic extends Heuristic {
 	}
 
 	/**
-	 * Collect the rules required to reach a given effect proposition. The collected
-	 * rules are accumulated in the set <tt>collectedRules</tt>.
+	 * Number the propositions and rules and store the rule base in flat arrays.
+	 * Rules keep their order in <tt>rules</tt>, the rules of a proposition keep
+	 * the order of <tt>preconditionOf</tt>.
+	 */
+	private void buildArrays() {
+		int numPropositions = 0;
+		for (List<FFProposition> values : variableValueToProposition)
+			numPropositions += values.size();
+		propositions = new FFProposition[numPropositions];
+		int id = 0;
+		for (List<FFProposition> values : variableValueToProposition) {
+			for (FFProposition prop : values) {
+				prop.id = id;
+				propositions[id++] = prop;
+			}
+		}
+		assert goalProp.id == numPropositions - 1;
+
+		int numRules = rules.size();
+		ruleHead = new int[numRules];
+		ruleBodyStart = new int[numRules + 1];
+		ruleOperator = new ExplicitOperator[numRules];
+		int bodySize = 0;
+		int r = 0;
+		for (FFRule rule : rules) {
+			rule.id = r;
+			ruleHead[r] = rule.head.id;
+			ruleOperator[r] = rule.operator;
+			ruleBodyStart[r] = bodySize;
+			bodySize += rule.body.size();
+			r++;
+		}
+		ruleBodyStart[numRules] = bodySize;
+		ruleBody = new int[bodySize];
+		for (FFRule rule : rules) {
+			int i = ruleBodyStart[rule.id];
+			for (FFProposition condition : rule.body)
+				ruleBody[i++] = condition.id;
+		}
+
+		preconditionOfStart = new int[numPropositions + 1];
+		int occurrences = 0;
+		for (FFProposition prop : propositions) {
+			preconditionOfStart[prop.id] = occurrences;
+			occurrences += prop.preconditionOf.size();
+		}
+		preconditionOfStart[numPropositions] = occurrences;
+		preconditionOf = new int[occurrences];
+		for (FFProposition prop : propositions) {
+			int i = preconditionOfStart[prop.id];
+			for (FFRule rule : prop.preconditionOf)
+				preconditionOf[i++] = rule.id;
+		}
+
+		achieverStart = new int[numPropositions + 1];
+		for (int rule = 0; rule < numRules; rule++)
+			achieverStart[ruleHead[rule] + 1]++;
+		for (int prop = 0; prop < numPropositions; prop++)
+			achieverStart[prop + 1] += achieverStart[prop];
+		achievers = new int[numRules];
+		int[] next = Arrays.copyOf(achieverStart, numPropositions);
+		for (int rule = 0; rule < numRules; rule++)
+			achievers[next[ruleHead[rule]]++] = rule;
+
+		buildScratchArrays();
+	}
+
+	/**
+	 * Allocate the arrays written by the evaluations.
+	 */
+	private void buildScratchArrays() {
+		int numPropositions = propositions.length;
+		int numRules = ruleHead.length;
+		reachCost = new double[numPropositions];
+		Arrays.fill(reachCost, FFProposition.INVALID_REACH_COST);
+		reachedBy = new int[numPropositions];
+		Arrays.fill(reachedBy, -1);
+		unsatisfiedPreconditions = new int[numRules];
+		Arrays.fill(unsatisfiedPreconditions, FFRule.INVALID_PRECONDITION_COUNT);
+		expandedStamp = new int[numPropositions];
+		collectedStamp = new int[numRules];
+		queue = new int[numPropositions + problem.numStateVars];
+		extractionRules = new int[numRules];
+		extractionPositions = new int[numRules];
+
+		if (strategy == RPGStrategy.MAX) {
+			tableReachCost = new double[numPropositions];
+			tableReachedBy = new int[numPropositions];
+			affected = new int[numPropositions];
+			affectedStamp = new int[numPropositions];
+			maxAffected = numPropositions / 8;
+		}
+	}
+
+	/**
+	 * Collect the rules required to reach the goal proposition by a depth-first
+	 * traversal of the best supporters, which visits the preconditions of a rule
+	 * in the order of its body. The operators of the collected rules are
+	 * appended to the relaxed plan in the order in which they are collected.
 	 *
-	 * @param effect         Proposition from which to chain backward
-	 * @param collectedRules Accumulator holding all rules collected so far
-	 */
-	private void collectRequiredRules(FFProposition effect, List<FFRule> collectedRules) {
-		FFRule newRule = effect.reachedBy;
-		if (newRule != null) {
-			relaxedPlan.add(this.index, newRule.operator);
-			this.index++;
-			collectedRules.add(newRule);
-			for (FFProposition precondition : newRule.body) {
-				if (!collectedRules.contains(precondition.reachedBy)) {
-					collectRequiredRules(precondition, collectedRules);
-				}
+	 * @return Sum of the costs of the collected rules
+	 */
+	private int collectRequiredRules() {
+		int cost = 0;
+		int first = reachedBy[goalProp.id];
+		if (first == -1)
+			return cost;
+		int top = 0;
+		extractionRules[0] = first;
+		extractionPositions[0] = ruleBodyStart[first];
+		collectedStamp[first] = evaluation;
+		relaxedPlan.add(ruleOperator[first]);
+		cost += getRuleCost(first);
+		while (top >= 0) {
+			int rule = extractionRules[top];
+			if (extractionPositions[top] == ruleBodyStart[rule + 1]) {
+				top--;
+				continue;
+			}
+			int precondition = ruleBody[extractionPositions[top]++];
+			int supporter = reachedBy[precondition];
+			if (supporter != -1 && collectedStamp[supporter] != evaluation) {
+				collectedStamp[supporter] = evaluation;
+				relaxedPlan.add(ruleOperator[supporter]);
+				cost += getRuleCost(supporter);
+				top++;
+				extractionRules[top] = supporter;
+				extractionPositions[top] = ruleBodyStart[supporter];
 			}
 		}
+		return cost;
 	}
 
 	/**
@@ -268,63 +557,55 @@ public class FFHeuristic extends Heuristic {
 	 *         been reached.
 	 */
 	private boolean explore() {
-		if (DEBUG) {
-			System.out.println("Reachable queue: " + reachableQueue);
-		}
-		HashSet<FFProposition> seen = new HashSet<FFProposition>();
-		while (!reachableQueue.isEmpty()) {
-			FFProposition prop = reachableQueue.poll();
+		return explore(true);
+	}
 
-			if (!seen.contains(prop)) {
-				if (prop.equals(goalProp)) {
+	/**
+	 * Explore the relaxed planning graph starting with the propositions true in the
+	 * current state.
+	 *
+	 * @param stopAtGoal Whether to stop as soon as the goal proposition is reached,
+	 *                   otherwise the costs of all propositions are computed
+	 * @return True iff the goal proposition has been reached.
+	 */
+	private boolean explore(boolean stopAtGoal) {
+		while (queueSize > 0) {
+			int prop = poll();
+
+			if (expandedStamp[prop] != evaluation) {
+				if (stopAtGoal && prop == goalProp.id) {
 					return true;
 				}
 
-				for (FFRule rule : prop.preconditionOf) {
-					rule.unsatisfiedPreconditions--;
-					assert rule.unsatisfiedPreconditions >= 0;
-					if (rule.unsatisfiedPreconditions == 0) {
+				for (int i = preconditionOfStart[prop]; i < preconditionOfStart[prop + 1]; i++) {
+					int rule = preconditionOf[i];
+					unsatisfiedPreconditions[rule]--;
+					assert unsatisfiedPreconditions[rule] >= 0;
+					if (unsatisfiedPreconditions[rule] == 0) {
 						triggerRule(rule);
 					}
 				}
-				seen.add(prop);
+				expandedStamp[prop] = evaluation;
 			}
 		}
 
-		return false;
+		return reachCost[goalProp.id] != FFProposition.INFINITE_REACH_COST;
 	}
 
 	/**
 	 * Extract the value of the FF heuristic from the relaxed planning graph by
-	 * performing a backward sweep from the reached goal proposition. If there was
-	 * more than one goal condition, the extraction starts with the first goal
-	 * condition (= conjunction of goal propositions) reached.
+	 * performing a backward sweep from the reached goal proposition.
 	 *
 	 * @return The value of the FF heuristic extracted from the relaxed planning
 	 *         graph
 	 */
-	int index = 0;
 	private int extractFFValue() {
-		List<FFRule> requiredRules = new ArrayList<FFRule>();
-
-		FFProposition goalProposition = goalProp;
-
-		assert goalProposition != null;
-		if (goalProposition == null) {
-			System.err.println("Error in FFHeuristic.extractFFValue: none of the goal monomials has been reached yet.");
-			Global.ExitCode.EXIT_CRITICAL_ERROR.exit();
-		}
-		index = 0;
-		this.relaxedPlan = new ArrayList<>();
-		collectRequiredRules(goalProposition, requiredRules);
+		relaxedPlan.clear();
+		int cost = collectRequiredRules();
 		if (DEBUG) {
 			System.out.println("FF: Required rules collected.");
 		}
-		assert requiredRules.size() >= 1;
-		int cost = 0;
-		for (FFRule rule : requiredRules) {
-			cost += rule.operator.getCost();
-		}
+		assert relaxedPlan.size() >= 1;
 		return cost;
 	}
 
@@ -338,7 +619,8 @@ public class FFHeuristic extends Heuristic {
 	 *         all the goals.
 	 */
 	public double getRPGHeuristic(ExplicitState state) {
-		assert reachableQueue.isEmpty();
+		assert queueSize == 0;
+		nextEvaluation();
 		initializePropositions(state);
 		if (DEBUG) {
 			System.out.println("FF: Propositions initialized.");
@@ -349,10 +631,11 @@ public class FFHeuristic extends Heuristic {
 		}
 
 		boolean solvable = explore();
+		completeCosts = false;
 		if (DEBUG) {
 			System.out.println("FF: Exploration done. Result solvable is " + solvable);
 		}
-		reachableQueue.clear();
+		queueSize = 0;
 
 		double result = INFINITE_HEURISTIC;
 		switch (strategy) {
@@ -363,16 +646,234 @@ public class FFHeuristic extends Heuristic {
 			}
 			break;
 		case MAX:
-			result = solvable ? goalProp.reachCost : INFINITE_HEURISTIC;
+			result = solvable ? reachCost[goalProp.id] : INFINITE_HEURISTIC;
 			break;
 			
 		case ADD:
-			result = solvable ? goalProp.reachCost : INFINITE_HEURISTIC;
+			result = solvable ? reachCost[goalProp.id] : INFINITE_HEURISTIC;
 			break;			
 		}
 		return result;
 	}
 
+	/**
+	 * Start a new evaluation, which invalidates all stamps of the previous ones.
+	 */
+	private void nextEvaluation() {
+		if (++evaluation == Integer.MAX_VALUE) {
+			Arrays.fill(expandedStamp, 0);
+			Arrays.fill(collectedStamp, 0);
+			if (affectedStamp != null)
+				Arrays.fill(affectedStamp, 0);
+			evaluation = 1;
+		}
+	}
+
+	/**
+	 * Compute the complete h^max cost table of a state, i.e., the costs of all
+	 * propositions and not only of those up to the goal.
+	 *
+	 * @param state State
+	 */
+	private void computeCompleteCosts(ExplicitState state) {
+		assert strategy == RPGStrategy.MAX && queueSize == 0;
+		nextEvaluation();
+		initializePropositions(state);
+		initializeRules();
+		explore(false);
+		queueSize = 0;
+		completeCosts = true;
+	}
+
+	/**
+	 * Compute the h^max value of a successor of a state by repairing the complete
+	 * cost table of the state. The table is computed when the first successor of
+	 * a state is evaluated and kept for its other successors.
+	 * 
+	 * The propositions of the state which do not hold in the successor, and all
+	 * propositions whose best supporter depends on them, may become more
+	 * expensive. Their costs are reset and recomputed from their achievers. The
+	 * new propositions of the successor cost 0. Starting from these changes, the
+	 * costs are lowered by a Dijkstra search until they are consistent again.
+	 * If too many propositions are affected, the successor is evaluated from
+	 * scratch.
+	 *
+	 * @param state  Successor state
+	 * @param parent State from which the successor was generated
+	 * @return h^max value of the successor
+	 */
+	private double getIncrementalRPGHeuristic(ExplicitState state, ExplicitState parent) {
+		assert strategy == RPGStrategy.MAX;
+		assert queueSize == 0;
+		if (parent != tableState) {
+			computeCompleteCosts(parent);
+			System.arraycopy(reachCost, 0, tableReachCost, 0, reachCost.length);
+			System.arraycopy(reachedBy, 0, tableReachedBy, 0, reachedBy.length);
+			tableState = parent;
+		}
+		nextEvaluation();
+
+		/* Propositions of the parent which do not hold in the successor. */
+		int numAffected = 0;
+		for (int var : state.getVariables()) {
+			int oldValue = parent.getValue(var);
+			if (oldValue != state.getValue(var) && (problem.axiomLayer.get(var) == -1 || oldValue != problem.defaultAxiomValues.get(var))) {
+				int prop = getProposition(var, oldValue).id;
+				affectedStamp[prop] = evaluation;
+				affected[numAffected++] = prop;
+			}
+		}
+		/* Propositions whose best supporter depends on an affected proposition. */
+		for (int i = 0; i < numAffected && numAffected <= maxAffected; i++) {
+			int prop = affected[i];
+			for (int j = preconditionOfStart[prop]; j < preconditionOfStart[prop + 1]; j++) {
+				int rule = preconditionOf[j];
+				int head = ruleHead[rule];
+				if (tableReachedBy[head] == rule && affectedStamp[head] != evaluation) {
+					affectedStamp[head] = evaluation;
+					affected[numAffected++] = head;
+				}
+			}
+		}
+		if (numAffected > maxAffected) {
+			return getRPGHeuristic(state);
+		}
+
+		System.arraycopy(tableReachCost, 0, reachCost, 0, reachCost.length);
+		System.arraycopy(tableReachedBy, 0, reachedBy, 0, reachedBy.length);
+		for (int i = 0; i < numAffected; i++) {
+			reachCost[affected[i]] = FFProposition.INFINITE_REACH_COST;
+			reachedBy[affected[i]] = -1;
+		}
+		for (int i = 0; i < numAffected; i++) {
+			int prop = affected[i];
+			for (int j = achieverStart[prop]; j < achieverStart[prop + 1]; j++) {
+				int rule = achievers[j];
+				double cost = getMaxRuleCost(rule);
+				if (cost < reachCost[prop]) {
+					reachCost[prop] = cost;
+					reachedBy[prop] = rule;
+				}
+			}
+			if (reachCost[prop] != FFProposition.INFINITE_REACH_COST) {
+				offer(prop);
+			}
+		}
+		/* Propositions of the successor which do not hold in the parent. */
+		for (int var : state.getVariables()) {
+			int value = state.getValue(var);
+			if (value != parent.getValue(var)) {
+				int prop = getProposition(var, value).id;
+				if (reachCost[prop] != 0) {
+					reachCost[prop] = 0;
+					reachedBy[prop] = -1;
+					offer(prop);
+				}
+			}
+		}
+		propagateCosts();
+		completeCosts = true;
+
+		double result = reachCost[goalProp.id];
+		return result == FFProposition.INFINITE_REACH_COST ? INFINITE_HEURISTIC : result;
+	}
+
+	/**
+	 * Get the h^max value of the state of the last evaluation after the local
+	 * costs of some operators were lowered, by repairing its complete cost table.
+	 * Lower operator costs only lower the costs of propositions, so the heads of
+	 * the rules of these operators are lowered and the new costs are propagated.
+	 * If the last evaluation stopped at the goal, the complete cost table is
+	 * computed from scratch.
+	 *
+	 * @param state        State of the last evaluation
+	 * @param operators    Local indices of the operators whose costs were lowered
+	 * @param numOperators Number of these operators
+	 * @return h^max value of the state
+	 */
+	double getRepairedMaxHeuristic(ExplicitState state, int[] operators, int numOperators) {
+		assert strategy == RPGStrategy.MAX && queueSize == 0;
+		if (!completeCosts) {
+			computeCompleteCosts(state);
+		} else {
+			for (int i = 0; i < numOperators; i++) {
+				int operator = operators[i];
+				for (int j = operatorRuleStart[operator]; j < operatorRuleStart[operator + 1]; j++) {
+					lowerCost(operatorRules[j]);
+				}
+			}
+			propagateCosts();
+		}
+
+		double result = reachCost[goalProp.id];
+		return result == FFProposition.INFINITE_REACH_COST ? INFINITE_HEURISTIC : result;
+	}
+
+	/**
+	 * Lower the costs of the heads of the rules of the propositions in the queue
+	 * until the costs are consistent.
+	 */
+	private void propagateCosts() {
+		while (queueSize > 0) {
+			int prop = poll();
+			for (int i = preconditionOfStart[prop]; i < preconditionOfStart[prop + 1]; i++) {
+				lowerCost(preconditionOf[i]);
+			}
+		}
+	}
+
+	/**
+	 * Lower the h^max cost of the head of a rule to the cost of reaching it by
+	 * the rule, if this is cheaper.
+	 *
+	 * @param rule Rule
+	 */
+	private void lowerCost(int rule) {
+		int head = ruleHead[rule];
+		double cost = getMaxRuleCost(rule);
+		if (cost < reachCost[head]) {
+			reachCost[head] = cost;
+			reachedBy[head] = rule;
+			offer(head);
+		}
+	}
+
+	/**
+	 * Get the h^max cost of reaching the head of a rule by the rule.
+	 *
+	 * @param rule Rule
+	 * @return Cost of the operator of the rule plus the highest cost of its
+	 *         preconditions
+	 */
+	private double getMaxRuleCost(int rule) {
+		double maxCost = 0;
+		for (int i = ruleBodyStart[rule]; i < ruleBodyStart[rule + 1]; i++) {
+			if (reachCost[ruleBody[i]] > maxCost) {
+				maxCost = reachCost[ruleBody[i]];
+			}
+		}
+		return getRuleCost(rule) + maxCost;
+	}
+
+	/**
+	 * Get heuristic value for a state generated from a parent state. The h^max
+	 * value is computed by repairing the cost table of the parent, all other
+	 * strategies evaluate the state from scratch. The changed variables are found
+	 * by comparing the states, so the operator is not used.
+	 *
+	 * @param state  state to be evaluated by heuristic
+	 * @param parent state from which the state was generated
+	 * @param op     operator applied to the parent
+	 * @return heuristic value for given state
+	 */
+	@Override
+	public double getHeuristic(State state, State parent, Operator op) {
+		if (strategy == RPGStrategy.MAX && state instanceof ExplicitState && parent instanceof ExplicitState) {
+			return getIncrementalRPGHeuristic((ExplicitState) state, (ExplicitState) parent);
+		}
+		return getHeuristic(state);
+	}
+
 	/**
 	 * Get heuristic value for given state.
 	 *
@@ -415,6 +916,150 @@ public class FFHeuristic extends Heuristic {
 		return getProposition(pair.first, pair.second);
 	}
 
+	/**
+	 * Get the cost of the operator of a rule.
+	 *
+	 * @param rule Rule
+	 * @return Cost of the operator of the rule
+	 */
+	private double getRuleCost(int rule) {
+		return ruleOperatorIndex == null ? ruleOperator[rule].getCost() : operatorCosts[ruleOperatorIndex[rule]];
+	}
+
+	/**
+	 * Make the operator costs local to this heuristic. They are initialized with
+	 * the current costs of the operators and can then be changed with
+	 * {@link #setOperatorCost(int, double)} without affecting other users of the
+	 * operators.
+	 */
+	void useLocalOperatorCosts() {
+		if (ruleOperatorIndex != null)
+			return;
+		Map<ExplicitOperator, Integer> operatorIndex = new IdentityHashMap<ExplicitOperator, Integer>();
+		int[] index = new int[ruleOperator.length];
+		for (int rule = 0; rule < ruleOperator.length; rule++) {
+			Integer i = operatorIndex.get(ruleOperator[rule]);
+			if (i == null) {
+				i = operatorIndex.size();
+				operatorIndex.put(ruleOperator[rule], i);
+			}
+			index[rule] = i;
+		}
+		originalOperatorCosts = new double[operatorIndex.size()];
+		for (Map.Entry<ExplicitOperator, Integer> entry : operatorIndex.entrySet())
+			originalOperatorCosts[entry.getValue()] = entry.getKey().getCost();
+		operatorCosts = originalOperatorCosts.clone();
+		operatorRuleStart = new int[operatorCosts.length + 1];
+		for (int rule = 0; rule < index.length; rule++)
+			operatorRuleStart[index[rule] + 1]++;
+		for (int operator = 0; operator < operatorCosts.length; operator++)
+			operatorRuleStart[operator + 1] += operatorRuleStart[operator];
+		operatorRules = new int[index.length];
+		int[] next = Arrays.copyOf(operatorRuleStart, operatorCosts.length);
+		for (int rule = 0; rule < index.length; rule++)
+			operatorRules[next[index[rule]]++] = rule;
+		ruleOperatorIndex = index;
+	}
+
+	/**
+	 * Restore the local operator costs to the costs of the operators.
+	 */
+	void resetOperatorCosts() {
+		System.arraycopy(originalOperatorCosts, 0, operatorCosts, 0, operatorCosts.length);
+	}
+
+	int getNumOperators() {
+		return operatorCosts.length;
+	}
+
+	/**
+	 * Get the index of the local cost of the operator of a rule.
+	 */
+	int getOperatorIndex(int rule) {
+		return ruleOperatorIndex[rule];
+	}
+
+	double getOperatorCost(int operator) {
+		return operatorCosts[operator];
+	}
+
+	void setOperatorCost(int operator, double cost) {
+		operatorCosts[operator] = cost;
+	}
+
+	ExplicitOperator getRuleOperator(int rule) {
+		return ruleOperator[rule];
+	}
+
+	int getNumPropositions() {
+		return propositions.length;
+	}
+
+	FFProposition getProposition(int id) {
+		return propositions[id];
+	}
+
+	int getRuleHead(int rule) {
+		return ruleHead[rule];
+	}
+
+	int getRuleBodyStart(int rule) {
+		return ruleBodyStart[rule];
+	}
+
+	int getRuleBodyEnd(int rule) {
+		return ruleBodyStart[rule + 1];
+	}
+
+	int getRuleBody(int i) {
+		return ruleBody[i];
+	}
+
+	/**
+	 * Rules in whose body proposition p occurs are
+	 * getPreconditionOf(getPreconditionOfStart(p)) to
+	 * getPreconditionOf(getPreconditionOfStart(p + 1) - 1).
+	 */
+	int getPreconditionOfStart(int prop) {
+		return preconditionOfStart[prop];
+	}
+
+	int getPreconditionOf(int i) {
+		return preconditionOf[i];
+	}
+
+	/**
+	 * Rules whose head is proposition p are getAchiever(getAchieverStart(p)) to
+	 * getAchiever(getAchieverStart(p + 1) - 1).
+	 */
+	int getAchieverStart(int prop) {
+		return achieverStart[prop];
+	}
+
+	int getAchiever(int i) {
+		return achievers[i];
+	}
+
+	/**
+	 * Get the cost to reach a proposition in the last evaluation.
+	 *
+	 * @param prop id of a proposition of this heuristic
+	 * @return reach cost of the proposition
+	 */
+	double getReachCost(int prop) {
+		return reachCost[prop];
+	}
+
+	/**
+	 * Get the cost to reach a proposition in the last evaluation.
+	 *
+	 * @param prop FF proposition of this heuristic
+	 * @return reach cost of the proposition
+	 */
+	double getReachCost(FFProposition prop) {
+		return reachCost[prop.id];
+	}
+
 	/**
 	 * Initialize the propositions and mark those as reached which are true in the
 	 * current state. Put them into the queue of reachable propositions.
@@ -422,28 +1067,26 @@ public class FFHeuristic extends Heuristic {
 	 * @param state Current state
 	 */
 	private void initializePropositions(ExplicitState state) {
-		for (int var : state.variableValueAssignment.keySet()) {
-			int value = state.variableValueAssignment.get(var);
+		for (int var : state.getVariables()) {
+			int value = state.getValue(var);
 			assert value >= 0;
 			for (FFProposition prop : variableValueToProposition.get(var)) {
-				prop.reachedBy = null;
-				prop.reachCost = FFProposition.INFINITE_REACH_COST;
+				reachedBy[prop.id] = -1;
+				reachCost[prop.id] = FFProposition.INFINITE_REACH_COST;
 			}
-			FFProposition currentProp = getProposition(var, value);
-			currentProp.reachCost = 0;
-
-			assert (!reachableQueue.contains(currentProp));
-			reachableQueue.add(currentProp);
+			int currentProp = getProposition(var, value).id;
+			reachCost[currentProp] = 0;
+			offer(currentProp);
 			if (problem.axiomLayer.get(var) != -1) {
 				// Add default value of this derived variable.
-				currentProp = getProposition(var, problem.defaultAxiomValues.get(var));
-				currentProp.reachCost = 0;
-				reachableQueue.add(currentProp);
+				currentProp = getProposition(var, problem.defaultAxiomValues.get(var)).id;
+				reachCost[currentProp] = 0;
+				offer(currentProp);
 			}
 		}
 		assert goalProp != null;
-		goalProp.reachedBy = null; // reset goal proposition
-		goalProp.reachCost = FFProposition.INFINITE_REACH_COST;
+		reachedBy[goalProp.id] = -1; // reset goal proposition
+		reachCost[goalProp.id] = FFProposition.INFINITE_REACH_COST;
 	}
 
 	/**
@@ -451,9 +1094,9 @@ public class FFHeuristic extends Heuristic {
 	 * respective numbers of preconditions, and trigger rules with empty bodies.
 	 */
 	private void initializeRules() {
-		for (FFRule rule : rules) {
-			rule.unsatisfiedPreconditions = rule.body.size();
-			if (rule.unsatisfiedPreconditions == 0) {
+		for (int rule = 0; rule < ruleHead.length; rule++) {
+			unsatisfiedPreconditions[rule] = ruleBodyStart[rule + 1] - ruleBodyStart[rule];
+			if (unsatisfiedPreconditions[rule] == 0) {
 				triggerRule(rule);
 			}
 		}
@@ -473,220 +1116,99 @@ public class FFHeuristic extends Heuristic {
 	 *
 	 * @param rule Rule to be triggered.
 	 */
-	private void triggerRule(FFRule rule) {
-		FFProposition effect = rule.head;
+	private void triggerRule(int rule) {
+		int effect = ruleHead[rule];
 		switch (strategy) {
 		case FF:
-			if (effect.reachCost == FFProposition.INFINITE_REACH_COST) {
-				effect.reachedBy = rule;
-				double cost = rule.operator.getCost();
-				for (FFProposition condition : rule.body) {
-					if (cost + condition.reachCost > 0) {
-						cost += condition.reachCost;
-					}
-				}
-				effect.reachCost = cost;
-				reachableQueue.add(effect);
-			}
-			break;
-			
 		case ADD:
-			if (effect.reachCost == FFProposition.INFINITE_REACH_COST) {
-				effect.reachedBy = rule;
-				double cost = rule.operator.getCost();
-				for (FFProposition condition : rule.body) {
-					if (cost + condition.reachCost > 0) {
-						cost += condition.reachCost;
+			if (reachCost[effect] == FFProposition.INFINITE_REACH_COST) {
+				reachedBy[effect] = rule;
+				double cost = getRuleCost(rule);
+				for (int i = ruleBodyStart[rule]; i < ruleBodyStart[rule + 1]; i++) {
+					double conditionCost = reachCost[ruleBody[i]];
+					if (cost + conditionCost > 0) {
+						cost += conditionCost;
 					}
 				}
-				effect.reachCost = cost;
-				reachableQueue.add(effect);
+				reachCost[effect] = cost;
+				offer(effect);
 			}
 			break;
 			
 		case MAX:
-			// effect.reachedBy = rule;
 			if (DEBUG) {
-				System.out.println("case MAX: trigger rule for effect " + effect + " of op " + rule.operator);
+				System.out.println("case MAX: trigger rule for effect " + propositions[effect] + " of op " + ruleOperator[rule]);
 			}
-			double cost = rule.operator.getCost();
+			double cost = getRuleCost(rule);
 			double maxCost = 0;
-			for (FFProposition condition : rule.body) {
-				if (condition.reachCost > maxCost) {
-					maxCost = condition.reachCost;
+			for (int i = ruleBodyStart[rule]; i < ruleBodyStart[rule + 1]; i++) {
+				if (reachCost[ruleBody[i]] > maxCost) {
+					maxCost = reachCost[ruleBody[i]];
 				}
 			}
-			if (DEBUG) {
-				System.out.println("cost is " + cost);
-			}
-			if ((cost + maxCost) < effect.reachCost || effect.reachCost == FFProposition.INFINITE_REACH_COST) {
-				effect.reachedBy = rule;
+			if ((cost + maxCost) < reachCost[effect] || reachCost[effect] == FFProposition.INFINITE_REACH_COST) {
+				reachedBy[effect] = rule;
 				cost += maxCost;
 				assert cost >= 0 : "cost is " + cost + " and max cost is " + maxCost;
-				effect.reachCost = cost;
-				reachableQueue.add(effect);
-			}
-			if (DEBUG) {
-				System.out.println("Cost of this effect " + cost);
+				reachCost[effect] = cost;
+				offer(effect);
 			}
 			break;
 		}
 	}
 
-}
-
-/**
- * A proposition, i.e., a variable-value pair, together with a list of FF rules
- * in whose precondition it occurs, the rule by which it was reached (initially
- * <tt>null</tt>) and to cost to reach it.
- *
- * @author Robert Mattmueller
- */
-class FFProposition implements Comparable<FFProposition> {
-
-	/**
-	 * Indicates invalid reachability cost.
-	 */
-	public static final double INVALID_REACH_COST = -1;
-
-	/**
-	 * Indicates infinite reachability cost.
-	 */
-	public static final double INFINITE_REACH_COST = Double.POSITIVE_INFINITY;
-
-	/**
-	 * Used to mark proposition nodes in search graph.
-	 */
-	boolean markedForwards = false;
-
-	/**
-	 * Used to mark proposition nodes in search graph.
-	 */
-	boolean markedBackwards = false;
-
-	/**
-	 * The list of FF rules in whose body this proposition occurs.
-	 */
-	List<FFRule> preconditionOf;
-
-	/**
-	 * The FF rule by which this proposition was reached.
-	 */
-	FFRule reachedBy;
-
-	/**
-	 * The cost to reach this proposition.
-	 */
-	double reachCost;
-
-	/**
-	 * Variable represented by the variable-value pair of this proposition.
-	 */
-	int var;
-
-	/**
-	 * Value represented by the variable-value pair of this proposition.
-	 */
-	int value;
-
 	/**
-	 * Creates an FF proposition for a given variable-value pair.
+	 * Add a proposition to the queue of reached propositions.
 	 *
-	 * @param var   Variable
-	 * @param value Value
+	 * @param prop Proposition id
 	 */
-	public FFProposition(int var, int value) {
-		preconditionOf = new LinkedList<FFRule>();
-		reachedBy = null;
-		this.var = var;
-		this.value = value;
-		reachCost = INVALID_REACH_COST;
-	}
-
-	@Override
-	public String toString() {
-		return var + ":" + value;
-	}
-
-	@Override
-	public int compareTo(FFProposition o) {
-		if (reachCost < o.reachCost) {
-			return -1;
-		} else if (reachCost > o.reachCost) {
-			return 1;
+	private void offer(int prop) {
+		if (queueSize == queue.length) {
+			queue = Arrays.copyOf(queue, 2 * queue.length);
 		}
-		return 0;
+		int k = queueSize++;
+		double cost = reachCost[prop];
+		while (k > 0) {
+			int parent = (k - 1) >>> 1;
+			int e = queue[parent];
+			if (!(cost < reachCost[e])) {
+				break;
+			}
+			queue[k] = e;
+			k = parent;
+		}
+		queue[k] = prop;
 	}
-}
-
-/**
- * An FF rule is a rule (head :- body) where the body is the precondition of an
- * operator and the head is one of the operator's add effects.
- *
- * @author Robert Mattmueller
- */
-class FFRule implements Comparable<FFRule> {
-
-	/**
-	 * Indicates that the counter of unsatisfied preconditions of a rule has not yet
-	 * been initialized.
-	 */
-	public static final int INVALID_PRECONDITION_COUNT = -1;
 
 	/**
-	 * Preconditions / body of this rule.
-	 */
-	Collection<FFProposition> body;
-
-	/**
-	 * Effect / head of this rule.
-	 */
-	FFProposition head;
-
-	/**
-	 * Number of preconditions of this rule which are still unsatisfied. This number
-	 * is decreased during the exploration of the relaxed planning graph until it
-	 * drops to zero and this rule triggers.
-	 */
-	int unsatisfiedPreconditions;
-
-	/**
-	 * Explicit operator to which this rule belongs.
-	 */
-	ExplicitOperator operator;
-
-	/**
-	 * Creates a new FF rule with a given body, head, and base cost.
+	 * Remove the proposition with the lowest reach cost from the queue.
 	 *
-	 * @param body     Body of this rule
-	 * @param head     Head of this rule
-	 * @param baseCost Base cost of this rule
+	 * @return Proposition id
 	 */
-	public FFRule(Collection<FFProposition> body, FFProposition head, ExplicitOperator op) {
-		this.body = body;
-		this.head = head;
-		unsatisfiedPreconditions = INVALID_PRECONDITION_COUNT;
-		operator = op;
-	}
-
-	@Override
-	public String toString() {
-		return "[FFRule] " + head + " :- " + body;
-	}
-
-	@Override
-	public int compareTo(FFRule o) {
-		if (operator.getCost() < o.operator.getCost()) {
-			return -1;
-		}
-		if (operator.getCost() > o.operator.getCost()) {
-			return 1;
+	private int poll() {
+		int result = queue[0];
+		int n = --queueSize;
+		if (n > 0) {
+			int prop = queue[n];
+			double cost = reachCost[prop];
+			int k = 0;
+			int half = n >>> 1;
+			while (k < half) {
+				int child = (k << 1) + 1;
+				int c = queue[child];
+				int right = child + 1;
+				if (right < n && reachCost[c] > reachCost[queue[right]]) {
+					c = queue[child = right];
+				}
+				if (!(cost > reachCost[c])) {
+					break;
+				}
+				queue[k] = c;
+				k = child;
+			}
+			queue[k] = prop;
 		}
-		return 0;
+		return result;
 	}
 
-	public void dump() {
-		System.out.println(this);
-		System.out.println("corresponding operator: " + operator + " with cost " + operator.getCost());
-	}
 }
@@ -0,0 +1,62 @@
+package paladinus.heuristic;
+
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * A proposition, i.e., a variable-value pair, together with a list of FF rules
+ * in whose precondition it occurs. The rule by which it was reached and the
+ * cost to reach it are kept by the heuristic under the id of the proposition.
+ *
+ * @author Robert Mattmueller
+ */
+class FFProposition {
+
+	/**
+	 * Indicates invalid reachability cost.
+	 */
+	public static final double INVALID_REACH_COST = -1;
+
+	/**
+	 * Indicates infinite reachability cost.
+	 */
+	public static final double INFINITE_REACH_COST = Double.POSITIVE_INFINITY;
+
+	/**
+	 * The list of FF rules in whose body this proposition occurs.
+	 */
+	List<FFRule> preconditionOf;
+
+	/**
+	 * Index of this proposition in the arrays of its heuristic.
+	 */
+	int id = -1;
+
+	/**
+	 * Variable represented by the variable-value pair of this proposition.
+	 */
+	int var;
+
+	/**
+	 * Value represented by the variable-value pair of this proposition.
+	 */
+	int value;
+
+	/**
+	 * Creates an FF proposition for a given variable-value pair.
+	 *
+	 * @param var   Variable
+	 * @param value Value
+	 */
+	public FFProposition(int var, int value) {
+		preconditionOf = new LinkedList<FFRule>();
+		this.var = var;
+		this.value = value;
+	}
+
+	@Override
+	public String toString() {
+		return var + ":" + value;
+	}
+
+}
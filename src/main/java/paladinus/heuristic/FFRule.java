@@ -0,0 +1,75 @@
+package paladinus.heuristic;
+
+import java.util.Collection;
+
+import paladinus.explicit.ExplicitOperator;
+
+/**
+ * An FF rule is a rule (head :- body) where the body is the precondition of an
+ * operator and the head is one of the operator's add effects.
+ *
+ * @author Robert Mattmueller
+ */
+class FFRule implements Comparable<FFRule> {
+
+	/**
+	 * Indicates that the counter of unsatisfied preconditions of a rule has not yet
+	 * been initialized.
+	 */
+	public static final int INVALID_PRECONDITION_COUNT = -1;
+
+	/**
+	 * Preconditions / body of this rule.
+	 */
+	Collection<FFProposition> body;
+
+	/**
+	 * Effect / head of this rule.
+	 */
+	FFProposition head;
+
+	/**
+	 * Index of this rule in the arrays of its heuristic, or -1 if the rule is not
+	 * part of the rule base of a heuristic.
+	 */
+	int id = -1;
+
+	/**
+	 * Explicit operator to which this rule belongs.
+	 */
+	ExplicitOperator operator;
+
+	/**
+	 * Creates a new FF rule with a given body, head, and base cost.
+	 *
+	 * @param body     Body of this rule
+	 * @param head     Head of this rule
+	 * @param baseCost Base cost of this rule
+	 */
+	public FFRule(Collection<FFProposition> body, FFProposition head, ExplicitOperator op) {
+		this.body = body;
+		this.head = head;
+		operator = op;
+	}
+
+	@Override
+	public String toString() {
+		return "[FFRule] " + head + " :- " + body;
+	}
+
+	@Override
+	public int compareTo(FFRule o) {
+		if (operator.getCost() < o.operator.getCost()) {
+			return -1;
+		}
+		if (operator.getCost() > o.operator.getCost()) {
+			return 1;
+		}
+		return 0;
+	}
+
+	public void dump() {
+		System.out.println(this);
+		System.out.println("corresponding operator: " + operator + " with cost " + operator.getCost());
+	}
+}
@@ -2,6 +2,7 @@ package paladinus.heuristic;
 
 import paladinus.heuristic.FFHeuristic.RPGStrategy;
 import paladinus.problem.Problem;
+import paladinus.state.Operator;
 import paladinus.state.State;
 
 public class HMaxHeuristic extends Heuristic {
@@ -13,8 +14,23 @@ public class HMaxHeuristic extends Heuristic {
 		heuristic = new FFHeuristic(problem, RPGStrategy.MAX);
 	}
 
+	private HMaxHeuristic(FFHeuristic heuristic) {
+		super(heuristic.problem, true);
+		this.heuristic = heuristic;
+	}
+
+	@Override
+	public Heuristic copy() {
+		return new HMaxHeuristic(heuristic.copy());
+	}
+
 	@Override
 	public double getHeuristic(State state) {
 		return heuristic.getHeuristic(state);
 	}
+
+	@Override
+	public double getHeuristic(State state, State parent, Operator op) {
+		return heuristic.getHeuristic(state, parent, op);
+	}
 }
@@ -1,7 +1,10 @@
 package paladinus.heuristic;
 
+import java.util.List;
+
 import paladinus.Global;
 import paladinus.problem.Problem;
+import paladinus.state.Operator;
 import paladinus.state.State;
 import paladinus.util.FactPartitioner;
 
@@ -36,11 +39,64 @@ public abstract class Heuristic {
 	 * @return heuristic value for given state
 	 */
 	public abstract double getHeuristic(State state);
+
+	/**
+	 * Get heuristic value for a state generated by applying an operator to a
+	 * parent state. Heuristics which can reuse the work done for the parent
+	 * override this, by default the state is evaluated from scratch.
+	 *
+	 * @param state  state to be evaluated by heuristic
+	 * @param parent state from which the state was generated
+	 * @param op     operator applied to the parent
+	 * @return heuristic value for given state
+	 */
+	public double getHeuristic(State state, State parent, Operator op) {
+		return getHeuristic(state);
+	}
+
+	/**
+	 * Get the heuristic values of a batch of states generated from the same
+	 * parent state. Heuristics which can share work between the states, or
+	 * evaluate them in parallel, override this, by default the states are
+	 * evaluated one after the other.
+	 *
+	 * @param states states to be evaluated by heuristic
+	 * @param parent state from which the states were generated, or null
+	 * @param ops    operator which generated each state, or null if parent is
+	 *               null
+	 * @param values array the heuristic values of the states are written to
+	 */
+	public void getHeuristics(List<State> states, State parent, List<Operator> ops, double[] values) {
+		assert values.length >= states.size();
+		for (int i = 0; i < states.size(); i++) {
+			values[i] = parent == null ? getHeuristic(states.get(i)) : getHeuristic(states.get(i), parent, ops.get(i));
+		}
+	}
+
+	/**
+	 * Get an instance of this heuristic for another thread. The instance shares
+	 * the data which is only read by the evaluations, e.g. rule bases and pattern
+	 * databases, and has scratch data of its own. Heuristics whose evaluations
+	 * write no data of the instance are shared, which is the default.
+	 *
+	 * @return heuristic for another thread
+	 */
+	public Heuristic copy() {
+		return this;
+	}
+
+	/**
+	 * Release the resources of this heuristic, e.g. its threads. Heuristics
+	 * which hold such resources override this, by default nothing is done.
+	 */
+	public void close() {
+	}
+
 	FactPartitioner partitioner;
 
 	public Heuristic(Problem problem, boolean supportsAxioms) {
 		this.problem = problem;
-		this.partitioner = FactPartitioner.getInstance(problem);
+		this.partitioner = problem.getContext().getFactPartitioner(problem);
 		if (!supportsAxioms) {
 			if (problem.numAxioms != 0) {
 				System.err.println("Heuristic does not support axioms. Planner will be terminated.");
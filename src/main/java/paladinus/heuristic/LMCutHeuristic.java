@@ -4,26 +4,25 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Set;
-import java.util.Stack;
+import java.util.List;
 
 import paladinus.explicit.ExplicitCondition;
-import paladinus.explicit.ExplicitOperator;
 import paladinus.explicit.ExplicitState;
 import paladinus.heuristic.FFHeuristic.RPGStrategy;
 import paladinus.problem.Problem;
 import paladinus.state.Operator;
 import paladinus.state.State;
-import paladinus.util.Pair;
 
 /**
  * LM-Cut Heuristic
  *
+ * The justification graph is kept in flat arrays indexed by the ids of the
+ * propositions and rules of the h^max heuristic, and the operator costs which
+ * are reduced by the cuts are local to the h^max heuristic, so that the shared
+ * operators are never changed. With the option -incrementalLMCut, the h^max
+ * costs after a cut are computed by repairing the costs of the previous round,
+ * whose operator costs were only lowered by the cut.
+ *
  * @author Josua Scherzinger
  */
 public class LMCutHeuristic extends Heuristic {
@@ -34,29 +33,68 @@ public class LMCutHeuristic extends Heuristic {
 	private FFHeuristic hMaxHeuristic;
 
 	/**
-	 * Map used to evaluate justification graph backwards.
+	 * Id of the "s" node in the justification graph, which comes after the ids of
+	 * all propositions.
 	 */
-	private Map<FFProposition, Set<Pair<FFRule, FFProposition>>> graphInverted;
+	private final int initProp;
 
 	/**
-	 * Map used to evaluate justification graph forwards.
+	 * Precondition of each rule with the highest h-max value, i.e., the source of
+	 * the edge of the rule in the justification graph, or initProp for rules
+	 * without preconditions.
 	 */
-	private Map<FFProposition, Set<Pair<FFRule, FFProposition>>> graph;
+	private final int[] maxPrecondition;
 
 	/**
-	 * Current heuristic value.
+	 * Rules without preconditions, whose edges start at the "s" node.
 	 */
-	private double lmCutValue;
+	private final int[] emptyBodyRules;
+
+	/**
+	 * Propositions of the state being evaluated, which are the targets of the
+	 * edges of the "s" node.
+	 */
+	private int[] initialPropositions;
+
+	private int numInitialPropositions = 0;
+
+	/**
+	 * Propositions marked in the backward and forward searches of the current
+	 * round are stamped with the round number, so that the marks need no reset.
+	 */
+	private final int[] markedBackwards;
+
+	private final int[] markedForwards;
+
+	/**
+	 * Operators of the current cut are stamped with the round number.
+	 */
+	private final int[] inCut;
+
+	/**
+	 * Operators of the current cut.
+	 */
+	private final int[] cut;
+
+	private int cutSize = 0;
+
+	private int round = 0;
+
+	/**
+	 * Whether the h-max costs after a cut are repaired instead of computed from
+	 * scratch.
+	 */
+	private final boolean incrementalCuts;
 
 	/**
-	 * Stores the original operator costs.
+	 * Stack of propositions for the backward and forward searches.
 	 */
-	private Map<Operator, Double> originalCosts;
+	private final int[] stack;
 
 	/**
-	 * Represents the "s" node in the justification graph.
+	 * Current heuristic value.
 	 */
-	private FFProposition initProp = new FFProposition(-1, 1);
+	private double lmCutValue;
 
 	/**
 	 * Iteration number for debugging.
@@ -82,17 +120,55 @@ public class LMCutHeuristic extends Heuristic {
 	 */
 	public LMCutHeuristic(Problem problem, ExplicitCondition goal) {
 		super(problem, true); // TODO Support axioms correctly.
-		// for (OperatorRule rule : problem.axioms) {
-		// System.out.println("rule " + rule);
-		// }
-		// problem.getExplicitInitialStates().get(0).dump();
-		originalCosts = new HashMap<Operator, Double>(problem.getOperators().size());
-		for (Operator op : problem.getOperators()) {
-			if (op.isCausative) {
-				originalCosts.put(op, op.getCost());
-			}
-		}
 		hMaxHeuristic = new FFHeuristic(problem, RPGStrategy.MAX, goal);
+		hMaxHeuristic.useLocalOperatorCosts();
+
+		int numPropositions = hMaxHeuristic.getNumPropositions();
+		int numRules = hMaxHeuristic.rules.size();
+		initProp = numPropositions;
+		maxPrecondition = new int[numRules];
+		int numEmptyBodyRules = 0;
+		for (int rule = 0; rule < numRules; rule++) {
+			if (hMaxHeuristic.getRuleBodyStart(rule) == hMaxHeuristic.getRuleBodyEnd(rule))
+				numEmptyBodyRules++;
+		}
+		emptyBodyRules = new int[numEmptyBodyRules];
+		numEmptyBodyRules = 0;
+		for (int rule = 0; rule < numRules; rule++) {
+			if (hMaxHeuristic.getRuleBodyStart(rule) == hMaxHeuristic.getRuleBodyEnd(rule))
+				emptyBodyRules[numEmptyBodyRules++] = rule;
+		}
+		initialPropositions = new int[problem.numStateVars];
+		markedBackwards = new int[numPropositions + 1];
+		markedForwards = new int[numPropositions + 1];
+		inCut = new int[hMaxHeuristic.getNumOperators()];
+		cut = new int[hMaxHeuristic.getNumOperators()];
+		stack = new int[numPropositions + 1];
+		incrementalCuts = problem.getContext().getOptions().incrementalLMCut();
+	}
+
+	/**
+	 * Create an LM-cut heuristic which shares the rule base of another one and
+	 * has scratch data of its own.
+	 */
+	private LMCutHeuristic(LMCutHeuristic heuristic) {
+		super(heuristic.problem, true);
+		hMaxHeuristic = heuristic.hMaxHeuristic.copy();
+		initProp = heuristic.initProp;
+		emptyBodyRules = heuristic.emptyBodyRules;
+		incrementalCuts = heuristic.incrementalCuts;
+		maxPrecondition = new int[heuristic.maxPrecondition.length];
+		initialPropositions = new int[heuristic.initialPropositions.length];
+		markedBackwards = new int[heuristic.markedBackwards.length];
+		markedForwards = new int[heuristic.markedForwards.length];
+		inCut = new int[heuristic.inCut.length];
+		cut = new int[heuristic.cut.length];
+		stack = new int[heuristic.stack.length];
+	}
+
+	@Override
+	public Heuristic copy() {
+		return new LMCutHeuristic(this);
 	}
 
 	/**
@@ -103,13 +179,66 @@ public class LMCutHeuristic extends Heuristic {
 	 */
 	@Override
 	public double getHeuristic(State state) {
+		return getLMCutHeuristic(state, null);
+	}
+
+	/**
+	 * Compute heuristic value for a state generated from a parent state. The
+	 * h-max values of the first round are computed by repairing the complete
+	 * h-max cost table of the parent, so the justification graph of the first
+	 * round is built from the exact h-max values of all propositions.
+	 *
+	 * @param state  state to be evaluated by heuristic
+	 * @param parent state from which the state was generated
+	 * @param op     operator applied to the parent
+	 * @return heuristic value for given state
+	 */
+	@Override
+	public double getHeuristic(State state, State parent, Operator op) {
+		return getLMCutHeuristic(state, parent instanceof ExplicitState ? parent : null);
+	}
+
+	/**
+	 * Get the heuristic values of a batch of states generated from the same
+	 * parent state. The h-max cost table of the parent is computed once for the
+	 * batch and repaired in the first round of each state.
+	 */
+	@Override
+	public void getHeuristics(List<State> states, State parent, List<Operator> ops, double[] values) {
+		assert values.length >= states.size();
+		State explicitParent = parent instanceof ExplicitState ? parent : null;
+		for (int i = 0; i < states.size(); i++) {
+			values[i] = getLMCutHeuristic(states.get(i), explicitParent);
+		}
+	}
+
+	/**
+	 * Compute heuristic value for given state.
+	 *
+	 * @param state  state to be evaluated by heuristic
+	 * @param parent explicit state from which the state was generated, or null to
+	 *               compute the h-max values of the first round from scratch
+	 * @return heuristic value for given state
+	 */
+	private double getLMCutHeuristic(State state, State parent) {
 		lmCutValue = 0;
 		double result = -1;
 
 		if (state instanceof ExplicitState) {
 			ExplicitState explicitState = (ExplicitState) state;
+			hMaxHeuristic.resetOperatorCosts();
+			boolean firstRound = true;
 			while (result == -1) {
-				double hmax = hMaxHeuristic.getHeuristic(state);
+				/* The cost table of the parent is kept for the original operator costs. */
+				double hmax;
+				if (firstRound) {
+					hmax = parent != null ? hMaxHeuristic.getHeuristic(state, parent, null) : hMaxHeuristic.getHeuristic(state);
+				} else if (incrementalCuts) {
+					hmax = hMaxHeuristic.getRepairedMaxHeuristic(explicitState, cut, cutSize);
+				} else {
+					hmax = hMaxHeuristic.getHeuristic(state);
+				}
+				firstRound = false;
 				if (DEBUG) {
 					System.out.println("h max value is " + hmax);
 				}
@@ -117,21 +246,23 @@ public class LMCutHeuristic extends Heuristic {
 
 				// Stop if h-max value of the goal proposition reaches 0 or infinity.
 				if (hmax == INFINITE_HEURISTIC) {
-					assert hMaxHeuristic.goalProp.reachCost == FFProposition.INFINITE_REACH_COST;
+					assert hMaxHeuristic.getReachCost(hMaxHeuristic.goalProp) == FFProposition.INFINITE_REACH_COST;
 					result = hmax;
 				} else if (hmax == 0) {
-					assert hMaxHeuristic.goalProp.reachCost == 0;
+					assert hMaxHeuristic.getReachCost(hMaxHeuristic.goalProp) == 0;
 					result = lmCutValue;
 					assert result >= 0;
 					if (DEBUG) {
 						System.out.println("result is " + result);
 					}
 				} else {
-					assert hMaxHeuristic.goalProp.reachCost > 0
-							: "Reach cost of the goal is " + hMaxHeuristic.goalProp.reachCost;
+					assert hMaxHeuristic.getReachCost(hMaxHeuristic.goalProp) > 0
+							: "Reach cost of the goal is " + hMaxHeuristic.getReachCost(hMaxHeuristic.goalProp);
+
+					nextRound();
 
-					// Initialize justification graph by adding a "s" node and edges
-					// to the true propositions of the current state.
+					// Initialize justification graph by adding edges from the "s"
+					// node to the true propositions of the current state.
 					initializeJustificationGraph(explicitState);
 
 					// Select the propositions with the highest h-max value.
@@ -139,22 +270,34 @@ public class LMCutHeuristic extends Heuristic {
 
 					// Search for cut. If no cut is found, raise an error.
 					computeBackwardSearch();
-					boolean okay = computeForwardCutSearch((ExplicitState) state);
-					if (!okay)
-						return hmax;
+					boolean okay = computeForwardCutSearch();
 
 					if (EXPORT_DOT) {
 						dumpGraph("lmcut-graph_" + iteration++, state.toString());
 					}
-					resetJustificationGraph();
+					if (!okay) {
+						result = hmax;
+					}
 				}
 			}
-			restoreCosts();
+			hMaxHeuristic.resetOperatorCosts();
 			return result;
 		}
 		return result;
 	}
 
+	/**
+	 * Start a new round, which invalidates all marks of the previous ones.
+	 */
+	private void nextRound() {
+		if (++round == Integer.MAX_VALUE) {
+			Arrays.fill(markedBackwards, 0);
+			Arrays.fill(markedForwards, 0);
+			Arrays.fill(inCut, 0);
+			round = 1;
+		}
+	}
+
 	/**
 	 * Initialize justification graph by adding edges from the initial node to the
 	 * true proposition of the given state.
@@ -162,96 +305,43 @@ public class LMCutHeuristic extends Heuristic {
 	 * @param state current state to evaluate
 	 */
 	private void initializeJustificationGraph(ExplicitState state) {
-		if (graph == null) {
-			assert graphInverted == null;
-
-			// Create map with all propositions as keys
-			graph = new HashMap<FFProposition, Set<Pair<FFRule, FFProposition>>>();
-			graphInverted = new HashMap<FFProposition, Set<Pair<FFRule, FFProposition>>>();
-
-			for (int var = 0; var < problem.numStateVars; var++) {
-				for (int val = 0; val < problem.domainSizes.get(var); val++) {
-					FFProposition prop = hMaxHeuristic.getProposition(var, val);
-					graph.put(prop, new HashSet<Pair<FFRule, FFProposition>>());
-					graphInverted.put(prop, new HashSet<Pair<FFRule, FFProposition>>());
-				}
-			}
-			graph.put(hMaxHeuristic.goalProp, new HashSet<Pair<FFRule, FFProposition>>());
-			graphInverted.put(hMaxHeuristic.goalProp, new HashSet<Pair<FFRule, FFProposition>>());
-
-			// add initial proposition
-			graph.put(initProp, new HashSet<Pair<FFRule, FFProposition>>());
-			graphInverted.put(initProp, new HashSet<Pair<FFRule, FFProposition>>());
+		numInitialPropositions = 0;
+		for (int var : state.getVariables()) {
+			if (numInitialPropositions == initialPropositions.length)
+				initialPropositions = Arrays.copyOf(initialPropositions, 2 * numInitialPropositions);
+			initialPropositions[numInitialPropositions++] = hMaxHeuristic.getProposition(var, state.getValue(var)).id;
 		}
-
-		// Add edges from "s" to propositions which are initially true.
-		HashSet<Pair<FFRule, FFProposition>> edges = new HashSet<Pair<FFRule, FFProposition>>();
-		ExplicitOperator op = new ExplicitOperator("", null, null, Collections.<Pair<Integer, Integer>>emptySet(),
-				false, 0);
-		for (Entry<Integer, Integer> varVal : state.variableValueAssignment.entrySet()) {
-			FFProposition prop = hMaxHeuristic.getProposition(varVal.getKey(), varVal.getValue());
-			FFRule rule = new FFRule(new HashSet<FFProposition>(Arrays.asList(initProp)), prop, op);
-			edges.add(new Pair<FFRule, FFProposition>(rule, prop));
-
-			HashSet<Pair<FFRule, FFProposition>> edgesBackward = new HashSet<Pair<FFRule, FFProposition>>();
-			edgesBackward.add(new Pair<FFRule, FFProposition>(rule, initProp));
-			graphInverted.put(prop, new HashSet<Pair<FFRule, FFProposition>>());
-		}
-		graph.put(initProp, edges);
 	}
 
 	/**
-	 * Select precondition of every rule that generates the highest h-max value and
-	 * create the corresponding edge in the justification graph
-	 *
-	 * @param state state to be evaluated by heuristic
+	 * Select precondition of every rule that generates the highest h-max value,
+	 * which is the source of the edge of the rule in the justification graph.
 	 */
 	private void choosePreconditions() {
 		if (DEBUG) {
 			System.out.println("Choose preconditions.");
 		}
-		for (FFRule rule : hMaxHeuristic.rules) {
+		for (int rule = 0; rule < maxPrecondition.length; rule++) {
 			double max = Double.NEGATIVE_INFINITY;
-			FFProposition maxProp = null;
+			int maxProp = initProp; // No precondition.
 
 			// Check which proposition of the precondition generates the highest h-max
 			// value.
-			for (FFProposition proposition : rule.body) {
-				assert proposition.reachCost >= -1;
+			for (int i = hMaxHeuristic.getRuleBodyStart(rule); i < hMaxHeuristic.getRuleBodyEnd(rule); i++) {
+				int proposition = hMaxHeuristic.getRuleBody(i);
+				double reachCost = hMaxHeuristic.getReachCost(proposition);
+				assert reachCost >= -1;
 
 				// Remember best option.
-				if (proposition.reachCost >= max) {
-					max = proposition.reachCost;
+				if (reachCost >= max) {
+					max = reachCost;
 					maxProp = proposition;
 				}
 			}
-
-//      List<FFProposition> maxProps = new ArrayList<FFProposition>();
-//      for (FFProposition proposition : rule.body) {
-//    	  if (proposition.reachCost == max)
-//    		  maxProps.add(proposition);
-//      }
-//      Random r = new Random();
-//      int i = r.nextInt(maxProps.size());
-//      //System.out.println(maxProps);
-//      maxProp = maxProps.get(i);
-//      //System.out.println();
-
-			if (maxProp == null) { // No precondition.
-				maxProp = initProp;
-			}
 			if (DEBUG) {
-				System.out.println("For rule " + rule + " maxProp is " + maxProp + " with cost " + max);
+				System.out.println("For rule " + hMaxHeuristic.rules.get(rule) + " maxProp is " + maxProp + " with cost " + max);
 			}
-
-			// Create an edge in the justification graph and
-			// store edges in both directions for simpler s-t-cut computation
-			Pair<FFRule, FFProposition> edgeInverted = new Pair<FFRule, FFProposition>(rule, maxProp);
-			Pair<FFRule, FFProposition> edge = new Pair<FFRule, FFProposition>(rule, rule.head);
-			assert edge != null;
-			assert edgeInverted != null;
-			graphInverted.get(rule.head).add(edgeInverted);
-			graph.get(maxProp).add(edge);
+			maxPrecondition[rule] = maxProp;
 		}
 	}
 
@@ -260,20 +350,24 @@ public class LMCutHeuristic extends Heuristic {
 	 * can be reached backwards by the goalProp using only 0-cost operators.
 	 */
 	private void computeBackwardSearch() {
-		Stack<FFProposition> marked = new Stack<FFProposition>();
-		hMaxHeuristic.goalProp.markedBackwards = true;
-		marked.push(hMaxHeuristic.goalProp);
+		int size = 0;
+		markedBackwards[hMaxHeuristic.goalProp.id] = round;
+		stack[size++] = hMaxHeuristic.goalProp.id;
 
 		// Mark all propositions that can be reached backwards from the goalProp with
 		// 0-cost operators.
-		while (!marked.empty()) {
-			FFProposition current = marked.pop();
-			for (Pair<FFRule, FFProposition> edge : graphInverted.get(current)) {
-				if (edge.first.operator.getCost() == 0 && !edge.second.markedBackwards) {
-					edge.second.markedBackwards = true;
-					marked.push(edge.second);
+		while (size > 0) {
+			int current = stack[--size];
+			if (current == initProp)
+				continue;
+			for (int i = hMaxHeuristic.getAchieverStart(current); i < hMaxHeuristic.getAchieverStart(current + 1); i++) {
+				int rule = hMaxHeuristic.getAchiever(i);
+				int source = maxPrecondition[rule];
+				if (hMaxHeuristic.getOperatorCost(hMaxHeuristic.getOperatorIndex(rule)) == 0 && markedBackwards[source] != round) {
+					markedBackwards[source] = round;
+					stack[size++] = source;
 					if (DEBUG) {
-						System.out.println("marked backwards " + edge.second);
+						System.out.println("marked backwards " + source);
 					}
 				}
 			}
@@ -284,60 +378,51 @@ public class LMCutHeuristic extends Heuristic {
 	 * Compute a forward search until you reach the cut. Decrease operator costs on
 	 * the cut and increase heuristic value.
 	 *
-	 * @param state current state
 	 * @return true iff cut was found
 	 */
-	private boolean computeForwardCutSearch(ExplicitState state) {
-		Stack<FFProposition> marked = new Stack<FFProposition>();
-		Set<ExplicitOperator> cut = new HashSet<ExplicitOperator>();
+	private boolean computeForwardCutSearch() {
+		int size = 0;
+		cutSize = 0;
 
-		assert initProp.markedBackwards == false;
-		initProp.markedForwards = true;
-		marked.push(initProp);
+		markedForwards[initProp] = round;
+		stack[size++] = initProp;
 
 		// Search until backwards marked nodes are reached that indicate a cut.
-		while (!marked.empty()) {
-			FFProposition current = marked.pop();
-			for (Pair<FFRule, FFProposition> edge : graph.get(current)) {
-				if (!edge.second.markedForwards) {
-					if (edge.second.markedBackwards) {
-						if (edge.first.operator == null || edge.first.operator.getName().equals(""))
-							continue;
-
-						cut.add(edge.first.operator);
-						if (DEBUG) {
-							System.out.println("cut " + edge.first.operator);
-						}
-					} else {
-						edge.second.markedForwards = true;
-						if (DEBUG) {
-							System.out.println("marked forward " + edge.second);
-						}
-						marked.push(edge.second);
+		while (size > 0) {
+			int current = stack[--size];
+			if (current == initProp) {
+				// Edges to the true propositions of the state are not part of any cut.
+				for (int i = 0; i < numInitialPropositions; i++) {
+					int target = initialPropositions[i];
+					if (markedForwards[target] != round && markedBackwards[target] != round) {
+						markedForwards[target] = round;
+						stack[size++] = target;
 					}
 				}
+				for (int rule : emptyBodyRules)
+					size = followEdge(rule, size);
+			} else {
+				for (int i = hMaxHeuristic.getPreconditionOfStart(current); i < hMaxHeuristic.getPreconditionOfStart(current + 1); i++) {
+					int rule = hMaxHeuristic.getPreconditionOf(i);
+					if (maxPrecondition[rule] == current)
+						size = followEdge(rule, size);
+				}
 			}
 		}
 
-		// Raise an error if no cut was found.
-		/*
-		 * if (cut.isEmpty()) { new
-		 * Exception("Impossible. No cut found, even though h-max value is not infinity."
-		 * ).printStackTrace(); Global.ExitCode.EXIT_CRITICAL_ERROR.exit(); }
-		 */
-
-		if (cut.isEmpty()) {
+		if (cutSize == 0) {
 			lmCutValue += 1;
 			return false;
 		}
 
 		// Set costs of operators on the cut to 0.
 		double minCost = Double.POSITIVE_INFINITY;
-		for (ExplicitOperator operator : cut) {
-			if (operator.getCost() < minCost) {
-				minCost = operator.getCost();
+		for (int i = 0; i < cutSize; i++) {
+			int operator = cut[i];
+			if (hMaxHeuristic.getOperatorCost(operator) < minCost) {
+				minCost = hMaxHeuristic.getOperatorCost(operator);
 			}
-			operator.setCost(0);
+			hMaxHeuristic.setOperatorCost(operator, 0);
 		}
 		// Increase heuristic value.
 		assert minCost >= 0;
@@ -347,25 +432,35 @@ public class LMCutHeuristic extends Heuristic {
 	}
 
 	/**
-	 * Remove all edges and reset markings.
-	 */
-	private void resetJustificationGraph() {
-		assert graph != null;
-		for (FFProposition prop : graph.keySet()) {
-			prop.markedBackwards = false;
-			prop.markedForwards = false;
-			graph.get(prop).clear(); // delete edges
-			graphInverted.get(prop).clear(); // delete edges
-		}
-	}
-
-	/**
-	 * Revert cots of all operators to their original value.
+	 * Follow the edge of a rule from a proposition reached by the forward search.
+	 * The operator of the rule is added to the cut if the head of the rule is
+	 * marked backwards, otherwise the head is marked forwards.
+	 *
+	 * @param rule rule whose edge is followed
+	 * @param size size of the stack
+	 * @return new size of the stack
 	 */
-	private void restoreCosts() {
-		for (Operator op : originalCosts.keySet()) {
-			op.setCost(originalCosts.get(op));
+	private int followEdge(int rule, int size) {
+		int head = hMaxHeuristic.getRuleHead(rule);
+		if (markedForwards[head] != round) {
+			if (markedBackwards[head] == round) {
+				int operator = hMaxHeuristic.getOperatorIndex(rule);
+				if (inCut[operator] != round) {
+					inCut[operator] = round;
+					cut[cutSize++] = operator;
+				}
+				if (DEBUG) {
+					System.out.println("cut " + hMaxHeuristic.getRuleOperator(rule));
+				}
+			} else {
+				markedForwards[head] = round;
+				if (DEBUG) {
+					System.out.println("marked forward " + head);
+				}
+				stack[size++] = head;
+			}
 		}
+		return size;
 	}
 
 	/**
@@ -393,55 +488,50 @@ public class LMCutHeuristic extends Heuristic {
 	 * @return
 	 */
 	private String createOutput(String state) {
-		Map<FFProposition, Integer> propToIdx = new HashMap<FFProposition, Integer>();
 		StringBuffer buffer = new StringBuffer();
 		buffer.append("digraph {\n");
 		buffer.append("label=\"" + state + "\";\n");
 		buffer.append("labelloc=top;\n");
 		buffer.append("labeljust=left;\n");
-		int c = 0;
-		for (FFProposition prop : graph.keySet()) {
-			Integer v = propToIdx.put(prop, c);
-			assert v == null;
-			buffer.append(c++);
+		for (int prop = 0; prop <= initProp; prop++) {
+			buffer.append(prop);
 			buffer.append(" [ peripheries=\"1\", shape=\"circle\", ");
-			if (prop == hMaxHeuristic.goalProp) {
+			if (prop == hMaxHeuristic.goalProp.id) {
 				buffer.append("fontcolor=\"white\", style=\"filled\", fillcolor=\"blue\", ");
 			} else if (prop == initProp) {
 				buffer.append("fontcolor=\"white\", style=\"filled\", fillcolor=\"black\", ");
-			} else if (prop.markedBackwards) {
-				assert !prop.markedForwards;
+			} else if (markedBackwards[prop] == round) {
 				buffer.append("fontcolor=\"black\", style=\"filled\", fillcolor=\"deepskyblue\", ");
-			} else if (prop.markedForwards) {
+			} else if (markedForwards[prop] == round) {
 				buffer.append("fontcolor=\"black\", style=\"filled\", fillcolor=\"orange\", ");
 			} else {
 				buffer.append("fontcolor=\"white\", style=\"filled\", fillcolor=\"red\", ");
 			}
 			buffer.append("label=\"");
-			if (prop == hMaxHeuristic.goalProp) {
+			if (prop == hMaxHeuristic.goalProp.id) {
 				buffer.append("T");
 			} else if (prop == initProp) {
 				buffer.append("S");
 			} else {
-				buffer.append(prop);
+				buffer.append(hMaxHeuristic.getProposition(prop));
 			}
 			buffer.append("\\n");
 			buffer.append("\" ]\n");
 		}
-		HashSet<FFRule> seenRules = new HashSet<FFRule>();
-		for (FFProposition current : graph.keySet()) {
-			for (Pair<FFRule, FFProposition> edge : graph.get(current)) {
-				assert !seenRules.contains(edge.first);
-				buffer.append(propToIdx.get(current));
-				buffer.append(" -> ");
-				buffer.append(propToIdx.get(edge.second));
-				buffer.append(" [ label=\"");
-				buffer.append(edge.first.operator);
-				buffer.append("\"");
-				buffer.append(" ]\n");
-				seenRules.add(edge.first);
-
-			}
+		for (int i = 0; i < numInitialPropositions; i++) {
+			buffer.append(initProp);
+			buffer.append(" -> ");
+			buffer.append(initialPropositions[i]);
+			buffer.append("\n");
+		}
+		for (int rule = 0; rule < maxPrecondition.length; rule++) {
+			buffer.append(maxPrecondition[rule]);
+			buffer.append(" -> ");
+			buffer.append(hMaxHeuristic.getRuleHead(rule));
+			buffer.append(" [ label=\"");
+			buffer.append(hMaxHeuristic.getRuleOperator(rule));
+			buffer.append("\"");
+			buffer.append(" ]\n");
 		}
 		buffer.append("}\n");
 		return buffer.toString();
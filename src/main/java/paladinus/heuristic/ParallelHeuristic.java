@@ -0,0 +1,115 @@
+package paladinus.heuristic;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import paladinus.state.Operator;
+import paladinus.state.State;
+
+/**
+ *
+ * Evaluates batches of states in parallel with several instances of the same
+ * heuristic, one per thread, since heuristics keep their scratch data in the
+ * instance. The instances are usually copies sharing the read-only data (see
+ * {@link Heuristic#copy()}). A batch is split into contiguous parts, the first one
+ * is evaluated by the calling thread. Single states and small batches are
+ * evaluated by the first instance only. The threads are stopped by
+ * {@link #close()}, afterwards all states are evaluated by the calling thread.
+ */
+public class ParallelHeuristic extends Heuristic {
+
+	/**
+	 * Batches with less states than this are evaluated by the calling thread.
+	 */
+	private static final int MIN_PARALLEL_BATCH = 8;
+
+	private final Heuristic[] instances;
+
+	private final ExecutorService executor;
+
+	/**
+	 * Creates a parallel heuristic.
+	 *
+	 * @param instances independent instances of the same heuristic, one per
+	 *                  thread
+	 */
+	public ParallelHeuristic(List<Heuristic> instances) {
+		super(instances.get(0).problem, true);
+		this.instances = instances.toArray(new Heuristic[instances.size()]);
+		this.executor = Executors.newFixedThreadPool(Math.max(1, instances.size() - 1), runnable -> {
+			Thread thread = new Thread(runnable, "heuristic");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	@Override
+	public double getHeuristic(State state) {
+		return instances[0].getHeuristic(state);
+	}
+
+	@Override
+	public double getHeuristic(State state, State parent, Operator op) {
+		return instances[0].getHeuristic(state, parent, op);
+	}
+
+	@Override
+	public void getHeuristics(List<State> states, State parent, List<Operator> ops, double[] values) {
+		int parts = Math.min(instances.length, states.size() / (MIN_PARALLEL_BATCH / 2));
+		if (parts < 2 || executor.isShutdown()) {
+			instances[0].getHeuristics(states, parent, ops, values);
+			return;
+		}
+		List<Future<?>> futures = new ArrayList<Future<?>>(parts - 1);
+		for (int part = 1; part < parts; part++) {
+			final Heuristic instance = instances[part];
+			final int from = part * states.size() / parts;
+			final int to = (part + 1) * states.size() / parts;
+			futures.add(executor.submit(() -> evaluate(instance, states, parent, ops, values, from, to)));
+		}
+		evaluate(instances[0], states, parent, ops, values, 0, states.size() / parts);
+		try {
+			for (Future<?> future : futures)
+				future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
+	}
+
+	/**
+	 * Get a parallel heuristic with copies of the instances for another thread.
+	 */
+	@Override
+	public Heuristic copy() {
+		List<Heuristic> copies = new ArrayList<Heuristic>(instances.length);
+		for (Heuristic instance : instances)
+			copies.add(instance.copy());
+		return new ParallelHeuristic(copies);
+	}
+
+	/**
+	 * Stop the threads and close the instances.
+	 */
+	@Override
+	public void close() {
+		executor.shutdown();
+		for (Heuristic instance : instances)
+			instance.close();
+	}
+
+	/**
+	 * Evaluate the states from index from (inclusive) to index to (exclusive) of
+	 * a batch with one instance.
+	 */
+	private static void evaluate(Heuristic instance, List<State> states, State parent, List<Operator> ops, double[] values, int from, int to) {
+		double[] part = new double[to - from];
+		instance.getHeuristics(states.subList(from, to), parent, ops == null ? null : ops.subList(from, to), part);
+		System.arraycopy(part, 0, values, from, part.length);
+	}
+}
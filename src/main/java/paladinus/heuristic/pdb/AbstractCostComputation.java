@@ -17,7 +17,6 @@ import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
 
-import paladinus.Global;
 import paladinus.heuristic.graph.Connector;
 import paladinus.heuristic.graph.Node;
 import paladinus.problem.Problem;
@@ -63,9 +62,9 @@ public class AbstractCostComputation {
 	private HashMap<Integer, Node> nodes;
 
 	/**
-	 * For debugging.
+	 * Number of this computation in the planner run, for debugging.
 	 */
-	private static int callCounter = 0;
+	private int callCounter;
 
 	/**
 	 * Set true for debug output information.
@@ -345,121 +344,131 @@ public class AbstractCostComputation {
 	}
 
 	/**
-	 * Perform value iteration.
+	 * Perform value iteration. The remaining AND/OR graph is compiled into arrays
+	 * indexed by the position of the nodes in order of their backward distance to
+	 * the goal nodes. The estimates are updated in place (Gauss-Seidel) in this
+	 * order, so that most updates already see the new estimates of the children.
 	 */
 	private void performValueIteration() {
+		Node[] order = backwardOrder();
+		Map<Integer, Integer> position = new HashMap<Integer, Integer>((int) (order.length / 0.75) + 1);
+		int numGoalNodes = 0;
+		for (int i = 0; i < order.length; i++) {
+			position.put(order[i].getState().hashCode, i);
+			if (order[i].isGoalNode) {
+				numGoalNodes++;
+			}
+		}
+
 		// All nodes that are left are backward-reachable
 		// and hence should get an estimate of less than infinity:
-		for (Node node : nodes.values()) {
-			if (node != null) {
-				node.setCostEstimate(0.0);
+		double[] costEstimate = new double[order.length];
+
+		// Compile the connectors of the non-goal nodes into CSR arrays: the
+		// connectors of the i-th node are connectorStart[i] to connectorStart[i + 1]
+		// - 1, the children of connector c are childStart[c] to childStart[c + 1] - 1.
+		int numConnectors = 0;
+		int numChildren = 0;
+		for (int i = numGoalNodes; i < order.length; i++) {
+			for (Connector connector : order[i].getOutgoingConnectors()) {
+				numConnectors++;
+				numChildren += connector.getChildren().size();
 			}
 		}
-
-		// Auxiliary data structures.
-		Map<Node, Double> oldCostEstimate = new HashMap<Node, Double>((int) (nodes.size() / 0.75) + 1);
+		int[] connectorStart = new int[order.length + 1];
+		double[] connectorCost = new double[numConnectors];
+		int[] childStart = new int[numConnectors + 1];
+		int[] children = new int[numChildren];
+		int c = 0;
+		int k = 0;
+		for (int i = numGoalNodes; i < order.length; i++) {
+			connectorStart[i] = c;
+			for (Connector connector : order[i].getOutgoingConnectors()) {
+				connectorCost[c] = connector.getCost();
+				childStart[c] = k;
+				for (Node child : connector.getChildren()) {
+					children[k++] = position.get(child.getState().hashCode);
+				}
+				c++;
+			}
+		}
+		connectorStart[order.length] = c;
+		childStart[c] = k;
 
 		// Main loop.
-		boolean converged = false;
+		boolean converged;
 		do {
-			// Update.
-			for (Node node : nodes.values()) {
-				if (node != null) {
-					oldCostEstimate.put(node, node.getCostEstimate());
-					if (DEBUG) {
-						System.out.println("Node " + node + " old cost estimate is " + oldCostEstimate.get(node));
+			converged = true;
+			for (int i = numGoalNodes; i < order.length; i++) {
+				double best = Node.UNINITIALIZED_COST_ESTIMATE;
+				for (c = connectorStart[i]; c < connectorStart[i + 1]; c++) {
+					// Experiments show that it seems to be preferable to average about
+					// child nodes instead of maximizing.
+					double connectorValueSum = 0.0;
+					for (k = childStart[c]; k < childStart[c + 1]; k++) {
+						connectorValueSum += costEstimate[children[k]];
 					}
-					if (!node.isGoalNode) {
-						node.setCostEstimate(Node.UNINITIALIZED_COST_ESTIMATE);
+					double connectorValue = connectorCost[c] + connectorValueSum / (childStart[c + 1] - childStart[c]);
+					if (connectorValue < best) {
+						best = connectorValue;
 					}
-				} else {
-					assert false;
 				}
+				if (Math.abs(best - costEstimate[i]) > AbstractCostComputation.EPSILON) {
+					converged = false;
+				}
+				costEstimate[i] = best;
 			}
+		} while (!converged);
+
+		for (int i = 0; i < order.length; i++) {
+			order[i].setCostEstimate(costEstimate[i]);
 			if (DEBUG) {
-				System.out.println("Value iteration.");
+				System.out.println("Node " + order[i] + " cost estimate is " + costEstimate[i]);
 			}
-			for (Node node : nodes.values()) {
-				if (DEBUG) {
-					System.out.println("Process node " + node);
-				}
-				if (!node.isGoalNode) {
-					if (DEBUG) {
-						System.out.println("Node is no goal node and has " + node.getOutgoingConnectors().size()
-								+ " outgoing connectors.");
-					}
-					for (Connector connector : node.getOutgoingConnectors()) {
-						double connectorValueMax = Double.NEGATIVE_INFINITY;
-						double connectorValueSum = 0.0;
-						// double sumOfChildrenCardinality = 0.0;
-						for (Node child : connector.getChildren()) {
-							if (DEBUG) {
-								System.out.println("child " + child);
-							}
-							double childEstimate = oldCostEstimate.get(child);
-							if (childEstimate > connectorValueMax) {
-								connectorValueMax = childEstimate;
-							}
-							// if (MyNDPlanner.weighBeliefStatesByCardinality && node.getState() instanceof
-							// BeliefState) {
-							// double numWorldStates = ((BeliefState)
-							// child.getState()).getNumberOfWorldStates();
-							// connectorValueSum += numWorldStates * childEstimate;
-							// sumOfChildrenCardinality += numWorldStates;
-							// } else {
-							assert (connectorValueSum <= connectorValueSum + childEstimate);
-							connectorValueSum += childEstimate;
-							// }
-						}
+		}
+	}
 
-						double connectorValueAvg;
-						// if (MyNDPlanner.weighBeliefStatesByCardinality && node.getState() instanceof
-						// BeliefState) {
-						// connectorValueAvg = connectorValueSum / sumOfChildrenCardinality;
-						// } else {
-						connectorValueAvg = connectorValueSum / connector.getChildren().size();
-						// }
-
-						boolean useMax = false; // Experiments show that it seems to be preferable to average
-						// about child nodes.
-						if (useMax) {
-							if (connector.getCost() + connectorValueMax * DISCOUNT_FACTOR < node.getCostEstimate()) {
-								node.setCostEstimate(connector.getCost() + connectorValueMax * DISCOUNT_FACTOR);
-							}
-						} else {
-							if (connector.getCost() + connectorValueAvg < node.getCostEstimate()) {
-								node.setCostEstimate(connector.getCost() + connectorValueAvg);
-							}
-						}
-					}
-				}
+	/**
+	 * Get all nodes ordered by their backward breadth-first distance to the goal
+	 * nodes, i.e. goal nodes first. Nodes from which no goal node is reachable
+	 * come last.
+	 */
+	private Node[] backwardOrder() {
+		Node[] order = new Node[nodes.size()];
+		Set<Node> seen = new HashSet<Node>((int) (nodes.size() / 0.75) + 1);
+		int head = 0;
+		int tail = 0;
+		for (Node node : nodes.values()) {
+			if (node.isGoalNode) {
+				seen.add(node);
+				order[tail++] = node;
 			}
-
-			// convergence test
-			converged = true;
-			for (Node node : nodes.values()) {
-				if (DEBUG) {
-					System.out.println(node);
-					System.out.println("oldestimate " + oldCostEstimate.get(node));
-				}
-				if (node != null && Math
-						.abs(node.getCostEstimate() - oldCostEstimate.get(node)) > AbstractCostComputation.EPSILON) {
-					converged = false;
-					break;
+		}
+		while (head < tail) {
+			for (Connector connector : order[head++].getIncomingConnectors()) {
+				if (seen.add(connector.getParent())) {
+					order[tail++] = connector.getParent();
 				}
 			}
-
-		} while (!converged);
+		}
+		for (Node node : nodes.values()) {
+			if (seen.add(node)) {
+				order[tail++] = node;
+			}
+		}
+		assert tail == order.length;
+		return order;
 	}
 
 	public Collection<Node> run() {
+		callCounter = problem.getContext().nextCostComputation();
 		forwardConstruction();
 		boolean testConnectors = false; // For debugging.
 		if (testConnectors) {
 			assert Connector.consistencyTestForConnectors(nodes.values());
 			printGraph("forwardgraph_" + callCounter + "_" + abstraction.pattern);
 		}
-		switch (Global.options.getSearchAlgorithm()) {
+		switch (problem.getContext().getOptions().getSearchAlgorithm()) {
 		default:
 			// Strong cyclic planning.
 			backwardRestriction();
@@ -471,13 +480,12 @@ public class AbstractCostComputation {
 		}
 		assert (nodes.values().size() == new HashSet<Node>(nodes.values()).size()); // no duplicates
 		// Delete states (BDDs) of nodes.
-		if (!problem.isFullObservable && !Global.options.assumeFullObservabilityForPDBs()) {
+		if (!problem.isFullObservable && !problem.getContext().getOptions().assumeFullObservabilityForPDBs()) {
 			for (Node node : nodes.values()) {
 				node.free();
 			}
 		}
 		// TODO Delete abstracted operators (BDDs)?
-		callCounter++;
 		return nodes.values();
 	}
 
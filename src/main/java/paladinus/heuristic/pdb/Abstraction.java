@@ -13,6 +13,7 @@ import javabdd.BDD;
 import paladinus.explicit.ExplicitAxiomEvaluator;
 import paladinus.explicit.ExplicitCondition;
 import paladinus.explicit.ExplicitOperator.OperatorRule;
+import paladinus.explicit.SuccessorGenerator;
 import paladinus.problem.Problem;
 import paladinus.state.Condition;
 import paladinus.state.Operator;
@@ -88,6 +89,21 @@ public class Abstraction {
 	 */
 	public final Set<OperatorRule> axioms;
 
+	/**
+	 * Successor generator for the abstracted operators.
+	 */
+	private volatile SuccessorGenerator successorGenerator;
+
+	/**
+	 * Pattern variables in ascending order.
+	 */
+	private final int[] patternVariables;
+
+	/**
+	 * Membership of each state variable in the pattern.
+	 */
+	private final boolean[] inPattern;
+
 	public Abstraction(Problem problem, SortedSet<Integer> pattern, Condition goal, ExplicitCondition explicitGoal,
 			Set<Operator> operators, Set<OperatorRule> axioms) {
 		this(problem, pattern, goal, explicitGoal, operators, axioms, null);
@@ -110,6 +126,52 @@ public class Abstraction {
 		this.operators = Collections.unmodifiableSet(operators);
 		this.axioms = Collections.unmodifiableSet(axioms);
 		this.symbolicPatternComplement = symbolicPatternComplement;
+		patternVariables = new int[this.pattern.size()];
+		inPattern = new boolean[problem.numStateVars];
+		int i = 0;
+		for (int var : this.pattern) {
+			patternVariables[i++] = var;
+			inPattern[var] = true;
+		}
+	}
+
+	/**
+	 * Get the successor generator for the abstracted operators.
+	 *
+	 * @return successor generator
+	 */
+	public SuccessorGenerator getSuccessorGenerator() {
+		SuccessorGenerator generator = successorGenerator;
+		if (generator == null) {
+			synchronized (this) {
+				generator = successorGenerator;
+				if (generator == null) {
+					generator = new SuccessorGenerator(operators);
+					successorGenerator = generator;
+				}
+			}
+		}
+		return generator;
+	}
+
+	/**
+	 * Get the pattern variables in ascending order. The returned array must not be
+	 * modified.
+	 *
+	 * @return pattern variables
+	 */
+	public int[] getPatternVariables() {
+		return patternVariables;
+	}
+
+	/**
+	 * Test if the given variable belongs to the pattern of this abstraction.
+	 *
+	 * @param var state variable
+	 * @return true iff var is a pattern variable
+	 */
+	public boolean containsVariable(int var) {
+		return var < inPattern.length && inPattern[var];
 	}
 
 	private void initializeExplicitAxiomEvaluator() {
@@ -52,7 +52,7 @@ public class BeliefStatePDB extends PDB {
 		}
 		patternDatabase = new HashMap<Integer, Double>((int) Math.ceil(numAbstractStates(problem, pattern) / 0.75));
 		fillPDB();
-		if (!noOutputs || DEBUG) {
+		if (!problem.getContext().noPDBOutputs() || DEBUG) {
 			System.out.print("Created new Belief State PDB for variables ");
 			System.out.println(pattern);
 			System.out.println("in " + (System.currentTimeMillis() - start) / 1000 + "s");
@@ -1,16 +1,19 @@
 package paladinus.heuristic.pdb;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-import paladinus.Global;
+import paladinus.Options;
 import paladinus.explicit.ExplicitCondition;
 import paladinus.heuristic.Heuristic;
 import paladinus.heuristic.pdb.PatternCollectionSearch.PatternSearch;
 import paladinus.problem.Problem;
 import paladinus.state.Condition;
+import paladinus.state.Operator;
 import paladinus.state.State;
 import paladinus.symbolic.SymbolicCondition;
 
@@ -45,6 +48,19 @@ public class CanonicalPDBHeuristic extends Heuristic {
 	 */
 	public Set<Set<Set<Integer>>> maximalCliques;
 
+	/**
+	 * PDBs of the patterns in the maximal cliques, each PDB once.
+	 */
+	private PDB[] cliquePDBs;
+
+	/**
+	 * Maximal cliques compiled to indices into cliquePDBs: the PDBs of clique i
+	 * are cliqueMembers[cliqueStart[i]] to cliqueMembers[cliqueStart[i + 1] - 1].
+	 */
+	private int[] cliqueStart;
+
+	private int[] cliqueMembers;
+
 	/**
 	 * Number of abstract states of given pattern collection.
 	 */
@@ -74,7 +90,7 @@ public class CanonicalPDBHeuristic extends Heuristic {
 	 */
 	public CanonicalPDBHeuristic(Problem problem, Set<Set<Integer>> patternCollection) {
 		super(problem, true); // Canonical PDB-heuristic supports axioms.
-		if (PDB.buildExplicitPDBs) {
+		if (problem.getContext().buildExplicitPDBs()) {
 			goal = problem.explicitGoal;
 		} else {
 			goal = problem.getGoal();
@@ -97,6 +113,7 @@ public class CanonicalPDBHeuristic extends Heuristic {
 		fillPDBs(patternCollection);
 		compatibilityGraph = new CompatibilityGraph(problem, patternCollection);
 		maximalCliques = compatibilityGraph.getMaximalCliques();
+		compileCliques();
 		// calculate size
 		size = 1;
 		for (Set<Integer> pattern : patternCollection) {
@@ -108,9 +125,10 @@ public class CanonicalPDBHeuristic extends Heuristic {
 		System.out.println("New Pattern is " + newPattern + ".");
 		assert (!patterntoPDB.containsKey(newPattern));
 		PDB newPDB;
-		if (!Global.options.cachePDBs()) {
-			if (problem.isFullObservable || Global.options.assumeFullObservabilityForPDBs()
-					|| Global.options.patternSearch() == PatternSearch.FO) {
+		Options options = problem.getContext().getOptions();
+		if (!options.cachePDBs()) {
+			if (problem.isFullObservable || options.assumeFullObservabilityForPDBs()
+					|| options.patternSearch() == PatternSearch.FO) {
 				newPDB = new ExplicitStatePDB(problem, newPattern, (ExplicitCondition) goal);
 			} else {
 				newPDB = new BeliefStatePDB(problem, newPattern, (SymbolicCondition) goal);
@@ -121,6 +139,7 @@ public class CanonicalPDBHeuristic extends Heuristic {
 		patterntoPDB.put(newPattern, newPDB);
 		compatibilityGraph.extendCompatibilityGraph(newPattern);
 		maximalCliques = compatibilityGraph.getMaximalCliques();
+		compileCliques();
 		size += PDB.numAbstractStates(problem, newPattern);
 	}
 
@@ -132,16 +151,30 @@ public class CanonicalPDBHeuristic extends Heuristic {
 		if (temporaryPDBs.containsKey(newPattern)) {
 			return false;
 		}
-		if (problem.isFullObservable || Global.options.assumeFullObservabilityForPDBs()
-				|| Global.options.patternSearch() == PatternSearch.FO) {
-			temporaryPDBs.put(newPattern, new ExplicitStatePDB(problem, newPattern, (ExplicitCondition) goal));
-		} else {
-			temporaryPDBs.put(newPattern, new BeliefStatePDB(problem, newPattern, (SymbolicCondition) goal));
-		}
+		temporaryPDBs.put(newPattern, getTemporaryPDBBuilder().build(newPattern));
 		sizesOfTemporaryPDBs += PDB.numAbstractStates(problem, newPattern);
 		return true;
 	}
 
+	/**
+	 * Temporarily add a PDB for a given pattern which was built elsewhere.
+	 */
+	void addTemporaryPatternDatabase(Set<Integer> newPattern, PDB pdb) {
+		assert !patterntoPDB.containsKey(newPattern) && !temporaryPDBs.containsKey(newPattern);
+		temporaryPDBs.put(newPattern, pdb);
+		sizesOfTemporaryPDBs += PDB.numAbstractStates(problem, newPattern);
+	}
+
+	/**
+	 * Get a builder for temporary PDBs.
+	 */
+	PDBBuilder getTemporaryPDBBuilder() {
+		Options options = problem.getContext().getOptions();
+		boolean explicit = problem.isFullObservable || options.assumeFullObservabilityForPDBs()
+				|| options.patternSearch() == PatternSearch.FO;
+		return new PDBBuilder(problem, goal, explicit);
+	}
+
 	/**
 	 * Deletes maximal cliques with dominated sums.
 	 *
@@ -175,42 +208,98 @@ public class CanonicalPDBHeuristic extends Heuristic {
 			}
 		}
 		System.out.println("Number of maximal cliques after dominance pruning: " + maximalCliques.size());
+		compileCliques();
 	}
 
-	private void fillPDB(Set<Integer> pattern) {
-		assert (!patterntoPDB.containsKey(pattern));
-		if (DEBUG) {
-			System.out.println("Pattern added: " + pattern);
+	/**
+	 * Compile the maximal cliques into arrays. Each PDB of a pattern in a clique
+	 * is stored once, and cliques whose PDBs all occur in another clique are
+	 * dropped, since their sum is never larger. The patterns of a clique keep the
+	 * iteration order of the clique, so that the sums are the same.
+	 */
+	private void compileCliques() {
+		Map<Set<Integer>, Integer> indices = new HashMap<Set<Integer>, Integer>();
+		List<PDB> pdbs = new ArrayList<PDB>();
+		List<int[]> cliques = new ArrayList<int[]>(maximalCliques.size());
+		List<Set<Integer>> cliqueSets = new ArrayList<Set<Integer>>(maximalCliques.size());
+		for (Set<Set<Integer>> clique : maximalCliques) {
+			int[] members = new int[clique.size()];
+			Set<Integer> memberSet = new HashSet<Integer>();
+			int i = 0;
+			for (Set<Integer> pattern : clique) {
+				Integer index = indices.get(pattern);
+				if (index == null) {
+					index = pdbs.size();
+					indices.put(pattern, index);
+					pdbs.add(patterntoPDB.get(pattern));
+				}
+				members[i++] = index;
+				memberSet.add(index);
+			}
+			cliques.add(members);
+			cliqueSets.add(memberSet);
 		}
-		if (PDB.buildExplicitPDBs) {
-			patterntoPDB.put(pattern, new ExplicitStatePDB(problem, pattern, (ExplicitCondition) goal));
-		} else {
-			patterntoPDB.put(pattern, new BeliefStatePDB(problem, pattern, (SymbolicCondition) goal));
+
+		List<int[]> keptCliques = new ArrayList<int[]>(cliques.size());
+		nextClique: for (int i = 0; i < cliques.size(); i++) {
+			for (int j = 0; j < cliques.size(); j++) {
+				if (i != j && cliqueSets.get(j).containsAll(cliqueSets.get(i))
+						&& (cliqueSets.get(j).size() > cliqueSets.get(i).size() || j < i)) {
+					continue nextClique;
+				}
+			}
+			keptCliques.add(cliques.get(i));
 		}
+
+		cliquePDBs = pdbs.toArray(new PDB[pdbs.size()]);
+		cliqueStart = new int[keptCliques.size() + 1];
+		int numMembers = 0;
+		for (int[] clique : keptCliques) {
+			numMembers += clique.length;
+		}
+		cliqueMembers = new int[numMembers];
+		int k = 0;
+		for (int i = 0; i < keptCliques.size(); i++) {
+			cliqueStart[i] = k;
+			for (int member : keptCliques.get(i)) {
+				cliqueMembers[k++] = member;
+			}
+		}
+		cliqueStart[keptCliques.size()] = k;
 	}
 
 	private void fillPDBs(Set<Set<Integer>> patternCollection) {
 		if (DEBUG) {
 			System.out.println("Fill PDBs.");
+			System.out.println("Patterns added: " + patternCollection);
 		}
-		for (Set<Integer> pattern : patternCollection) {
-			fillPDB(pattern);
-		}
+		patterntoPDB.putAll(new PDBBuilder(problem, goal, problem.getContext().buildExplicitPDBs()).build(patternCollection, Long.MAX_VALUE));
 		if (DEBUG) {
 			System.out.println("PDBs filled.");
 		}
 	}
 
+	/**
+	 * Evaluate every PDB of the maximal cliques once and take the maximum over the
+	 * clique sums. The values are kept in a buffer per call, since the pattern
+	 * search evaluates the heuristic from several threads.
+	 */
 	double getCanonicalHeuristic(State s) {
+		return getCanonicalHeuristic(s, new double[cliquePDBs.length]);
+	}
+
+	private double getCanonicalHeuristic(State s, double[] values) {
+		for (int i = 0; i < cliquePDBs.length; i++) {
+			values[i] = cliquePDBs[i].getHeuristic(s);
+			if (values[i] == Heuristic.INFINITE_HEURISTIC) {
+				return values[i];
+			}
+		}
 		double maxH = Double.NEGATIVE_INFINITY;
-		for (Set<Set<Integer>> clique : maximalCliques) {
+		for (int clique = 0; clique < cliqueStart.length - 1; clique++) {
 			double current = 0;
-			for (Set<Integer> pattern : clique) {
-				double patternHeuristicValue = patterntoPDB.get(pattern).getHeuristic(s);
-				if (patternHeuristicValue == Heuristic.INFINITE_HEURISTIC) {
-					return patternHeuristicValue;
-				}
-				current += patternHeuristicValue;
+			for (int k = cliqueStart[clique]; k < cliqueStart[clique + 1]; k++) {
+				current += values[cliqueMembers[k]];
 			}
 			if (current > maxH) {
 				maxH = current;
@@ -230,6 +319,17 @@ public class CanonicalPDBHeuristic extends Heuristic {
 		return getCanonicalHeuristic(state);
 	}
 
+	/**
+	 * Evaluate a batch of states with one buffer for the PDB values.
+	 */
+	@Override
+	public void getHeuristics(List<State> states, State parent, List<Operator> ops, double[] result) {
+		double[] values = new double[cliquePDBs.length];
+		for (int i = 0; i < states.size(); i++) {
+			result[i] = getCanonicalHeuristic(states.get(i), values);
+		}
+	}
+
 	@Override
 	public String toString() {
 		StringBuffer buffer = new StringBuffer();
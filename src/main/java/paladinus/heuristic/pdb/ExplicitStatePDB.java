@@ -1,5 +1,8 @@
 package paladinus.heuristic.pdb;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Set;
@@ -26,7 +29,7 @@ public class ExplicitStatePDB extends PDB {
 	/**
 	 * Mapping from (perfect) hash values of abstract states to heuristic values.
 	 */
-	private double[] patternDatabase;
+	private PDBTable patternDatabase;
 
 	/**
 	 * Set true for debug output information.
@@ -53,15 +56,38 @@ public class ExplicitStatePDB extends PDB {
 		if (DEBUG) {
 			System.out.println("Sorted pattern: " + this.pattern);
 		}
-		initializePatternDatabase();
-		fillPDB(goal);
-		if (!noOutputs || DEBUG) {
-			System.out.print("Created new ExplicitStatePDB for variables ");
+		Path cacheFile = null;
+		try {
+			cacheFile = PDBTable.getCacheFile(problem.getContext(), this.pattern, goal);
+			if (cacheFile != null && Files.exists(cacheFile)) {
+				patternDatabase = PDBTable.read(cacheFile, numAbstractStates(problem, this.pattern));
+			}
+		} catch (IOException e) {
+			System.err.println("Cannot read cached PDB: " + e.getMessage());
+		}
+		boolean loaded = patternDatabase != null;
+		if (!loaded) {
+			double[] costs = new double[numAbstractStates(problem, this.pattern)];
+			Arrays.fill(costs, Double.POSITIVE_INFINITY);
+			fillPDB(costs, goal);
+			patternDatabase = PDBTable.create(costs, problem.getContext().getOptions().getPDBEntryBits());
+			if (cacheFile != null) {
+				try {
+					patternDatabase.write(cacheFile);
+				} catch (IOException e) {
+					System.err.println("Cannot write cached PDB: " + e.getMessage());
+				}
+			}
+		}
+		if (!problem.getContext().noPDBOutputs() || DEBUG) {
+			// one println, so that the outputs of PDBs built in parallel do not interleave
+			StringBuilder buffer = new StringBuilder(loaded ? "Loaded ExplicitStatePDB for variables "
+					: "Created new ExplicitStatePDB for variables ");
 			for (int var : pattern) {
-				System.out.print(var + " ");
+				buffer.append(var).append(" ");
 			}
-			System.out.println("\nin " + (System.currentTimeMillis() - start) / 1000 + "s");
-			System.out.println();
+			buffer.append("\nin ").append((System.currentTimeMillis() - start) / 1000).append("s\n");
+			System.out.println(buffer);
 		}
 		if (DEBUG) {
 			// System.out.println("Average heuristic value is " + averageHeuristicValue());
@@ -69,14 +95,6 @@ public class ExplicitStatePDB extends PDB {
 		}
 	}
 
-	/**
-	 * Initialize pattern database.
-	 */
-	private void initializePatternDatabase() {
-		patternDatabase = new double[numAbstractStates(problem, pattern)];
-		Arrays.fill(patternDatabase, Double.POSITIVE_INFINITY);
-	}
-
 	/**
 	 * Compute hash code of the abstraction of the given state with respect to the
 	 * pattern of this PDB.
@@ -94,7 +112,7 @@ public class ExplicitStatePDB extends PDB {
 		for (int var : pattern) {
 			assert var > oldVar;
 			hashCode *= problem.domainSizes.get(var);
-			hashCode += state.variableValueAssignment.get(var);
+			hashCode += state.getValue(var);
 			oldVar = var;
 		}
 		return hashCode;
@@ -103,19 +121,19 @@ public class ExplicitStatePDB extends PDB {
 	/**
 	 * Actual computation and storage of abstract cost values
 	 */
-	private void fillPDB(ExplicitCondition goal) {
+	private void fillPDB(double[] costs, ExplicitCondition goal) {
 		Abstraction abstraction = problem.abstractToPattern(pattern, goal);
 		AbstractCostComputation comp = new AbstractCostComputation(problem, abstraction);
 		Collection<Node> nodes = comp.run();
 		for (Node node : nodes) {
 			if (node.getCostEstimate() != Node.UNINITIALIZED_COST_ESTIMATE) {
-				patternDatabase[node.getState().hashCode] = node.getCostEstimate();
+				costs[node.getState().hashCode] = node.getCostEstimate();
 			}
 		}
 		if (DEBUG) {
 			System.out.println();
 			System.out.println("fillPDB()");
-			System.out.println("pdb length " + patternDatabase.length);
+			System.out.println("pdb length " + costs.length);
 
 			System.out.println("Nodes:");
 			for (Node node : nodes) {
@@ -127,7 +145,6 @@ public class ExplicitStatePDB extends PDB {
 					System.out.println();
 				}
 			}
-			System.out.println(this);
 			System.out.println();
 		}
 	}
@@ -142,9 +159,9 @@ public class ExplicitStatePDB extends PDB {
 	public double getHeuristic(State state) {
 		ExplicitState s = (ExplicitState) state;
 		if (DEBUG) {
-			System.out.println("h-value: " + patternDatabase[abstractHashCode(s)]);
+			System.out.println("h-value: " + patternDatabase.get(abstractHashCode(s)));
 		}
-		return patternDatabase[abstractHashCode(s)];
+		return patternDatabase.get(abstractHashCode(s));
 	}
 
 	/**
@@ -157,8 +174,8 @@ public class ExplicitStatePDB extends PDB {
 		StringBuffer buffer = new StringBuffer();
 		buffer.append("Pattern Database:\n");
 		buffer.append("[ ");
-		for (int num = 0; num < patternDatabase.length; num++) {
-			buffer.append(num + ":" + patternDatabase[num] + ", ");
+		for (int num = 0; num < patternDatabase.size(); num++) {
+			buffer.append(num + ":" + patternDatabase.get(num) + ", ");
 		}
 		return buffer.substring(0, buffer.length() - 2) + " ]";
 
@@ -172,20 +189,20 @@ public class ExplicitStatePDB extends PDB {
 	@Override
 	public double averageHeuristicValue() {
 		double average = 0;
-		for (int i = 0; i < patternDatabase.length; i++) {
-			// assert (patternDatabase[i] != Double.POSITIVE_INFINITY); // true for
+		for (int i = 0; i < patternDatabase.size(); i++) {
+			// assert (patternDatabase.get(i) != Double.POSITIVE_INFINITY); // true for
 			// Blocksworld
-			if (patternDatabase[i] != Double.POSITIVE_INFINITY) {
-				average += patternDatabase[i];
+			if (patternDatabase.get(i) != Double.POSITIVE_INFINITY) {
+				average += patternDatabase.get(i);
 			}
 		}
-		return (average / patternDatabase.length);
+		return (average / patternDatabase.size());
 	}
 
 	public void dumpPatternDatabase() {
 		System.out.println("{");
-		for (int i = 0; i < patternDatabase.length; i++) {
-			System.out.println(i + " " + patternDatabase[i]);
+		for (int i = 0; i < patternDatabase.size(); i++) {
+			System.out.println(i + " " + patternDatabase.get(i));
 		}
 		System.out.println("}");
 	}
@@ -37,17 +37,6 @@ public abstract class PDB {
 
 	public abstract double averageHeuristicValue();
 
-	/**
-	 * Do not print any outputs on System.out or System.err, except DEBUG is true.
-	 */
-	public static boolean noOutputs = false;
-
-	/**
-	 * For POND: use explicit PDBs under assumption of full observability instead of
-	 * belief state PDBs (under partial observability).
-	 */
-	public static boolean buildExplicitPDBs = false;
-
 	public PDB(Problem problem) {
 		this.problem = problem;
 	}
@@ -0,0 +1,133 @@
+package paladinus.heuristic.pdb;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import paladinus.explicit.ExplicitCondition;
+import paladinus.problem.Problem;
+import paladinus.state.Condition;
+import paladinus.symbolic.SymbolicCondition;
+
+/**
+ *
+ * Builds the pattern databases of several patterns. The abstractions of the
+ * patterns are independent, so explicit-state pattern databases are built
+ * concurrently by the number of threads given by the option pdbThreads. A build
+ * holds as many permits of a semaphore as its pattern has abstract states,
+ * so that the abstract state spaces under construction at the same time never
+ * have more states than pdbsMaxSize, also if single pattern databases are
+ * built by several threads with the same builder. Belief-state pattern
+ * databases share the BDD manager and are always built one after the other.
+ */
+class PDBBuilder {
+
+	private final Problem problem;
+
+	private final Condition goal;
+
+	private final boolean explicit;
+
+	private final int maxSize;
+
+	/**
+	 * One permit per abstract state of the pattern databases under construction.
+	 */
+	private final Semaphore budget;
+
+	/**
+	 * @param problem  problem whose abstractions are built
+	 * @param goal     goal of the pattern databases
+	 * @param explicit whether explicit-state or belief-state pattern databases
+	 *                 are built
+	 */
+	PDBBuilder(Problem problem, Condition goal, boolean explicit) {
+		this.problem = problem;
+		this.goal = goal;
+		this.explicit = explicit;
+		this.maxSize = problem.getContext().getOptions().pdbsMaxSize();
+		this.budget = new Semaphore(maxSize);
+	}
+
+	/**
+	 * Build the pattern database of one pattern.
+	 *
+	 * @param pattern pattern
+	 * @return pattern database
+	 */
+	PDB build(Set<Integer> pattern) {
+		if (!explicit) {
+			return new BeliefStatePDB(problem, pattern, (SymbolicCondition) goal);
+		}
+		int permits = Math.min(maxSize, PDB.numAbstractStates(problem, pattern));
+		budget.acquireUninterruptibly(permits);
+		try {
+			return new ExplicitStatePDB(problem, pattern, (ExplicitCondition) goal);
+		} finally {
+			budget.release(permits);
+		}
+	}
+
+	/**
+	 * Check whether this builder may be used by several threads at the same time.
+	 *
+	 * @return true iff explicit-state pattern databases are built
+	 */
+	boolean isConcurrent() {
+		return explicit;
+	}
+
+	/**
+	 * Build the pattern databases of several patterns. Builds which would start
+	 * after the deadline are skipped.
+	 *
+	 * @param patterns patterns
+	 * @param deadline time in milliseconds after which no build is started
+	 * @return pattern databases of the patterns in the order of the patterns
+	 */
+	Map<Set<Integer>, PDB> build(Collection<Set<Integer>> patterns, long deadline) {
+		Map<Set<Integer>, PDB> pdbs = new LinkedHashMap<Set<Integer>, PDB>();
+		int threads = Math.min(problem.getContext().getOptions().getPDBThreads(), patterns.size());
+		if (!explicit || threads < 2) {
+			for (Set<Integer> pattern : patterns) {
+				if (System.currentTimeMillis() > deadline)
+					break;
+				pdbs.put(pattern, build(pattern));
+			}
+			return pdbs;
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<Future<PDB>> futures = new ArrayList<Future<PDB>>(patterns.size());
+		try {
+			for (Set<Integer> pattern : patterns) {
+				futures.add(executor.submit(() -> {
+					if (System.currentTimeMillis() > deadline)
+						return null;
+					return build(pattern);
+				}));
+			}
+			int i = 0;
+			for (Set<Integer> pattern : patterns) {
+				PDB pdb = futures.get(i++).get();
+				if (pdb != null)
+					pdbs.put(pattern, pdb);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+		return pdbs;
+	}
+}
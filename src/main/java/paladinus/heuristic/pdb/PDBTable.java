@@ -0,0 +1,228 @@
+package paladinus.heuristic.pdb;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.TreeSet;
+
+import paladinus.Options;
+import paladinus.PlanningContext;
+import paladinus.state.Condition;
+import paladinus.util.FileDigest;
+
+/**
+ *
+ * Entries of an explicit-state pattern database, indexed by the perfect hash
+ * codes of the abstract states. Entries are stored as doubles (64 bits) or as
+ * quantized costs of 16 or 8 bits, i.e. as multiples of a step, with the
+ * largest level as sentinel for infinity. Quantized costs are rounded down, and
+ * tables whose finite costs are integers from 0 to 14 are packed into 4 bits
+ * per entry without loss.
+ *
+ * Tables can be written to files with a small header followed by the entries.
+ * Read tables are memory-mapped, so only the touched pages are loaded.
+ */
+final class PDBTable {
+
+	private static final int MAGIC = 0x50444254; // "PDBT"
+
+	private static final int VERSION = 1;
+
+	private static final int HEADER_SIZE = 4 + 4 + 4 + 4 + 8;
+
+	private final ByteBuffer entries;
+
+	private final int bits;
+
+	private final int size;
+
+	private final double step;
+
+	private final int infinity;
+
+	private PDBTable(ByteBuffer entries, int bits, int size, double step) {
+		this.entries = entries;
+		this.bits = bits;
+		this.size = size;
+		this.step = step;
+		this.infinity = bits == 64 ? -1 : (1 << bits) - 1;
+	}
+
+	/**
+	 * Create a table of the given costs.
+	 *
+	 * @param costs costs per abstract state, infinity for dead ends
+	 * @param bits  bits per entry, 64 for exact costs or 16 or 8 for quantized
+	 *              costs
+	 * @return table
+	 */
+	static PDBTable create(double[] costs, int bits) {
+		assert bits == 64 || bits == 16 || bits == 8;
+		if (bits == 64) {
+			ByteBuffer entries = ByteBuffer.allocate(8 * costs.length);
+			for (int i = 0; i < costs.length; i++) {
+				entries.putDouble(8 * i, costs[i]);
+			}
+			return new PDBTable(entries, 64, costs.length, 0);
+		}
+
+		double max = 0;
+		boolean integral = true;
+		for (double cost : costs) {
+			if (cost != Double.POSITIVE_INFINITY) {
+				max = Math.max(max, cost);
+				integral &= cost == Math.rint(cost);
+			}
+		}
+		if (integral && max <= (1 << 4) - 2) {
+			bits = 4;
+		}
+		int maxLevel = (1 << bits) - 2;
+		double step = integral && max <= maxLevel ? 1 : (max > 0 ? max / maxLevel : 1);
+
+		ByteBuffer entries = ByteBuffer.allocate(bits == 4 ? (costs.length + 1) / 2 : bits / 8 * costs.length);
+		PDBTable table = new PDBTable(entries, bits, costs.length, step);
+		for (int i = 0; i < costs.length; i++) {
+			int level = costs[i] == Double.POSITIVE_INFINITY ? table.infinity
+					: Math.min(maxLevel, (int) (costs[i] / step + 1e-9));
+			table.setLevel(i, level);
+		}
+		return table;
+	}
+
+	/**
+	 * Get the cost of an abstract state.
+	 *
+	 * @param index perfect hash code of the abstract state
+	 * @return cost, infinity for dead ends
+	 */
+	double get(int index) {
+		int level;
+		switch (bits) {
+		case 64:
+			return entries.getDouble(index << 3);
+		case 16:
+			level = entries.getShort(index << 1) & 0xffff;
+			break;
+		case 8:
+			level = entries.get(index) & 0xff;
+			break;
+		default:
+			level = (entries.get(index >> 1) >> ((index & 1) == 0 ? 4 : 0)) & 0xf;
+		}
+		return level == infinity ? Double.POSITIVE_INFINITY : level * step;
+	}
+
+	private void setLevel(int index, int level) {
+		switch (bits) {
+		case 16:
+			entries.putShort(index << 1, (short) level);
+			break;
+		case 8:
+			entries.put(index, (byte) level);
+			break;
+		default:
+			int shift = (index & 1) == 0 ? 4 : 0;
+			int packed = entries.get(index >> 1) & ~(0xf << shift);
+			entries.put(index >> 1, (byte) (packed | (level << shift)));
+		}
+	}
+
+	/**
+	 * Get the number of entries.
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Get the bits per entry, which can be less than requested.
+	 */
+	int getBits() {
+		return bits;
+	}
+
+	/**
+	 * Write this table to a file. The table is written to a temporary file first
+	 * and then moved, so that concurrent planners never read partial tables.
+	 *
+	 * @param file file
+	 * @throws IOException if the file cannot be written
+	 */
+	void write(Path file) throws IOException {
+		Path tmp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+		try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			header.putInt(MAGIC).putInt(VERSION).putInt(bits).putInt(size).putDouble(step).flip();
+			while (header.hasRemaining()) {
+				channel.write(header);
+			}
+			ByteBuffer data = entries.duplicate();
+			data.clear();
+			while (data.hasRemaining()) {
+				channel.write(data);
+			}
+		} catch (IOException e) {
+			Files.deleteIfExists(tmp);
+			throw e;
+		}
+		Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Map a table from a file.
+	 *
+	 * @param file file
+	 * @param size expected number of entries
+	 * @return table, or null if the file is no table of this size
+	 * @throws IOException if the file cannot be read
+	 */
+	static PDBTable read(Path file, int size) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (channel.size() < HEADER_SIZE) {
+				return null;
+			}
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			int bits = buffer.getInt(8);
+			double step = buffer.getDouble(16);
+			long expectedBytes = bits == 4 ? (size + 1) / 2 : (long) bits / 8 * size;
+			if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || buffer.getInt(12) != size
+					|| (bits != 4 && bits != 8 && bits != 16 && bits != 64)
+					|| channel.size() != HEADER_SIZE + expectedBytes) {
+				return null;
+			}
+			// The mapping stays valid after the channel is closed.
+			buffer.position(HEADER_SIZE);
+			return new PDBTable(buffer.slice(), bits, size, step);
+		}
+	}
+
+	/**
+	 * Get the file of the cached table of a pattern in the PDB cache directory.
+	 * The name is a digest of the SAS file contents, the pattern, the goal and the
+	 * requested bits per entry.
+	 *
+	 * @param context context of the planner run
+	 * @param pattern pattern
+	 * @param goal    goal of the pattern database
+	 * @return file, or null if PDBs are not cached on disk
+	 * @throws IOException if the SAS file cannot be read
+	 */
+	static Path getCacheFile(PlanningContext context, Set<Integer> pattern, Condition goal) throws IOException {
+		Options options = context.getOptions();
+		String directory = options.getPDBCacheDirectory();
+		if (directory == null) {
+			return null;
+		}
+		String sasDigest = context.getDigest(Paths.get(options.getSASFilename()));
+		String key = sasDigest + " " + new TreeSet<Integer>(pattern) + " " + goal + " "
+				+ options.getPDBEntryBits();
+		return Paths.get(directory, FileDigest.sha256(key) + ".pdb");
+	}
+}
@@ -0,0 +1,54 @@
+package paladinus.heuristic.pdb;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ *
+ * Runs the same worker on several threads of the pattern search and waits for
+ * all of them. The workers share their work through atomic counters, the
+ * calling thread is one of the workers.
+ */
+final class ParallelWorkers {
+
+	private ParallelWorkers() {
+	}
+
+	/**
+	 * Run a worker on the given number of threads, including the calling thread.
+	 *
+	 * @param threads number of threads
+	 * @param worker  worker
+	 */
+	static void run(int threads, Runnable worker) {
+		if (threads < 2) {
+			worker.run();
+			return;
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(threads - 1, runnable -> {
+			Thread thread = new Thread(runnable, "pattern-search");
+			thread.setDaemon(true);
+			return thread;
+		});
+		List<Future<?>> futures = new ArrayList<Future<?>>(threads - 1);
+		try {
+			for (int thread = 1; thread < threads; thread++) {
+				futures.add(executor.submit(worker));
+			}
+			worker.run();
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
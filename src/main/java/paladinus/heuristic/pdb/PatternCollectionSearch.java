@@ -1,18 +1,23 @@
 package paladinus.heuristic.pdb;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import paladinus.Global;
+import paladinus.Options;
 import paladinus.PaladinusPlanner;
 import paladinus.explicit.ExplicitEffect;
 import paladinus.explicit.ExplicitOperator;
@@ -49,6 +54,11 @@ public class PatternCollectionSearch {
 	 */
 	protected final Problem problem;
 
+	/**
+	 * Options of the planner run.
+	 */
+	private final Options options;
+
 	public enum PatternSearch {
 		NONE, FO
 	};
@@ -74,6 +84,16 @@ public class PatternCollectionSearch {
 	 */
 	private Set<Integer> forbiddenVariables = new HashSet<Integer>();
 
+	/**
+	 * Operators applied during the random walks, computed for the first walk.
+	 */
+	private Set<Operator> randomWalkOperators;
+
+	/**
+	 * Applicable operators of the states reached by the random walks.
+	 */
+	private final Map<State, List<Operator>> applicableOpsforSamples = new ConcurrentHashMap<State, List<Operator>>();
+
 	/**
 	 * A graph which represents relations between observed variables and
 	 * preconditions of sensing actions.
@@ -92,6 +112,7 @@ public class PatternCollectionSearch {
 	 */
 	public PatternCollectionSearch(Problem problem) {
 		this.problem = problem;
+		this.options = problem.getContext().getOptions();
 		starttime = System.currentTimeMillis();
 		// Compute dependencies of derived variables.
 		if (problem.numAxioms > 0) {
@@ -99,7 +120,7 @@ public class PatternCollectionSearch {
 		} else {
 			derivedVarsDependencies = Collections.unmodifiableMap(Collections.<Integer, Set<Integer>>emptyMap());
 		}
-		if (problem.isFullObservable || Global.options.assumeFullObservabilityForPDBs()) {
+		if (problem.isFullObservable || options.assumeFullObservabilityForPDBs()) {
 			// In case of full observability each variable is a pattern candidate.
 			patternCandidateVariables = new HashSet<Integer>();
 			for (int var = 0; var < problem.numStateVars; var++) {
@@ -127,7 +148,7 @@ public class PatternCollectionSearch {
 					}
 				}
 			}
-			if (Global.options.useDependencyGraph()) {
+			if (options.useDependencyGraph()) {
 				graph = OperatorAnalyzer.analyze(ops);
 				if (DEBUG) {
 					System.out.println("Dependency graph: " + graph);
@@ -236,8 +257,8 @@ public class PatternCollectionSearch {
 					|| canonical.patterntoPDB.containsKey(newPattern)) {
 				continue;
 			}
-			if (!problem.isFullObservable && !Global.options.assumeFullObservabilityForPDBs()
-					&& Global.options.useDependencyGraph() && (graph.containsNode(var) || graph.containsLabel(var))) {
+			if (!problem.isFullObservable && !options.assumeFullObservabilityForPDBs()
+					&& options.useDependencyGraph() && (graph.containsNode(var) || graph.containsLabel(var))) {
 				// System.err.println("new pattern before: " + newPattern);
 				newPattern = extendToValidPattern(newPattern, var);
 				// System.err.println("new pattern after extension: " + newPattern);
@@ -246,9 +267,9 @@ public class PatternCollectionSearch {
 			System.out.println("  Candidate for additional pattern: " + newPattern);
 
 			if ((projectedOverallMemoryUsageOK(canonical, newPattern)
-					&& (!canonical.temporaryPDBs.containsKey(newPattern)) && Global.options.cachePDBs())
+					&& (!canonical.temporaryPDBs.containsKey(newPattern)) && options.cachePDBs())
 					|| (projectedOverallMemoryUsageOK(canonical, newPattern)
-							&& !canonical.patterntoPDB.containsKey(newPattern) && !Global.options.cachePDBs())) {
+							&& !canonical.patterntoPDB.containsKey(newPattern) && !options.cachePDBs())) {
 				result.add(newPattern);
 				System.out.println("    ... accepted!");
 			} else {
@@ -304,12 +325,12 @@ public class PatternCollectionSearch {
 		return patternSet;
 	}
 
-	private int patternImprovesHeuristic(CanonicalPDBHeuristic canonical, Set<Integer> newPattern,
+	private int patternImprovesHeuristic(CanonicalPDBHeuristic canonical, Set<Integer> newPattern, PDB newPDB,
 			Collection<State> samples) {
 		Set<Set<Set<Integer>>> maxAdditiveSubsets = canonical.compatibilityGraph.getMaxAdditiveSubsets(newPattern);
 		int numberOfImprovements = 0;
 		for (State sample : samples) {
-			if (improvement(canonical, newPattern, sample, maxAdditiveSubsets)) {
+			if (improvement(canonical, newPDB, sample, maxAdditiveSubsets)) {
 				numberOfImprovements++;
 			}
 
@@ -317,11 +338,11 @@ public class PatternCollectionSearch {
 		return numberOfImprovements;
 	}
 
-	private boolean improvement(CanonicalPDBHeuristic canonical, Set<Integer> newPattern, State sample,
+	private boolean improvement(CanonicalPDBHeuristic canonical, PDB newPDB, State sample,
 			Set<Set<Set<Integer>>> maxAdditiveSubsets) {
 		double oldCanonicalHeuristicValue = canonical.getCanonicalHeuristic(sample);
 		double newPatternHeuristicValue;
-		newPatternHeuristicValue = canonical.temporaryPDBs.get(newPattern).getHeuristic(sample);
+		newPatternHeuristicValue = newPDB.getHeuristic(sample);
 		if (oldCanonicalHeuristicValue == Double.POSITIVE_INFINITY) {
 			return false;
 		}
@@ -353,6 +374,60 @@ public class PatternCollectionSearch {
 		return false;
 	}
 
+	/**
+	 * Count the improvements of all candidate patterns concurrently with
+	 * pdbThreads threads. The candidates are handed out in their order. As soon as
+	 * a candidate reaches the greedy improvement fraction, the candidates after it
+	 * are not evaluated anymore, since the hill climbing takes the first such
+	 * candidate. So the selected candidate is the same as in a sequential
+	 * evaluation. PDBs of candidates which are not cached yet are built and added
+	 * to the temporary PDBs if PDBs are cached.
+	 *
+	 * @return number of improvements per candidate, -1 for candidates which were
+	 *         not evaluated since the deadline had passed or an earlier candidate
+	 *         was taken immediately
+	 */
+	private int[] evaluateCandidates(CanonicalPDBHeuristic canonical, List<Set<Integer>> candidates,
+			Collection<State> samples) {
+		int[] improvements = new int[candidates.size()];
+		Arrays.fill(improvements, -1);
+		PDB[] builtPDBs = new PDB[candidates.size()];
+		double greedyImprovements = options.getGreedyImprovementFraction() * samples.size();
+		long deadline = starttime + options.getPDBTimeout();
+		PDBBuilder builder = canonical.getTemporaryPDBBuilder();
+		AtomicInteger nextCandidate = new AtomicInteger();
+		AtomicInteger firstGreedyCandidate = new AtomicInteger(candidates.size());
+		Runnable worker = () -> {
+			for (int c = nextCandidate.getAndIncrement(); c < firstGreedyCandidate.get(); c = nextCandidate
+					.getAndIncrement()) {
+				if (System.currentTimeMillis() > deadline) {
+					return;
+				}
+				Set<Integer> candidate = candidates.get(c);
+				PDB pdb = canonical.temporaryPDBs.get(candidate);
+				if (pdb == null) {
+					pdb = builder.build(candidate);
+					builtPDBs[c] = pdb;
+				}
+				improvements[c] = patternImprovesHeuristic(canonical, candidate, pdb, samples);
+				if (improvements[c] >= greedyImprovements) {
+					firstGreedyCandidate.accumulateAndGet(c, Math::min);
+				}
+			}
+		};
+
+		ParallelWorkers.run(Math.min(options.getPDBThreads(), candidates.size()), worker);
+
+		if (options.cachePDBs()) {
+			for (int c = 0; c < candidates.size(); c++) {
+				if (builtPDBs[c] != null) {
+					canonical.addTemporaryPatternDatabase(candidates.get(c), builtPDBs[c]);
+				}
+			}
+		}
+		return improvements;
+	}
+
 	private boolean projectedOverallMemoryUsageOK(CanonicalPDBHeuristic canonical, Set<Integer> newPattern) {
 		// a) check if the new pattern alone is too large (this does not
 		// immediately
@@ -362,7 +437,7 @@ public class PatternCollectionSearch {
 		// pattern
 		// plus a few relatively unimportant small patterns.
 		int sizeOfNewPattern = PDB.numAbstractStates(problem, newPattern);
-		if (sizeOfNewPattern > Global.options.pdbMaxSize()) {
+		if (sizeOfNewPattern > options.pdbMaxSize()) {
 			return false;
 		}
 
@@ -375,7 +450,7 @@ public class PatternCollectionSearch {
 		if (canonical != null) {
 			canonicalSize = canonical.size;
 		}
-		if (canonicalSize + sizeOfNewPattern > Global.options.pdbsMaxSize()) {
+		if (canonicalSize + sizeOfNewPattern > options.pdbsMaxSize()) {
 			return false;
 		}
 
@@ -692,7 +767,7 @@ public class PatternCollectionSearch {
 			System.out.println(canonical);
 		}
 
-		if (Global.options.getNumHillClimbingSteps() == 0) {
+		if (options.getNumHillClimbingSteps() == 0) {
 			if (DEBUG) {
 
 				System.out.println("Using initial pattern collection for search.");
@@ -718,11 +793,15 @@ public class PatternCollectionSearch {
 		int bestNumberOfImprovements;
 
 		// steepest ascent hillclimbing
-		boolean outOfTime = System.currentTimeMillis() - starttime > Global.options.getPDBTimeout();
+		boolean outOfTime = System.currentTimeMillis() - starttime > options.getPDBTimeout();
 
 		int step = 0;
-		while (betterSuccessor && !outOfTime && step < Global.options.getNumHillClimbingSteps()) {
-			Collection<State> samples = new RandomWalk(problem, canonical).getSamples();
+		while (betterSuccessor && !outOfTime && step < options.getNumHillClimbingSteps()) {
+			if (randomWalkOperators == null) {
+				randomWalkOperators = RandomWalk.getOperators(problem);
+			}
+			Collection<State> samples = new RandomWalk(problem, canonical, randomWalkOperators, applicableOpsforSamples)
+					.getSamples();
 			if (samples == null) {
 				// Unsolvable problem detected.
 				return null;
@@ -732,22 +811,35 @@ public class PatternCollectionSearch {
 			bestNumberOfImprovements = 0;
 
 			// check all patterns of the current collection
-			// int c = 0;
-			for (Set<Integer> candidate : candidatePatterns) {
-				// c++;
-				// System.out.println("pattern " + c + " of " + candidatePatterns.size());
+			List<Set<Integer>> candidates = new ArrayList<Set<Integer>>(candidatePatterns);
+			int[] improvements = null;
+			if (options.getPDBThreads() > 1 && canonical.getTemporaryPDBBuilder().isConcurrent()) {
+				improvements = evaluateCandidates(canonical, candidates, samples);
+			}
+			for (int c = 0; c < candidates.size(); c++) {
+				Set<Integer> candidate = candidates.get(c);
+				// System.out.println("pattern " + (c + 1) + " of " + candidates.size());
 
 				int numberOfImprovements = 0;
 
-				// builds new PDB if there is no one for this candidate
-				canonical.addTemporaryPatternDatabase(candidate);
+				if (improvements == null) {
+					// builds new PDB if there is no one for this candidate
+					canonical.addTemporaryPatternDatabase(candidate);
 
-				numberOfImprovements = patternImprovesHeuristic(canonical, candidate, samples);
+					numberOfImprovements = patternImprovesHeuristic(canonical, candidate,
+							canonical.temporaryPDBs.get(candidate), samples);
+				} else if (improvements[c] < 0) {
+					// not evaluated before the deadline
+					outOfTime = true;
+					break;
+				} else {
+					numberOfImprovements = improvements[c];
+				}
 
 				// System.out.println("numberOfImprovements " +
 				// numberOfImprovements + " for pattern " + candidate);
 
-				if (numberOfImprovements >= (Global.options.getGreedyImprovementFraction() * samples.size())) {
+				if (numberOfImprovements >= (options.getGreedyImprovementFraction() * samples.size())) {
 					// take this pattern immediately
 					bestAdditionalPattern = candidate;
 					betterSuccessor = true;
@@ -767,7 +859,7 @@ public class PatternCollectionSearch {
 				// }
 				// }
 				else if (numberOfImprovements > bestNumberOfImprovements
-						&& (numberOfImprovements >= Global.options.getMinImprovementFraction() * samples.size())) {
+						&& (numberOfImprovements >= options.getMinImprovementFraction() * samples.size())) {
 
 					bestNumberOfImprovements = numberOfImprovements;
 					// System.out.println("bestNumberofImprovements " + bestNumberOfImprovements);
@@ -775,11 +867,11 @@ public class PatternCollectionSearch {
 					// System.out.println("bestPattern " + bestAdditionalPattern);
 					betterSuccessor = true;
 				}
-				outOfTime = System.currentTimeMillis() - starttime > Global.options.getPDBTimeout();
+				outOfTime = System.currentTimeMillis() - starttime > options.getPDBTimeout();
 				if (outOfTime) {
 					break;
 				}
-				if (!Global.options.cachePDBs()) {
+				if (!options.cachePDBs()) {
 					canonical.temporaryPDBs.clear();
 				}
 			}
@@ -808,19 +900,19 @@ public class PatternCollectionSearch {
 
 		if (outOfTime) {
 			System.out.println("Reason: out of time!");
-		} else if (step >= Global.options.getNumHillClimbingSteps()) {
+		} else if (step >= options.getNumHillClimbingSteps()) {
 			System.out.println(
-					"Reason: hillclimbing step bound of " + Global.options.getNumHillClimbingSteps() + " reached!");
+					"Reason: hillclimbing step bound of " + options.getNumHillClimbingSteps() + " reached!");
 		} else {
 			System.out.println("Reason: local minimum!");
 		}
 
 		System.out.println("Canonical heuristic:");
 		System.out.println(canonical);
-		if (!problem.isFullObservable && Global.options.patternSearch() == PatternSearch.FO
-				&& !Global.options.assumeFullObservabilityForPDBs()) {
+		if (!problem.isFullObservable && options.patternSearch() == PatternSearch.FO
+				&& !options.assumeFullObservabilityForPDBs()) {
 			// use found pattern collection to build up a BeliefState PDB for the search
-			PDB.buildExplicitPDBs = false; // necessary for canonical heuristic
+			problem.getContext().setBuildExplicitPDBs(false); // necessary for canonical heuristic
 			canonical = new CanonicalPDBHeuristic(problem, canonical.patterntoPDB.keySet());
 			canonical.dominancePruning();
 		}
@@ -829,7 +921,7 @@ public class PatternCollectionSearch {
 		if (!PaladinusPlanner.testMode) {
 			canonical.temporaryPDBs.clear();
 		}
-		RandomWalk.applicableOpsforSamples.clear();
+		applicableOpsforSamples.clear();
 		return canonical;
 	}
 }
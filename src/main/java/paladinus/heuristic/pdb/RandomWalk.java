@@ -1,14 +1,14 @@
 package paladinus.heuristic.pdb;
 
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import paladinus.Global;
 import paladinus.explicit.ExplicitState;
 import paladinus.heuristic.Heuristic;
 import paladinus.problem.Problem;
@@ -48,24 +48,14 @@ public class RandomWalk {
 	private LinkedList<State> sampleStates;
 
 	/**
-	 * Remember applicable ops.
+	 * Remember applicable ops, shared by the random walks of a pattern search.
 	 */
-	static Map<Integer, List<Operator>> applicableOpsforSamples = new HashMap<Integer, List<Operator>>();
+	private final Map<State, List<Operator>> applicableOpsforSamples;
 
 	/**
-	 * Store operators applied during random walk. This set can differ from the
-	 * problem's operator set, f.e. if full observability is assumed, it will only
-	 * contain causative operators.
+	 * Operators applied during random walk.
 	 */
-	private static Set<Operator> operators = new HashSet<Operator>();
-
-	/**
-	 * Necessary if the planner runs more than once.
-	 */
-	public static void reset() {
-		applicableOpsforSamples.clear();
-		operators.clear();
-	}
+	private final Set<Operator> operators;
 
 	/**
 	 * Set to true for debug information.
@@ -75,26 +65,20 @@ public class RandomWalk {
 	/**
 	 * Constructor.
 	 *
-	 * @param problem   The underlying planning problem.
-	 * @param canonical The canonical PDB heuristic
+	 * @param problem                 The underlying planning problem.
+	 * @param canonical               The canonical PDB heuristic
+	 * @param operators               Operators applied during random walk, see
+	 *                                getOperators
+	 * @param applicableOpsforSamples Applicable operators of the states reached
+	 *                                by earlier random walks
 	 */
-	public RandomWalk(Problem problem, CanonicalPDBHeuristic canonical) {
+	public RandomWalk(Problem problem, CanonicalPDBHeuristic canonical, Set<Operator> operators,
+			Map<State, List<Operator>> applicableOpsforSamples) {
 		this.problem = problem;
-		if (operators.isEmpty()) {
-			if (!this.problem.isFullObservable && PDB.buildExplicitPDBs) {
-				// States during random walk are explicit states. Explicit operators are used.
-				for (Operator op : this.problem.getOperators()) {
-					if (op.isCausative) {
-						operators.add(op.getExplicitOperator());
-					}
-				}
-			} else {
-				// Use the problem's operator set.
-				operators = this.problem.getOperators();
-			}
-		}
-		LinkedList<State> initState = new LinkedList<State>();
-		if (!problem.isFullObservable && PDB.buildExplicitPDBs) {
+		this.operators = operators;
+		this.applicableOpsforSamples = applicableOpsforSamples;
+		List<State> initState = new ArrayList<State>();
+		if (!problem.isFullObservable && problem.getContext().buildExplicitPDBs()) {
 			// We need to sample explicit states from initial belief state to start the
 			// random walk.
 			BeliefState init = (BeliefState) problem.getSingleInitialState();
@@ -132,72 +116,139 @@ public class RandomWalk {
 		}
 	}
 
-	private void run(LinkedList<State> initState, double initialHeuristic, CanonicalPDBHeuristic canonical) {
+	/**
+	 * Get the operators applied during random walks on a problem. This set can
+	 * differ from the problem's operator set, f.e. if full observability is
+	 * assumed, it will only contain causative operators.
+	 *
+	 * @param problem The underlying planning problem.
+	 * @return operators of the random walks
+	 */
+	public static Set<Operator> getOperators(Problem problem) {
+		if (!problem.isFullObservable && problem.getContext().buildExplicitPDBs()) {
+			// States during random walk are explicit states. Explicit operators are used.
+			Set<Operator> operators = new LinkedHashSet<Operator>();
+			for (Operator op : problem.getOperators()) {
+				if (op.isCausative) {
+					operators.add(op.getExplicitOperator());
+				}
+			}
+			return operators;
+		}
+		// Use the problem's operator set.
+		return problem.getOperators();
+	}
+
+	/**
+	 * Collect the samples with pdbThreads threads. Every walk has its own random
+	 * stream, split off one seed from the generator of the run in the order of the walks,
+	 * so that the samples do not depend on the number of threads. If the sampling
+	 * times out, the samples of the walks before the first unfinished walk are
+	 * used.
+	 */
+	private void run(List<State> initState, double initialHeuristic, CanonicalPDBHeuristic canonical) {
 		// Because our heuristic is underestimating.
-		int maximalWalkLenght = 1 + (int) (INITIAL_WEIGHT * initialHeuristic);
-		sampleStates = new LinkedList<State>();
+		int maximalWalkLength = 1 + (int) (INITIAL_WEIGHT * initialHeuristic);
+		int numberOfSamples = problem.getContext().getOptions().getNumberOfRandomWalkSamples();
+
+		SplittableRandom random = new SplittableRandom(problem.getContext().getGenerator().nextLong());
+		SplittableRandom[] streams = new SplittableRandom[numberOfSamples];
+		for (int i = 0; i < numberOfSamples; i++) {
+			streams[i] = random.split();
+		}
 
-		double p = 0.5;
 		System.out.println("Generating sample states.");
 		// We search NUMBER_OF_SAMPLES samples.
-		long startTime = System.currentTimeMillis();
-		for (int i = 0; i < Global.options.getNumberOfRandomWalkSamples(); i++) {
-			// calculate length of random walk according to a binomial distribution
-			int length = 0;
-			for (int j = 0; j < maximalWalkLenght; j++) {
-				double x = Global.generator.nextDouble(); // x between 0 and 1
-				if (x < p) {
-					length++;
+		long deadline = System.currentTimeMillis() + SAMPLING_TIMEOUT;
+		State[] samples = new State[numberOfSamples];
+		AtomicInteger nextWalk = new AtomicInteger();
+		ParallelWorkers.run(Math.min(problem.getContext().getOptions().getPDBThreads(), numberOfSamples), () -> {
+			for (int i = nextWalk.getAndIncrement(); i < numberOfSamples; i = nextWalk.getAndIncrement()) {
+				// the first walk is always finished
+				if (i > 0 && System.currentTimeMillis() > deadline) {
+					return;
 				}
+				samples[i] = walk(i, streams[i], initState, maximalWalkLength, canonical);
 			}
-			// random walk of length length
+		});
 
-			// this is for explicit states to handle multiple initial world states
-			State s = initState.pollFirst();
-			initState.addLast(s);
+		sampleStates = new LinkedList<State>();
+		for (int i = 0; i < numberOfSamples && samples[i] != null; i++) {
+			sampleStates.add(samples[i]);
+		}
+		System.out.println();
+		System.out.println("Finished generating " + sampleStates.size() + " sample states.");
+	}
+
+	/**
+	 * Perform one random walk. Its length follows a binomial distribution. If the
+	 * walk runs into a dead end, it restarts in an initial state with the
+	 * remaining steps. Dead ends are recognized by the canonical heuristic, which
+	 * evaluates all states of the walk in one batch.
+	 *
+	 * @param index             number of the walk, which determines its first
+	 *                          initial state
+	 * @param random            random stream of the walk
+	 * @param initState         initial states
+	 * @param maximalWalkLength maximal length of the walk
+	 * @param canonical         canonical heuristic
+	 * @return last state of the walk
+	 */
+	private State walk(int index, SplittableRandom random, List<State> initState, int maximalWalkLength,
+			CanonicalPDBHeuristic canonical) {
+		// calculate length of random walk according to a binomial distribution
+		double p = 0.5;
+		int length = 0;
+		for (int j = 0; j < maximalWalkLength; j++) {
+			if (random.nextDouble() < p) {
+				length++;
+			}
+		}
+
+		// this is for explicit states to handle multiple initial world states
+		int restarts = 0;
+		State s = initState.get(index % initState.size());
+		List<State> path = new ArrayList<State>(length);
+		while (length > 0) {
+			path.clear();
 			for (int j = 0; j < length; j++) {
-				List<Operator> applicableOps;
-				if (applicableOpsforSamples.containsKey(s.hashCode())) {
-					applicableOps = applicableOpsforSamples.get(s.hashCode());
-				} else {
-					applicableOps = s.getApplicableOps(operators);
-					applicableOpsforSamples.put(s.hashCode(), applicableOps);
-				}
-				int numOfApplicableOps = applicableOps.size();
-				if (numOfApplicableOps == 0) {
+				List<Operator> applicableOps = getApplicableOps(s);
+				if (applicableOps.isEmpty()) {
 					// dead end, restart
-					s = initState.pollFirst();
-					initState.addLast(s);
-					applicableOps = s.getApplicableOps(operators);
-					// numOfApplicableOps = s.getApplicableOps(operators).size();
-					numOfApplicableOps = applicableOps.size();
-					assert (numOfApplicableOps > 0);
+					restarts++;
+					s = initState.get((index + restarts) % initState.size());
+					applicableOps = getApplicableOps(s);
+					assert (!applicableOps.isEmpty());
 				}
 				// choose an operator randomly
-				int random = Global.generator.nextInt(numOfApplicableOps);
-				List<State> successors = new ArrayList<State>(s.apply(applicableOps.get(random)));
+				List<State> successors = new ArrayList<State>(
+						s.apply(applicableOps.get(random.nextInt(applicableOps.size()))));
 				// choose an successor state randomly
 				assert (!successors.isEmpty());
-				random = Global.generator.nextInt(successors.size());
-				s = successors.get(random);
-				// if this state is a dead end state, restart
-				boolean deadEnd = false;
-				if (canonical.getHeuristic(s) == Double.POSITIVE_INFINITY) {
-					deadEnd = true;
-				}
-				if (deadEnd) {
-					s = initState.pollFirst();
-					initState.addLast(s);
-				}
+				s = successors.get(random.nextInt(successors.size()));
+				path.add(s);
+			}
+
+			// if a state of this walk is a dead end, restart after it
+			double[] values = new double[path.size()];
+			canonical.getHeuristics(path, null, null, values);
+			int deadEnd = 0;
+			while (deadEnd < path.size() && values[deadEnd] != Double.POSITIVE_INFINITY) {
+				deadEnd++;
 			}
-			// the last state of the random walk is used as a sample state
-			sampleStates.add(s);
-			if (System.currentTimeMillis() - startTime > SAMPLING_TIMEOUT) {
+			if (deadEnd == path.size()) {
 				break;
 			}
+			restarts++;
+			s = initState.get((index + restarts) % initState.size());
+			length = path.size() - deadEnd - 1;
 		}
-		System.out.println();
-		System.out.println("Finished generating " + sampleStates.size() + " sample states.");
+		// the last state of the random walk is used as a sample state
+		return s;
+	}
+
+	private List<Operator> getApplicableOps(State state) {
+		return applicableOpsforSamples.computeIfAbsent(state, s -> s.getApplicableOps(operators));
 	}
 
 	public LinkedList<State> getSamples() {
@@ -0,0 +1,327 @@
+package paladinus.parser;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import paladinus.PlanningContext;
+import paladinus.explicit.ExplicitCondition;
+import paladinus.explicit.ExplicitEffect;
+import paladinus.explicit.ExplicitOperator;
+import paladinus.explicit.ExplicitOperator.OperatorRule;
+import paladinus.state.Operator;
+import paladinus.symbolic.BDDManager;
+import paladinus.util.Pair;
+
+/**
+ *
+ * Binary form of a parsed SAS+ task, i.e. of the variables, the initial state,
+ * the goal, the operators with their nondeterministic effects and observations,
+ * and the axioms. Mutex groups are skipped by the parser and are not stored.
+ *
+ * A file starts with a header which contains the digest of the SAS+ file it
+ * was written for. Files are memory-mapped when read, and sets are rebuilt with
+ * the same initial capacities and in the same order as by the parser, so that
+ * they are iterated in the same order as after parsing.
+ */
+final class SasCacheFile {
+
+	private static final int MAGIC = 0x53415342; // "SASB"
+
+	private static final int VERSION = 1;
+
+	private SasCacheFile() {
+	}
+
+	/**
+	 * Write a parsed task to a file. The task is written to a temporary file first
+	 * and then moved, so that concurrent planners never read partial files.
+	 *
+	 * @param file   file
+	 * @param digest digest of the SAS+ file
+	 * @param parsed parser which has parsed the task
+	 * @throws IOException if the file cannot be written
+	 */
+	static void write(Path file, String digest, SasParser parsed) throws IOException {
+		Path tmp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			writeString(out, digest);
+			out.writeBoolean(parsed.fullObservable);
+
+			out.writeInt(parsed.numberOfVariables);
+			for (int var = 0; var < parsed.numberOfVariables; var++) {
+				writeString(out, parsed.variableNames.get(var));
+				out.writeInt(parsed.axiomLayer.get(var));
+				out.writeInt(parsed.domainSizes.get(var));
+				for (String name : parsed.propositionNames.get(var)) {
+					writeString(out, name);
+				}
+				out.writeInt(parsed.defaultValues.get(var));
+			}
+			out.writeInt(parsed.variablesWhichAreInitiallyKnown.size());
+			for (int var : parsed.variablesWhichAreInitiallyKnown) {
+				out.writeInt(var);
+			}
+
+			if (parsed.fullObservable) {
+				writeInts(out, parsed.initialValuation);
+			} else {
+				writeInts(out, parsed.initialFactVars);
+				writeInts(out, parsed.initialFactVals);
+				out.writeInt(parsed.initialOneOfVars.length);
+				for (int i = 0; i < parsed.initialOneOfVars.length; i++) {
+					writeInts(out, parsed.initialOneOfVars[i]);
+					writeInts(out, parsed.initialOneOfVals[i]);
+				}
+				out.writeInt(parsed.initialFormulae.length);
+				for (String formula : parsed.initialFormulae) {
+					writeString(out, formula);
+				}
+			}
+			writeCondition(out, parsed.goal);
+
+			out.writeInt(parsed.operators.size());
+			for (Operator op : parsed.operators) {
+				ExplicitOperator operator = (ExplicitOperator) op;
+				writeString(out, operator.getName());
+				out.writeDouble(operator.getCost());
+				writeCondition(out, operator.precondition);
+				Set<Set<ExplicitEffect>> choices = operator.getNondeterministicEffect();
+				out.writeInt(choices == null ? -1 : choices.size());
+				if (choices != null) {
+					for (Set<ExplicitEffect> choice : choices) {
+						out.writeInt(choice.size());
+						for (ExplicitEffect effect : choice) {
+							writeCondition(out, effect.condition);
+							out.writeInt(effect.variable);
+							out.writeInt(effect.value);
+						}
+					}
+				}
+				writePairs(out, operator.observation);
+			}
+
+			out.writeInt(parsed.axioms.size());
+			for (OperatorRule axiom : parsed.axioms) {
+				writePairs(out, axiom.body);
+				out.writeInt(axiom.head.first);
+				out.writeInt(axiom.head.second);
+			}
+		} catch (IOException e) {
+			Files.deleteIfExists(tmp);
+			throw e;
+		}
+		Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Read a parsed task from a file.
+	 *
+	 * @param file    file
+	 * @param digest  digest of the SAS+ file
+	 * @param context context of the planner run
+	 * @return parser with the parsed task, or null if there is no such file or it
+	 *         was written for other SAS+ contents
+	 * @throws IOException if the file cannot be read
+	 */
+	static SasParser read(Path file, String digest, PlanningContext context) throws IOException {
+		if (!Files.isRegularFile(file)) {
+			return null;
+		}
+		ByteBuffer in;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			// The mapping stays valid after the channel is closed.
+			in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		try {
+			if (in.getInt() != MAGIC || in.getInt() != VERSION || !readString(in).equals(digest)) {
+				return null;
+			}
+			return read(in, context);
+		} catch (BufferUnderflowException | IllegalArgumentException | NegativeArraySizeException e) {
+			return null;
+		}
+	}
+
+	private static SasParser read(ByteBuffer in, PlanningContext context) {
+		SasParser parsed = new SasParser(context);
+		parsed.fullObservable = in.get() != 0;
+
+		int numberOfVariables = in.getInt();
+		parsed.numberOfVariables = numberOfVariables;
+		parsed.variableNames = new ArrayList<String>(numberOfVariables);
+		parsed.axiomLayer = new ArrayList<Integer>(numberOfVariables);
+		parsed.domainSizes = new ArrayList<Integer>(numberOfVariables);
+		parsed.propositionNames = new ArrayList<List<String>>(numberOfVariables * 4);
+		parsed.defaultValues = new ArrayList<Integer>(numberOfVariables);
+		for (int var = 0; var < numberOfVariables; var++) {
+			parsed.variableNames.add(readString(in));
+			parsed.axiomLayer.add(in.getInt());
+			int domainSize = in.getInt();
+			parsed.domainSizes.add(domainSize);
+			List<String> names = new ArrayList<String>(domainSize);
+			for (int val = 0; val < domainSize; val++) {
+				names.add(readString(in));
+			}
+			parsed.propositionNames.add(names);
+			parsed.defaultValues.add(in.getInt());
+		}
+		int numberOfKnown = in.getInt();
+		parsed.variablesWhichAreInitiallyKnown = new HashSet<Integer>(((int) (numberOfVariables / 0.75)) + 1);
+		for (int i = 0; i < numberOfKnown; i++) {
+			parsed.variablesWhichAreInitiallyKnown.add(in.getInt());
+		}
+
+		if (parsed.fullObservable) {
+			parsed.initialValuation = readInts(in);
+		} else {
+			parsed.initialFactVars = readInts(in);
+			parsed.initialFactVals = readInts(in);
+			int numberOfOneOf = in.getInt();
+			parsed.initialOneOfVars = new int[numberOfOneOf][];
+			parsed.initialOneOfVals = new int[numberOfOneOf][];
+			for (int i = 0; i < numberOfOneOf; i++) {
+				parsed.initialOneOfVars[i] = readInts(in);
+				parsed.initialOneOfVals[i] = readInts(in);
+			}
+			parsed.initialFormulae = new String[in.getInt()];
+			for (int i = 0; i < parsed.initialFormulae.length; i++) {
+				parsed.initialFormulae[i] = readString(in);
+			}
+			parsed.BDDManager = new BDDManager();
+			parsed.BDDManager.initialize(numberOfVariables, parsed.domainSizes);
+			parsed.initialBDD = parsed.BDDManager.initializeInitialStateBDD(parsed.initialFactVars,
+					parsed.initialFactVals, parsed.initialOneOfVars, parsed.initialOneOfVals, parsed.initialFormulae);
+		}
+		parsed.goal = readCondition(in);
+
+		int numOps = in.getInt();
+		parsed.operators = new LinkedHashSet<Operator>((int) (numOps / 0.75) + 1);
+		for (int i = 0; i < numOps; i++) {
+			String name = readString(in);
+			double cost = in.getDouble();
+			ExplicitCondition precondition = readCondition(in);
+			int numChoices = in.getInt();
+			Set<Set<ExplicitEffect>> choices = null;
+			if (numChoices >= 0) {
+				// Kept in the order of the operator, which copies them into its own set.
+				choices = new LinkedHashSet<Set<ExplicitEffect>>((int) (numChoices / 0.75) + 1);
+				for (int ch = 0; ch < numChoices; ch++) {
+					int numEffects = in.getInt();
+					Set<ExplicitEffect> effects = new HashSet<ExplicitEffect>((int) (numEffects / 0.75) + 1);
+					for (int j = 0; j < numEffects; j++) {
+						ExplicitCondition condition = readCondition(in);
+						int var = in.getInt();
+						effects.add(new ExplicitEffect(condition, var, in.getInt()));
+					}
+					choices.add(effects);
+				}
+			}
+			Set<Pair<Integer, Integer>> observation = readPairs(in);
+			if (parsed.fullObservable && observation.isEmpty()) {
+				observation = Collections.emptySet();
+			}
+			parsed.operators.add(new ExplicitOperator(name, precondition, choices, observation, false, cost));
+		}
+
+		int numberOfAxioms = in.getInt();
+		parsed.axioms = new LinkedHashSet<OperatorRule>((int) (numberOfAxioms / 0.75) + 1);
+		for (int i = 0; i < numberOfAxioms; i++) {
+			Set<Pair<Integer, Integer>> body = readPairs(in);
+			int var = in.getInt();
+			parsed.axioms.add(new OperatorRule(body, new Pair<Integer, Integer>(var, in.getInt())));
+		}
+		if (in.hasRemaining()) {
+			throw new IllegalArgumentException("Trailing bytes in cached task");
+		}
+		return parsed;
+	}
+
+	private static void writeString(DataOutputStream out, String string) throws IOException {
+		byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(ByteBuffer in) {
+		int length = in.getInt();
+		if (length < 0 || length > in.remaining()) {
+			throw new IllegalArgumentException("Invalid string length " + length);
+		}
+		byte[] bytes = new byte[length];
+		in.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+		out.writeInt(values.length);
+		for (int value : values) {
+			out.writeInt(value);
+		}
+	}
+
+	private static int[] readInts(ByteBuffer in) {
+		int length = in.getInt();
+		if (length < 0 || 4L * length > in.remaining()) {
+			throw new IllegalArgumentException("Invalid array length " + length);
+		}
+		int[] values = new int[length];
+		in.asIntBuffer().get(values);
+		in.position(in.position() + 4 * length);
+		return values;
+	}
+
+	private static void writeCondition(DataOutputStream out, ExplicitCondition condition) throws IOException {
+		out.writeInt(condition.variableValueMap.size());
+		for (Map.Entry<Integer, Integer> entry : condition.variableValueMap.entrySet()) {
+			out.writeInt(entry.getKey());
+			out.writeInt(entry.getValue());
+		}
+	}
+
+	private static ExplicitCondition readCondition(ByteBuffer in) {
+		int size = in.getInt();
+		Map<Integer, Integer> variableValuePairs = new HashMap<Integer, Integer>((int) (size / 0.75) + 1);
+		for (int i = 0; i < size; i++) {
+			int var = in.getInt();
+			variableValuePairs.put(var, in.getInt());
+		}
+		return new ExplicitCondition(variableValuePairs);
+	}
+
+	private static void writePairs(DataOutputStream out, Set<Pair<Integer, Integer>> pairs) throws IOException {
+		out.writeInt(pairs.size());
+		for (Pair<Integer, Integer> pair : pairs) {
+			out.writeInt(pair.first);
+			out.writeInt(pair.second);
+		}
+	}
+
+	private static Set<Pair<Integer, Integer>> readPairs(ByteBuffer in) {
+		int size = in.getInt();
+		Set<Pair<Integer, Integer>> pairs = new HashSet<Pair<Integer, Integer>>((int) (size / 0.75) + 1);
+		for (int i = 0; i < size; i++) {
+			int var = in.getInt();
+			pairs.add(new Pair<Integer, Integer>(var, in.getInt()));
+		}
+		return pairs;
+	}
+}
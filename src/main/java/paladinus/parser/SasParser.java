@@ -1,10 +1,13 @@
 package paladinus.parser;
 
 import java.io.BufferedReader;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -17,6 +20,7 @@ import java.util.Set;
 
 import javabdd.BDD;
 import paladinus.Global;
+import paladinus.PlanningContext;
 import paladinus.explicit.ExplicitCondition;
 import paladinus.explicit.ExplicitEffect;
 import paladinus.explicit.ExplicitOperator;
@@ -130,80 +134,109 @@ public class SasParser {
 	/**
 	 * Number of variables.
 	 */
-	private int numberOfVariables;
+	int numberOfVariables;
 
 	/**
 	 * Explicit goal condition.
 	 */
-	private ExplicitCondition goal;
+	ExplicitCondition goal;
 
 	/**
 	 * Variable names.
 	 */
-	private ArrayList<String> variableNames;
+	ArrayList<String> variableNames;
 
 	/**
 	 * Variable domain sizes.
 	 */
-	private ArrayList<Integer> domainSizes;
+	ArrayList<Integer> domainSizes;
 
 	/**
 	 * Variable axiom layers.
 	 */
-	private ArrayList<Integer> axiomLayer;
+	ArrayList<Integer> axiomLayer;
 
 	/**
 	 * Set of the planning task's operators.
 	 */
-	private LinkedHashSet<Operator> operators;
+	LinkedHashSet<Operator> operators;
 
 	/**
 	 * Axioms.
 	 */
-	private Set<OperatorRule> axioms;
+	Set<OperatorRule> axioms;
 
 	/**
 	 * BDDManager used for POND problems
 	 */
-	private BDDManager BDDManager;
+	BDDManager BDDManager;
 
 	/**
 	 * List of proposition names corresponding to variable-value pairs.
 	 * propositionNames[i][j] is the name of the proposition corresponding to the
 	 * equality (var_i = j).
 	 */
-	private ArrayList<List<String>> propositionNames;
+	ArrayList<List<String>> propositionNames;
 
 	/**
 	 * Denotes if problem to be parsed is full observable or not.
 	 */
-	private boolean fullObservable;
+	boolean fullObservable;
 
 	/**
 	 * Valuation of initial state (fully observable problem).
 	 */
-	private int[] initialValuation;
+	int[] initialValuation;
 
 	/**
 	 * Initial belief state as BDD (partially observable problem).
 	 */
-	private BDD initialBDD;
+	BDD initialBDD;
+
+	/**
+	 * Known facts, one-of constraints and formulae of the initial belief state
+	 * (partially observable problem), from which the initial BDD is built.
+	 */
+	int[] initialFactVars;
+
+	int[] initialFactVals;
+
+	int[][] initialOneOfVars;
+
+	int[][] initialOneOfVals;
+
+	String[] initialFormulae;
 
 	/**
 	 * Default values of derived variables.
 	 */
-	private ArrayList<Integer> defaultValues;
+	ArrayList<Integer> defaultValues;
 
 	/**
 	 * Variables which are not unknown in the initial state.
 	 */
-	private Set<Integer> variablesWhichAreInitiallyKnown;
+	Set<Integer> variablesWhichAreInitiallyKnown;
 
 	/**
 	 * Indicates if action costs are used or not.
 	 */
 	private boolean actionCostsUsed;
 
+	/**
+	 * Context of the planner run the parsed problems belong to.
+	 */
+	private final PlanningContext context;
+
+	/**
+	 * Create a parser for problems of the given planner run.
+	 *
+	 * @param context context of the planner run, or null if only the header is
+	 *                read by isFond
+	 */
+	public SasParser(PlanningContext context) {
+		this.context = context;
+	}
+
 	/**
 	 * Assert equality of an actual and a given string and raise an error if they
 	 * are not equal.
@@ -276,12 +309,55 @@ public class SasParser {
 	public Problem parse(InputStream stream) throws IOException, FileNotFoundException {
 		initialize(stream);
 		parseInput();
+		return createProblem(context);
+	}
+
+	/**
+	 * Parse a problem from a SAS+ file. If a SAS cache directory is given, the
+	 * parsed task is loaded from its binary cache file when the file belongs to
+	 * the same SAS+ contents, and otherwise saved there after parsing.
+	 *
+	 * @param filename name of the SAS+ file
+	 * @return Internal representation of the parsed problem
+	 * @throws IOException
+	 */
+	public Problem parse(String filename) throws IOException, FileNotFoundException {
+		String directory = context.getOptions().getSASCacheDirectory();
+		if (directory == null) {
+			return parse(new FileInputStream(filename));
+		}
+		String digest = context.getDigest(Paths.get(filename));
+		Path cacheFile = Paths.get(directory, digest + ".sasb");
+		SasParser cached = SasCacheFile.read(cacheFile, digest, context);
+		if (cached != null) {
+			System.out.println("Loaded parsed task from " + cacheFile);
+			return cached.createProblem(context);
+		}
+		try (InputStream stream = new FileInputStream(filename)) {
+			initialize(stream);
+			parseInput();
+		}
+		try {
+			SasCacheFile.write(cacheFile, digest, this);
+		} catch (IOException e) {
+			System.err.println("WARNING: Parsed task could not be saved to " + cacheFile + ": " + e.getMessage());
+		}
+		return createProblem(context);
+	}
+
+	/**
+	 * Create the problem of the parsed task.
+	 *
+	 * @param context context of the planner run the problem belongs to
+	 * @return Internal representation of the parsed problem
+	 */
+	Problem createProblem(PlanningContext context) {
 		Problem p;
 		if (fullObservable) {
-			p = new FullyObservableProblem(initialValuation, goal, variableNames, propositionNames, domainSizes,
+			p = new FullyObservableProblem(context, initialValuation, goal, variableNames, propositionNames, domainSizes,
 					axiomLayer, defaultValues, operators, axioms);
 		} else {
-			p = new PartiallyObservableProblem(BDDManager, initialBDD, goal, variableNames, propositionNames,
+			p = new PartiallyObservableProblem(context, BDDManager, initialBDD, goal, variableNames, propositionNames,
 					domainSizes, axiomLayer, defaultValues, operators, axioms, variablesWhichAreInitiallyKnown);
 		}
 		return p;
@@ -391,6 +467,11 @@ public class SasParser {
 				formulae[i] = reader.readLine();
 			}
 			assertEq(reader.readLine(), RW_ENDSTATE);
+			initialFactVars = factVars;
+			initialFactVals = factVals;
+			initialOneOfVars = oneOfVars;
+			initialOneOfVals = oneOfVals;
+			initialFormulae = formulae;
 			initialBDD = BDDManager.initializeInitialStateBDD(factVars, factVals, oneOfVars, oneOfVals, formulae);
 			// Assert that every derived variable has a default value.
 			for (int var = 0; var < numberOfVariables; var++) {
@@ -13,6 +13,7 @@ import java.util.SortedSet;
 import java.util.TreeSet;
 
 import paladinus.Global;
+import paladinus.PlanningContext;
 import paladinus.Preprocessor;
 import paladinus.explicit.ExplicitAxiomEvaluator;
 import paladinus.explicit.ExplicitCondition;
@@ -54,11 +55,11 @@ public class FullyObservableProblem extends Problem {
 	/**
 	 * Constructor to create a fully observable planning problem.
 	 */
-	public FullyObservableProblem(int[] initialValuation, ExplicitCondition goal, ArrayList<String> variableNames,
-			List<List<String>> propositionNames, ArrayList<Integer> domainSizes, ArrayList<Integer> axiomLayer,
-			ArrayList<Integer> defaultAxiomValues, LinkedHashSet<Operator> causativeOperators,
-			Set<OperatorRule> axioms) {
-		super(goal, variableNames, propositionNames, domainSizes, axiomLayer, defaultAxiomValues, causativeOperators,
+	public FullyObservableProblem(PlanningContext context, int[] initialValuation, ExplicitCondition goal,
+			ArrayList<String> variableNames, List<List<String>> propositionNames, ArrayList<Integer> domainSizes,
+			ArrayList<Integer> axiomLayer, ArrayList<Integer> defaultAxiomValues,
+			LinkedHashSet<Operator> causativeOperators, Set<OperatorRule> axioms) {
+		super(context, goal, variableNames, propositionNames, domainSizes, axiomLayer, defaultAxiomValues, causativeOperators,
 				axioms, true);
 		performSanityCheck();
 		explicitAxiomEvaluator = new ExplicitAxiomEvaluator(this);
@@ -141,7 +142,7 @@ public class FullyObservableProblem extends Problem {
 		assert (initialState instanceof ExplicitState);
 		initialState = getSingleInitialState();
 		initialState = ((ExplicitState) initialState).abstractToPattern(abstraction);
-		Map<Integer, Integer> initialAssignmentMap = ((ExplicitState) initialState).variableValueAssignment;
+		Map<Integer, Integer> initialAssignmentMap = ((ExplicitState) initialState).getVariableValueAssignment();
 
 		// get new initial assignment array:
 		int[] newInitialValuation = new int[abstraction.pattern.size()];
@@ -170,7 +171,7 @@ public class FullyObservableProblem extends Problem {
 		assert (newExplicitOps != null);
 
 		// instantiate new problem instance:
-		FullyObservableProblem newProblem = new FullyObservableProblem(newInitialValuation, newGoal, newVariableNames,
+		FullyObservableProblem newProblem = new FullyObservableProblem(context, newInitialValuation, newGoal, newVariableNames,
 				newPropositionNames, newDomainSizes, newAxiomLayer, newDefaultAxiomValues, newExplicitOps,
 				abstraction.axioms);
 
@@ -276,9 +277,10 @@ public class FullyObservableProblem extends Problem {
 		// Store operators as original operators before their preprocessing.
 		setOriginalOperators(this.operators);
 		Set<Operator> ops;
-		if(Global.options.getPolicyType() != null && Global.options.getPolicyType().equals("STRONG")) {
+		String policyType = context.getOptions().getPolicyType();
+		if(policyType != null && policyType.equals("STRONG")) {
 			ops = Preprocessor.preprocessForStrongPlanning(getOperators());
-		} else if(Global.options.getPolicyType() != null && Global.options.getPolicyType().equals("STRONG_CYCLIC")) {
+		} else if(policyType != null && policyType.equals("STRONG_CYCLIC")) {
 			ops = Preprocessor.preprocessForStrongCyclicPlanning(getOperators());
 		} else {
 			ops = getOperators();
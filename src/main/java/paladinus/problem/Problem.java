@@ -7,10 +7,13 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import paladinus.PlanningContext;
 import paladinus.explicit.ExplicitAxiomEvaluator;
 import paladinus.explicit.ExplicitCondition;
 import paladinus.explicit.ExplicitOperator.OperatorRule;
 import paladinus.explicit.ExplicitState;
+import paladinus.explicit.StatePacker;
+import paladinus.explicit.SuccessorGenerator;
 import paladinus.heuristic.pdb.Abstraction;
 import paladinus.state.Condition;
 import paladinus.state.Operator;
@@ -23,6 +26,11 @@ import paladinus.state.State;
  */
 public abstract class Problem {
 
+	/**
+	 * Context of the planner run this problem belongs to.
+	 */
+	protected final PlanningContext context;
+
 	/**
 	 * Explicit goal of this planning problem. Note: Explicit representation is also
 	 * used in a partially observable problem for pattern selection search.
@@ -100,9 +108,27 @@ public abstract class Problem {
 	 */
 	public final List<Integer> defaultAxiomValues;
 
-	public Problem(ExplicitCondition explicitGoal, List<String> variableNames, List<List<String>> propositionNames,
-			ArrayList<Integer> domainSizes, ArrayList<Integer> axiomLayer, ArrayList<Integer> defaultAxiomValues,
-			LinkedHashSet<Operator> operators, Set<OperatorRule> axioms, boolean isFullObservable) {
+	/**
+	 * Bit layout of packed explicit states of this problem.
+	 */
+	private final StatePacker statePacker;
+
+	/**
+	 * Successor generator for the current operators, together with the operators
+	 * it was built from. Read without locking by the search threads.
+	 */
+	private volatile BuiltSuccessorGenerator successorGenerator;
+
+	/**
+	 * All state variables in ascending order.
+	 */
+	private final int[] variables;
+
+	public Problem(PlanningContext context, ExplicitCondition explicitGoal, List<String> variableNames,
+			List<List<String>> propositionNames, ArrayList<Integer> domainSizes, ArrayList<Integer> axiomLayer,
+			ArrayList<Integer> defaultAxiomValues, LinkedHashSet<Operator> operators, Set<OperatorRule> axioms,
+			boolean isFullObservable) {
+		this.context = context;
 		this.explicitGoal = explicitGoal;
 		this.variableNames = variableNames;
 		this.propositionNames = Collections.unmodifiableList(propositionNames);
@@ -115,6 +141,59 @@ public abstract class Problem {
 		this.defaultAxiomValues = Collections.unmodifiableList(defaultAxiomValues);
 		this.isFullObservable = isFullObservable;
 		this.operators = operators;
+		statePacker = new StatePacker(domainSizes);
+		variables = new int[numStateVars];
+		for (int var = 0; var < numStateVars; var++) {
+			variables[var] = var;
+		}
+	}
+
+	/**
+	 * Get the context of the planner run this problem belongs to.
+	 *
+	 * @return planning context
+	 */
+	public PlanningContext getContext() {
+		return context;
+	}
+
+	/**
+	 * Get the bit layout used to pack explicit states of this problem.
+	 *
+	 * @return state packer
+	 */
+	public StatePacker getStatePacker() {
+		return statePacker;
+	}
+
+	/**
+	 * Get the successor generator for the current operators of this problem. It is
+	 * rebuilt whenever the operators have been replaced.
+	 *
+	 * @return successor generator
+	 */
+	public SuccessorGenerator getSuccessorGenerator() {
+		BuiltSuccessorGenerator built = successorGenerator;
+		if (built == null || built.operators != operators) {
+			synchronized (this) {
+				built = successorGenerator;
+				if (built == null || built.operators != operators) {
+					built = new BuiltSuccessorGenerator(operators);
+					successorGenerator = built;
+				}
+			}
+		}
+		return built.generator;
+	}
+
+	/**
+	 * Get all state variables of this problem in ascending order. The returned
+	 * array must not be modified.
+	 *
+	 * @return array of state variables
+	 */
+	public int[] getVariables() {
+		return variables;
 	}
 
 	/**
@@ -275,4 +354,18 @@ public abstract class Problem {
 	
 	protected abstract void setModifiedOperators(Set<Operator> ops);
 
+	/**
+	 * Successor generator and the operators it was built from.
+	 */
+	private static final class BuiltSuccessorGenerator {
+
+		final Set<Operator> operators;
+
+		final SuccessorGenerator generator;
+
+		BuiltSuccessorGenerator(Set<Operator> operators) {
+			this.operators = operators;
+			this.generator = new SuccessorGenerator(operators);
+		}
+	}
 }
@@ -1,8 +1,5 @@
 package paladinus.search;
 
-import java.math.BigInteger;
-
-import paladinus.Global;
 import paladinus.state.State;
 
 /**
@@ -22,27 +19,6 @@ public abstract class AbstractNode {
 	 */
 	public static final double DISPROVEN = Double.POSITIVE_INFINITY;
 
-	/**
-	 * Next free index to be used for node numbering
-	 */
-	private static int nextFreeIndex = 0;
-
-	/**
-	 * Get number of created nodes.
-	 *
-	 * @return number of created nodes
-	 */
-	public static int getNumberOfNodes() {
-		return nextFreeIndex;
-	}
-
-	/**
-	 * Resets the next free index counter which is used to number nodes.
-	 */
-	public static void resetIndex() {
-		nextFreeIndex = 0;
-	}
-
 	/**
 	 * Unique index
 	 */
@@ -70,11 +46,6 @@ public abstract class AbstractNode {
 	 */
 	private boolean isExpanded = false;
 
-	/**
-	 * Random number to sort nodes by random.
-	 */
-	public int random = Global.generator.nextInt() & Integer.MAX_VALUE;
-
 	/**
 	 * Indicates if this is a goal node.
 	 */
@@ -83,19 +54,15 @@ public abstract class AbstractNode {
 	private boolean isDeadEndNode = false;
 
 	/**
-	 * Unique id of the represented state.
-	 */
-	final BigInteger stateID;
-
-	/**
-	 * Creates a new node for a given state.
+	 * Creates a new node for a given state with an index chosen by the search
+	 * which owns the node.
 	 *
 	 * @param state State to be represented
+	 * @param index Unique index of the node within its search
 	 */
-	public AbstractNode(State state) {
+	public AbstractNode(State state, int index) {
 		this.state = state;
-		stateID = state.uniqueID;
-		index = nextFreeIndex++;
+		this.index = index;
 		if (state.isGoalState()) {
 			setGoalNode(true);
 		}
@@ -107,12 +74,12 @@ public abstract class AbstractNode {
 			return false;
 		}
 		AbstractNode other = (AbstractNode) o;
-		return stateID.equals(other.stateID);
+		return state.equals(other.state);
 	}
 
 	@Override
 	public int hashCode() {
-		return stateID.intValue();
+		return state.hashCode;
 	}
 
 	@Override
@@ -59,20 +59,25 @@ public abstract class AbstractSearch implements Callable {
 	 */
 	private long timeout = AbstractSearch.NO_TIMEOUT;
 
+	/**
+	 * Set when the search is cancelled by another thread, e.g. by a portfolio.
+	 */
+	private volatile boolean cancelled = false;
+
 	/**
 	 * Counter for recursion.
 	 */
-	public static int RECURSION_COUNTER = 0;
+	protected int RECURSION_COUNTER = 0;
 	
 	/**
 	 * Counter for node expansions.
 	 */
-	public static int NODE_EXPANSIONS = 0;
+	protected int NODE_EXPANSIONS = 0;
 
 	/**
 	 * Counter for nodes.
 	 */
-	public static int NODES = 0;
+	protected int NODES = 0;
 
 	/**
 	 * Start node of the search.
@@ -128,12 +133,27 @@ public abstract class AbstractSearch implements Callable {
 		this.timeout = timeout;
 	}
 
+	/**
+	 * Cancel the search. A cancelled search behaves as if its time-out occurred.
+	 */
+	public void cancel() {
+		this.cancelled = true;
+	}
+
+	public boolean isCancelled() {
+		return this.cancelled;
+	}
+
 	/**
 	 * Check whether a time-out has occurred.
 	 *
-	 * @return True iff a time-out has been set and has been exceeded.
+	 * @return True iff the search is cancelled or a time-out has been set and has
+	 *         been exceeded.
 	 */
 	protected boolean timeout() {
+		if (this.cancelled) {
+			return true;
+		}
 		if (getTimeout() == AbstractSearch.NO_TIMEOUT) {
 			return false;
 		}
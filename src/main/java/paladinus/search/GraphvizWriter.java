@@ -57,7 +57,7 @@ public class GraphvizWriter {
 		List<SearchNode> seenNodes = new LinkedList<SearchNode>();
 		List<SearchConnector> seenSearchConnectors = new LinkedList<SearchConnector>();
 		Queue<SearchNode> queue = new LinkedList<SearchNode>();
-		queue.offer(search.stateNodeMap.get(problem.getSingleInitialState().uniqueID));
+		queue.offer(search.stateNodeMap.get(problem.getSingleInitialState()));
 
 		while (!queue.isEmpty()) {
 			SearchNode node = queue.poll();
@@ -121,15 +121,14 @@ public class GraphvizWriter {
 			if (problem.isFullObservable) {
 				for (int i = 0; i < ((ExplicitState) node.state).size - 1; i++) {
 					String tmp = problem.propositionNames.get(i)
-							.get(((ExplicitState) node.state).variableValueAssignment.get(i));
+							.get(((ExplicitState) node.state).getValue(i));
 					if (!tmp.startsWith("(not")) {
 						buffer.append(tmp);
 						buffer.append("\\n");
 					}
 				}
 				buffer.append(problem.propositionNames.get(((ExplicitState) node.state).size - 1)
-						.get(((ExplicitState) node.state).variableValueAssignment
-								.get(((ExplicitState) node.state).size - 1)));
+						.get(((ExplicitState) node.state).getValue(((ExplicitState) node.state).size - 1)));
 			}
 			buffer.append("\" ]\n");
 		}
@@ -220,15 +219,14 @@ public class GraphvizWriter {
 			if (problem.isFullObservable) {
 				for (int i = 0; i < ((ExplicitState) node.state).size - 1; i++) {
 					String tmp = problem.propositionNames.get(i)
-							.get(((ExplicitState) node.state).variableValueAssignment.get(i));
+							.get(((ExplicitState) node.state).getValue(i));
 					if (!tmp.startsWith("(not")) {
 						buffer.append(tmp);
 						buffer.append("\\n");
 					}
 				}
 				buffer.append(problem.propositionNames.get(((ExplicitState) node.state).size - 1)
-						.get(((ExplicitState) node.state).variableValueAssignment
-								.get(((ExplicitState) node.state).size - 1)));
+						.get(((ExplicitState) node.state).getValue(((ExplicitState) node.state).size - 1)));
 			}
 			buffer.append("\" ]\n");
 		}
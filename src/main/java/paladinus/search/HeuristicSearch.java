@@ -5,16 +5,15 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.StringWriter;
-import java.math.BigInteger;
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.util.List;
 
 import org.apache.commons.io.IOUtils;
 
-import paladinus.Global;
+import paladinus.Options;
 import paladinus.heuristic.Heuristic;
 import paladinus.problem.Problem;
 import paladinus.simulator.PlanSimulator;
+import paladinus.state.StateTable;
 
 /**
  * A heuristic search algorithm is an explicit state search algorithm guided by
@@ -24,18 +23,25 @@ import paladinus.simulator.PlanSimulator;
  */
 public abstract class HeuristicSearch extends AbstractSearch {
 
-	protected Map<BigInteger, SearchNode> stateNodeMap = new LinkedHashMap<BigInteger, SearchNode>();
+	/**
+	 * Search nodes of all states generated so far, keyed by the state keys.
+	 */
+	protected StateTable<SearchNode> stateNodeMap;
 	
 	/**
 	 * Heuristic estimator for the initialization of leaf nodes
 	 */
 	protected Heuristic heuristic;
 
-	public static ExpansionRules[][] expansionRules;
-	
 	protected int dumpingCounterPlan = 0;
 	protected int dumpingCounterStateSpace = 0;
 	
+	/**
+	 * Index of the next search node created by this search. Nodes are numbered
+	 * per search, so that searches running concurrently do not share a counter.
+	 */
+	private int nextNodeIndex = 0;
+	
 	/**
 	 * 
 	 * @param problem
@@ -43,6 +49,7 @@ public abstract class HeuristicSearch extends AbstractSearch {
 	 */
 	public HeuristicSearch(Problem problem, Heuristic[] heuristics) {
 		super(problem);
+		stateNodeMap = new StateTable<SearchNode>(problem.getSingleInitialState().getKeyWidth());
 	}
 	/**
 	 * Create a search guided by a heuristic.
@@ -52,6 +59,7 @@ public abstract class HeuristicSearch extends AbstractSearch {
 	public HeuristicSearch(Problem problem, Heuristic heuristic) {
 		super(problem);
 		this.heuristic = heuristic;
+		stateNodeMap = new StateTable<SearchNode>(problem.getSingleInitialState().getKeyWidth());
 	}
 
 	/**
@@ -102,10 +110,11 @@ public abstract class HeuristicSearch extends AbstractSearch {
 	
 	@Override
 	public void validatePolicy() {
-		if(Global.options.validatePolicy()) {
-			PlanSimulator.savePlanAsDot(problem, this.getPolicy(), Global.options.getExportDotFilename());
+		Options options = problem.getContext().getOptions();
+		if(options.validatePolicy()) {
+			List<Integer> goalNodes = PlanSimulator.savePlanAsDot(problem, this.getPolicy(), options.getExportDotFilename());
 			
-			ProcessBuilder processBuilder = new ProcessBuilder(new File("validators/graphviz_validator.py").getAbsolutePath(), PlanSimulator.goalNodes.toString());
+			ProcessBuilder processBuilder = new ProcessBuilder(new File("validators/graphviz_validator.py").getAbsolutePath(), goalNodes.toString());
 		    processBuilder.redirectErrorStream(true);
 	
 		    Process process;
@@ -123,11 +132,11 @@ public abstract class HeuristicSearch extends AbstractSearch {
 			} catch (IOException e) {
 				e.printStackTrace();
 			}
-		} else if(Global.options.validatePolicyPRP()) {
+		} else if(options.validatePolicyPRP()) {
 			this.getPolicy().printPRPpolicyToFile("policy");
 			
-			String domain = new File(Global.options.getDomainFilename()).getAbsolutePath();
-			String problem = new File(Global.options.getInstanceFilename()).getAbsolutePath();
+			String domain = new File(options.getDomainFilename()).getAbsolutePath();
+			String problem = new File(options.getInstanceFilename()).getAbsolutePath();
 			
 		    ProcessBuilder processBuilder = new ProcessBuilder(new File("validators/validator.py").getAbsolutePath(), "-d" + domain, "-p" + problem, "-s" + "policy-translated.out");
 		    processBuilder.redirectErrorStream(true);
@@ -153,4 +162,13 @@ public abstract class HeuristicSearch extends AbstractSearch {
 	public Heuristic getHeuristic() {
 		return heuristic;
 	}
+	
+	/**
+	 * Get the index for a new search node of this search.
+	 *
+	 * @return unused node index
+	 */
+	public int nextNodeIndex() {
+		return nextNodeIndex++;
+	}
 }
@@ -0,0 +1,107 @@
+package paladinus.search;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Set of search nodes keyed by their dense node index. Membership is an epoch
+ * stamp per node index, so insert, remove, contains and clear take constant
+ * time and clearing the set does not allocate. The members are additionally
+ * kept in a dense array for iteration.
+ */
+public class NodeIndexSet extends AbstractSet<SearchNode> {
+
+	/**
+	 * A node with index i is a member iff stamps[i] == epoch.
+	 */
+	private int[] stamps = new int[0];
+
+	/**
+	 * Position of each member in the dense array, indexed by node index.
+	 */
+	private int[] positions = new int[0];
+
+	private SearchNode[] members = new SearchNode[0];
+
+	private int epoch = 1;
+
+	private int size = 0;
+
+	@Override
+	public boolean contains(Object o) {
+		if (!(o instanceof SearchNode))
+			return false;
+		int index = ((SearchNode) o).index;
+		return index < stamps.length && stamps[index] == epoch;
+	}
+
+	@Override
+	public boolean add(SearchNode node) {
+		int index = node.index;
+		if (index >= stamps.length) {
+			int capacity = Math.max(64, Math.max(stamps.length * 2, index + 1));
+			stamps = Arrays.copyOf(stamps, capacity);
+			positions = Arrays.copyOf(positions, capacity);
+		}
+		if (stamps[index] == epoch)
+			return false;
+		stamps[index] = epoch;
+		if (size == members.length)
+			members = Arrays.copyOf(members, Math.max(16, size * 2));
+		positions[index] = size;
+		members[size++] = node;
+		return true;
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		if (!contains(o))
+			return false;
+		int index = ((SearchNode) o).index;
+		stamps[index] = 0;
+		int position = positions[index];
+		SearchNode last = members[--size];
+		members[size] = null;
+		if (position != size) {
+			members[position] = last;
+			positions[last.index] = position;
+		}
+		return true;
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(members, 0, size, null);
+		size = 0;
+		if (++epoch == Integer.MAX_VALUE) {
+			Arrays.fill(stamps, 0);
+			epoch = 1;
+		}
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public Iterator<SearchNode> iterator() {
+		return new Iterator<SearchNode>() {
+			private int next = 0;
+
+			@Override
+			public boolean hasNext() {
+				return next < size;
+			}
+
+			@Override
+			public SearchNode next() {
+				if (next >= size)
+					throw new NoSuchElementException();
+				return members[next++];
+			}
+		};
+	}
+}
@@ -1,6 +1,6 @@
 package paladinus.search;
 
-import java.util.HashSet;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 
@@ -58,12 +58,23 @@ public class SearchConnector {
 	
 	private double avgBranchingFactor = 0;
 
-	private Set<SearchNode> visitedChildren = new HashSet<>();
+	/**
+	 * Sort key according to the action selection rule, smaller is better.
+	 */
+	private double rankKey = 0;
+
+	private Set<SearchNode> visitedChildren = Collections.emptySet();
 	
 	private EvaluationFunctionCriterion evaluationFunctionCriterion;
 
+	/**
+	 * Children in the order in which the successor states were generated.
+	 */
+	private List<SearchNode> successors;
+
 	/**
 	 * Creates a new connector. Links parent and child nodes back to this connector.
+	 * The parent must have been marked as expanded.
 	 *
 	 * @param parent   Node to which this connector is attached
 	 * @param children Child nodes
@@ -74,9 +85,6 @@ public class SearchConnector {
 		this.children = children;
 		this.operator = operator;
 		baseCost = operator.getCost();
-		if(parent.outgoingConnectors.contains(this)){
-			parent.outgoingConnectors.remove(this);
-		}
 		parent.outgoingConnectors.add(this);
 		for (SearchNode child : children) {
 			child.incomingConnectors.add(this);
@@ -96,6 +104,32 @@ public class SearchConnector {
 		this.evaluationFunctionCriterion = criterion;
 	}
 
+	/**
+	 * Creates a copy of the given connector for the private use of one search.
+	 * The copy is not linked to the parent and child nodes.
+	 *
+	 * @param connector connector to copy
+	 */
+	private SearchConnector(SearchConnector connector) {
+		this.parent = connector.parent;
+		this.children = connector.children;
+		this.successors = connector.successors;
+		this.operator = connector.operator;
+		this.baseCost = connector.baseCost;
+		this.avgBranchingFactor = connector.avgBranchingFactor;
+		this.evaluationFunctionCriterion = connector.evaluationFunctionCriterion;
+	}
+
+	/**
+	 * Get an unlinked copy of this connector, whose per-ranking state (visited
+	 * children, rank key) can be changed without affecting this connector.
+	 *
+	 * @return copy of this connector
+	 */
+	public SearchConnector copy() {
+		return new SearchConnector(this);
+	}
+
 	@Override
 	public boolean equals(Object o) {
 		if (!(o instanceof SearchConnector)) {
@@ -159,6 +193,14 @@ public class SearchConnector {
 		return visitedChildren;
 	}
 	
+	public double getRankKey() {
+		return rankKey;
+	}
+
+	public void setRankKey(double rankKey) {
+		this.rankKey = rankKey;
+	}
+
 	public double getAvgBranchingFactor() {
 		return avgBranchingFactor;
 	}
@@ -191,6 +233,14 @@ public class SearchConnector {
 		this.children = children;
 	}
 
+	public List<SearchNode> getSuccessors() {
+		return successors;
+	}
+
+	public void setSuccessors(List<SearchNode> successors) {
+		this.successors = successors;
+	}
+
 	/**
 	 * Get parent node.
 	 *
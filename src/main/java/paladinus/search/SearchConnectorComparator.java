@@ -1,8 +1,6 @@
 package paladinus.search;
 
 import java.util.Comparator;
-import java.util.HashSet;
-import java.util.Set;
 
 import paladinus.util.ActionSelectionRule;
 
@@ -17,89 +15,92 @@ public class SearchConnectorComparator implements Comparator<SearchConnector> {
 	
 	private ActionSelectionRule rule = ActionSelectionRule.MIN_H;
 	
-	private Set<SearchNode> closedVisited = new HashSet<>();
+	private NodeIndexSet closedVisited = new NodeIndexSet();
 
 	public SearchConnectorComparator(ActionSelectionRule rule) {
 		this.rule = rule;
 	}
 	
-	public SearchConnectorComparator(ActionSelectionRule rule, Set<SearchNode> closedVisited) {
+	public SearchConnectorComparator(ActionSelectionRule rule, NodeIndexSet closedVisited) {
 		this.rule = rule;
 		this.closedVisited = closedVisited;
 	}
 
-	@Override
-	public int compare(SearchConnector o1, SearchConnector o2) {
-		int result = 0;
-		
-		o1.setVisitedChildren(this.closedVisited);
-		o2.setVisitedChildren(this.closedVisited);
-		
+	/**
+	 * Compute the rank key of the connector according to the action selection
+	 * rule and store it in the connector. Connectors with smaller keys are
+	 * preferred. The key must be recomputed whenever the estimates of the
+	 * children change.
+	 * 
+	 * @param connector connector to rank
+	 */
+	public void computeRankKey(SearchConnector connector) {
+		connector.setVisitedChildren(this.closedVisited);
+		connector.setRankKey(this.getRankKey(connector));
+	}
+	
+	private double getRankKey(SearchConnector c) {
 		switch (this.rule) {
 			/* Action Selection functions considering Min (h-value). */
 			case MIN_H:
-				result = (int) (o1.getMinChildEstimate() - o2.getMinChildEstimate());
-				break;
+				return c.getMinChildEstimate();
 				
 			case MIN_H_TIMES_CHILDREN_SIZE:
-				result = (int) ((o1.getMinChildEstimateTimesChildrenSize()) - (o2.getMinChildEstimateTimesChildrenSize()));
-				break;
+				return c.getMinChildEstimateTimesChildrenSize();
 				
 			case MIN_H_POWER_CHILDREN_SIZE:
-				result = (int) ((o1.getMinChildEstimateToPowerChildrenSize()) - (o2.getMinChildEstimateToPowerChildrenSize()));
-				break;
+				return c.getMinChildEstimateToPowerChildrenSize();
 				
 			/* Action Selection functions considering Sum (h-value). */
 			case MIN_SUM_H:
-				result = (int) (o1.getSumChildEstimate() - o2.getSumChildEstimate());
-				break;	
+				return c.getSumChildEstimate();
 				
 			case MIN_SUM_H_TIMES_CHILDREN_SIZE:
-				result = (int) ((o1.getSumChildEstimateTimesChildrenSize()) - (o2.getSumChildEstimateTimesChildrenSize()));
-				break;
+				return c.getSumChildEstimateTimesChildrenSize();
 				
 			case MIN_SUM_H_POWER_CHILDREN_SIZE:
-				result = (int) ((o1.getSumChildEstimateToPowerChildrenSize()) - (o2.getSumChildEstimateToPowerChildrenSize()));
-				break;
+				return c.getSumChildEstimateToPowerChildrenSize();
 			
 			/* Action Selection functions considering Max (h-value). */
 			case MIN_MAX_H:
-				result = (int) (o1.getMaxChildEstimate() - o2.getMaxChildEstimate());
-				break;
+				return c.getMaxChildEstimate();
 				
 			case MAX_H:
-				result = (int) (o2.getMaxChildEstimate() - o1.getMaxChildEstimate());
-				break;
+				return -c.getMaxChildEstimate();
 
 			case MIN_MAX_H_TIMES_CHILDREN_SIZE:
-				result = (int) ((o1.getMaxChildEstimateTimesChildrenSize()) - (o2.getMaxChildEstimateTimesChildrenSize()));
-				break;
+				return c.getMaxChildEstimateTimesChildrenSize();
 				
 			case MIN_MAX_H_POWER_CHILDREN_SIZE:
-				result = (int) ((o1.getMaxChildEstimateToPowerChildrenSize()) - (o2.getMaxChildEstimateToPowerChildrenSize()));
-				break;				
+				return c.getMaxChildEstimateToPowerChildrenSize();
 				
 			/* Action Selection functions considering Mean (h-value). */
 			case MEAN_H:
-				double avgComparison = (o1.getAverageChildEstimate() - o2.getAverageChildEstimate());
-				result = (int) avgComparison;
-				if(avgComparison < 0)
-					result = -1;
-				break;
+				return c.getAverageChildEstimate();
 				
 			/* Action Selection function that aims to estimate the branching factor. */
 			case MIN_SUM_H_ESTIMATED_BRANCHING_FACTOR:
-				result = (int) (o1.getSumEstimatedBranchingFactorToPowerHeuristicValue() - o2.getSumEstimatedBranchingFactorToPowerHeuristicValue());
-				break;
+				return c.getSumEstimatedBranchingFactorToPowerHeuristicValue();
 				
 			case MAX_AVG_H_VALUE:
-				result = (int) (o1.getMaxAvgAndhValueParent() - o2.getMaxAvgAndhValueParent());
-				break;					
+				return c.getMaxAvgAndhValueParent();
+				
+			/* No preference among the connectors. */
+			case NONE:
+				return 0;
 				
 			default:
 				assert false;
-				break;
+				return 0;
 		}
-		return result;
+	}
+
+	/**
+	 * Compare two connectors by the rank keys computed by
+	 * {@link #computeRankKey(SearchConnector)}.
+	 */
+	@Override
+	public int compare(SearchConnector o1, SearchConnector o2) {
+		return Double.compare(o1.getRankKey(), o2.getRankKey());
 	}
 }
@@ -1,5 +1,7 @@
 package paladinus.search;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -21,7 +23,11 @@ public class SearchNode extends AbstractNode implements Comparable<SearchNode> {
 	
 	protected double heuristic;
 
-	protected SearchNode parent;
+	/**
+	 * Node which generated this node last. Volatile, since the workers of the
+	 * parallel search expand the parents of shared nodes.
+	 */
+	protected volatile SearchNode parent;
 
 	private int depth = -1;
 	
@@ -43,9 +49,10 @@ public class SearchNode extends AbstractNode implements Comparable<SearchNode> {
 	protected Set<SearchConnector> incomingConnectors = new LinkedHashSet<SearchConnector>();
 
 	/**
-	 * Outgoing connectors.
+	 * Outgoing connectors of all applicable operators in operator order, added
+	 * when this node is expanded, or null if the node was never expanded.
 	 */
-	protected Set<SearchConnector> outgoingConnectors = new LinkedHashSet<SearchConnector>();
+	protected List<SearchConnector> outgoingConnectors = null;
 
 	/**
 	 * The outgoing connector currently marked.
@@ -53,14 +60,23 @@ public class SearchNode extends AbstractNode implements Comparable<SearchNode> {
 	protected SearchConnector markedConnector = null;
 	
 	public SearchNode(State state, HeuristicSearch searchManager, int depth, int alternatingIndex) {
-		super(state);
+		this(state, searchManager, depth, alternatingIndex, searchManager.getHeuristic() != null ? searchManager.getHeuristic().getHeuristic(state) : 0);
+	}
+	
+	/**
+	 * Create a node whose heuristic value was already computed, e.g. in a batch
+	 * with the other children of its parent.
+	 *
+	 * @param heuristic heuristic value of the state
+	 */
+	public SearchNode(State state, HeuristicSearch searchManager, int depth, int alternatingIndex, double heuristic) {
+		super(state, searchManager.nextNodeIndex());
 		
 		assert depth >= 0;
 		
 		this.depth = depth;
 		
-		if(searchManager.getHeuristic() != null)
-			this.heuristic = searchManager.getHeuristic().getHeuristic(state);
+		this.heuristic = heuristic;
 		
 		if (this.state.isGoalState()) {
 			this.setGoalNode(true);
@@ -104,7 +120,7 @@ public class SearchNode extends AbstractNode implements Comparable<SearchNode> {
 	}
 	
 	private double getHeuristicNoveltyBF(Pair<Integer, Integer> fact, ExplicitState state) {
-		if(state.getVarsPropositions().contains(fact)) {
+		if(state.holds(fact.first, fact.second)) {
 			return this.getNoveltyOfFact(fact, state) - state.getHeuristic();			
 		}
 		return Double.NEGATIVE_INFINITY;
@@ -112,9 +128,9 @@ public class SearchNode extends AbstractNode implements Comparable<SearchNode> {
 	
 	private double getNoveltyOfFact(Pair<Integer, Integer> fact, ExplicitState state) {
 		double minH = Double.POSITIVE_INFINITY;
-		if(state.getVarsPropositions().contains(fact)) {
+		if(state.holds(fact.first, fact.second)) {
 			for(ExplicitState s: this.statesSeenSoFar) {
-				if(s.getVarsPropositions().contains(fact)) {
+				if(s.holds(fact.first, fact.second)) {
 					if(s.getHeuristic() < minH)
 						minH = s.getHeuristic();
 				}
@@ -168,8 +184,28 @@ public class SearchNode extends AbstractNode implements Comparable<SearchNode> {
 		return incomingConnectors;
 	}
 	
-	public Set<SearchConnector> getOutgoingConnectors() {
-		return outgoingConnectors;
+	public List<SearchConnector> getOutgoingConnectors() {
+		return outgoingConnectors == null ? Collections.<SearchConnector>emptyList() : outgoingConnectors;
+	}
+	
+	/**
+	 * Test if this node was expanded, i.e., if its outgoing connectors were
+	 * generated.
+	 * 
+	 * @return true iff the node was expanded
+	 */
+	public boolean isExpanded() {
+		return outgoingConnectors != null;
+	}
+	
+	/**
+	 * Mark this node as expanded before the connectors of its applicable operators
+	 * are created. Each connector adds itself to the outgoing connectors.
+	 * 
+	 * @param numConnectors number of connectors which will be created
+	 */
+	public void setExpanded(int numConnectors) {
+		outgoingConnectors = new ArrayList<SearchConnector>(numConnectors);
 	}
 	
 	public SearchConnector getMarkedConnector() {
@@ -0,0 +1,100 @@
+package paladinus.search;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Set of search nodes which only grows between snapshots and can be rolled back
+ * to a snapshot in time proportional to the number of nodes added since. The
+ * members are stored in a bit set over the node indices and, in insertion order,
+ * on a trail. A snapshot is the current trail length.
+ */
+public class TrailedNodeSet extends AbstractSet<SearchNode> {
+
+	private long[] bits = new long[16];
+
+	private SearchNode[] trail = new SearchNode[64];
+
+	private int size = 0;
+
+	@Override
+	public boolean contains(Object o) {
+		if (!(o instanceof SearchNode))
+			return false;
+		int index = ((SearchNode) o).index;
+		int word = index >>> 6;
+		return word < bits.length && (bits[word] & (1L << index)) != 0;
+	}
+
+	@Override
+	public boolean add(SearchNode node) {
+		int index = node.index;
+		int word = index >>> 6;
+		if (word >= bits.length)
+			bits = Arrays.copyOf(bits, Math.max(bits.length * 2, word + 1));
+		if ((bits[word] & (1L << index)) != 0)
+			return false;
+		bits[word] |= 1L << index;
+		if (size == trail.length)
+			trail = Arrays.copyOf(trail, size * 2);
+		trail[size++] = node;
+		return true;
+	}
+
+	/**
+	 * Take a snapshot of the set.
+	 * 
+	 * @return snapshot to be passed to {@link #rollback(int)}
+	 */
+	public int mark() {
+		return size;
+	}
+
+	/**
+	 * Remove all nodes added after the given snapshot was taken.
+	 * 
+	 * @param mark snapshot
+	 */
+	public void rollback(int mark) {
+		assert mark <= size;
+		while (size > mark) {
+			SearchNode node = trail[--size];
+			trail[size] = null;
+			bits[node.index >>> 6] &= ~(1L << node.index);
+		}
+	}
+
+	@Override
+	public void clear() {
+		rollback(0);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Iterate over the nodes in insertion order.
+	 */
+	@Override
+	public Iterator<SearchNode> iterator() {
+		return new Iterator<SearchNode>() {
+			private int next = 0;
+
+			@Override
+			public boolean hasNext() {
+				return next < size;
+			}
+
+			@Override
+			public SearchNode next() {
+				if (next >= size)
+					throw new NoSuchElementException();
+				return trail[next++];
+			}
+		};
+	}
+}
@@ -1,24 +1,23 @@
 package paladinus.search.dfs;
 
-import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.PriorityQueue;
 import java.util.Set;
 
-import paladinus.Global;
 import paladinus.heuristic.Heuristic;
 import paladinus.problem.Problem;
 import paladinus.search.HeuristicSearch;
+import paladinus.search.NodeIndexSet;
 import paladinus.search.SearchConnector;
 import paladinus.search.SearchConnector.EvaluationFunctionCriterion;
 import paladinus.search.SearchConnectorComparator;
 import paladinus.search.SearchFlag;
 import paladinus.search.SearchNode;
+import paladinus.search.TrailedNodeSet;
 import paladinus.search.policy.Policy;
 import paladinus.state.Operator;
 import paladinus.state.State;
@@ -34,7 +33,7 @@ import paladinus.util.Pair;
  */
 public class DepthFirstSearch extends HeuristicSearch {
 	
-	public static boolean DEBUG = Global.options.debug();
+	protected final boolean DEBUG = problem.getContext().getOptions().debug();
 	
 	protected int alternatingIndex = 0;
 	
@@ -42,9 +41,9 @@ public class DepthFirstSearch extends HeuristicSearch {
 	
 	protected SearchFlag searchStatus = SearchFlag.NO_POLICY;
 	
-	protected Set<SearchNode> closedDeadEndsNodes = new HashSet<>();
+	protected NodeIndexSet closedDeadEndsNodes = new NodeIndexSet();
 	
-	protected Set<SearchNode> closedVisitedNodes = new HashSet<>();
+	protected NodeIndexSet closedVisitedNodes = new NodeIndexSet();
 	
 	protected Set<SearchNode> closedSolvedNodes = new HashSet<>();
 	
@@ -55,7 +54,35 @@ public class DepthFirstSearch extends HeuristicSearch {
 	
 	protected int NUMBER_ITERATIONS = 0;
 	
-	protected Map<BigInteger, Double> stateNodeMapHValue = new HashMap<BigInteger, Double>();
+	protected double NEW_POLICY_BOUND = 0;
+	
+	/**
+	 * Stack of the search frames, reused between searches.
+	 */
+	private final List<SearchFrame> frames = new ArrayList<>();
+	
+	private SearchConnectorComparator connectorComparator;
+	
+	/**
+	 * Whether new nodes are evaluated from the state and operator they were generated by.
+	 */
+	private final boolean incrementalHeuristic = problem.getContext().getOptions().incrementalHeuristic();
+	
+	/**
+	 * Scratch list for sorting the children of cached connectors.
+	 */
+	private final List<SearchNode> sortedChildren = new ArrayList<>();
+	
+	/**
+	 * Result of the last finished call of the search.
+	 */
+	private SearchFlag resultFlag;
+	
+	/**
+	 * Whether the last finished call found a dead end only because connectors
+	 * below the node were skipped by the policy bound.
+	 */
+	private boolean resultBoundDependent;
 	
 	public DepthFirstSearch(Problem problem, Heuristic heuristic, String actionSelection, String criterion) {
 		super(problem, heuristic);
@@ -78,108 +105,369 @@ public class DepthFirstSearch extends HeuristicSearch {
 	@Override
 	public void doIteration() {}
 	
-	protected Pair<SearchFlag, Set<SearchNode>> doSearch(SearchNode node, Set<SearchNode> closedSolved) {
+	/**
+	 * Search for a policy below the given node. The search is driven by an
+	 * explicit stack of frames instead of recursion, so its depth is not limited
+	 * by the thread stack. Each frame holds the state of one call of the
+	 * recursive formulation: the node, the closed-solved set passed to it, the
+	 * remaining connectors and the connector whose children are being explored.
+	 * Frames are reused by later calls at the same depth.
+	 * 
+	 * All calls share one closed-solved set. Instead of copying the set for each
+	 * connector, a connector takes a snapshot of it and rolls the set back to the
+	 * snapshot if it fails, which discards the nodes solved below it.
+	 * 
+	 * Connectors whose evaluation exceeds the policy bound are skipped and the
+	 * smallest exceeding value is recorded in NEW_POLICY_BOUND. A bound of
+	 * infinity disables this check.
+	 * 
+	 * @param root root node of the search
+	 * @param closedSolved nodes known to be solved
+	 * @param policySize size of the policy above the root
+	 * @param policyBound bound on the policy size
+	 * @return search flag of the root and the nodes known to be solved
+	 */
+	protected Pair<SearchFlag, Set<SearchNode>> search(SearchNode root, TrailedNodeSet closedSolved, double policySize, double policyBound) {
+		return this.search(root, closedSolved, policySize, policyBound, null);
+	}
+	
+	/**
+	 * Search for a policy below the given node, considering only the given
+	 * connectors of the root.
+	 * 
+	 * @param root root node of the search
+	 * @param closedSolved nodes known to be solved
+	 * @param policySize size of the policy above the root
+	 * @param policyBound bound on the policy size
+	 * @param rootConnectors ranked connectors of the root to explore, or null to
+	 *                       explore all of them
+	 * @return search flag of the root and the nodes known to be solved
+	 */
+	protected Pair<SearchFlag, Set<SearchNode>> search(SearchNode root, TrailedNodeSet closedSolved, double policySize, double policyBound, List<SearchConnector> rootConnectors) {
+		int top = 0;
+		SearchFrame frame = this.getFrame(top);
+		boolean expanded = this.enterNode(frame, root, closedSolved, policySize, rootConnectors);
+		while (true) {
+			if (expanded) {
+				SearchNode child = this.nextChild(frame, policyBound);
+				if (child != null) {
+					SearchFrame childFrame = this.getFrame(++top);
+					expanded = this.enterNode(childFrame, child, closedSolved, frame.policySize + 1, null);
+					frame = childFrame;
+					continue;
+				}
+				frame.clear();
+			}
+			/* The call of the top frame finished with resultFlag. */
+			if (this.resultFlag == SearchFlag.TIMEOUT) {
+				for (int i = 0; i <= top; i++)
+					this.frames.get(i).clear();
+				return new Pair<SearchFlag, Set<SearchNode>>(SearchFlag.TIMEOUT, closedSolved);
+			}
+			if (top == 0)
+				return new Pair<SearchFlag, Set<SearchNode>>(this.resultFlag, closedSolved);
+			
+			frame = this.frames.get(--top);
+			this.childFinished(frame);
+			expanded = true;
+		}
+	}
+	
+	private SearchFrame getFrame(int depth) {
+		if (depth == this.frames.size())
+			this.frames.add(new SearchFrame());
+		return this.frames.get(depth);
+	}
+	
+	/**
+	 * Enter a node. Returns false if the node is decided without expansion, in
+	 * which case resultFlag holds the result. Otherwise the
+	 * node is expanded into the frame.
+	 */
+	private boolean enterNode(SearchFrame frame, SearchNode node, TrailedNodeSet closedSolved, double policySize, List<SearchConnector> connectors) {
 		if (DEBUG)
-			dumpStateSpace();
+			this.dumpSearchSpace();
 		
-		if(timeout())
-			return new Pair<SearchFlag, Set<SearchNode>>(SearchFlag.TIMEOUT, null);
+		if (this.recursionLimitReached())
+			return this.finishDeadEnd(true);
 		
-		RECURSION_COUNTER++;
+		if (timeout())
+			return this.finish(SearchFlag.TIMEOUT);
+		
+		this.countRecursion();
 		
-		if(node.isGoalNode() || closedSolved.contains(node)) {
+		if (node.isGoalNode() || closedSolved.contains(node)) {
 			closedSolved.addAll(this.closedVisitedNodes);
-			return new Pair<SearchFlag, Set<SearchNode>>(SearchFlag.GOAL, closedSolved);
-		} else if (node.isDeadEndNode() || this.closedDeadEndsNodes.contains(node)) {
-			return new Pair<SearchFlag, Set<SearchNode>>(SearchFlag.DEAD_END, closedSolved);
+			return this.finish(SearchFlag.GOAL);
+		} else if (this.pruneDeadEnds() && node.isDeadEndNode()) {
+			return this.finishDeadEnd(false);
+		} else if (this.pruneDeadEnds() && this.isClosedDeadEnd(node)) {
+			return this.finishDeadEnd(this.closedDeadEndDependsOnBound(node));
 		} else if (this.closedVisitedNodes.contains(node)) {
-			return new Pair<SearchFlag, Set<SearchNode>>(SearchFlag.VISITED, closedSolved);
+			return this.finish(SearchFlag.VISITED);
 		}
 		this.closedVisitedNodes.add(node);
 		
-		PriorityQueue<SearchConnector> connectors = this.getNodeConnectors(node);
+		frame.node = node;
+		frame.closedSolved = closedSolved;
+		frame.policySize = policySize;
+		frame.connectors = connectors != null ? connectors : this.getNodeConnectors(node);
+		frame.nextConnector = 0;
+		frame.minConnector = frame.connectors.isEmpty() ? null : frame.connectors.get(0);
+		frame.allConnectorsDeadEnds = true;
+		frame.anyConnectorExplored = false;
+		frame.boundDependent = false;
+		frame.connector = null;
 		
-		NODE_EXPANSIONS++;
-
-		boolean allConnectorsDeadEnds = true;
-		
-		while(!connectors.isEmpty()) {
-			SearchConnector c = connectors.poll();
-			
-			if(node.equals(this.initialNode))
-				this.estimatedValueBestConnectorFromInitialState = c.getEstimatedCost();
-
-			Set<SearchNode> pathsFound = new HashSet<>();
-			
-			boolean newGoalPathFound = true;
-			
-			boolean connectorDeadEnd = false;
-			
-			Set<SearchNode> copyClosedSolved = new HashSet<>(closedSolved);
-			
-			while(newGoalPathFound == true) {
-				newGoalPathFound = false;
-				Set<SearchNode> findingGoalPath = new HashSet<>();
-				
-				for(SearchNode s: c.getChildren()) {
-					if(!pathsFound.contains(s))
-						findingGoalPath.add(s);
-				}
-				for(SearchNode s: findingGoalPath) {
-					Pair<SearchFlag, Set<SearchNode>> resultSearch = doSearch(s, copyClosedSolved);
-					SearchFlag flag = resultSearch.first;
-					copyClosedSolved = new HashSet<SearchNode>(resultSearch.second);
-					
-					if(flag == SearchFlag.DEAD_END) {
-						newGoalPathFound = false;
-						connectorDeadEnd = true;
-						break;
-					}
-					if(flag == SearchFlag.GOAL){
-						newGoalPathFound = true;
-						pathsFound.add(s);
-					}
+		this.countNodeExpansion();
+		return true;
+	}
+	
+	private boolean finish(SearchFlag flag) {
+		this.resultFlag = flag;
+		return false;
+	}
+	
+	private boolean finishDeadEnd(boolean boundDependent) {
+		this.resultBoundDependent = boundDependent;
+		return this.finish(SearchFlag.DEAD_END);
+	}
+	
+	/**
+	 * Continue the exploration of an expanded node. Returns the next child to be
+	 * searched, or null if the node is finished, in which case resultFlag holds
+	 * the result.
+	 */
+	private SearchNode nextChild(SearchFrame frame, double policyBound) {
+		while (true) {
+			if (frame.connector == null) {
+				if (frame.nextConnector == frame.connectors.size()) {
+					this.finishNode(frame);
+					return null;
 				}
-				if(pathsFound.size() == c.getChildren().size()) {
-					this.closedVisitedNodes.remove(node);
-					node.setMarkedConnector(c);
-					return new Pair<SearchFlag, Set<SearchNode>>(SearchFlag.GOAL, copyClosedSolved);
+				SearchConnector c = frame.connectors.get(frame.nextConnector++);
+				
+				if (frame.node.equals(this.initialNode))
+					this.estimatedValueBestConnectorFromInitialState = c.getEstimatedCost();
+				
+				if (!this.withinPolicyBound(c, frame.closedSolved, frame.policySize, policyBound)) {
+					frame.boundDependent = true;
+					continue;
 				}
-				if(!connectorDeadEnd)
-					allConnectorsDeadEnds = false;
+				
+				frame.anyConnectorExplored = true;
+				frame.connector = c;
+				frame.pathsFound.clear();
+				frame.connectorDeadEnd = false;
+				frame.closedSolvedMark = frame.closedSolved.mark();
+				this.startRound(frame);
+			}
+			if (frame.childIndex < frame.childOrder.size())
+				return frame.childOrder.get(frame.childIndex++);
+			
+			/* All children of this round are searched. */
+			SearchConnector c = frame.connector;
+			if (frame.pathsFound.size() == c.getChildren().size()) {
+				this.closedVisitedNodes.remove(frame.node);
+				this.connectorSolved(frame.node, c);
+				this.markConnector(frame.node, c);
+				this.finish(SearchFlag.GOAL);
+				return null;
+			}
+			if (!frame.connectorDeadEnd)
+				frame.allConnectorsDeadEnds = false;
+			
+			if (frame.newGoalPathFound) {
+				this.startRound(frame);
+			} else {
+				frame.connector = null;
+				frame.closedSolved.rollback(frame.closedSolvedMark);
 			}
 		}
-		if(allConnectorsDeadEnds) {
-			this.closedVisitedNodes.remove(node);
-			this.closedDeadEndsNodes.add(node);
-			return new Pair<SearchFlag, Set<SearchNode>>(SearchFlag.DEAD_END, closedSolved);
-		}
-		this.closedVisitedNodes.remove(node);
-		return new Pair<SearchFlag, Set<SearchNode>>(SearchFlag.VISITED, closedSolved);
 	}
 	
-	protected PriorityQueue<SearchConnector> getNodeConnectors(SearchNode node) {
-		PriorityQueue<SearchConnector> connectors = this.getInstantiatedPriorityQueueOfConnectors();
-		List<Operator> applicableOps = node.state.getApplicableOps(this.getProblem().getOperators());
-		for(Operator op: applicableOps) {
-			Set<State> successorStates = node.state.apply(op);
-			assert !successorStates.isEmpty();
-			List<SearchNode> children = new ArrayList<SearchNode>();
-			for (State successor : successorStates) {
-				SearchNode newNode = this.lookupAndInsertNode(successor, (int) (node.getDepth() + op.getCost()));
-				newNode.setParent(node);
-				children.add(newNode);
+	/**
+	 * Start a new round over the children of the current connector for which no
+	 * goal path has been found yet. The children are visited in the iteration
+	 * order of a hash set of them.
+	 */
+	private void startRound(SearchFrame frame) {
+		frame.newGoalPathFound = false;
+		frame.childIndex = 0;
+		frame.childOrder.clear();
+		List<SearchNode> children = frame.connector.getChildren();
+		if (children.size() - frame.pathsFound.size() == 1) {
+			for (SearchNode s : children) {
+				if (!frame.pathsFound.contains(s))
+					frame.childOrder.add(s);
 			}
-			Collections.sort(children);
-			SearchConnector connector = new SearchConnector(node, children, op, this.evaluationFunctionCriterion);
+			return;
+		}
+		Set<SearchNode> findingGoalPath = new HashSet<>();
+		for (SearchNode s : children) {
+			if (!frame.pathsFound.contains(s))
+				findingGoalPath.add(s);
+		}
+		frame.childOrder.addAll(findingGoalPath);
+	}
+	
+	/**
+	 * Process the result of the child search of the given frame.
+	 */
+	private void childFinished(SearchFrame frame) {
+		SearchNode child = frame.childOrder.get(frame.childIndex - 1);
+		if (this.resultFlag == SearchFlag.DEAD_END && this.pruneDeadEnds()) {
+			frame.newGoalPathFound = false;
+			frame.connectorDeadEnd = true;
+			frame.boundDependent |= this.resultBoundDependent;
+			frame.childIndex = frame.childOrder.size();
+		} else if (this.resultFlag == SearchFlag.GOAL) {
+			frame.newGoalPathFound = true;
+			frame.pathsFound.add(child);
+		}
+	}
+	
+	/**
+	 * Finish a node all of whose connectors have been explored without success.
+	 */
+	private void finishNode(SearchFrame frame) {
+		if (this.pruneDeadEnds() && frame.allConnectorsDeadEnds) {
+			this.closedVisitedNodes.remove(frame.node);
+			this.closeDeadEnd(frame.node, frame.boundDependent);
+			this.finishDeadEnd(frame.boundDependent);
+			return;
+		}
+		this.nodeNotSolved(frame.node, frame.minConnector, frame.anyConnectorExplored);
+		this.closedVisitedNodes.remove(frame.node);
+		this.finish(SearchFlag.VISITED);
+	}
+	
+	/**
+	 * Check whether the connector fits into the policy bound. Otherwise lower
+	 * NEW_POLICY_BOUND to the smallest bound under which it would fit.
+	 * 
+	 * @param c connector of a node
+	 * @param closedSolved nodes known to be solved
+	 * @param policySize size of the policy above the node
+	 * @param policyBound bound on the policy size
+	 * @return true iff the connector must be explored
+	 */
+	protected boolean withinPolicyBound(SearchConnector c, Set<SearchNode> closedSolved, double policySize, double policyBound) {
+		double evaluation = c.getEvaluationFunctionAccordingToCriterion();
+		if (policySize + 1 + evaluation > policyBound && closedSolved.size() == 0) {
+			if (policySize + 1 + evaluation < this.NEW_POLICY_BOUND)
+				this.NEW_POLICY_BOUND = policySize + 1 + evaluation;
+			return false;
+		} else if (policySize + 1 > policyBound) {
+			if (policySize + 1 < this.NEW_POLICY_BOUND)
+				this.NEW_POLICY_BOUND = policySize + 1;
+			return false;
+		}
+		return true;
+	}
+	
+	protected boolean isClosedDeadEnd(SearchNode node) {
+		return this.closedDeadEndsNodes.contains(node);
+	}
+	
+	/**
+	 * Whether a closed dead-end node was found to be a dead end only because of
+	 * the policy bound. The closed dead ends of this search are not told apart,
+	 * so they are taken to depend on the bound.
+	 */
+	protected boolean closedDeadEndDependsOnBound(SearchNode node) {
+		return true;
+	}
+	
+	/**
+	 * Close a node found to be a dead end for the rest of the iteration.
+	 * 
+	 * @param node dead-end node
+	 * @param boundDependent whether connectors below the node were skipped by the
+	 *                       policy bound, so that the node may not be a dead end
+	 *                       under a larger bound or at a smaller policy size
+	 */
+	protected void closeDeadEnd(SearchNode node, boolean boundDependent) {
+		this.closedDeadEndsNodes.add(node);
+	}
+	
+	/**
+	 * Mark the connector by which the node is solved.
+	 * 
+	 * @param node solved node
+	 * @param connector connector leading to the solution
+	 */
+	protected void markConnector(SearchNode node, SearchConnector connector) {
+		node.setMarkedConnector(connector);
+	}
+	
+	protected void countRecursion() {
+		RECURSION_COUNTER++;
+	}
+	
+	protected void countNodeExpansion() {
+		NODE_EXPANSIONS++;
+	}
+	
+	/**
+	 * Whether dead-end children make their connector fail and nodes all of whose
+	 * connectors fail are closed as dead ends.
+	 * 
+	 * @return true iff dead ends are pruned
+	 */
+	protected boolean pruneDeadEnds() {
+		return true;
+	}
+	
+	/**
+	 * Whether the search must stop at the current node and report it as a dead end.
+	 * 
+	 * @return true iff the recursion limit is reached
+	 */
+	protected boolean recursionLimitReached() {
+		return false;
+	}
+	
+	/**
+	 * Called when a node is solved by the given connector.
+	 * 
+	 * @param node solved node
+	 * @param connector connector leading to the solution
+	 */
+	protected void connectorSolved(SearchNode node, SearchConnector connector) {}
+	
+	/**
+	 * Called when the search of a node finished without solving it.
+	 * 
+	 * @param node expanded node
+	 * @param minConnector best connector of the node, or null if it has none
+	 * @param anyConnectorExplored whether any connector was within the bound
+	 */
+	protected void nodeNotSolved(SearchNode node, SearchConnector minConnector, boolean anyConnectorExplored) {}
+	
+	protected void dumpSearchSpace() {
+		this.dumpStateSpace();
+	}
+	
+	/**
+	 * Get the connectors of the node which are worth exploring, ranked by the
+	 * action selection criterion. The rank key of each connector is computed
+	 * once and ties keep the operator order.
+	 * 
+	 * @param node node to expand
+	 * @return ranked connectors
+	 */
+	protected List<SearchConnector> getNodeConnectors(SearchNode node) {
+		List<SearchConnector> connectors = new ArrayList<SearchConnector>();
+		for(SearchConnector connector: this.getExpandedConnectors(node)) {
+			connector.setVisitedChildren(Collections.emptySet());
 			if(connector.getAverageChildEstimate() == Double.POSITIVE_INFINITY)
 				continue;
 			
 			connectors.add(connector);
 		}
-		PriorityQueue<SearchConnector> priorityQueueConnectors = this.getInstantiatedPriorityQueueOfConnectors();
 		if(connectors.size() == 0)
-			return priorityQueueConnectors;
+			return connectors;
 		
 		double avgBranchingFactor = 0;
 		double sumBranchingFactor = 0;
@@ -188,17 +476,140 @@ public class DepthFirstSearch extends HeuristicSearch {
 		
 		avgBranchingFactor = (sumBranchingFactor / connectors.size());
 		
+		SearchConnectorComparator comparator = this.getConnectorComparator();
 		for(SearchConnector connector: connectors) {
 			connector.setAvgBranchingFactor(avgBranchingFactor);
-			priorityQueueConnectors.add(connector);
+			comparator.computeRankKey(connector);
+		}
+		connectors.sort(comparator);
+		return connectors;
+	}
+	
+	/**
+	 * Get the connectors of all applicable operators of the node. They are
+	 * generated at the first expansion of the node and kept as its outgoing
+	 * connectors, so later expansions generate no states and only refresh the
+	 * parent links and the order of the children, which depends on their current
+	 * heuristic values.
+	 */
+	protected List<SearchConnector> getExpandedConnectors(SearchNode node) {
+		if(!node.isExpanded())
+			return this.expandNode(node, this.heuristic);
+		List<SearchConnector> expandedConnectors = node.getOutgoingConnectors();
+		for(SearchConnector connector: expandedConnectors) {
+			this.sortedChildren.clear();
+			for(SearchNode child: connector.getSuccessors()) {
+				child.setParent(node);
+				this.sortedChildren.add(child);
+			}
+			Collections.sort(this.sortedChildren);
+			if(!this.sortedChildren.equals(connector.getChildren()))
+				connector.setChildren(new ArrayList<SearchNode>(this.sortedChildren));
+		}
+		return expandedConnectors;
+	}
+	
+	/**
+	 * Generate the connectors of all applicable operators of a node which was
+	 * never expanded. They are kept as the outgoing connectors of the node. The new children are evaluated
+	 * in one batch by the given heuristic.
+	 *
+	 * @param node node to expand
+	 * @param heuristic heuristic evaluating the new children
+	 * @return connectors in operator order
+	 */
+	protected List<SearchConnector> expandNode(SearchNode node, Heuristic heuristic) {
+		List<Operator> applicableOps = node.state.getApplicableOps(this.getProblem().getOperators());
+		List<Set<State>> successorStates = new ArrayList<Set<State>>(applicableOps.size());
+		
+		/* Evaluate the states of all new children in one batch. */
+		List<State> batchStates = new ArrayList<State>();
+		List<Operator> batchOps = new ArrayList<Operator>();
+		Map<State, Integer> batched = new HashMap<State, Integer>();
+		for(Operator op: applicableOps) {
+			Set<State> states = node.state.apply(op);
+			assert !states.isEmpty();
+			successorStates.add(states);
+			for(State successor: states) {
+				if(this.findNode(successor) == null && !batched.containsKey(successor)) {
+					batched.put(successor, batchStates.size());
+					batchStates.add(successor);
+					batchOps.add(op);
+				}
+			}
+		}
+		double[] values = new double[batchStates.size()];
+		if(heuristic != null && !batchStates.isEmpty()) {
+			if(this.incrementalHeuristic)
+				heuristic.getHeuristics(batchStates, node.state, batchOps, values);
+			else heuristic.getHeuristics(batchStates, null, null, values);
 		}
-		return priorityQueueConnectors;
+		return this.linkChildren(node, applicableOps, successorStates, batched, values);
 	}
 	
-	protected PriorityQueue<SearchConnector> getInstantiatedPriorityQueueOfConnectors(){
-		if(Global.options.useClosedVistedNodes())
-			return new PriorityQueue<>(new SearchConnectorComparator(this.actionSelectionCriterion, this.closedVisitedNodes));
-		else return new PriorityQueue<>(new SearchConnectorComparator(this.actionSelectionCriterion));
+	/**
+	 * Insert the nodes of the children of a node being expanded and create its
+	 * connectors, which are added to the connector sets of the node and of its
+	 * children.
+	 *
+	 * @param node node being expanded
+	 * @param applicableOps applicable operators of the node
+	 * @param successorStates successor states of each operator
+	 * @param batched index in the values of each state evaluated for the expansion
+	 * @param values heuristic values of the evaluated states
+	 * @return connectors in operator order
+	 */
+	protected List<SearchConnector> linkChildren(SearchNode node, List<Operator> applicableOps, List<Set<State>> successorStates, Map<State, Integer> batched, double[] values) {
+		node.setExpanded(applicableOps.size());
+		for(int i = 0; i < applicableOps.size(); i++) {
+			Operator op = applicableOps.get(i);
+			List<SearchNode> successors = new ArrayList<SearchNode>(successorStates.get(i).size());
+			for (State successor : successorStates.get(i)) {
+				SearchNode newNode = this.findNode(successor);
+				if(newNode == null)
+					newNode = this.insertChild(successor, (int) (node.getDepth() + op.getCost()), values[batched.get(successor)]);
+				else if (DEBUG)
+					System.out.println("Known node (index = " + newNode.index + "): " + newNode);
+				newNode.setParent(node);
+				successors.add(newNode);
+			}
+			List<SearchNode> children = new ArrayList<SearchNode>(successors);
+			Collections.sort(children);
+			SearchConnector connector = new SearchConnector(node, children, op, this.evaluationFunctionCriterion);
+			connector.setSuccessors(successors);
+		}
+		return node.getOutgoingConnectors();
+	}
+	
+	/**
+	 * Get the node of a state, or null if the state has no node yet.
+	 *
+	 * @param state state
+	 * @return node of the state or null
+	 */
+	protected SearchNode findNode(State state) {
+		return this.stateNodeMap.get(state);
+	}
+	
+	/**
+	 * Insert the node of a new child whose heuristic value is already known.
+	 *
+	 * @param state state of the child
+	 * @param depth depth of the child
+	 * @param heuristic heuristic value of the state
+	 * @return node of the state
+	 */
+	protected SearchNode insertChild(State state, int depth, double heuristic) {
+		return this.insertNode(new SearchNode(state, this, depth, alternatingIndex, heuristic));
+	}
+	
+	protected SearchConnectorComparator getConnectorComparator() {
+		if(this.connectorComparator == null) {
+			if(problem.getContext().getOptions().useClosedVistedNodes())
+				this.connectorComparator = new SearchConnectorComparator(this.actionSelectionCriterion, this.closedVisitedNodes);
+			else this.connectorComparator = new SearchConnectorComparator(this.actionSelectionCriterion);
+		}
+		return this.connectorComparator;
 	}
 
 	@Override
@@ -228,9 +639,9 @@ public class DepthFirstSearch extends HeuristicSearch {
 		this.initialNode = this.lookupAndInsertNode(problem.getSingleInitialState(), 0);
 		assert ((SearchNode) this.initialNode).getDepth() == 0;
 
-		Set<SearchNode> closedSolved = new HashSet<>();
+		TrailedNodeSet closedSolved = new TrailedNodeSet();
 		
-		Pair<SearchFlag, Set<SearchNode>> resultSearch = doSearch((SearchNode) this.initialNode, closedSolved);
+		Pair<SearchFlag, Set<SearchNode>> resultSearch = search((SearchNode) this.initialNode, closedSolved, 0, Double.POSITIVE_INFINITY);
 
 		SearchFlag flag = resultSearch.first;
 		this.closedSolvedNodes = resultSearch.second;
@@ -259,23 +670,10 @@ public class DepthFirstSearch extends HeuristicSearch {
 	public SearchNode lookupAndInsertNode(State state, int depth) {
 		assert depth >= 0;
 		SearchNode node;
-		if (!this.stateNodeMap.containsKey(state.uniqueID)) {
-			node = new SearchNode(state, this, depth, alternatingIndex);
-			
-			/*
-			 * TODO: Novelty.
-			node.setNodesSeenSoFar(new HashSet<>(this.stateNodeMap.values()));
-			node.setNumberStateVariables(this.problem.numStateVars);
-			node.computeBinaryNovelty();
-			node.computeQuantifiedNovel();
-			*/
-			
-			this.stateNodeMap.put(state.uniqueID, node);
-			this.stateNodeMapHValue.put(state.uniqueID, node.getHeuristic());
-			if (DEBUG)
-				System.out.println("New node (index = " + node.index + "): " + node);
+		node = this.stateNodeMap.get(state);
+		if (node == null) {
+			node = this.insertNode(new SearchNode(state, this, depth, alternatingIndex));
 		} else {
-			node = stateNodeMap.get(state.uniqueID);
 			if (!state.equals(node.state))
 				assert false;
 			if (DEBUG)
@@ -284,6 +682,28 @@ public class DepthFirstSearch extends HeuristicSearch {
 		return node;
 	}
 	
+	/**
+	 * Insert the node of a new state.
+	 *
+	 * @param node new node
+	 * @return the node
+	 */
+	protected SearchNode insertNode(SearchNode node) {
+		assert this.stateNodeMap.get(node.state) == null;
+		/*
+		 * TODO: Novelty.
+		node.setNodesSeenSoFar(new HashSet<>(this.stateNodeMap.values()));
+		node.setNumberStateVariables(this.problem.numStateVars);
+		node.computeBinaryNovelty();
+		node.computeQuantifiedNovel();
+		*/
+		
+		this.stateNodeMap.put(node.state, node);
+		if (DEBUG)
+			System.out.println("New node (index = " + node.index + "): " + node);
+		return node;
+	}
+	
 	private void setEvaluationFunctionCriterion(String criterion) {
 		if(criterion == null) 
 			return;
@@ -390,9 +810,75 @@ public class DepthFirstSearch extends HeuristicSearch {
 		System.out.println("\n# Total Nodes               = " + NODES);
 		System.out.println("# Number of Expansions      = "   + RECURSION_COUNTER);
 		System.out.println("# Number of Node Expansions = "   + NODE_EXPANSIONS);
-		System.out.println("# Policy Size               = "   + getPolicy().size());
+		Policy policy = getPolicy();
+		if (policy != null)
+			System.out.println("# Policy Size               = "   + policy.size());
 		
 		if (simulatePlan)
 			simulatePlan();
 	}
-}
\ No newline at end of file
+	
+	/**
+	 * State of one node on the search stack.
+	 */
+	private static final class SearchFrame {
+		
+		SearchNode node;
+		
+		TrailedNodeSet closedSolved;
+		
+		double policySize;
+		
+		/**
+		 * Ranked connectors and the index of the next one to explore.
+		 */
+		List<SearchConnector> connectors;
+		
+		int nextConnector;
+		
+		SearchConnector minConnector;
+		
+		boolean allConnectorsDeadEnds;
+		
+		boolean anyConnectorExplored;
+		
+		/**
+		 * Whether a connector of the node was skipped by the policy bound or is a
+		 * dead end only because of it.
+		 */
+		boolean boundDependent;
+		
+		/**
+		 * Connector whose children are being searched, or null.
+		 */
+		SearchConnector connector;
+		
+		/**
+		 * Snapshot of the closed-solved set taken before the current connector.
+		 */
+		int closedSolvedMark;
+		
+		final Set<SearchNode> pathsFound = new HashSet<>();
+		
+		boolean newGoalPathFound;
+		
+		boolean connectorDeadEnd;
+		
+		/**
+		 * Children of the current round and the index of the next one.
+		 */
+		final List<SearchNode> childOrder = new ArrayList<>();
+		
+		int childIndex;
+		
+		void clear() {
+			this.node = null;
+			this.closedSolved = null;
+			this.connectors = null;
+			this.minConnector = null;
+			this.connector = null;
+			this.pathsFound.clear();
+			this.childOrder.clear();
+		}
+	}
+}
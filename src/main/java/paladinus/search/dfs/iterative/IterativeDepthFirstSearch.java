@@ -1,14 +1,12 @@
 package paladinus.search.dfs.iterative;
 
-import java.util.HashSet;
-import java.util.PriorityQueue;
 import java.util.Set;
 
 import paladinus.heuristic.Heuristic;
 import paladinus.problem.Problem;
-import paladinus.search.SearchConnector;
 import paladinus.search.SearchFlag;
 import paladinus.search.SearchNode;
+import paladinus.search.TrailedNodeSet;
 import paladinus.search.dfs.DepthFirstSearch;
 import paladinus.util.Pair;
 
@@ -22,7 +20,6 @@ import paladinus.util.Pair;
 public class IterativeDepthFirstSearch extends DepthFirstSearch {
 	
 	protected double POLICY_SIZE = 0;
-	protected double NEW_POLICY_BOUND = 0;
 
 	public IterativeDepthFirstSearch(Problem problem, Heuristic heuristic, String strategies, String criterion) {
 		super(problem, heuristic, strategies, criterion);
@@ -78,10 +75,10 @@ public class IterativeDepthFirstSearch extends DepthFirstSearch {
 			this.dumpingCounterStateSpace = 0;
 			this.NUMBER_ITERATIONS++;
 
-			Set<SearchNode> closedSolved = new HashSet<>();
+			TrailedNodeSet closedSolved = new TrailedNodeSet();
 			this.closedVisitedNodes.clear();
 			
-			Pair<SearchFlag, Set<SearchNode>> resultSearch = doIterativeSearch(node, closedSolved, this.POLICY_SIZE, this.POLICY_BOUND);
+			Pair<SearchFlag, Set<SearchNode>> resultSearch = search(node, closedSolved, this.POLICY_SIZE, this.POLICY_BOUND);
 			flag = resultSearch.first;
 			this.closedSolvedNodes = resultSearch.second;
 			
@@ -94,72 +91,14 @@ public class IterativeDepthFirstSearch extends DepthFirstSearch {
 		return flag;
 	}
 	
-	protected Pair<SearchFlag, Set<SearchNode>> doIterativeSearch(SearchNode node, Set<SearchNode> closedSolved, double policySize, double policyBound) {
-		if (DEBUG)
-			dumpStateSpace(this.NUMBER_ITERATIONS);
-		
-		if(timeout())
-			return new Pair<SearchFlag, Set<SearchNode>>(SearchFlag.TIMEOUT, null);
-
-		RECURSION_COUNTER++;
-		
-		if(node.isGoalNode() || closedSolved.contains(node)) {
-			closedSolved.addAll(this.closedVisitedNodes);
-			return new Pair<SearchFlag, Set<SearchNode>>(SearchFlag.GOAL, closedSolved);
-		} else if (this.closedVisitedNodes.contains(node))
-			return new Pair<SearchFlag, Set<SearchNode>>(SearchFlag.VISITED, closedSolved);
-		
-		this.closedVisitedNodes.add(node);
-		
-		PriorityQueue<SearchConnector> connectors = this.getNodeConnectors(node);
-		
-		NODE_EXPANSIONS++;
-		
-		while(!connectors.isEmpty()) {
-			SearchConnector c = connectors.poll();
-			
-			if(policySize + 1 + c.getEvaluationFunctionAccordingToCriterion() > policyBound && closedSolved.size() == 0) {
-				if(policySize + 1 + c.getEvaluationFunctionAccordingToCriterion() < this.NEW_POLICY_BOUND )
-					this.NEW_POLICY_BOUND = policySize + 1 + c.getEvaluationFunctionAccordingToCriterion();
-			} else if(policySize + 1 > policyBound) {
-				if(policySize + 1 < this.NEW_POLICY_BOUND)
-					this.NEW_POLICY_BOUND = policySize + 1;
-			} else {
-				Set<SearchNode> pathsFound = new HashSet<>();
-				
-				boolean newGoalPathFound = true;
-				
-				Set<SearchNode> copyClosedSolved = new HashSet<>(closedSolved);
-				
-				while(newGoalPathFound == true) {
-					newGoalPathFound = false;
-					Set<SearchNode> findingGoalPath = new HashSet<>();
-					
-					for(SearchNode s: c.getChildren()) {
-						if(!pathsFound.contains(s))
-							findingGoalPath.add(s);
-					}
-					for(SearchNode s: findingGoalPath) {
-						Pair<SearchFlag, Set<SearchNode>> resultSearch = doIterativeSearch(s, copyClosedSolved, policySize+1, policyBound);
-						
-						SearchFlag flag = resultSearch.first;
-						copyClosedSolved = new HashSet<SearchNode>(resultSearch.second);
-						
-						if(flag == SearchFlag.GOAL){
-							newGoalPathFound = true;
-							pathsFound.add(s);
-						}
-					}
-					if(pathsFound.size() == c.getChildren().size()) {
-						this.closedVisitedNodes.remove(node);
-						node.setMarkedConnector(c);
-						return new Pair<SearchFlag, Set<SearchNode>>(SearchFlag.GOAL, copyClosedSolved);
-					}
-				}
-			}
-		}
-		this.closedVisitedNodes.remove(node);
-		return new Pair<SearchFlag, Set<SearchNode>>(SearchFlag.VISITED, closedSolved);
+	@Override
+	protected boolean pruneDeadEnds() {
+		return false;
+	}
+	
+	@Override
+	protected void dumpSearchSpace() {
+		this.dumpStateSpace(this.NUMBER_ITERATIONS);
 	}
 	
 	@Override
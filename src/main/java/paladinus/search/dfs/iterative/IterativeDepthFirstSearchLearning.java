@@ -1,7 +1,5 @@
 package paladinus.search.dfs.iterative;
 
-import java.util.HashSet;
-import java.util.PriorityQueue;
 import java.util.Set;
 
 import paladinus.heuristic.Heuristic;
@@ -9,6 +7,7 @@ import paladinus.problem.Problem;
 import paladinus.search.SearchConnector;
 import paladinus.search.SearchFlag;
 import paladinus.search.SearchNode;
+import paladinus.search.TrailedNodeSet;
 import paladinus.search.dfs.DepthFirstSearch;
 import paladinus.util.Pair;
 
@@ -22,7 +21,6 @@ import paladinus.util.Pair;
 public class IterativeDepthFirstSearchLearning extends DepthFirstSearch {
 	
 	protected double POLICY_SIZE = 0;
-	protected double NEW_POLICY_BOUND = 0;
 
 	public IterativeDepthFirstSearchLearning(Problem problem, Heuristic heuristic, String strategies, String criterion) {
 		super(problem, heuristic, strategies, criterion);
@@ -77,10 +75,10 @@ public class IterativeDepthFirstSearchLearning extends DepthFirstSearch {
 			
 			this.NUMBER_ITERATIONS++;
 
-			Set<SearchNode> closedSolved = new HashSet<>();
+			TrailedNodeSet closedSolved = new TrailedNodeSet();
 			this.closedVisitedNodes.clear();
 			
-			Pair<SearchFlag, Set<SearchNode>> resultSearch = doIterativeSearch(node, closedSolved, this.POLICY_SIZE, this.POLICY_BOUND);
+			Pair<SearchFlag, Set<SearchNode>> resultSearch = search(node, closedSolved, this.POLICY_SIZE, this.POLICY_BOUND);
 			flag = resultSearch.first;
 			this.closedSolvedNodes = resultSearch.second;
 			
@@ -94,84 +92,23 @@ public class IterativeDepthFirstSearchLearning extends DepthFirstSearch {
 		return flag;
 	}
 	
-	protected Pair<SearchFlag, Set<SearchNode>> doIterativeSearch(SearchNode node, Set<SearchNode> closedSolved, double policySize, double policyBound) {
-		if (DEBUG)
-			dumpStateSpace();
-		
-		if(timeout())
-			return new Pair<SearchFlag, Set<SearchNode>>(SearchFlag.TIMEOUT, null);
-
-		RECURSION_COUNTER++;
-		
-		if(node.isGoalNode() || closedSolved.contains(node)) {
-			closedSolved.addAll(this.closedVisitedNodes);
-			return new Pair<SearchFlag, Set<SearchNode>>(SearchFlag.GOAL, closedSolved);
-		} else if (this.closedVisitedNodes.contains(node))
-			return new Pair<SearchFlag, Set<SearchNode>>(SearchFlag.VISITED, closedSolved);
-		
-		this.closedVisitedNodes.add(node);
-		
-		PriorityQueue<SearchConnector> connectors = this.getNodeConnectors(node);
-		SearchConnector minConnector = connectors.peek();
-		
-		NODE_EXPANSIONS++;
-		
-		boolean updateHeuristicValue =  true;
-		
-		while(!connectors.isEmpty()) {
-			SearchConnector c = connectors.poll();
-			
-			if(policySize + 1 + c.getEvaluationFunctionAccordingToCriterion() > policyBound && closedSolved.size() == 0) {
-				if(policySize + 1 + c.getEvaluationFunctionAccordingToCriterion() < this.NEW_POLICY_BOUND )
-					this.NEW_POLICY_BOUND = policySize + 1 + c.getEvaluationFunctionAccordingToCriterion();
-			} else if(policySize + 1 > policyBound) {
-				if(policySize + 1 < this.NEW_POLICY_BOUND)
-					this.NEW_POLICY_BOUND = policySize + 1;
-			} else {
-				updateHeuristicValue = false;
-				
-				Set<SearchNode> pathsFound = new HashSet<>();
-				
-				boolean newGoalPathFound = true;
-				
-				Set<SearchNode> copyClosedSolved = new HashSet<>(closedSolved);
-				
-				while(newGoalPathFound == true) {
-					newGoalPathFound = false;
-					Set<SearchNode> findingGoalPath = new HashSet<>();
-					
-					for(SearchNode s: c.getChildren()) {
-						if(!pathsFound.contains(s))
-							findingGoalPath.add(s);
-					}
-					for(SearchNode s: findingGoalPath) {
-						Pair<SearchFlag, Set<SearchNode>> resultSearch = doIterativeSearch(s, copyClosedSolved, policySize+1, policyBound);
-						
-						SearchFlag flag = resultSearch.first;
-						copyClosedSolved = new HashSet<SearchNode>(resultSearch.second);
-						
-						if(flag == SearchFlag.GOAL){
-							newGoalPathFound = true;
-							pathsFound.add(s);
-						}
-					}
-					if(pathsFound.size() == c.getChildren().size()) {
-						node.setHeuristic(c.getEvaluationFunctionAccordingToCriterion() + 1);
-						this.closedVisitedNodes.remove(node);
-						node.setMarkedConnector(c);
-						return new Pair<SearchFlag, Set<SearchNode>>(SearchFlag.GOAL, copyClosedSolved);
-					}
-				}
-			}
-		}
-		if(updateHeuristicValue) {
+	@Override
+	protected boolean pruneDeadEnds() {
+		return false;
+	}
+	
+	@Override
+	protected void connectorSolved(SearchNode node, SearchConnector connector) {
+		node.setHeuristic(connector.getEvaluationFunctionAccordingToCriterion() + 1);
+	}
+	
+	@Override
+	protected void nodeNotSolved(SearchNode node, SearchConnector minConnector, boolean anyConnectorExplored) {
+		if(!anyConnectorExplored) {
 			node.setHeuristic(Double.POSITIVE_INFINITY);
 			if(minConnector != null) {
 				node.setHeuristic(minConnector.getEvaluationFunctionAccordingToCriterion() + 1);
 			}
 		}
-		
-		this.closedVisitedNodes.remove(node);
-		return new Pair<SearchFlag, Set<SearchNode>>(SearchFlag.VISITED, closedSolved);
 	}
 }
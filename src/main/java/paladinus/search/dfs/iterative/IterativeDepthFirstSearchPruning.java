@@ -1,15 +1,25 @@
 package paladinus.search.dfs.iterative;
 
-import java.util.HashSet;
-import java.util.PriorityQueue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import paladinus.heuristic.Heuristic;
 import paladinus.problem.Problem;
 import paladinus.search.SearchConnector;
 import paladinus.search.SearchFlag;
 import paladinus.search.SearchNode;
+import paladinus.search.TrailedNodeSet;
 import paladinus.search.dfs.DepthFirstSearch;
+import paladinus.state.Operator;
+import paladinus.state.State;
 import paladinus.util.Pair;
 
 /**
@@ -22,9 +32,21 @@ import paladinus.util.Pair;
 public class IterativeDepthFirstSearchPruning extends DepthFirstSearch {
 	
 	protected double POLICY_SIZE = 0;
-	protected double NEW_POLICY_BOUND = 0;
 	
 	private boolean checkSolvedStates = false;
+	
+	/** Number of threads exploring the connectors of the initial state. */
+	private int threads = problem.getContext().getOptions().getThreads();
+	
+	private ForkJoinPool pool;
+	
+	/**
+	 * Heuristics of the workers, one per thread, since the heuristics are not
+	 * thread-safe. They are copies of the heuristic of the search, which share
+	 * its read-only data. A worker takes one for the time it explores its
+	 * connector.
+	 */
+	private BlockingQueue<Heuristic> workerHeuristics;
 
 	public IterativeDepthFirstSearchPruning(Problem problem, Heuristic heuristic, String strategies, String criterion, String checkSolved) {
 		super(problem, heuristic, strategies, criterion);
@@ -32,6 +54,13 @@ public class IterativeDepthFirstSearchPruning extends DepthFirstSearch {
 			this.checkSolvedStates = true;
 			System.out.println("Check Solveds: TRUE");
 		}
+		if(this.threads > 1) {
+			System.out.println("Threads: " + this.threads);
+			this.workerHeuristics = new ArrayBlockingQueue<Heuristic>(this.threads);
+			this.workerHeuristics.add(heuristic);
+			for(int i = 1; i < this.threads; i++)
+				this.workerHeuristics.add(heuristic.copy());
+		}
 	}
 	
 	@Override
@@ -79,117 +108,200 @@ public class IterativeDepthFirstSearchPruning extends DepthFirstSearch {
 		
 		System.out.println("\n> Bound Initial: " + this.POLICY_BOUND);
 		System.out.println();
-		do {
-			System.out.println("> Bound: " + this.POLICY_BOUND);
-			this.POLICY_SIZE = 0d;
-			
-			this.dumpingCounterStateSpace = 0;
-			this.NUMBER_ITERATIONS++;
-
-			Set<SearchNode> closedSolved = new HashSet<>();
-			this.closedVisitedNodes.clear();
-			this.closedDeadEndsNodes.clear();
-			
-			Pair<SearchFlag, Set<SearchNode>> resultSearch = doIterativeSearch(node, closedSolved, this.POLICY_SIZE, this.POLICY_BOUND);
-			flag = resultSearch.first;
-			this.closedSolvedNodes = resultSearch.second;
-			
-			if(unitaryBound) {
-				this.POLICY_BOUND++;				
-			} else this.POLICY_BOUND = this.NEW_POLICY_BOUND;
-			
-			this.NEW_POLICY_BOUND = Double.POSITIVE_INFINITY;
-		} while (flag != SearchFlag.GOAL && this.POLICY_BOUND < Double.POSITIVE_INFINITY && flag != SearchFlag.TIMEOUT);
+		if(this.threads > 1)
+			this.pool = new ForkJoinPool(this.threads);
+		try {
+			do {
+				System.out.println("> Bound: " + this.POLICY_BOUND);
+				this.POLICY_SIZE = 0d;
+				
+				this.dumpingCounterStateSpace = 0;
+				this.NUMBER_ITERATIONS++;
+	
+				TrailedNodeSet closedSolved = new TrailedNodeSet();
+				this.closedVisitedNodes.clear();
+				this.closedDeadEndsNodes.clear();
+				
+				Pair<SearchFlag, Set<SearchNode>> resultSearch;
+				if(this.pool != null)
+					resultSearch = searchInParallel(node, closedSolved, this.POLICY_SIZE, this.POLICY_BOUND);
+				else resultSearch = search(node, closedSolved, this.POLICY_SIZE, this.POLICY_BOUND);
+				flag = resultSearch.first;
+				this.closedSolvedNodes = resultSearch.second;
+				
+				if(unitaryBound) {
+					this.POLICY_BOUND++;				
+				} else this.POLICY_BOUND = this.NEW_POLICY_BOUND;
+				
+				this.NEW_POLICY_BOUND = Double.POSITIVE_INFINITY;
+			} while (flag != SearchFlag.GOAL && this.POLICY_BOUND < Double.POSITIVE_INFINITY && flag != SearchFlag.TIMEOUT);
+		} finally {
+			if(this.pool != null) {
+				this.pool.shutdownNow();
+				this.pool = null;
+				/* The heuristic of the search is closed by its creator. */
+				for(Heuristic heuristic: this.workerHeuristics) {
+					if(heuristic != this.heuristic)
+						heuristic.close();
+				}
+			}
+		}
 		return flag;
 	}
 	
-	protected Pair<SearchFlag, Set<SearchNode>> doIterativeSearch(SearchNode node, Set<SearchNode> closedSolved, double policySize, double policyBound) {
-		if (DEBUG)
-			dumpStateSpace(this.NUMBER_ITERATIONS);
+	/**
+	 * Search for a policy from the root, exploring its connectors in parallel.
+	 * Each connector within the bound is explored by a worker of its own, which
+	 * shares the search nodes and the dead ends which do not depend on the bound
+	 * with the others. The closed-solved nodes are not shared, since they depend
+	 * on the partial policy of each worker. Only the exploration below the root
+	 * is parallel, so at most as many threads as the root has connectors within
+	 * the bound are busy. When a policy is found, the workers of worse ranked
+	 * connectors are cancelled and the policy of the best ranked connector is
+	 * kept, as in the sequential search.
+	 * 
+	 * @param root root node of the search
+	 * @param closedSolved nodes known to be solved
+	 * @param policySize size of the policy above the root
+	 * @param policyBound bound on the policy size
+	 * @return search flag of the root and the nodes known to be solved
+	 */
+	private Pair<SearchFlag, Set<SearchNode>> searchInParallel(SearchNode root, TrailedNodeSet closedSolved, double policySize, double policyBound) {
+		if(root.isGoalNode() || root.isDeadEndNode() || this.isClosedDeadEnd(root) || timeout())
+			return search(root, closedSolved, policySize, policyBound);
 		
-		if(RECURSION_COUNTER >= Integer.MAX_VALUE)
-			return new Pair<SearchFlag, Set<SearchNode>>(SearchFlag.DEAD_END, closedSolved);
-		
-		if(timeout())
-			return new Pair<SearchFlag, Set<SearchNode>>(SearchFlag.TIMEOUT, null);
-
-		RECURSION_COUNTER++;
+		this.countRecursion();
+		this.countNodeExpansion();
+		this.closedVisitedNodes.add(root);
 		
-		if(node.isGoalNode() || closedSolved.contains(node)) {
-			closedSolved.addAll(this.closedVisitedNodes);
-			return new Pair<SearchFlag, Set<SearchNode>>(SearchFlag.GOAL, closedSolved);
-		} else if (node.isDeadEndNode() || this.closedDeadEndsNodes.contains(node)) {
-			return new Pair<SearchFlag, Set<SearchNode>>(SearchFlag.DEAD_END, closedSolved);
-		} else if (this.closedVisitedNodes.contains(node))
-			return new Pair<SearchFlag, Set<SearchNode>>(SearchFlag.VISITED, closedSolved);
+		AtomicInteger cutoff = new AtomicInteger(Integer.MAX_VALUE);
+		Set<SearchNode> sharedDeadEnds = ConcurrentHashMap.newKeySet();
+		List<IterativeDepthFirstSearchPruningWorker> workers = new ArrayList<IterativeDepthFirstSearchPruningWorker>();
+		for(SearchConnector c: this.getNodeConnectors(root)) {
+			this.estimatedValueBestConnectorFromInitialState = c.getEstimatedCost();
+			if(this.withinPolicyBound(c, closedSolved, policySize, policyBound))
+				workers.add(new IterativeDepthFirstSearchPruningWorker(this, this.actionSelectionCriterion, this.evaluationFunctionCriterion, this.starttime, workers.size(), cutoff, sharedDeadEnds, root, c));
+		}
+		List<ForkJoinTask<SearchFlag>> tasks = new ArrayList<ForkJoinTask<SearchFlag>>(workers.size());
+		for(IterativeDepthFirstSearchPruningWorker worker: workers)
+			tasks.add(this.pool.submit(() -> worker.explore(policySize, policyBound)));
+		for(ForkJoinTask<SearchFlag> task: tasks)
+			task.join();
+		this.closedVisitedNodes.remove(root);
 		
-		this.closedVisitedNodes.add(node);
+		for(IterativeDepthFirstSearchPruningWorker worker: workers) {
+			/* The root is counted by this search. */
+			RECURSION_COUNTER += Math.max(0, worker.getRecursions() - 1);
+			NODE_EXPANSIONS += Math.max(0, worker.getExpansions() - 1);
+		}
+		for(SearchNode deadEnd: sharedDeadEnds)
+			this.closeDeadEnd(deadEnd, false);
 		
-		PriorityQueue<SearchConnector> connectors = this.getNodeConnectors(node);
-		NODE_EXPANSIONS++;
+		for(IterativeDepthFirstSearchPruningWorker worker: workers) {
+			if(worker.getFlag() == SearchFlag.GOAL) {
+				worker.applyMarkedConnectors();
+				this.estimatedValueBestConnectorFromInitialState = worker.getRootConnector().getEstimatedCost();
+				return new Pair<SearchFlag, Set<SearchNode>>(SearchFlag.GOAL, worker.getSolvedNodes());
+			}
+		}
+		if(timeout())
+			return new Pair<SearchFlag, Set<SearchNode>>(SearchFlag.TIMEOUT, closedSolved);
 		
 		boolean allConnectorsDeadEnds = true;
-		while(!connectors.isEmpty()) {
-			SearchConnector c = connectors.poll();
-			
-			if(policySize + 1 + c.getEvaluationFunctionAccordingToCriterion() > policyBound && closedSolved.size() == 0) {
-				if(policySize + 1 + c.getEvaluationFunctionAccordingToCriterion() < this.NEW_POLICY_BOUND )
-					this.NEW_POLICY_BOUND = policySize + 1 + c.getEvaluationFunctionAccordingToCriterion();				
-			} else if(policySize + 1 > policyBound) {
-				if(policySize + 1 < this.NEW_POLICY_BOUND)
-					this.NEW_POLICY_BOUND = policySize + 1;
-			} else { 
-				Set<SearchNode> pathsFound = new HashSet<>();
-				
-				boolean newGoalPathFound = true;
-				
-				boolean connectorDeadEnd = false;
-				
-				Set<SearchNode> copyClosedSolved = new HashSet<>(closedSolved);
-				
-				while(newGoalPathFound == true) {
-					newGoalPathFound = false;
-					Set<SearchNode> findingGoalPath = new HashSet<>();
-					
-					for(SearchNode s: c.getChildren()) {
-						if(!pathsFound.contains(s))
-							findingGoalPath.add(s);
-					}
-					for(SearchNode s: findingGoalPath) {
-						Pair<SearchFlag, Set<SearchNode>> resultSearch = doIterativeSearch(s, copyClosedSolved, policySize+1, policyBound);
-						SearchFlag flag = resultSearch.first;
-						copyClosedSolved = new HashSet<SearchNode>(resultSearch.second);
-						
-						if(flag == SearchFlag.DEAD_END) {
-							newGoalPathFound = false;
-							connectorDeadEnd = true;
-							break;
-						}
-						if(flag == SearchFlag.GOAL){
-							newGoalPathFound = true;
-							pathsFound.add(s);
-						}
-					}
-					if(pathsFound.size() == c.getChildren().size()) {
-						this.closedVisitedNodes.remove(node);
-						node.setMarkedConnector(c);
-						return new Pair<SearchFlag, Set<SearchNode>>(SearchFlag.GOAL, copyClosedSolved);
-					}
-					if(!connectorDeadEnd)
-						allConnectorsDeadEnds = false;
-				}
-			}
+		for(IterativeDepthFirstSearchPruningWorker worker: workers) {
+			this.NEW_POLICY_BOUND = Math.min(this.NEW_POLICY_BOUND, worker.getNewPolicyBound());
+			if(worker.getFlag() != SearchFlag.DEAD_END)
+				allConnectorsDeadEnds = false;
 		}
 		if(allConnectorsDeadEnds) {
-			this.closedVisitedNodes.remove(node);
-			this.closedDeadEndsNodes.add(node);
+			this.closeDeadEnd(root, true);
 			return new Pair<SearchFlag, Set<SearchNode>>(SearchFlag.DEAD_END, closedSolved);
 		}
-		
-		this.closedVisitedNodes.remove(node);
 		return new Pair<SearchFlag, Set<SearchNode>>(SearchFlag.VISITED, closedSolved);
 	}
 	
+	/**
+	 * Get the connectors of a node for a worker of the parallel search. A node is
+	 * expanded once, by the first worker reaching it, whose heuristic evaluates
+	 * the new children. Workers expanding different nodes only wait for each
+	 * other while they look up nodes and link the children of an expansion.
+	 * 
+	 * @param node node to expand
+	 * @param heuristic heuristic of the worker
+	 * @return connectors of all applicable operators of the node
+	 */
+	List<SearchConnector> getSharedConnectors(SearchNode node, Heuristic heuristic) {
+		synchronized(node) {
+			if(!node.isExpanded())
+				return this.expandNode(node, heuristic);
+			return node.getOutgoingConnectors();
+		}
+	}
+	
+	/**
+	 * Take a heuristic for a worker. Each of the threads has one available.
+	 * 
+	 * @return heuristic
+	 * @throws InterruptedException if the search is cancelled while waiting
+	 */
+	Heuristic takeWorkerHeuristic() throws InterruptedException {
+		return this.workerHeuristics.take();
+	}
+	
+	void returnWorkerHeuristic(Heuristic heuristic) {
+		this.workerHeuristics.add(heuristic);
+	}
+	
+	@Override
+	protected SearchNode findNode(State state) {
+		if(this.pool == null)
+			return super.findNode(state);
+		synchronized(this.stateNodeMap) {
+			return super.findNode(state);
+		}
+	}
+	
+	/**
+	 * Insert the node of a new child. In the parallel search another worker may
+	 * have inserted a node for the state meanwhile, which is then kept.
+	 */
+	@Override
+	protected SearchNode insertChild(State state, int depth, double heuristic) {
+		if(this.pool == null)
+			return super.insertChild(state, depth, heuristic);
+		synchronized(this.stateNodeMap) {
+			SearchNode node = super.findNode(state);
+			if(node != null)
+				return node;
+			return super.insertChild(state, depth, heuristic);
+		}
+	}
+	
+	/**
+	 * Link the children of an expansion. In the parallel search a child may be
+	 * shared with nodes expanded by other workers, so the nodes are inserted and
+	 * the connectors are added to the connector sets of the children under the
+	 * lock of the node table.
+	 */
+	@Override
+	protected List<SearchConnector> linkChildren(SearchNode node, List<Operator> applicableOps, List<Set<State>> successorStates, Map<State, Integer> batched, double[] values) {
+		if(this.pool == null)
+			return super.linkChildren(node, applicableOps, successorStates, batched, values);
+		synchronized(this.stateNodeMap) {
+			return super.linkChildren(node, applicableOps, successorStates, batched, values);
+		}
+	}
+	
+	@Override
+	protected boolean recursionLimitReached() {
+		return RECURSION_COUNTER >= Integer.MAX_VALUE;
+	}
+	
+	@Override
+	protected void dumpSearchSpace() {
+		this.dumpStateSpace(this.NUMBER_ITERATIONS);
+	}
+	
 	@Override
 	public void printStats(boolean simulatePlan) {
 		System.out.println("# Number Iterations         = " + this.NUMBER_ITERATIONS);
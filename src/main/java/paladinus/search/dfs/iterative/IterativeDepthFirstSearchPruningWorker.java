@@ -0,0 +1,193 @@
+package paladinus.search.dfs.iterative;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import paladinus.search.SearchConnector;
+import paladinus.search.SearchConnector.EvaluationFunctionCriterion;
+import paladinus.search.SearchFlag;
+import paladinus.search.SearchNode;
+import paladinus.search.TrailedNodeSet;
+import paladinus.search.dfs.DepthFirstSearch;
+import paladinus.util.ActionSelectionRule;
+import paladinus.util.Pair;
+
+/**
+ *
+ * Explores one connector of the initial state for the parallel iterative
+ * (pruning) depth-first search. A worker has its own closed lists, frames,
+ * heuristic and copies of the connectors, so the ranking and marking of
+ * connectors do not interfere with the other workers. Search nodes are stored
+ * in the node table of the master search. Dead ends which were found without
+ * skipping any connector below them by the policy bound are dead ends for any
+ * bound and policy size, so they are shared by all workers. Dead ends which
+ * depend on the bound are only valid at the policy size the worker reached
+ * them with and are kept by the worker. A worker is cancelled as soon as a
+ * worker of a better ranked connector finds a policy.
+ */
+class IterativeDepthFirstSearchPruningWorker extends DepthFirstSearch {
+
+	private final IterativeDepthFirstSearchPruning master;
+
+	private final int rank;
+
+	/** Rank of the best connector for which a policy was found. */
+	private final AtomicInteger cutoff;
+
+	private final Set<SearchNode> sharedDeadEnds;
+
+	private final SearchNode root;
+
+	private final SearchConnector rootConnector;
+
+	private final Map<SearchNode, List<SearchConnector>> connectorCopies = new IdentityHashMap<>();
+
+	private final Map<SearchNode, SearchConnector> markedConnectors = new IdentityHashMap<>();
+
+	private SearchFlag flag = SearchFlag.NO_POLICY;
+
+	private Set<SearchNode> solvedNodes;
+
+	private int recursions = 0;
+
+	private int expansions = 0;
+
+	IterativeDepthFirstSearchPruningWorker(IterativeDepthFirstSearchPruning master, ActionSelectionRule actionSelectionCriterion, EvaluationFunctionCriterion evaluationFunctionCriterion, long starttime, int rank, AtomicInteger cutoff, Set<SearchNode> sharedDeadEnds, SearchNode root, SearchConnector rootConnector) {
+		super(master.getProblem(), master.getHeuristic());
+		this.master = master;
+		this.rank = rank;
+		this.cutoff = cutoff;
+		this.sharedDeadEnds = sharedDeadEnds;
+		this.root = root;
+		this.rootConnector = rootConnector;
+		this.actionSelectionCriterion = actionSelectionCriterion;
+		this.evaluationFunctionCriterion = evaluationFunctionCriterion;
+		this.starttime = starttime;
+		this.setTimeout(master.getTimeout());
+	}
+
+	/**
+	 * Search for a policy from the root that starts with the connector of this
+	 * worker.
+	 *
+	 * @param policySize size of the policy above the root
+	 * @param policyBound bound on the policy size
+	 * @return search flag of the root
+	 */
+	SearchFlag explore(double policySize, double policyBound) {
+		this.NEW_POLICY_BOUND = Double.POSITIVE_INFINITY;
+		SearchConnector connector = this.rootConnector.copy();
+		this.getConnectorComparator().computeRankKey(connector);
+
+		try {
+			this.heuristic = this.master.takeWorkerHeuristic();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			this.flag = SearchFlag.TIMEOUT;
+			return this.flag;
+		}
+		try {
+			Pair<SearchFlag, Set<SearchNode>> result = this.search(this.root, new TrailedNodeSet(), policySize, policyBound, Collections.singletonList(connector));
+			this.flag = result.first;
+			this.solvedNodes = result.second;
+		} finally {
+			this.master.returnWorkerHeuristic(this.heuristic);
+		}
+		if (this.flag == SearchFlag.GOAL)
+			this.cutoff.accumulateAndGet(this.rank, Math::min);
+		return this.flag;
+	}
+
+	/**
+	 * Mark the connectors of the policy found by this worker on the shared nodes.
+	 */
+	void applyMarkedConnectors() {
+		for (Map.Entry<SearchNode, SearchConnector> entry : this.markedConnectors.entrySet())
+			entry.getKey().setMarkedConnector(entry.getValue());
+	}
+
+	SearchConnector getRootConnector() {
+		return this.rootConnector;
+	}
+
+	SearchFlag getFlag() {
+		return this.flag;
+	}
+
+	Set<SearchNode> getSolvedNodes() {
+		return this.solvedNodes;
+	}
+
+	double getNewPolicyBound() {
+		return this.NEW_POLICY_BOUND;
+	}
+
+	int getRecursions() {
+		return this.recursions;
+	}
+
+	int getExpansions() {
+		return this.expansions;
+	}
+
+	@Override
+	protected boolean timeout() {
+		return super.timeout() || this.cutoff.get() < this.rank || this.master.isCancelled();
+	}
+
+	@Override
+	protected List<SearchConnector> getExpandedConnectors(SearchNode node) {
+		List<SearchConnector> copies = this.connectorCopies.get(node);
+		if (copies == null) {
+			List<SearchConnector> connectors = this.master.getSharedConnectors(node, this.heuristic);
+			copies = new ArrayList<SearchConnector>(connectors.size());
+			for (SearchConnector connector : connectors)
+				copies.add(connector.copy());
+			this.connectorCopies.put(node, copies);
+		}
+		return copies;
+	}
+
+	@Override
+	protected boolean isClosedDeadEnd(SearchNode node) {
+		return this.sharedDeadEnds.contains(node) || this.closedDeadEndsNodes.contains(node);
+	}
+
+	@Override
+	protected boolean closedDeadEndDependsOnBound(SearchNode node) {
+		return !this.sharedDeadEnds.contains(node);
+	}
+
+	@Override
+	protected void closeDeadEnd(SearchNode node, boolean boundDependent) {
+		/* Only one connector of the root is explored here. */
+		if (node == this.root)
+			return;
+		if (boundDependent)
+			this.closedDeadEndsNodes.add(node);
+		else this.sharedDeadEnds.add(node);
+	}
+
+	@Override
+	protected void markConnector(SearchNode node, SearchConnector connector) {
+		this.markedConnectors.put(node, connector);
+	}
+
+	@Override
+	protected void countRecursion() {
+		this.recursions++;
+	}
+
+	@Override
+	protected void countNodeExpansion() {
+		this.expansions++;
+	}
+
+	@Override
+	protected void dumpSearchSpace() {}
+}
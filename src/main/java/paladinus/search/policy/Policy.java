@@ -10,7 +10,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-import paladinus.Global;
 import paladinus.PaladinusPlanner;
 import paladinus.explicit.ExplicitState;
 import paladinus.problem.Problem;
@@ -77,7 +76,7 @@ public class Policy {
 
 	public void addEntry(State key, Operator op, int distance) {
 		assert problem.getOriginalOperatorMap().containsKey(op.getName());
-		if (Global.options.getPolicyType().equals("STRONG_CYCLIC"))
+		if (problem.getContext().getOptions().getPolicyType().equals("STRONG_CYCLIC"))
 			entries.put(key, new Pair<Operator, Integer>(problem.getOriginalOperatorMap().get(op.getName()), distance));
 		else entries.put(key, new Pair<Operator, Integer>(problem.getModifiedOperatorMap().get(op.getName()), distance));
 	}
@@ -213,7 +212,7 @@ public class Policy {
 
 			// determine size of partial state (number of satisfied propositions)
 			i = 0;
-			Map<Integer, Integer> variableValuePairs = ((ExplicitState) state).variableValueAssignment;
+			Map<Integer, Integer> variableValuePairs = ((ExplicitState) state).getVariableValueAssignment();
 			for (int var : variableValuePairs.keySet()) {
 				int value = variableValuePairs.get(var);
 				String name = propositionNames.get(var).get(value);
@@ -328,7 +327,7 @@ public class Policy {
 	 */
 	public void printToFile(String filename) {
 		if (filename.trim().equals("")) {
-			filename = PaladinusPlanner.getNameOfProblemInstance() + ".fond_plan";
+			filename = PaladinusPlanner.getNameOfProblemInstance(problem.getContext().getOptions()) + ".fond_plan";
 		}
 		System.out.println("@> Policy file: " + filename);
 		File plan = new File(filename);
@@ -0,0 +1,81 @@
+package paladinus.search.portfolio;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import paladinus.heuristic.HeuristicEstimator;
+import paladinus.search.AbstractSearch;
+import paladinus.search.SearchAlgorithm;
+import paladinus.util.ActionSelectionRule;
+
+/**
+ *
+ * One configuration of a portfolio: a search algorithm, a heuristic, an action
+ * selection criterion and the time slice of the configuration. It is written as
+ * SEARCH:HEURISTIC[:ACTION_SELECTION[:SECONDS]] on the command line.
+ */
+public class PortfolioConfiguration {
+
+	public final SearchAlgorithm searchAlgorithm;
+
+	public final HeuristicEstimator heuristic;
+
+	public final String actionSelectionCriterion;
+
+	/**
+	 * Time slice of the configuration in milliseconds.
+	 */
+	public final long timeSlice;
+
+	public PortfolioConfiguration(SearchAlgorithm searchAlgorithm, HeuristicEstimator heuristic, String actionSelectionCriterion, long timeSlice) {
+		this.searchAlgorithm = searchAlgorithm;
+		this.heuristic = heuristic;
+		this.actionSelectionCriterion = actionSelectionCriterion;
+		this.timeSlice = timeSlice;
+	}
+
+	/**
+	 * Parse a comma-separated list of configurations.
+	 *
+	 * @param portfolio configurations as given on the command line
+	 * @param defaultActionSelection action selection criterion of configurations
+	 *                               which do not give one
+	 * @return configurations in the given order
+	 * @throws IllegalArgumentException if a configuration is malformed
+	 */
+	public static List<PortfolioConfiguration> parse(String portfolio, String defaultActionSelection) {
+		List<PortfolioConfiguration> configurations = new ArrayList<PortfolioConfiguration>();
+		for (String description : portfolio.split(","))
+			configurations.add(parseConfiguration(description.trim(), defaultActionSelection));
+		return configurations;
+	}
+
+	private static PortfolioConfiguration parseConfiguration(String description, String defaultActionSelection) {
+		String[] fields = description.split(":");
+		if (fields.length < 2 || fields.length > 4)
+			throw new IllegalArgumentException("portfolio configuration '" + description + "' is not of the form SEARCH:HEURISTIC[:ACTION_SELECTION[:SECONDS]]");
+
+		SearchAlgorithm searchAlgorithm = SearchAlgorithm.valueOf(fields[0]);
+		HeuristicEstimator heuristic = HeuristicEstimator.valueOf(fields[1]);
+		String actionSelection = defaultActionSelection;
+		if (fields.length > 2 && !fields[2].isEmpty())
+			actionSelection = ActionSelectionRule.valueOf(fields[2]).toString();
+
+		long timeSlice = AbstractSearch.NO_TIMEOUT;
+		if (fields.length > 3) {
+			long seconds = Long.parseLong(fields[3]);
+			if (seconds < 1)
+				throw new IllegalArgumentException("a time slice of " + seconds + " s does not make sense");
+			timeSlice = seconds * 1000;
+		}
+		return new PortfolioConfiguration(searchAlgorithm, heuristic, actionSelection, timeSlice);
+	}
+
+	@Override
+	public String toString() {
+		String description = this.searchAlgorithm + ":" + this.heuristic + ":" + this.actionSelectionCriterion;
+		if (this.timeSlice != AbstractSearch.NO_TIMEOUT)
+			description += ":" + (this.timeSlice / 1000);
+		return description;
+	}
+}
@@ -0,0 +1,157 @@
+package paladinus.search.portfolio;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import paladinus.PaladinusPlanner;
+import paladinus.heuristic.Heuristic;
+import paladinus.problem.Problem;
+import paladinus.search.AbstractSearch;
+import paladinus.search.policy.Policy;
+
+/**
+ *
+ * A portfolio of searches which run concurrently on the same problem. Each
+ * configuration has its own heuristic, search and counters, and may have its
+ * own time slice. The first configuration which proves the initial state wins
+ * and the other configurations are cancelled.
+ */
+public class PortfolioSearch extends AbstractSearch {
+
+	private final List<PortfolioConfiguration> configurations;
+
+	private final List<AbstractSearch> searches = new ArrayList<AbstractSearch>();
+
+	private final List<Heuristic> heuristics = new ArrayList<Heuristic>();
+
+	private final Result[] results;
+
+	private AbstractSearch winner = null;
+
+	private PortfolioConfiguration winnerConfiguration = null;
+
+	/**
+	 * Create the heuristics and searches of all configurations. The heuristics
+	 * are created by the factory of the planner, so they are evaluated by as many
+	 * threads as set in the options, like the heuristic of a single search. They
+	 * are built one after the other before any search runs.
+	 *
+	 * @param problem        problem shared by all configurations
+	 * @param configurations configurations of the portfolio
+	 */
+	public PortfolioSearch(Problem problem, List<PortfolioConfiguration> configurations) {
+		super(problem);
+		this.configurations = configurations;
+		this.results = new Result[configurations.size()];
+		for (PortfolioConfiguration configuration : configurations) {
+			System.out.println("\nPortfolio Configuration: " + configuration);
+			Heuristic heuristic = PaladinusPlanner.createHeuristic(problem, configuration.heuristic.toString());
+			this.heuristics.add(heuristic);
+			this.searches.add(PaladinusPlanner.createSearch(problem, heuristic, configuration.searchAlgorithm, configuration.actionSelectionCriterion));
+		}
+		/* Fill the lazily computed data of the shared initial state before the searches race on it. */
+		problem.getSingleInitialState().getApplicableOps(problem.getOperators());
+	}
+
+	/**
+	 * Set the time-out of the portfolio. A configuration runs until the end of
+	 * its time slice or until the time-out, whatever comes first.
+	 */
+	@Override
+	public void setTimeout(long timeout) {
+		super.setTimeout(timeout);
+		for (int i = 0; i < this.searches.size(); i++)
+			this.searches.get(i).setTimeout(Math.min(timeout, this.configurations.get(i).timeSlice));
+	}
+
+	@Override
+	public Result run() {
+		starttime = System.currentTimeMillis();
+
+		ExecutorService executor = Executors.newFixedThreadPool(this.searches.size());
+		CompletionService<Integer> completionService = new ExecutorCompletionService<Integer>(executor);
+		for (int i = 0; i < this.searches.size(); i++) {
+			final int configuration = i;
+			completionService.submit(() -> {
+				this.results[configuration] = this.searches.get(configuration).run();
+				return configuration;
+			});
+		}
+		try {
+			for (int finished = 0; finished < this.searches.size() && this.winner == null; finished++) {
+				int i;
+				try {
+					i = completionService.take().get();
+				} catch (ExecutionException e) {
+					e.printStackTrace();
+					continue;
+				}
+				System.out.println("\n> Portfolio Configuration " + this.configurations.get(i) + ": " + this.results[i]);
+				if (this.results[i] == Result.PROVEN) {
+					this.winner = this.searches.get(i);
+					this.winnerConfiguration = this.configurations.get(i);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			for (AbstractSearch search : this.searches)
+				search.cancel();
+			executor.shutdown();
+			try {
+				executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			for (Heuristic heuristic : this.heuristics) {
+				if (heuristic != null)
+					heuristic.close();
+			}
+		}
+
+		endtime = System.currentTimeMillis();
+
+		if (this.winner != null)
+			return Result.PROVEN;
+		for (Result result : this.results)
+			if (result == Result.DISPROVEN)
+				return Result.DISPROVEN;
+		return Result.TIMEOUT;
+	}
+
+	@Override
+	public Policy getPolicy() {
+		if (this.winner == null)
+			return null;
+		return this.winner.getPolicy();
+	}
+
+	@Override
+	public void validatePolicy() {
+		if (this.winner != null)
+			this.winner.validatePolicy();
+	}
+
+	@Override
+	public void printStats(boolean simulatePlan) {
+		System.out.println("# Portfolio Configurations  = " + this.configurations.size());
+		for (int i = 0; i < this.configurations.size(); i++)
+			System.out.println("#   " + this.configurations.get(i) + " -> " + (this.results[i] != null ? this.results[i] : Result.UNDECIDED));
+
+		if (this.winner != null) {
+			System.out.println("# Portfolio Winner          = " + this.winnerConfiguration);
+			this.winner.printStats(simulatePlan);
+		} else {
+			for (int i = 0; i < this.configurations.size(); i++) {
+				System.out.println("\n# Portfolio Configuration   = " + this.configurations.get(i));
+				this.searches.get(i).printStats(false);
+			}
+		}
+	}
+}
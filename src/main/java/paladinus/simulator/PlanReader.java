@@ -20,6 +20,8 @@ import org.kohsuke.args4j.CmdLineParser;
 import org.kohsuke.args4j.Option;
 
 import paladinus.Global.ExitCode;
+import paladinus.Options;
+import paladinus.PlanningContext;
 import paladinus.explicit.ExplicitAxiomEvaluator;
 import paladinus.explicit.ExplicitState;
 import paladinus.parser.SasParser;
@@ -34,7 +36,7 @@ import paladinus.util.Pair;
  *
  */
 public class PlanReader {
-	static Problem problem;
+	private Problem problem;
 
 	ExplicitAxiomEvaluator axiomEvaluator;
 
@@ -68,17 +70,17 @@ public class PlanReader {
 			ExitCode.EXIT_INPUT_ERROR.exit();
 		}
 		System.out.println("Parsing " + reader.sasFile);
-		PlanReader.problem = new SasParser().parse(new FileInputStream(reader.sasFile));
-		assert (problem.isFullObservable);
+		reader.problem = new SasParser(new PlanningContext(new Options())).parse(new FileInputStream(reader.sasFile));
+		assert (reader.problem.isFullObservable);
 		// Global.problem.getSingleInitialState().uniqueID; TODO check this? was
 		// uniqueID();
 
 		System.out.println("Parsing " + reader.planFile);
-		reader.axiomEvaluator = new ExplicitAxiomEvaluator(PlanReader.problem);
-		Policy plan = reader.readPlan(problem, reader.planFile);
+		reader.axiomEvaluator = new ExplicitAxiomEvaluator(reader.problem);
+		Policy plan = reader.readPlan(reader.problem, reader.planFile);
 
 		// System.out.println(plan);
-		double planCost = new PlanSimulator(PlanReader.problem).performValueIteration(plan);
+		double planCost = new PlanSimulator(reader.problem).performValueIteration(plan);
 
 		System.out.println("Plan cost (expected number of steps to goal): " + planCost);
 		System.out.println(plan.toString());
@@ -86,6 +88,7 @@ public class PlanReader {
 	}
 
 	public PlanReader(Problem problem) {
+		this.problem = problem;
 		if (problem != null) {
 			axiomEvaluator = new ExplicitAxiomEvaluator(problem);
 		}
@@ -120,7 +123,7 @@ public class PlanReader {
 		// that leads to the corresponding variable getting a defined value,
 		// then that variable *must* have a "<none of those>" value, which is
 		// the correct one to chose?
-		int[] values = new int[PlanReader.problem.variableNames.size()];
+		int[] values = new int[problem.variableNames.size()];
 		Arrays.fill(values, -1);
 		for (int i = 0; i < pairs.size(); i++) {
 			int var = pairs.get(i).first;
@@ -131,9 +134,9 @@ public class PlanReader {
 		}
 		for (int var = 0; var < values.length; var++) {
 			if (values[var] == -1) {
-				values[var] = PlanReader.problem.domainSizes.get(var) - 1;
+				values[var] = problem.domainSizes.get(var) - 1;
 
-				String propositionName = PlanReader.problem.propositionNames.get(var).get(values[var]);
+				String propositionName = problem.propositionNames.get(var).get(values[var]);
 
 				if (!propositionName.startsWith("(not ")) {
 					System.err.println("Ooops. Wrong value ...");
@@ -217,7 +220,7 @@ public class PlanReader {
 
 	private List<Operator> translateActionIndices(List<String> actions) {
 		List<Operator> result = new ArrayList<Operator>();
-		Set<Operator> ops = PlanReader.problem.getOperators();
+		Set<Operator> ops = problem.getOperators();
 		Map<String, Operator> inverseOperatorNames = new HashMap<String, Operator>();
 		for (Operator op : ops) {
 			String name = op.getName();
@@ -238,7 +241,7 @@ public class PlanReader {
 
 	private List<Pair<Integer, Integer>> translatePropositionIndices(List<String> propositions) {
 		List<Pair<Integer, Integer>> result = new ArrayList<Pair<Integer, Integer>>();
-		List<List<String>> propositionNamesInProblem = PlanReader.problem.propositionNames;
+		List<List<String>> propositionNamesInProblem = problem.propositionNames;
 		Map<String, Pair<Integer, Integer>> inversePropositionNames = new HashMap<String, Pair<Integer, Integer>>();
 		for (int var = 0; var < propositionNamesInProblem.size(); var++) {
 			for (int val = 0; val < propositionNamesInProblem.get(var).size(); val++) {
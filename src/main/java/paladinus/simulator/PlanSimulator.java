@@ -67,8 +67,6 @@ class Node {
 
 	static final double UNINITIALIZED_COST_ESTIMATE = Double.POSITIVE_INFINITY;
 
-	static int nextIndex = 0;
-
 	State state;
 	int index;
 	double costEstimate;
@@ -76,9 +74,9 @@ class Node {
 	Set<Connector> outgoingConnectors;
 	boolean isProven = false;
 
-	public Node(State state) {
+	public Node(State state, int index) {
 		this.state = state;
-		index = nextIndex++;
+		this.index = index;
 		costEstimate = Node.UNINITIALIZED_COST_ESTIMATE;
 		if (state.isGoalState()) {
 			costEstimate = 0.0;
@@ -99,22 +97,12 @@ class Node {
 	public int hashCode() {
 		return index;
 	}
-
-	/**
-	 * Resets the index to 0. Necessary for running the planner more than one time
-	 * in one program.
-	 */
-	static void resetIndex() {
-		nextIndex = 0;
-	}
 }
 
 public class PlanSimulator {
 	protected final Problem problem;
 
 	public static final double EPSILON = 0.0001;
-	
-	public static List<Integer> goalNodes = new ArrayList<>();
 
 	public PlanSimulator(Problem problem) {
 		this.problem = problem;
@@ -124,7 +112,7 @@ public class PlanSimulator {
 		// build state space
 		Map<State, Node> seenStates = new LinkedHashMap<State, Node>();
 		Queue<Node> queue = new LinkedList<Node>();
-		Node initial = new Node(problem.getSingleInitialState());
+		Node initial = new Node(problem.getSingleInitialState(), 0);
 		seenStates.put(problem.getSingleInitialState(), initial);
 		queue.add(initial);
 
@@ -141,7 +129,7 @@ public class PlanSimulator {
 				if (seenStates.containsKey(successor)) {
 					newNode = seenStates.get(successor);
 				} else {
-					newNode = new Node(successor);
+					newNode = new Node(successor, seenStates.size());
 					seenStates.put(successor, newNode);
 					if (!successor.isGoalState()) {
 						queue.offer(newNode);
@@ -152,7 +140,6 @@ public class PlanSimulator {
 			new Connector(node, children, op.getName(), op.getCost());
 		}
 
-		Node.resetIndex();
 		return seenStates;
 	}
 
@@ -224,10 +211,20 @@ public class PlanSimulator {
 		return seenStates.get(problem.getSingleInitialState()).costEstimate;
 	}
 
-	public static void savePlanAsDot(Problem problem, Policy policy, String filename) {
+	/**
+	 * Save the state space of a policy as dot file.
+	 *
+	 * @param problem  problem
+	 * @param policy   policy
+	 * @param filename name of the dot file, or empty for the name of the problem
+	 *                 instance
+	 * @return indices of the goal nodes in the dot file
+	 */
+	public static List<Integer> savePlanAsDot(Problem problem, Policy policy, String filename) {
 		if (filename.trim().equals("")) {
-			filename = PaladinusPlanner.getNameOfProblemInstance() + ".dot";
+			filename = PaladinusPlanner.getNameOfProblemInstance(problem.getContext().getOptions()) + ".dot";
 		}
+		List<Integer> goalNodes = new ArrayList<Integer>();
 		Collection<Node> nodes = buildStateSpace(problem, policy).values();
 		LinkedList<Connector> seenConnectors = new LinkedList<Connector>();
 		Node initialNode = null;
@@ -266,7 +263,7 @@ public class PlanSimulator {
 		}
 
 		for (Node goal : goals) {
-			PlanSimulator.goalNodes.add(goal.index);
+			goalNodes.add(goal.index);
 			buffer.append(String.format("subgraph cluster_goal_%d {\n" + "style=filled;\n" + "color=palegreen;\n"
 					+ "%s;\n" + "label=\"GOAL\";\n" + "}\n", goal.index, goal.index));
 		}
@@ -285,5 +282,6 @@ public class PlanSimulator {
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
+		return goalNodes;
 	}
 }
@@ -3,7 +3,6 @@
  */
 package paladinus.state;
 
-import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -36,12 +35,8 @@ public abstract class State {
 	public Abstraction abstraction;
 
 	/**
-	 * Unique id which is used to identify a state.
-	 */
-	public final BigInteger uniqueID;
-
-	/**
-	 * HashCode which is used in collections which use hashing.
+	 * HashCode which is used in collections which use hashing. Note: States are
+	 * identified by their key (see {@link #getKeyWord(int)}), not by this value.
 	 */
 	public final int hashCode;
 
@@ -62,17 +57,33 @@ public abstract class State {
 	 */
 	private List<Operator> applicableOps;
 
-	public State(Problem problem, BigInteger uniqueID, boolean isAbstractedState, Abstraction abstraction) {
+	public State(Problem problem, int hashCode, boolean isAbstractedState, Abstraction abstraction) {
 		this.problem = problem;
 		assert (problem != null);
-		this.uniqueID = uniqueID;
-		hashCode = uniqueID.intValue();
+		this.hashCode = hashCode;
 		this.isAbstractedState = isAbstractedState;
 		this.abstraction = abstraction;
 		assert (!isAbstractedState || (abstraction != null));
 		assert ((abstraction != null) || !isAbstractedState);
 	}
 
+	/**
+	 * Get the number of longs of the key of this state. All states of one problem
+	 * (or of one abstraction) have keys of the same width.
+	 *
+	 * @return key width
+	 */
+	public abstract int getKeyWidth();
+
+	/**
+	 * Get a word of the key which identifies this state. Two states of the same
+	 * problem are equal iff their keys are equal.
+	 *
+	 * @param i index of the word, smaller than the key width
+	 * @return i-th key word
+	 */
+	public abstract long getKeyWord(int i);
+
 	/**
 	 * Set the problem the state will consider itself associated with
 	 */
@@ -89,13 +100,7 @@ public abstract class State {
 
 	public List<Operator> getApplicableOps(Collection<Operator> ops) {
 		if (!applicableOpsInitialized) {
-			List<Operator> applicableOps = new ArrayList<Operator>();
-			for (Operator op : ops) {
-				if (isApplicable(op)) {
-					applicableOps.add(op);
-				}
-			}
-			this.applicableOps = Collections.unmodifiableList(applicableOps);
+			this.applicableOps = Collections.unmodifiableList(computeApplicableOps(ops));
 			applicableOpsInitialized = true;
 			checkedOps = ops;
 		} else {
@@ -107,6 +112,23 @@ public abstract class State {
 		return applicableOps;
 	}
 
+	/**
+	 * Compute the operators of the given collection which are applicable in this
+	 * state, in the iteration order of the collection.
+	 *
+	 * @param ops operators to test
+	 * @return applicable operators
+	 */
+	protected List<Operator> computeApplicableOps(Collection<Operator> ops) {
+		List<Operator> applicableOps = new ArrayList<Operator>();
+		for (Operator op : ops) {
+			if (isApplicable(op)) {
+				applicableOps.add(op);
+			}
+		}
+		return applicableOps;
+	}
+
 	public abstract Set<State> apply(Operator operator);
 
 	public void free() {
@@ -133,11 +155,23 @@ public abstract class State {
 	 */
 	@Override
 	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
 		if (!(o instanceof State)) {
 			return false;
 		}
 		State s = (State) o;
-		return s.uniqueID.equals(uniqueID);
+		int width = getKeyWidth();
+		if (s.hashCode != hashCode || s.getKeyWidth() != width) {
+			return false;
+		}
+		for (int i = 0; i < width; i++) {
+			if (s.getKeyWord(i) != getKeyWord(i)) {
+				return false;
+			}
+		}
+		return true;
 	}
 
 	/**
@@ -0,0 +1,239 @@
+package paladinus.state;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Hash table from states to values using open addressing with linear probing.
+ * The keys of the states (see {@link State#getKeyWord(int)}) are stored inline
+ * in a single long array, so an entry costs one slot in a long array per key
+ * word and one reference, instead of a map entry plus a key object. All states
+ * stored in one table must have keys of the same width. Like a LinkedHashMap,
+ * the table iterates its values in insertion order.
+ *
+ * @param <V> type of the values
+ */
+public final class StateTable<V> {
+
+	private static final int DEFAULT_CAPACITY = 1024;
+
+	/**
+	 * The table is grown as soon as more than this fraction of slots is used.
+	 */
+	private static final double MAX_LOAD = 0.5;
+
+	/**
+	 * Number of longs per key.
+	 */
+	private final int keyWidth;
+
+	/**
+	 * Key words of all slots, keyWidth consecutive words per slot.
+	 */
+	private long[] keys;
+
+	/**
+	 * Values of all slots. A slot is empty iff its value is null.
+	 */
+	private Object[] values;
+
+	/**
+	 * Slots of the entries in insertion order. Replacing the value of a state
+	 * keeps its position.
+	 */
+	private int[] order;
+
+	private int mask;
+
+	private int size;
+
+	private int growThreshold;
+
+	/**
+	 * Creates an empty table for states of the given key width.
+	 *
+	 * @param keyWidth number of longs per state key
+	 */
+	public StateTable(int keyWidth) {
+		this(keyWidth, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates an empty table for states of the given key width.
+	 *
+	 * @param keyWidth        number of longs per state key
+	 * @param initialCapacity expected number of entries
+	 */
+	public StateTable(int keyWidth, int initialCapacity) {
+		assert keyWidth > 0;
+		this.keyWidth = keyWidth;
+		int capacity = Integer.highestOneBit(Math.max(16, (int) Math.min(1 << 30, initialCapacity / MAX_LOAD)) - 1)
+				<< 1;
+		allocate(capacity);
+	}
+
+	private void allocate(int capacity) {
+		keys = new long[capacity * keyWidth];
+		values = new Object[capacity];
+		mask = capacity - 1;
+		growThreshold = (int) (capacity * MAX_LOAD);
+		order = new int[growThreshold + 1];
+	}
+
+	/**
+	 * Get the value stored for the given state.
+	 *
+	 * @param state state
+	 * @return stored value or null if there is none
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(State state) {
+		assert state.getKeyWidth() == keyWidth;
+		for (int slot = hash(state) & mask;; slot = (slot + 1) & mask) {
+			Object value = values[slot];
+			if (value == null || keyEquals(slot, state)) {
+				return (V) value;
+			}
+		}
+	}
+
+	/**
+	 * Test if a value is stored for the given state.
+	 *
+	 * @param state state
+	 * @return true iff the table contains the state
+	 */
+	public boolean containsKey(State state) {
+		return get(state) != null;
+	}
+
+	/**
+	 * Store a value for the given state and replace the previous value, if any.
+	 *
+	 * @param state state
+	 * @param value value, must not be null
+	 * @return previous value or null
+	 */
+	@SuppressWarnings("unchecked")
+	public V put(State state, V value) {
+		assert value != null;
+		assert state.getKeyWidth() == keyWidth;
+		int slot = hash(state) & mask;
+		while (values[slot] != null) {
+			if (keyEquals(slot, state)) {
+				V old = (V) values[slot];
+				values[slot] = value;
+				return old;
+			}
+			slot = (slot + 1) & mask;
+		}
+		int offset = slot * keyWidth;
+		for (int i = 0; i < keyWidth; i++) {
+			keys[offset + i] = state.getKeyWord(i);
+		}
+		values[slot] = value;
+		order[size] = slot;
+		if (++size > growThreshold) {
+			grow();
+		}
+		return null;
+	}
+
+	/**
+	 * Get the number of stored entries.
+	 *
+	 * @return number of entries
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Remove all entries.
+	 */
+	public void clear() {
+		Arrays.fill(values, null);
+		size = 0;
+	}
+
+	/**
+	 * Get a snapshot of all stored values in insertion order.
+	 *
+	 * @return list of values
+	 */
+	public List<V> values() {
+		final Object[] snapshot = new Object[size];
+		for (int i = 0; i < size; i++) {
+			snapshot[i] = values[order[i]];
+		}
+		return new AbstractList<V>() {
+			@SuppressWarnings("unchecked")
+			@Override
+			public V get(int index) {
+				return (V) snapshot[index];
+			}
+
+			@Override
+			public int size() {
+				return snapshot.length;
+			}
+		};
+	}
+
+	private boolean keyEquals(int slot, State state) {
+		int offset = slot * keyWidth;
+		for (int i = 0; i < keyWidth; i++) {
+			if (keys[offset + i] != state.getKeyWord(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private int hash(State state) {
+		long h = 0;
+		for (int i = 0; i < keyWidth; i++) {
+			h = mix(h ^ state.getKeyWord(i));
+		}
+		return (int) h;
+	}
+
+	private int hash(long[] keyWords, int offset) {
+		long h = 0;
+		for (int i = 0; i < keyWidth; i++) {
+			h = mix(h ^ keyWords[offset + i]);
+		}
+		return (int) h;
+	}
+
+	/**
+	 * Finalization step of MurmurHash3, spreads consecutive keys over the table.
+	 */
+	private static long mix(long h) {
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	private void grow() {
+		long[] oldKeys = keys;
+		Object[] oldValues = values;
+		int[] oldOrder = order;
+		allocate(oldValues.length << 1);
+		for (int i = 0; i < size; i++) {
+			int oldSlot = oldOrder[i];
+			int oldOffset = oldSlot * keyWidth;
+			int slot = hash(oldKeys, oldOffset) & mask;
+			while (values[slot] != null) {
+				slot = (slot + 1) & mask;
+			}
+			System.arraycopy(oldKeys, oldOffset, keys, slot * keyWidth, keyWidth);
+			values[slot] = oldValues[oldSlot];
+			order[i] = slot;
+		}
+	}
+}
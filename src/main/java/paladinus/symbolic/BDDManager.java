@@ -8,6 +8,7 @@ import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
 
 import javabdd.BDD;
@@ -95,6 +96,16 @@ public class BDDManager {
 	 */
 	int numStateVars = -1;
 
+	/**
+	 * Set the random number generator used to draw random valuations, e.g. the
+	 * generator of the planner run.
+	 *
+	 * @param random random number generator
+	 */
+	public void setRandom(Random random) {
+		((JFactory) B).setRandom(random);
+	}
+
 	/**
 	 * Create a BDD Manager.
 	 */
@@ -1,6 +1,5 @@
 package paladinus.symbolic;
 
-import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
@@ -90,7 +89,7 @@ public class BeliefState extends State {
 	 */
 	private BeliefState(Problem problem, BDD beliefStateBDD, boolean isAbstractedState, Abstraction abstraction,
 			SymbolicAxiomEvaluator axiomEvaluator) {
-		super(problem, BigInteger.valueOf(beliefStateBDD.hashCode()), isAbstractedState, abstraction);
+		super(problem, beliefStateBDD.hashCode(), isAbstractedState, abstraction);
 		BDDManager = ((PartiallyObservableProblem) problem).BDDManager;
 		this.problem = problem;
 		this.beliefStateBDD = beliefStateBDD;
@@ -323,6 +322,22 @@ public class BeliefState extends State {
 				abstraction.getSymbolicAxiomEvaluator());
 	}
 
+	/**
+	 * Belief states are keyed by the hash code of their BDD.
+	 *
+	 * @return 1
+	 */
+	@Override
+	public int getKeyWidth() {
+		return 1;
+	}
+
+	@Override
+	public long getKeyWord(int i) {
+		assert i == 0;
+		return hashCode;
+	}
+
 	/**
 	 * Checks whether the given operator is applicable in this belief state.
 	 *
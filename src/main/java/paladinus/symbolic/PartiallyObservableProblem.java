@@ -14,13 +14,13 @@ import java.util.TreeSet;
 
 import javabdd.BDD;
 import paladinus.Global.ExitCode;
+import paladinus.PlanningContext;
 import paladinus.explicit.ExplicitAxiomEvaluator;
 import paladinus.explicit.ExplicitCondition;
 import paladinus.explicit.ExplicitOperator;
 import paladinus.explicit.ExplicitOperator.OperatorRule;
 import paladinus.explicit.ExplicitState;
 import paladinus.heuristic.pdb.Abstraction;
-import paladinus.heuristic.pdb.PDB;
 import paladinus.problem.Problem;
 import paladinus.state.Condition;
 import paladinus.state.Operator;
@@ -84,14 +84,15 @@ public class PartiallyObservableProblem extends Problem {
 	/**
 	 * Constructor to create a partially observable problem.
 	 */
-	public PartiallyObservableProblem(BDDManager BDDManager, BDD initialBDD, ExplicitCondition explicitGoal,
-			ArrayList<String> variableNames, List<List<String>> propositionNames, ArrayList<Integer> domainSizes,
-			ArrayList<Integer> axiomLayer, ArrayList<Integer> defaultAxiomValues, LinkedHashSet<Operator> operators,
-			Set<OperatorRule> axioms, Set<Integer> variablesWhichAreInitiallyKnown) {
-		super(explicitGoal, variableNames, propositionNames, domainSizes, axiomLayer, defaultAxiomValues, operators,
+	public PartiallyObservableProblem(PlanningContext context, BDDManager BDDManager, BDD initialBDD,
+			ExplicitCondition explicitGoal, ArrayList<String> variableNames, List<List<String>> propositionNames,
+			ArrayList<Integer> domainSizes, ArrayList<Integer> axiomLayer, ArrayList<Integer> defaultAxiomValues,
+			LinkedHashSet<Operator> operators, Set<OperatorRule> axioms, Set<Integer> variablesWhichAreInitiallyKnown) {
+		super(context, explicitGoal, variableNames, propositionNames, domainSizes, axiomLayer, defaultAxiomValues, operators,
 				axioms, false);
 		this.explicitGoal = explicitGoal;
 		this.BDDManager = BDDManager;
+		BDDManager.setRandom(context.getGenerator());
 		assert (BDDManager.getNumStateVars() == domainSizes.size());
 		// initialize axiom evaluator
 		SymbolicAxiomEvaluator axiomEvaluator = new SymbolicAxiomEvaluator(BDDManager, this);
@@ -163,7 +164,7 @@ public class PartiallyObservableProblem extends Problem {
 		// System.out.println("newExplicitOps: " + newExplicitOps.toString());
 
 		// instantiate new problem instance:
-		PartiallyObservableProblem newProblem = new PartiallyObservableProblem(newBDDManager, newInitialBDD, newGoal,
+		PartiallyObservableProblem newProblem = new PartiallyObservableProblem(context, newBDDManager, newInitialBDD, newGoal,
 				newVariableNames, newPropositionNames, newDomainSizes, newAxiomLayer, newDefaultAxiomValues,
 				newExplicitOps, abstraction.axioms, newVariablesWhichAreInitiallyKnown);
 
@@ -222,7 +223,7 @@ public class PartiallyObservableProblem extends Problem {
 		BDD symbolicPatternComplement = BDDManager.getSymbolicPatternComplement(this, pattern);
 		SortedSet<Integer> sortedPattern = new TreeSet<Integer>(pattern);
 
-		if (PDB.buildExplicitPDBs && !forceSymbolicRepresentation) {
+		if (context.buildExplicitPDBs() && !forceSymbolicRepresentation) {
 			if (goal instanceof SymbolicCondition) {
 				System.err.println(
 						"It is not possible to compute an abstraction under full observability, because goal is symbolic!");
@@ -21,8 +21,6 @@ import paladinus.state.State;
  */
 public class FactPartitioner {
 
-	private static FactPartitioner INSTANCE;
-
 	private Set<Pair<Integer, Integer>> strictlyTerminal = new HashSet<>();
 	private Set<Pair<Integer, Integer>> unstableActivating = new HashSet<>();
 	private Set<Pair<Integer, Integer>> unstableActivatingNegatedFacts = new HashSet<>();
@@ -39,25 +37,15 @@ public class FactPartitioner {
 	
 	private Problem problem;
 
-	private FactPartitioner(Problem problem) {
+	/**
+	 * Partition the facts of a problem. Use PlanningContext.getFactPartitioner to
+	 * share the partitioning of a run.
+	 */
+	public FactPartitioner(Problem problem) {
 		this.problem = problem;
 		this.partitionFacts(problem);
 	}
 
-	public static FactPartitioner getInstance(Problem problem) {
-		if (INSTANCE == null)
-			INSTANCE = new FactPartitioner(problem);
-
-		return INSTANCE;
-	}
-
-	public static FactPartitioner getInstance() {
-		if (INSTANCE == null)
-			return null;
-
-		return INSTANCE;
-	}
-
 	private void partitionFacts(Problem problem) {
 		Set<Pair<Integer, Integer>> varsPropositions = new HashSet<>();
 		for (int i = 0; i < problem.propositionNames.size(); i++) {
@@ -154,7 +142,7 @@ public class FactPartitioner {
 	public boolean stateContainsUnstableActivating(State state) {
 		for (ExplicitState s : state.getAllExplicitWorldStates()) {
 			for (Pair<Integer, Integer> uA : this.unstableActivatingNegatedFacts) {
-				if (s.getVarsPropositions().contains(uA))
+				if (s.holds(uA.first, uA.second))
 					return true;
 			}
 		}
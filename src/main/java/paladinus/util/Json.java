@@ -0,0 +1,246 @@
+package paladinus.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal JSON reader and writer for the JSON lines of the planner server.
+ * Objects are read as maps, arrays as lists, numbers as doubles, and true,
+ * false and null as the corresponding Java values.
+ */
+public class Json {
+
+	private final String text;
+
+	private int position;
+
+	private Json(String text) {
+		this.text = text;
+	}
+
+	/**
+	 * Parse a JSON object.
+	 *
+	 * @param text JSON text
+	 * @return object as map from member names to values
+	 * @throws IllegalArgumentException if the text is no JSON object
+	 */
+	@SuppressWarnings("unchecked")
+	public static Map<String, Object> parseObject(String text) {
+		Json json = new Json(text);
+		json.skipWhitespace();
+		if (json.peek() != '{') {
+			throw json.error("expected an object");
+		}
+		Object value = json.readValue();
+		json.skipWhitespace();
+		if (json.position < text.length()) {
+			throw json.error("unexpected trailing characters");
+		}
+		return (Map<String, Object>) value;
+	}
+
+	/**
+	 * Quote a string as JSON string.
+	 *
+	 * @param string string
+	 * @return JSON string
+	 */
+	public static String quote(String string) {
+		StringBuilder builder = new StringBuilder(string.length() + 2);
+		builder.append('"');
+		for (int i = 0; i < string.length(); i++) {
+			char c = string.charAt(i);
+			switch (c) {
+			case '"':
+				builder.append("\\\"");
+				break;
+			case '\\':
+				builder.append("\\\\");
+				break;
+			case '\n':
+				builder.append("\\n");
+				break;
+			case '\r':
+				builder.append("\\r");
+				break;
+			case '\t':
+				builder.append("\\t");
+				break;
+			default:
+				if (c < 0x20) {
+					builder.append(String.format("\\u%04x", (int) c));
+				} else {
+					builder.append(c);
+				}
+			}
+		}
+		return builder.append('"').toString();
+	}
+
+	private Object readValue() {
+		skipWhitespace();
+		char c = peek();
+		switch (c) {
+		case '{':
+			return readObject();
+		case '[':
+			return readArray();
+		case '"':
+			return readString();
+		case 't':
+			return readLiteral("true", Boolean.TRUE);
+		case 'f':
+			return readLiteral("false", Boolean.FALSE);
+		case 'n':
+			return readLiteral("null", null);
+		default:
+			if (c == '-' || (c >= '0' && c <= '9')) {
+				return readNumber();
+			}
+			throw error("unexpected character '" + c + "'");
+		}
+	}
+
+	private Map<String, Object> readObject() {
+		Map<String, Object> object = new LinkedHashMap<String, Object>();
+		position++;
+		skipWhitespace();
+		if (peek() == '}') {
+			position++;
+			return object;
+		}
+		while (true) {
+			skipWhitespace();
+			if (peek() != '"') {
+				throw error("expected a member name");
+			}
+			String name = readString();
+			skipWhitespace();
+			expect(':');
+			object.put(name, readValue());
+			skipWhitespace();
+			if (peek() == '}') {
+				position++;
+				return object;
+			}
+			expect(',');
+		}
+	}
+
+	private List<Object> readArray() {
+		List<Object> array = new ArrayList<Object>();
+		position++;
+		skipWhitespace();
+		if (peek() == ']') {
+			position++;
+			return array;
+		}
+		while (true) {
+			array.add(readValue());
+			skipWhitespace();
+			if (peek() == ']') {
+				position++;
+				return array;
+			}
+			expect(',');
+		}
+	}
+
+	private String readString() {
+		StringBuilder builder = new StringBuilder();
+		position++;
+		while (true) {
+			char c = next();
+			if (c == '"') {
+				return builder.toString();
+			}
+			if (c != '\\') {
+				builder.append(c);
+				continue;
+			}
+			c = next();
+			switch (c) {
+			case 'b':
+				builder.append('\b');
+				break;
+			case 'f':
+				builder.append('\f');
+				break;
+			case 'n':
+				builder.append('\n');
+				break;
+			case 'r':
+				builder.append('\r');
+				break;
+			case 't':
+				builder.append('\t');
+				break;
+			case 'u':
+				if (position + 4 > text.length()) {
+					throw error("incomplete unicode escape");
+				}
+				try {
+					builder.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+				} catch (NumberFormatException e) {
+					throw error("invalid unicode escape");
+				}
+				position += 4;
+				break;
+			default:
+				builder.append(c);
+			}
+		}
+	}
+
+	private Double readNumber() {
+		int start = position;
+		while (position < text.length() && "+-0123456789.eE".indexOf(text.charAt(position)) >= 0) {
+			position++;
+		}
+		try {
+			return Double.valueOf(text.substring(start, position));
+		} catch (NumberFormatException e) {
+			throw error("invalid number");
+		}
+	}
+
+	private Object readLiteral(String literal, Object value) {
+		if (!text.startsWith(literal, position)) {
+			throw error("unexpected literal");
+		}
+		position += literal.length();
+		return value;
+	}
+
+	private void skipWhitespace() {
+		while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+			position++;
+		}
+	}
+
+	private char peek() {
+		if (position >= text.length()) {
+			throw error("unexpected end");
+		}
+		return text.charAt(position);
+	}
+
+	private char next() {
+		char c = peek();
+		position++;
+		return c;
+	}
+
+	private void expect(char c) {
+		if (next() != c) {
+			throw error("expected '" + c + "'");
+		}
+	}
+
+	private IllegalArgumentException error(String message) {
+		return new IllegalArgumentException("JSON error at position " + position + ": " + message);
+	}
+}
@@ -16,6 +16,26 @@ public class TranslateFONDUtils {
 		p.waitFor();
 	}
 
+	/**
+	 * Translate a FOND problem into the file output.sas of the given directory
+	 * instead of the working directory. The translator writes no Python bytecode
+	 * next to its sources.
+	 *
+	 * @param domainFile   PDDL domain file
+	 * @param instanceFile PDDL problem file
+	 * @param directory    Directory of the output.sas file
+	 * @return Absolute path of the output.sas file
+	 */
+	public static String translateFOND(String domainFile, String instanceFile, File directory) throws IOException, InterruptedException {
+		ProcessBuilder builder = new ProcessBuilder(toAbsolute("translator-fond/translate.py"), toAbsolute(domainFile), toAbsolute(instanceFile));
+		builder.directory(directory);
+		builder.environment().put("PYTHONDONTWRITEBYTECODE", "1");
+		builder.redirectErrorStream(true);
+		builder.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+		builder.start().waitFor();
+		return new File(directory, "output.sas").getAbsolutePath();
+	}
+
 	public static void removeSASFile() throws IOException, InterruptedException {
 		 Runtime run = Runtime.getRuntime();
 		 Process pr;
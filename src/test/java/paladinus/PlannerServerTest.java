@@ -0,0 +1,112 @@
+package paladinus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import paladinus.Global.ExitCode;
+import paladinus.util.Json;
+import paladinus.util.OsUtils;
+import paladinus.util.TranslateFONDUtils;
+
+public class PlannerServerTest {
+
+	private final PlannerServer server = new PlannerServer(new String[] { "-search", "ITERATIVE_DFS", "-heuristic", "FF" },
+			System.out, 1);
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Before
+	public void setUp() {
+		Global.exitByException = true;
+	}
+
+	@After
+	public void tearDown() {
+		Global.exitByException = false;
+	}
+
+	/**
+	 * Solve a job and check the id and the exit code of the response.
+	 */
+	private Map<String, Object> assertResponse(String request, Object id, ExitCode exitCode) {
+		Map<String, Object> response = Json.parseObject(server.solve(request));
+		assertEquals(id, response.get("id"));
+		assertEquals((double) exitCode.getCode(), response.get("exitCode"));
+		return response;
+	}
+
+	@Test
+	public void testMalformedRequest() {
+		Map<String, Object> response = assertResponse("{\"id\": 1, \"sas\": ", null, ExitCode.EXIT_INPUT_ERROR);
+		assertNull(response.get("result"));
+		assertTrue(((String) response.get("output")).startsWith("JSON error"));
+
+		assertResponse("[\"-search\", \"DFS\"]", null, ExitCode.EXIT_INPUT_ERROR);
+	}
+
+	@Test
+	public void testRequestWithoutTask() {
+		Map<String, Object> response = assertResponse("{\"id\": 7, \"args\": [\"-heuristic\", \"HMAX\"]}", 7.0,
+				ExitCode.EXIT_INPUT_ERROR);
+		assertEquals("Job has neither sas nor domain and problem.", response.get("output"));
+
+		assertResponse("{\"id\": \"job\", \"domain\": \"domain.pddl\"}", "job", ExitCode.EXIT_INPUT_ERROR);
+	}
+
+	@Test
+	public void testRequestStartingServer() {
+		Map<String, Object> response = assertResponse("{\"id\": 2, \"sas\": \"output.sas\", \"args\": [\"-server\"]}", 2.0,
+				ExitCode.EXIT_INPUT_ERROR);
+		assertEquals("Jobs cannot start servers.", response.get("output"));
+	}
+
+	@Test
+	public void testInvalidOption() {
+		Map<String, Object> response = assertResponse(
+				"{\"id\": 3, \"sas\": \"output.sas\", \"args\": [\"-noSuchOption\", \"ON\"]}", 3.0,
+				ExitCode.EXIT_INPUT_ERROR);
+		assertNull(response.get("result"));
+	}
+
+	@Test
+	public void testSolvedAfterBadRequests() throws IOException, InterruptedException {
+		String sas = Json.quote(
+				TranslateFONDUtils.translateFOND("benchmarks/doors/domain.pddl", "benchmarks/doors/p3.pddl", folder.getRoot()));
+
+		assertResponse("{\"id\": 4, \"sas\": " + sas + ", \"args\": [\"-noSuchOption\"]}", 4.0, ExitCode.EXIT_INPUT_ERROR);
+		assertResponse("not json", null, ExitCode.EXIT_INPUT_ERROR);
+		Map<String, Object> response = assertResponse("{\"id\": 5, \"sas\": " + sas + ", \"timeout\": 60}", 5.0,
+				ExitCode.EXIT_PROVEN);
+		assertEquals("PROVEN", response.get("result"));
+	}
+
+	@Test
+	public void testJobCancelledAfterTimeout() throws IOException {
+		Assume.assumeFalse(OsUtils.isWindows());
+		File translator = folder.newFile("translate.sh");
+		Files.write(translator.toPath(), "#!/bin/sh\nsleep 60\n".getBytes(StandardCharsets.UTF_8));
+		assertTrue(translator.setExecutable(true));
+
+		long start = System.currentTimeMillis();
+		Map<String, Object> response = assertResponse("{\"id\": 6, \"domain\": \"benchmarks/doors/domain.pddl\", "
+				+ "\"problem\": \"benchmarks/doors/p3.pddl\", \"timeout\": 1, \"args\": [\"-translatorPath\", "
+				+ Json.quote(translator.getPath()) + "]}", 6.0, ExitCode.EXIT_UNPROVEN);
+		assertEquals("TIMEOUT", response.get("result"));
+		assertTrue(System.currentTimeMillis() - start < 30000);
+	}
+}
@@ -0,0 +1,105 @@
+package paladinus.explicit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import paladinus.explicit.StatePacker;
+
+public class StatePackerTest {
+
+	private static List<Integer> domainSizes(int numVars, int domainSize) {
+		return new ArrayList<Integer>(Collections.nCopies(numVars, domainSize));
+	}
+
+	/**
+	 * Set random values and check that every variable keeps its own value.
+	 */
+	private void assertValuesKept(StatePacker packer, List<Integer> domainSizes) {
+		Random random = new Random(1);
+		long[] buffer = packer.newBuffer();
+		int[] values = new int[domainSizes.size()];
+		for (int round = 0; round < 100; round++) {
+			int var = random.nextInt(values.length);
+			values[var] = random.nextInt(domainSizes.get(var));
+			packer.set(buffer, var, values[var]);
+			for (int v = 0; v < values.length; v++) {
+				assertEquals(values[v], packer.get(buffer, v));
+			}
+		}
+	}
+
+	@Test
+	public void testSingleWord() {
+		List<Integer> domainSizes = new ArrayList<Integer>();
+		Collections.addAll(domainSizes, 2, 3, 5, 1, 17);
+		StatePacker packer = new StatePacker(domainSizes);
+		assertEquals(1, packer.getNumWords());
+		assertEquals(1, packer.getKeyWidth());
+		assertValuesKept(packer, domainSizes);
+
+		long[] buffer = packer.newBuffer();
+		packer.set(buffer, 4, 16);
+		packer.set(buffer, 0, 1);
+		assertEquals(buffer[0], packer.singleWordKey(buffer));
+	}
+
+	@Test
+	public void testVariablesDoNotSpanWords() {
+		// 3 bits per variable, 21 variables per word
+		List<Integer> domainSizes = domainSizes(30, 8);
+		StatePacker packer = new StatePacker(domainSizes);
+		assertEquals(2, packer.getNumWords());
+		assertValuesKept(packer, domainSizes);
+
+		long[] buffer = packer.newBuffer();
+		for (int var = 0; var < domainSizes.size(); var++) {
+			packer.set(buffer, var, 7);
+		}
+		assertEquals((1L << 63) - 1, buffer[0]);
+		assertEquals((1L << 27) - 1, buffer[1]);
+	}
+
+	@Test
+	public void testMixedRadixKey() {
+		// 78 bits in two words, but 3^39 < 2^63
+		List<Integer> domainSizes = domainSizes(39, 3);
+		StatePacker packer = new StatePacker(domainSizes);
+		assertEquals(2, packer.getNumWords());
+		assertEquals(1, packer.getKeyWidth());
+
+		int[] variables = new int[domainSizes.size()];
+		for (int var = 0; var < variables.length; var++) {
+			variables[var] = var;
+		}
+		Random random = new Random(2);
+		Set<Long> keys = new HashSet<Long>();
+		for (int i = 0; i < 1000; i++) {
+			long[] buffer = packer.newBuffer();
+			for (int var = 0; var < variables.length; var++) {
+				packer.set(buffer, var, random.nextInt(3));
+			}
+			long key = packer.singleWordKey(buffer);
+			assertEquals(packer.mixedRadixIndex(buffer, variables), key);
+			assertTrue(key >= 0);
+			keys.add(key);
+		}
+		assertEquals(1000, keys.size());
+	}
+
+	@Test
+	public void testMultiWordKey() {
+		// 3^40 does not fit into a long
+		StatePacker packer = new StatePacker(domainSizes(40, 3));
+		assertEquals(2, packer.getNumWords());
+		assertEquals(2, packer.getKeyWidth());
+	}
+}
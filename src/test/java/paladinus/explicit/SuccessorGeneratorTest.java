@@ -0,0 +1,85 @@
+package paladinus.explicit;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import paladinus.Options;
+import paladinus.PlanningContext;
+import paladinus.parser.SasParser;
+import paladinus.problem.Problem;
+import paladinus.state.Operator;
+import paladinus.state.State;
+import paladinus.util.TranslateFONDUtils;
+
+public class SuccessorGeneratorTest {
+
+	private static final int MAX_STATES = 300;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Problem parse(String domainFile, String instanceFile) throws IOException, InterruptedException {
+		String filename = TranslateFONDUtils.translateFOND(domainFile, instanceFile, folder.getRoot());
+		InputStream sasFile = new FileInputStream(new File(filename));
+		SasParser parser = new SasParser(new PlanningContext(new Options()));
+		Problem problem = parser.parse(sasFile);
+
+		problem.finishInitializationAndPreprocessing();
+		return problem;
+	}
+
+	/**
+	 * Compare the successor generator with a linear scan over the operators on
+	 * the states reached by a breadth-first search.
+	 */
+	private void assertSameApplicableOps(Problem problem) {
+		// A copy of the operator set is not the problem's set, so it is scanned.
+		List<Operator> scannedOps = new ArrayList<Operator>(problem.getOperators());
+		Queue<State> queue = new LinkedList<State>();
+		Set<State> seen = new HashSet<State>();
+		queue.add(problem.getSingleInitialState());
+		seen.add(problem.getSingleInitialState());
+		while (!queue.isEmpty() && seen.size() < MAX_STATES) {
+			ExplicitState state = (ExplicitState) queue.poll();
+			List<Operator> generated = problem.getSuccessorGenerator().getApplicableOps(state);
+			List<Operator> scanned = new ArrayList<Operator>();
+			for (Operator op : scannedOps) {
+				if (state.isApplicable(op)) {
+					scanned.add(op);
+				}
+			}
+			assertEquals(scanned, generated);
+			for (Operator op : generated) {
+				for (State successor : state.apply(op)) {
+					if (seen.add(successor)) {
+						queue.add(successor);
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testSuccessorGeneratorZenotravel() throws IOException, InterruptedException {
+		assertSameApplicableOps(parse("benchmarks/zenotravel/domain.pddl", "benchmarks/zenotravel/p2.pddl"));
+	}
+
+	@Test
+	public void testSuccessorGeneratorDoors() throws IOException, InterruptedException {
+		assertSameApplicableOps(parse("benchmarks/doors/domain.pddl", "benchmarks/doors/p6.pddl"));
+	}
+}
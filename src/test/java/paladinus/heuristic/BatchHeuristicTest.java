@@ -0,0 +1,199 @@
+package paladinus.heuristic;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import paladinus.Options;
+import paladinus.PlanningContext;
+import paladinus.heuristic.FFHeuristic.RPGStrategy;
+import paladinus.parser.SasParser;
+import paladinus.problem.Problem;
+import paladinus.state.Operator;
+import paladinus.state.State;
+import paladinus.util.TranslateFONDUtils;
+
+/**
+ * Tests of the evaluation of the children of a state in one batch.
+ */
+public class BatchHeuristicTest {
+
+	/**
+	 * The children of a state and the operators which generated them.
+	 */
+	private static class Batch {
+
+		final State parent;
+
+		final List<State> states = new ArrayList<State>();
+
+		final List<Operator> ops = new ArrayList<Operator>();
+
+		Batch(State parent) {
+			this.parent = parent;
+		}
+	}
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Problem parse(String domainFile, String instanceFile) throws IOException, InterruptedException {
+		String filename = TranslateFONDUtils.translateFOND(domainFile, instanceFile, folder.getRoot());
+		InputStream sasFile = new FileInputStream(new File(filename));
+		Problem problem = new SasParser(new PlanningContext(new Options())).parse(sasFile);
+
+		problem.finishInitializationAndPreprocessing();
+		return problem;
+	}
+
+	/**
+	 * Get the batches of the first states expanded in breadth-first order.
+	 */
+	private static List<Batch> batches(Problem problem, int numBatches) {
+		List<Batch> batches = new ArrayList<Batch>();
+		Queue<State> open = new ArrayDeque<State>();
+		Set<State> seen = new HashSet<State>();
+		open.add(problem.getSingleInitialState());
+		seen.add(problem.getSingleInitialState());
+		while (batches.size() < numBatches && !open.isEmpty()) {
+			State state = open.poll();
+			Batch batch = new Batch(state);
+			for (Operator op : state.getApplicableOps(problem.getOperators())) {
+				for (State successor : state.apply(op)) {
+					batch.states.add(successor);
+					batch.ops.add(op);
+					if (seen.add(successor))
+						open.add(successor);
+				}
+			}
+			if (!batch.states.isEmpty())
+				batches.add(batch);
+		}
+		assertTrue(batches.size() > 1);
+		return batches;
+	}
+
+	private static double[] evaluate(Heuristic heuristic, Batch batch, boolean withParent) {
+		double[] values = new double[batch.states.size()];
+		if (withParent)
+			heuristic.getHeuristics(batch.states, batch.parent, batch.ops, values);
+		else heuristic.getHeuristics(batch.states, null, null, values);
+		return values;
+	}
+
+	/**
+	 * Check that a batch is evaluated like its states one after the other, by a
+	 * heuristic of its own.
+	 */
+	private static void assertBatchEqualsSerial(Problem problem, Supplier<Heuristic> heuristic) {
+		Heuristic batched = heuristic.get();
+		Heuristic serial = heuristic.get();
+		for (Batch batch : batches(problem, 30)) {
+			double[] withParent = evaluate(batched, batch, true);
+			double[] withoutParent = evaluate(batched, batch, false);
+			for (int i = 0; i < batch.states.size(); i++) {
+				assertEquals(serial.getHeuristic(batch.states.get(i), batch.parent, batch.ops.get(i)), withParent[i], 0);
+				assertEquals(serial.getHeuristic(batch.states.get(i)), withoutParent[i], 0);
+			}
+		}
+	}
+
+	@Test
+	public void testBatchEqualsSerial() throws IOException, InterruptedException {
+		Problem problem = parse("benchmarks/elevators/domain.pddl", "benchmarks/elevators/p3.pddl");
+		assertBatchEqualsSerial(problem, () -> new FFHeuristic(problem, RPGStrategy.FF));
+		assertBatchEqualsSerial(problem, () -> new FFHeuristic(problem, RPGStrategy.ADD));
+		assertBatchEqualsSerial(problem, () -> new HMaxHeuristic(problem));
+		assertBatchEqualsSerial(problem, () -> new LMCutHeuristic(problem));
+	}
+
+	/**
+	 * Repairing the h-max costs of the parent in the first round keeps the LM-cut
+	 * values of these problems.
+	 */
+	@Test
+	public void testBatchLMCutHeuristic() throws IOException, InterruptedException {
+		Problem problem = parse("benchmarks/blocksworld-new/domain.pddl", "benchmarks/blocksworld-new/p7.pddl");
+		LMCutHeuristic batched = new LMCutHeuristic(problem);
+		LMCutHeuristic full = new LMCutHeuristic(problem);
+		for (Batch batch : batches(problem, 30)) {
+			double[] values = evaluate(batched, batch, true);
+			for (int i = 0; i < batch.states.size(); i++) {
+				assertEquals(full.getHeuristic(batch.states.get(i)), values[i], 0);
+			}
+		}
+	}
+
+	/**
+	 * Check that a parallel heuristic evaluates batches like one instance, also
+	 * after its threads were stopped.
+	 */
+	private static void assertParallelEqualsSerial(Problem problem, Supplier<Heuristic> heuristic) {
+		List<Heuristic> instances = new ArrayList<Heuristic>();
+		for (int i = 0; i < 4; i++)
+			instances.add(heuristic.get());
+		ParallelHeuristic parallel = new ParallelHeuristic(instances);
+		Heuristic serial = heuristic.get();
+		List<Batch> batches = batches(problem, 30);
+		boolean parallelBatch = false;
+		for (Batch batch : batches) {
+			parallelBatch |= batch.states.size() >= 8;
+			assertArrayEquals(evaluate(serial, batch, true), evaluate(parallel, batch, true), 0);
+			assertArrayEquals(evaluate(serial, batch, false), evaluate(parallel, batch, false), 0);
+		}
+		assertTrue(parallelBatch);
+		parallel.close();
+		for (Batch batch : batches) {
+			assertArrayEquals(evaluate(serial, batch, false), evaluate(parallel, batch, false), 0);
+		}
+	}
+
+	@Test
+	public void testParallelEqualsSerial() throws IOException, InterruptedException {
+		Problem problem = parse("benchmarks/blocksworld-new/domain.pddl", "benchmarks/blocksworld-new/p7.pddl");
+		assertParallelEqualsSerial(problem, () -> new FFHeuristic(problem, RPGStrategy.FF));
+		assertParallelEqualsSerial(problem, () -> new HMaxHeuristic(problem));
+		assertParallelEqualsSerial(problem, () -> new LMCutHeuristic(problem));
+	}
+
+	/**
+	 * Check that a copy evaluates states like a new instance while the original
+	 * evaluates other states, i.e., that they share no scratch data.
+	 */
+	private static void assertCopyEqualsNew(Problem problem, Supplier<Heuristic> heuristic) {
+		Heuristic original = heuristic.get();
+		Heuristic copy = original.copy();
+		Heuristic serial = heuristic.get();
+		List<Batch> batches = batches(problem, 30);
+		for (int i = 0; i < batches.size(); i++) {
+			Batch batch = batches.get(i);
+			evaluate(original, batches.get(batches.size() - 1 - i), true);
+			assertArrayEquals(evaluate(serial, batch, true), evaluate(copy, batch, true), 0);
+			assertArrayEquals(evaluate(serial, batch, false), evaluate(copy, batch, false), 0);
+		}
+	}
+
+	@Test
+	public void testCopyEqualsNew() throws IOException, InterruptedException {
+		Problem problem = parse("benchmarks/blocksworld-new/domain.pddl", "benchmarks/blocksworld-new/p7.pddl");
+		assertCopyEqualsNew(problem, () -> new FFHeuristic(problem, RPGStrategy.FF));
+		assertCopyEqualsNew(problem, () -> new HMaxHeuristic(problem));
+		assertCopyEqualsNew(problem, () -> new LMCutHeuristic(problem));
+	}
+}
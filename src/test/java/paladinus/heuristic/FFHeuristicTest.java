@@ -1,18 +1,20 @@
-package heuristic;
+package paladinus.heuristic;
 
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
-import paladinus.Global;
 import paladinus.Options;
-import paladinus.heuristic.FFHeuristic;
+import paladinus.PlanningContext;
 import paladinus.heuristic.FFHeuristic.RPGStrategy;
 import paladinus.parser.SasParser;
 import paladinus.problem.Problem;
+import paladinus.util.TranslateFONDUtils;
 
 /**
  *
@@ -21,20 +23,19 @@ import paladinus.problem.Problem;
  */
 public class FFHeuristicTest {
 
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
 	@Test
 	public void testFFHeuristicAcrobatics1() throws IOException, InterruptedException {
 		String domainFile = "benchmarks/acrobatics/domain.pddl";
 		String instanceFile = "benchmarks/acrobatics/p1.pddl";
 
-		this.translateFOND(domainFile, instanceFile);
-
-		String filename = toAbsolute("output.sas");
+		String filename = TranslateFONDUtils.translateFOND(domainFile, instanceFile, folder.getRoot());
 		InputStream sasFile = new FileInputStream(new File(filename));
-		SasParser parser = new SasParser();
+		SasParser parser = new SasParser(new PlanningContext(new Options()));
 		Problem problem = parser.parse(sasFile);
 
-		Global.options = new Options();
-
 		problem.finishInitializationAndPreprocessing();
 		
 		FFHeuristic ff = new FFHeuristic(problem, RPGStrategy.FF);
@@ -42,15 +43,4 @@ public class FFHeuristicTest {
 		System.out.println("$> h-value = " + ff.getHeuristic(problem.getSingleInitialState()));
 		System.out.println(ff.getRelaxedPlan());
 	}
-
-	private String toAbsolute(String resFile) {
-		File file = new File(resFile);
-		return file.getAbsolutePath();
-	}
-
-	private void translateFOND(String domainFile, String instanceFile) throws IOException, InterruptedException {
-		String cmd = "translator-fond/translate.py " + domainFile + " " + instanceFile;
-		Process p = Runtime.getRuntime().exec(cmd);
-		p.waitFor();
-	}
 }
@@ -0,0 +1,101 @@
+package paladinus.heuristic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Queue;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import paladinus.Options;
+import paladinus.PlanningContext;
+import paladinus.parser.SasParser;
+import paladinus.problem.Problem;
+import paladinus.state.Operator;
+import paladinus.state.State;
+import paladinus.util.TranslateFONDUtils;
+
+/**
+*
+* @author Ramon Fraga Pereira
+*
+*/
+public class HMaxHeuristicTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testMaxHeuristicFaults1() throws IOException, InterruptedException {
+		String domainFile = "benchmarks/faults/d1.pddl";
+		String instanceFile = "benchmarks/faults/p1.pddl";
+
+		String filename = TranslateFONDUtils.translateFOND(domainFile, instanceFile, folder.getRoot());
+		InputStream sasFile = new FileInputStream(new File(filename));
+		SasParser parser = new SasParser(new PlanningContext(new Options()));
+		Problem problem = parser.parse(sasFile);
+
+		problem.finishInitializationAndPreprocessing();
+		
+		HMaxHeuristic hmax = new HMaxHeuristic(problem);
+		System.out.println("> MAX Heuristic ");
+		System.out.println("$> h-value = " + hmax.getHeuristic(problem.getSingleInitialState()));
+	}
+
+	@Test
+	public void testIncrementalHeuristicBlocksworld() throws IOException, InterruptedException {
+		assertIncrementalEqualsFull("benchmarks/blocksworld-new/domain.pddl", "benchmarks/blocksworld-new/p3.pddl");
+	}
+
+	@Test
+	public void testIncrementalHeuristicTriangleTireworld() throws IOException, InterruptedException {
+		assertIncrementalEqualsFull("benchmarks/triangle-tireworld/domain.pddl", "benchmarks/triangle-tireworld/p2.pddl");
+	}
+
+	@Test
+	public void testIncrementalHeuristicDoors() throws IOException, InterruptedException {
+		assertIncrementalEqualsFull("benchmarks/doors/domain.pddl", "benchmarks/doors/p3.pddl");
+	}
+
+	/**
+	 * Expand the states of a problem in breadth-first order and check that the
+	 * h^max value of each successor repaired from its parent (as with
+	 * -incrementalHeuristic) equals its h^max value computed from scratch.
+	 */
+	private void assertIncrementalEqualsFull(String domainFile, String instanceFile) throws IOException, InterruptedException {
+		String filename = TranslateFONDUtils.translateFOND(domainFile, instanceFile, folder.getRoot());
+		InputStream sasFile = new FileInputStream(new File(filename));
+		Problem problem = new SasParser(new PlanningContext(new Options())).parse(sasFile);
+
+		problem.finishInitializationAndPreprocessing();
+
+		HMaxHeuristic incremental = new HMaxHeuristic(problem);
+		HMaxHeuristic full = new HMaxHeuristic(problem);
+		Queue<State> open = new ArrayDeque<State>();
+		Set<State> seen = new HashSet<State>();
+		open.add(problem.getSingleInitialState());
+		seen.add(problem.getSingleInitialState());
+		int successors = 0;
+		for (int expanded = 0; expanded < 200 && !open.isEmpty(); expanded++) {
+			State state = open.poll();
+			for (Operator op : state.getApplicableOps(problem.getOperators())) {
+				for (State successor : state.apply(op)) {
+					assertEquals(full.getHeuristic(successor), incremental.getHeuristic(successor, state, op), 0);
+					successors++;
+					if (seen.add(successor))
+						open.add(successor);
+				}
+			}
+		}
+		assertTrue(successors > 0);
+	}
+}
@@ -1,19 +1,29 @@
-package heuristic;
+package paladinus.heuristic;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Queue;
+import java.util.Set;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.kohsuke.args4j.CmdLineException;
+import org.kohsuke.args4j.CmdLineParser;
 
-import paladinus.Global;
 import paladinus.Options;
-import paladinus.heuristic.LMCutHeuristic;
+import paladinus.PlanningContext;
 import paladinus.parser.SasParser;
 import paladinus.problem.Problem;
+import paladinus.state.Operator;
+import paladinus.state.State;
 import paladinus.util.TranslateFONDUtils;
 
 /**
@@ -23,6 +33,9 @@ import paladinus.util.TranslateFONDUtils;
 */
 public class LMCutHeuristicTest {
 
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
 	/**
 	 * blocksworld-new
 	 */
@@ -32,15 +45,11 @@ public class LMCutHeuristicTest {
 		String domainFile = "benchmarks/blocksworld-new/domain.pddl";
 		String instanceFile = "benchmarks/blocksworld-new/p1.pddl";
 
-		TranslateFONDUtils.translateFOND(domainFile, instanceFile);
-
-		String filename = TranslateFONDUtils.toAbsolute("output.sas");
+		String filename = TranslateFONDUtils.translateFOND(domainFile, instanceFile, folder.getRoot());
 		InputStream sasFile = new FileInputStream(new File(filename));
-		SasParser parser = new SasParser();
+		SasParser parser = new SasParser(new PlanningContext(new Options()));
 		Problem problem = parser.parse(sasFile);
 
-		Global.options = new Options();
-
 		problem.finishInitializationAndPreprocessing();
 		
 		LMCutHeuristic lmcut = new LMCutHeuristic(problem);
@@ -55,15 +64,11 @@ public class LMCutHeuristicTest {
 		String domainFile = "benchmarks/blocksworld-new/domain.pddl";
 		String instanceFile = "benchmarks/blocksworld-new/p11.pddl";
 
-		TranslateFONDUtils.translateFOND(domainFile, instanceFile);
-
-		String filename = TranslateFONDUtils.toAbsolute("output.sas");
+		String filename = TranslateFONDUtils.translateFOND(domainFile, instanceFile, folder.getRoot());
 		InputStream sasFile = new FileInputStream(new File(filename));
-		SasParser parser = new SasParser();
+		SasParser parser = new SasParser(new PlanningContext(new Options()));
 		Problem problem = parser.parse(sasFile);
 
-		Global.options = new Options();
-
 		problem.finishInitializationAndPreprocessing();
 		
 		LMCutHeuristic lmcut = new LMCutHeuristic(problem);
@@ -82,15 +87,11 @@ public class LMCutHeuristicTest {
 		String domainFile = "benchmarks/doors/domain.pddl";
 		String instanceFile = "benchmarks/doors/p3.pddl";
 
-		TranslateFONDUtils.translateFOND(domainFile, instanceFile);
-
-		String filename = TranslateFONDUtils.toAbsolute("output.sas");
+		String filename = TranslateFONDUtils.translateFOND(domainFile, instanceFile, folder.getRoot());
 		InputStream sasFile = new FileInputStream(new File(filename));
-		SasParser parser = new SasParser();
+		SasParser parser = new SasParser(new PlanningContext(new Options()));
 		Problem problem = parser.parse(sasFile);
 
-		Global.options = new Options();
-
 		problem.finishInitializationAndPreprocessing();
 		
 		LMCutHeuristic lmcut = new LMCutHeuristic(problem);
@@ -105,15 +106,11 @@ public class LMCutHeuristicTest {
 		String domainFile = "benchmarks/doors/domain.pddl";
 		String instanceFile = "benchmarks/doors/p8.pddl";
 
-		TranslateFONDUtils.translateFOND(domainFile, instanceFile);
-
-		String filename = TranslateFONDUtils.toAbsolute("output.sas");
+		String filename = TranslateFONDUtils.translateFOND(domainFile, instanceFile, folder.getRoot());
 		InputStream sasFile = new FileInputStream(new File(filename));
-		SasParser parser = new SasParser();
+		SasParser parser = new SasParser(new PlanningContext(new Options()));
 		Problem problem = parser.parse(sasFile);
 
-		Global.options = new Options();
-
 		problem.finishInitializationAndPreprocessing();
 		
 		LMCutHeuristic lmcut = new LMCutHeuristic(problem);
@@ -132,15 +129,11 @@ public class LMCutHeuristicTest {
 		String domainFile = "benchmarks/tireworld-truck/domain.pddl";
 		String instanceFile = "benchmarks/tireworld-truck/p9.pddl";
 
-		TranslateFONDUtils.translateFOND(domainFile, instanceFile);
-
-		String filename = TranslateFONDUtils.toAbsolute("output.sas");
+		String filename = TranslateFONDUtils.translateFOND(domainFile, instanceFile, folder.getRoot());
 		InputStream sasFile = new FileInputStream(new File(filename));
-		SasParser parser = new SasParser();
+		SasParser parser = new SasParser(new PlanningContext(new Options()));
 		Problem problem = parser.parse(sasFile);
 
-		Global.options = new Options();
-
 		problem.finishInitializationAndPreprocessing();
 		
 		LMCutHeuristic lmcut = new LMCutHeuristic(problem);
@@ -155,15 +148,11 @@ public class LMCutHeuristicTest {
 		String domainFile = "benchmarks/tireworld-truck/domain.pddl";
 		String instanceFile = "benchmarks/tireworld-truck/p54.pddl";
 
-		TranslateFONDUtils.translateFOND(domainFile, instanceFile);
-
-		String filename = TranslateFONDUtils.toAbsolute("output.sas");
+		String filename = TranslateFONDUtils.translateFOND(domainFile, instanceFile, folder.getRoot());
 		InputStream sasFile = new FileInputStream(new File(filename));
-		SasParser parser = new SasParser();
+		SasParser parser = new SasParser(new PlanningContext(new Options()));
 		Problem problem = parser.parse(sasFile);
 
-		Global.options = new Options();
-
 		problem.finishInitializationAndPreprocessing();
 		
 		LMCutHeuristic lmcut = new LMCutHeuristic(problem);
@@ -172,4 +161,58 @@ public class LMCutHeuristicTest {
 		System.out.println("$> h-value = " + lmcutHvalue);
 		assertTrue(lmcutHvalue == 5);
 	}
+	
+	/**
+	 * incremental h-max after the cuts
+	 */
+	
+	private Problem parseWithIncrementalCuts(String domainFile, String instanceFile) throws IOException, InterruptedException, CmdLineException {
+		String filename = TranslateFONDUtils.translateFOND(domainFile, instanceFile, folder.getRoot());
+		InputStream sasFile = new FileInputStream(new File(filename));
+		SasParser parser = new SasParser(new PlanningContext(new Options()));
+		Problem problem = parser.parse(sasFile);
+
+		new CmdLineParser(problem.getContext().getOptions()).parseArgument("-incrementalLMCut", "ON");
+
+		problem.finishInitializationAndPreprocessing();
+		return problem;
+	}
+	
+	@Test
+	public void testIncrementalCutsInitialStates() throws IOException, InterruptedException, CmdLineException {
+		Problem problem = parseWithIncrementalCuts("benchmarks/blocksworld-new/domain.pddl", "benchmarks/blocksworld-new/p11.pddl");
+		assertTrue(new LMCutHeuristic(problem).getHeuristic(problem.getSingleInitialState()) == 13);
+
+		problem = parseWithIncrementalCuts("benchmarks/doors/domain.pddl", "benchmarks/doors/p8.pddl");
+		assertTrue(new LMCutHeuristic(problem).getHeuristic(problem.getSingleInitialState()) == 9);
+
+		problem = parseWithIncrementalCuts("benchmarks/tireworld-truck/domain.pddl", "benchmarks/tireworld-truck/p54.pddl");
+		assertTrue(new LMCutHeuristic(problem).getHeuristic(problem.getSingleInitialState()) == 5);
+	}
+	
+	@Test
+	public void testIncrementalCutsEqualFullCuts() throws IOException, InterruptedException, CmdLineException {
+		Problem problem = parseWithIncrementalCuts("benchmarks/blocksworld-new/domain.pddl", "benchmarks/blocksworld-new/p3.pddl");
+		LMCutHeuristic incremental = new LMCutHeuristic(problem);
+		HMaxHeuristic hmax = new HMaxHeuristic(problem);
+		new CmdLineParser(problem.getContext().getOptions()).parseArgument("-incrementalLMCut", "OFF");
+		LMCutHeuristic full = new LMCutHeuristic(problem);
+
+		Queue<State> open = new ArrayDeque<State>();
+		Set<State> seen = new HashSet<State>();
+		open.add(problem.getSingleInitialState());
+		seen.add(problem.getSingleInitialState());
+		for (int expansions = 0; expansions < 200 && !open.isEmpty(); expansions++) {
+			State state = open.poll();
+			double value = incremental.getHeuristic(state);
+			assertEquals(full.getHeuristic(state), value, 0);
+			assertTrue(value >= hmax.getHeuristic(state));
+			for (Operator op : state.getApplicableOps(problem.getOperators())) {
+				for (State successor : state.apply(op)) {
+					if (seen.add(successor))
+						open.add(successor);
+				}
+			}
+		}
+	}
 }
@@ -0,0 +1,160 @@
+package paladinus.heuristic.pdb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PDBTableTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Get random costs with the given maximum, some of them infinite.
+	 */
+	private static double[] costs(int size, double max, boolean integral) {
+		Random random = new Random(size);
+		double[] costs = new double[size];
+		for (int i = 0; i < size; i++) {
+			double cost = random.nextDouble() * max;
+			costs[i] = integral ? Math.rint(cost) : cost;
+		}
+		costs[0] = 0;
+		costs[1] = max;
+		costs[2] = Double.POSITIVE_INFINITY;
+		costs[size - 1] = Double.POSITIVE_INFINITY;
+		return costs;
+	}
+
+	/**
+	 * Check that the quantized costs are rounded down by less than the step, and
+	 * that infinite costs stay infinite.
+	 */
+	private static void assertQuantized(double[] costs, PDBTable table, double step) {
+		assertEquals(costs.length, table.size());
+		for (int i = 0; i < costs.length; i++) {
+			double cost = table.get(i);
+			if (costs[i] == Double.POSITIVE_INFINITY) {
+				assertEquals(Double.POSITIVE_INFINITY, cost, 0);
+			} else {
+				assertTrue(cost <= costs[i]);
+				assertTrue(costs[i] - cost < step);
+			}
+		}
+	}
+
+	private static void assertExact(double[] costs, PDBTable table) {
+		assertEquals(costs.length, table.size());
+		for (int i = 0; i < costs.length; i++) {
+			assertEquals(costs[i], table.get(i), 0);
+		}
+	}
+
+	@Test
+	public void testExactEntries() {
+		double[] costs = costs(1001, 1e6, false);
+		PDBTable table = PDBTable.create(costs, 64);
+		assertEquals(64, table.getBits());
+		assertExact(costs, table);
+	}
+
+	@Test
+	public void testQuantizedEntries() {
+		double max = 1000.5;
+		double[] costs = costs(1001, max, false);
+		PDBTable table = PDBTable.create(costs, 16);
+		assertEquals(16, table.getBits());
+		assertQuantized(costs, table, max / ((1 << 16) - 2));
+		/* The largest cost is the largest level. */
+		assertEquals(max, table.get(1), 1e-9);
+
+		table = PDBTable.create(costs, 8);
+		assertEquals(8, table.getBits());
+		assertQuantized(costs, table, max / ((1 << 8) - 2));
+		assertEquals(max, table.get(1), 1e-9);
+	}
+
+	@Test
+	public void testSmallIntegralCostsAreExact() {
+		double[] costs = costs(1001, 200, true);
+		PDBTable table = PDBTable.create(costs, 8);
+		assertEquals(8, table.getBits());
+		assertExact(costs, table);
+
+		costs = costs(1001, 60000, true);
+		table = PDBTable.create(costs, 16);
+		assertEquals(16, table.getBits());
+		assertExact(costs, table);
+	}
+
+	@Test
+	public void testFourBitEntries() {
+		// An odd number of entries shares the last byte with no other entry.
+		double[] costs = costs(1001, 14, true);
+		for (int bits : new int[] { 16, 8 }) {
+			PDBTable table = PDBTable.create(costs, bits);
+			assertEquals(4, table.getBits());
+			assertExact(costs, table);
+		}
+		/* Costs which do not fit into 4 bits. */
+		assertEquals(8, PDBTable.create(costs(1001, 15, true), 8).getBits());
+		assertEquals(8, PDBTable.create(costs(1001, 14, false), 8).getBits());
+	}
+
+	@Test
+	public void testOnlyInfiniteCosts() {
+		double[] costs = new double[7];
+		Arrays.fill(costs, Double.POSITIVE_INFINITY);
+		for (int bits : new int[] { 64, 16, 8 }) {
+			assertExact(costs, PDBTable.create(costs, bits));
+		}
+	}
+
+	@Test
+	public void testWriteAndRead() throws IOException {
+		double[][] costs = { costs(1001, 1e6, false), costs(1001, 1000.5, false), costs(1001, 14, true) };
+		for (double[] entries : costs) {
+			for (int bits : new int[] { 64, 16, 8 }) {
+				PDBTable table = PDBTable.create(entries, bits);
+				Path file = folder.getRoot().toPath().resolve("table-" + bits + ".pdb");
+				table.write(file);
+				PDBTable read = PDBTable.read(file, entries.length);
+				assertEquals(table.getBits(), read.getBits());
+				assertEquals(table.size(), read.size());
+				for (int i = 0; i < entries.length; i++) {
+					assertEquals(table.get(i), read.get(i), 0);
+				}
+			}
+		}
+		/* No temporary files are left behind. */
+		assertEquals(3, folder.getRoot().list().length);
+	}
+
+	@Test
+	public void testReadWithWrongSize() throws IOException {
+		double[] costs = costs(1001, 1000.5, false);
+		Path file = folder.getRoot().toPath().resolve("table.pdb");
+		PDBTable.create(costs, 16).write(file);
+		assertNull(PDBTable.read(file, 1000));
+		assertNull(PDBTable.read(file, 1002));
+
+		/* A file with the right header but missing entries. */
+		byte[] bytes = Files.readAllBytes(file);
+		Files.write(file, Arrays.copyOf(bytes, bytes.length - 2));
+		assertNull(PDBTable.read(file, 1001));
+
+		/* A file shorter than the header. */
+		Files.write(file, new byte[] { 1, 2, 3 });
+		assertNull(PDBTable.read(file, 1001));
+	}
+}
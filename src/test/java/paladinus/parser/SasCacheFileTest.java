@@ -0,0 +1,154 @@
+package paladinus.parser;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.kohsuke.args4j.CmdLineException;
+import org.kohsuke.args4j.CmdLineParser;
+
+import paladinus.Options;
+import paladinus.PlanningContext;
+import paladinus.explicit.ExplicitOperator;
+import paladinus.problem.Problem;
+import paladinus.state.Operator;
+import paladinus.util.TranslateFONDUtils;
+
+public class SasCacheFileTest {
+
+	private static final String DIGEST = "0123456789abcdef";
+
+	private final PlanningContext context = new PlanningContext(new Options());
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Directory of the translator output, apart from the cache files.
+	 */
+	@Rule
+	public TemporaryFolder translation = new TemporaryFolder();
+
+	/**
+	 * Translate and parse a problem, and get the parser with the parsed task.
+	 */
+	private SasParser parse(String domainFile, String instanceFile) throws IOException, InterruptedException {
+		String filename = TranslateFONDUtils.translateFOND(domainFile, instanceFile, translation.getRoot());
+
+		SasParser parser = new SasParser(context);
+		try (FileInputStream sasFile = new FileInputStream(new File(filename))) {
+			parser.parse(sasFile);
+		}
+		return parser;
+	}
+
+	/**
+	 * Check that two parsed tasks are equal, including the order of the
+	 * operators, their effects and the axioms.
+	 */
+	private static void assertSameTask(SasParser expected, SasParser actual) {
+		assertEquals(expected.fullObservable, actual.fullObservable);
+		assertEquals(expected.numberOfVariables, actual.numberOfVariables);
+		assertEquals(expected.variableNames, actual.variableNames);
+		assertEquals(expected.axiomLayer, actual.axiomLayer);
+		assertEquals(expected.domainSizes, actual.domainSizes);
+		assertEquals(expected.propositionNames, actual.propositionNames);
+		assertEquals(expected.defaultValues, actual.defaultValues);
+		assertEquals(expected.variablesWhichAreInitiallyKnown, actual.variablesWhichAreInitiallyKnown);
+		assertArrayEquals(expected.initialValuation, actual.initialValuation);
+		assertEquals(expected.goal, actual.goal);
+
+		assertEquals(expected.operators.size(), actual.operators.size());
+		Iterator<Operator> actualOperators = actual.operators.iterator();
+		for (Operator op : expected.operators) {
+			ExplicitOperator expectedOperator = (ExplicitOperator) op;
+			ExplicitOperator actualOperator = (ExplicitOperator) actualOperators.next();
+			assertEquals(expectedOperator.getName(), actualOperator.getName());
+			assertEquals(expectedOperator.getCost(), actualOperator.getCost(), 0);
+			assertEquals(expectedOperator, actualOperator);
+			assertEquals(new ArrayList<Object>(expectedOperator.getNondeterministicEffect()),
+					new ArrayList<Object>(actualOperator.getNondeterministicEffect()));
+		}
+		assertEquals(new ArrayList<Object>(expected.axioms), new ArrayList<Object>(actual.axioms));
+	}
+
+	private void assertRoundTrip(SasParser parsed) throws IOException {
+		Path file = folder.getRoot().toPath().resolve("task.sasb");
+		SasCacheFile.write(file, DIGEST, parsed);
+		SasParser read = SasCacheFile.read(file, DIGEST, context);
+		assertNotNull(read);
+		assertSameTask(parsed, read);
+		/* No temporary files are left behind. */
+		assertEquals(1, folder.getRoot().list().length);
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException, InterruptedException {
+		assertRoundTrip(parse("benchmarks/blocksworld-new/domain.pddl", "benchmarks/blocksworld-new/p3.pddl"));
+	}
+
+	@Test
+	public void testRoundTripWithAxioms() throws IOException, InterruptedException {
+		SasParser parsed = parse("benchmarks/zenotravel/domain.pddl", "benchmarks/zenotravel/p2.pddl");
+		assertTrue(!parsed.axioms.isEmpty());
+		assertRoundTrip(parsed);
+	}
+
+	@Test
+	public void testDigestMismatch() throws IOException, InterruptedException {
+		SasParser parsed = parse("benchmarks/doors/domain.pddl", "benchmarks/doors/p3.pddl");
+		Path file = folder.getRoot().toPath().resolve("task.sasb");
+		SasCacheFile.write(file, DIGEST, parsed);
+		assertNull(SasCacheFile.read(file, "fedcba9876543210", context));
+		assertNull(SasCacheFile.read(file, "", context));
+		assertNotNull(SasCacheFile.read(file, DIGEST, context));
+	}
+
+	@Test
+	public void testInvalidFiles() throws IOException, InterruptedException {
+		SasParser parsed = parse("benchmarks/doors/domain.pddl", "benchmarks/doors/p3.pddl");
+		Path file = folder.getRoot().toPath().resolve("task.sasb");
+		assertNull(SasCacheFile.read(file, DIGEST, context));
+
+		SasCacheFile.write(file, DIGEST, parsed);
+		byte[] bytes = Files.readAllBytes(file);
+		for (int length : new int[] { 0, 3, 10, bytes.length / 2, bytes.length - 1 }) {
+			Files.write(file, Arrays.copyOf(bytes, length));
+			assertNull(SasCacheFile.read(file, DIGEST, context));
+		}
+		Files.write(file, Arrays.copyOf(bytes, bytes.length + 4));
+		assertNull(SasCacheFile.read(file, DIGEST, context));
+	}
+
+	@Test
+	public void testParseWithCacheDirectory() throws IOException, InterruptedException, CmdLineException {
+		String filename = TranslateFONDUtils.translateFOND("benchmarks/zenotravel/domain.pddl", "benchmarks/zenotravel/p2.pddl",
+				translation.getRoot());
+
+		Options options = new Options();
+		new CmdLineParser(options).parseArgument("-sasCacheDir", folder.getRoot().getPath());
+		Problem parsed = new SasParser(new PlanningContext(options)).parse(filename);
+		assertEquals(1, folder.getRoot().list().length);
+		Problem loaded = new SasParser(new PlanningContext(options)).parse(filename);
+
+		List<Operator> parsedOperators = new ArrayList<Operator>(parsed.getOperators());
+		List<Operator> loadedOperators = new ArrayList<Operator>(loaded.getOperators());
+		assertEquals(parsedOperators, loadedOperators);
+		assertEquals(parsed.getSingleInitialState(), loaded.getSingleInitialState());
+	}
+}
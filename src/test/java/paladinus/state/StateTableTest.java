@@ -0,0 +1,132 @@
+package paladinus.state;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import org.junit.Test;
+
+import paladinus.Options;
+import paladinus.PlanningContext;
+import paladinus.explicit.ExplicitCondition;
+import paladinus.explicit.ExplicitOperator.OperatorRule;
+import paladinus.explicit.ExplicitState;
+import paladinus.problem.FullyObservableProblem;
+import paladinus.state.Operator;
+import paladinus.state.StateTable;
+
+public class StateTableTest {
+
+	/**
+	 * Create a problem without operators whose states are all valuations of
+	 * numVars variables with the given domain size.
+	 */
+	private static FullyObservableProblem problem(int numVars, int domainSize) {
+		ArrayList<String> variableNames = new ArrayList<String>();
+		List<List<String>> propositionNames = new ArrayList<List<String>>();
+		for (int var = 0; var < numVars; var++) {
+			variableNames.add("var" + var);
+			List<String> names = new ArrayList<String>();
+			for (int value = 0; value < domainSize; value++) {
+				names.add("Atom p" + var + "-" + value + "()");
+			}
+			propositionNames.add(names);
+		}
+		return new FullyObservableProblem(new PlanningContext(new Options()), new int[numVars],
+				new ExplicitCondition(new HashMap<Integer, Integer>()), variableNames, propositionNames,
+				new ArrayList<Integer>(Collections.nCopies(numVars, domainSize)),
+				new ArrayList<Integer>(Collections.nCopies(numVars, -1)),
+				new ArrayList<Integer>(Collections.nCopies(numVars, 0)), new LinkedHashSet<Operator>(),
+				new HashSet<OperatorRule>());
+	}
+
+	/**
+	 * Get the state whose values are the digits of the given number.
+	 */
+	private static ExplicitState state(FullyObservableProblem problem, long number) {
+		int domainSize = problem.domainSizes.get(0);
+		int[] values = new int[problem.numStateVars];
+		for (int var = values.length - 1; var >= 0 && number > 0; var--) {
+			values[var] = (int) (number % domainSize);
+			number /= domainSize;
+		}
+		return new ExplicitState(problem, values, problem.explicitAxiomEvaluator);
+	}
+
+	/**
+	 * Insert enough states to grow the table several times and find all of them
+	 * again, also in insertion order.
+	 */
+	private void assertStoresStates(FullyObservableProblem problem, int keyWidth) {
+		assertEquals(keyWidth, problem.getSingleInitialState().getKeyWidth());
+		StateTable<Integer> table = new StateTable<Integer>(keyWidth, 4);
+		int n = 5000;
+		for (int i = 0; i < n; i++) {
+			assertNull(table.put(state(problem, i), i));
+		}
+		assertEquals(n, table.size());
+		for (int i = 0; i < n; i++) {
+			assertEquals(Integer.valueOf(i), table.get(state(problem, i)));
+		}
+		for (int i = n; i < 2 * n; i++) {
+			assertNull(table.get(state(problem, i)));
+			assertFalse(table.containsKey(state(problem, i)));
+		}
+		List<Integer> values = table.values();
+		assertEquals(n, values.size());
+		for (int i = 0; i < n; i++) {
+			assertEquals(Integer.valueOf(i), values.get(i));
+		}
+	}
+
+	@Test
+	public void testSingleWordKeys() {
+		assertStoresStates(problem(20, 3), 1);
+	}
+
+	@Test
+	public void testMultiWordKeys() {
+		assertStoresStates(problem(40, 3), 2);
+	}
+
+	@Test
+	public void testStatesDifferingInLaterWords() {
+		FullyObservableProblem problem = problem(40, 3);
+		StateTable<String> table = new StateTable<String>(2);
+		// The last variables are packed into the second word.
+		ExplicitState first = state(problem, 1);
+		ExplicitState second = state(problem, 2);
+		table.put(first, "first");
+		table.put(second, "second");
+		assertEquals("first", table.get(state(problem, 1)));
+		assertEquals("second", table.get(state(problem, 2)));
+	}
+
+	@Test
+	public void testReplaceAndClear() {
+		FullyObservableProblem problem = problem(5, 2);
+		StateTable<String> table = new StateTable<String>(1);
+		assertNull(table.put(state(problem, 3), "old"));
+		assertEquals("old", table.put(state(problem, 3), "new"));
+		assertEquals(1, table.size());
+		assertEquals("new", table.get(state(problem, 3)));
+		assertTrue(table.containsKey(state(problem, 3)));
+		table.put(state(problem, 1), "other");
+		table.put(state(problem, 3), "newer");
+		assertEquals(Arrays.asList("newer", "other"), table.values());
+
+		table.clear();
+		assertEquals(0, table.size());
+		assertNull(table.get(state(problem, 3)));
+		assertTrue(table.values().isEmpty());
+	}
+}
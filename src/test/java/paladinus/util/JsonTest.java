@@ -0,0 +1,76 @@
+package paladinus.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+
+public class JsonTest {
+
+	@Test
+	public void testValues() {
+		Map<String, Object> object = Json.parseObject(
+				" {\"string\": \"text\", \"int\": 42, \"double\": -1.5e3, \"true\": true, \"false\": false, \"null\": null}\n");
+		assertEquals(Arrays.asList("string", "int", "double", "true", "false", "null"),
+				Arrays.asList(object.keySet().toArray()));
+		assertEquals("text", object.get("string"));
+		assertEquals(42.0, object.get("int"));
+		assertEquals(-1500.0, object.get("double"));
+		assertEquals(Boolean.TRUE, object.get("true"));
+		assertEquals(Boolean.FALSE, object.get("false"));
+		assertTrue(object.containsKey("null"));
+		assertNull(object.get("null"));
+	}
+
+	@Test
+	public void testEscapes() {
+		Map<String, Object> object = Json.parseObject("{\"s\": \"a\\\"b\\\\c\\/d\\b\\f\\n\\r\\t\\u00e9\\u0041\"}");
+		assertEquals("a\"b\\c/d\b\f\n\r\t\u00e9A", object.get("s"));
+	}
+
+	@Test
+	public void testQuote() {
+		String string = "quote \" backslash \\ newline \n return \r tab \t bell \u0007 unicode \u00e9";
+		String quoted = Json.quote(string);
+		assertEquals("\"quote \\\" backslash \\\\ newline \\n return \\r tab \\t bell \\u0007 unicode \u00e9\"", quoted);
+		assertEquals(string, Json.parseObject("{\"s\": " + quoted + "}").get("s"));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testNesting() {
+		Map<String, Object> object = Json.parseObject(
+				"{\"args\": [\"-search\", \"DFS\", [1, [2, []]], {}], \"job\": {\"id\": 1, \"inner\": {\"list\": [true, null]}}}");
+		List<Object> args = (List<Object>) object.get("args");
+		assertEquals(4, args.size());
+		assertEquals("-search", args.get(0));
+		assertEquals(Arrays.asList(1.0, Arrays.asList(2.0, Collections.emptyList())), args.get(2));
+		assertEquals(Collections.emptyMap(), args.get(3));
+		Map<String, Object> job = (Map<String, Object>) object.get("job");
+		assertEquals(1.0, job.get("id"));
+		assertEquals(Arrays.asList(true, null), ((Map<String, Object>) job.get("inner")).get("list"));
+	}
+
+	@Test
+	public void testMalformedInput() {
+		String[] malformed = { "", "   ", "[1, 2]", "\"string\"", "{", "{\"a\"", "{\"a\" 1}", "{\"a\": 1,}", "{\"a\": 1 \"b\": 2}",
+				"{a: 1}", "{\"a\": 1} x", "{\"a\": 1}}", "{\"a\": tru}", "{\"a\": nul}", "{\"a\": [1, 2}", "{\"a\": [1,]}",
+				"{\"a\": \"abc}", "{\"a\": \"\\u12\"}", "{\"a\": \"\\u12", "{\"a\": 1.2.3}", "{\"a\": -}", "{\"a\": +}" };
+		for (String text : malformed) {
+			try {
+				Json.parseObject(text);
+				fail("Parsed malformed JSON " + text);
+			} catch (IllegalArgumentException e) {
+				assertTrue(e.getMessage().startsWith("JSON error at position "));
+			}
+		}
+	}
+}